@@ -0,0 +1,218 @@
+package frc.robot;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.ctre.phoenix6.unmanaged.Unmanaged;
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.util.NoteSimulator;
+
+/**
+ * @brief Runs autonomous routines headlessly, as fast as the computer allows
+ *
+ *        The robot is booted in simulation with simulated time paused. Time is then stepped one
+ *        loop at a time, so an auto takes as long as its code takes to run, not 15 seconds. For
+ *        every auto this prints whether it finished, how long it took in robot time, how far the
+ *        robot ended from the end of the auto's last path, how many notes it shot (see
+ *        NoteSimulator) and how long the robot loops took. The autos come from the robot's
+ *        AutoLoader, so the harness runs the same commands the robot does.
+ *
+ *        Every auto runs in its own JVM, since the robot code uses singletons, several at a time:
+ *
+ *        ./gradlew autoHarness -Pautos="Central 3,Left 2"
+ *
+ *        Without autos, every auto in deploy/pathplanner/autos is run. The exit code is the
+ *        number of autos that did not finish.
+ */
+public final class AutoHarness {
+  // how long an auto may take before it counts as broken (seconds)
+  private static final double kTimeout = 20.0;
+  static final double kLoopPeriod = 0.02;
+  static final int kMaxLoops = (int) Math.ceil(kTimeout / kLoopPeriod);
+  // alliance station the autos run from
+  private static final AllianceStationID kStation = AllianceStationID.Blue1;
+
+  private AutoHarness() {}
+
+  /**
+   * @brief run autos
+   *
+   * @param args [-j jobs] auto names
+   * @throws Exception if an auto can't be run
+   */
+  public static void main(String... args) throws Exception {
+    int jobs = Runtime.getRuntime().availableProcessors();
+    final ArrayList<String> autos = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-j") && i + 1 < args.length)
+        jobs = Integer.parseInt(args[++i]);
+      else
+        autos.add(args[i]);
+    }
+    if (autos.isEmpty())
+      autos.addAll(listAutos());
+    if (autos.size() == 1)
+      System.exit(run(autos.get(0)));
+    final int failed = ReplayRunner.runInJvms(AutoHarness.class, autos, jobs);
+    System.out.println("Ran " + autos.size() + " autos, " + failed + " failed");
+    System.exit(failed);
+  }
+
+  /**
+   * @brief list every auto in the deploy directory
+   *
+   * @return List<String> auto names
+   */
+  static List<String> listAutos() {
+    final File[] files =
+        new File(Filesystem.getDeployDirectory(), "pathplanner/autos").listFiles();
+    final ArrayList<String> autos = new ArrayList<>();
+    if (files == null)
+      return autos;
+    for (final File file : files) {
+      if (file.getName().endsWith(".auto"))
+        autos.add(file.getName().substring(0, file.getName().length() - ".auto".length()));
+    }
+    autos.sort(null);
+    return autos;
+  }
+
+  /**
+   * @brief run an auto in this JVM
+   *
+   * @param name name of the auto
+   * @return int 0 if the auto finished
+   */
+  private static int run(String name) {
+    final long start = System.nanoTime();
+    final Robot robot = boot(kStation);
+    if (robot == null)
+      return 1;
+    final double bootTime = (System.nanoTime() - start) / 1e9;
+
+    final Command auto = buildAuto(robot, name);
+    final long[] loopNanos = new long[kMaxLoops];
+    final long autoStart = System.nanoTime();
+    final int loops = runAuto(robot, auto, loopNanos);
+    final double elapsed = (System.nanoTime() - autoStart) / 1e9;
+    final boolean finished = !auto.isScheduled();
+    final double autoTime = loops * kLoopPeriod;
+    final double poseError = getPoseError(name, RobotContainer.m_drivetrain.getPose());
+
+    Arrays.sort(loopNanos, 0, loops);
+    long total = 0;
+    for (int i = 0; i < loops; i++) {
+      total += loopNanos[i];
+    }
+    System.out.printf(
+        "%s: %s in %.2f s, pose error %.3f m, %d notes shot, loop mean %.2f ms p99 %.2f ms"
+            + " max %.2f ms, boot %.2f s, ran %.1fx real time%n",
+        name, finished ? "finished" : "TIMED OUT", autoTime, poseError,
+        NoteSimulator.getInstance().getShotCount(),
+        total / 1e6 / Math.max(loops, 1), loopNanos[(int) (0.99 * (loops - 1))] / 1e6,
+        loopNanos[loops - 1] / 1e6, bootTime, autoTime / elapsed);
+    return finished ? 0 : 1;
+  }
+
+  /**
+   * @brief get an auto's command from the robot's AutoLoader, the one the robot runs
+   *
+   * @param robot the robot, booted
+   * @param name name of the auto
+   * @return Command
+   */
+  static Command buildAuto(Robot robot, String name) {
+    return robot.getRobotContainer().getAutonomousCommand(name);
+  }
+
+  /**
+   * @brief enable the robot in autonomous and run an auto until it ends or times out
+   *
+   *        The auto is still scheduled afterwards if it timed out. The robot is left enabled.
+   *
+   * @param robot the robot, booted
+   * @param auto the auto's command
+   * @param loopNanos filled with how long every loop took, at least kMaxLoops long
+   * @return int number of loops the auto ran
+   */
+  static int runAuto(Robot robot, Command auto, long[] loopNanos) {
+    int loops = 0;
+    DriverStationSim.setAutonomous(true);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+    CommandScheduler.getInstance().schedule(auto);
+    while (loops < kMaxLoops && (loops == 0 || auto.isScheduled())) {
+      DriverStationSim.setMatchTime(15.0 - loops * kLoopPeriod);
+      DriverStationSim.notifyNewData();
+      final long loopStart = System.nanoTime();
+      step(robot);
+      loopNanos[loops++] = System.nanoTime() - loopStart;
+    }
+    return loops;
+  }
+
+  /**
+   * @brief boot the robot in simulation, disabled, with simulated time paused
+   *
+   * @param station the alliance station to run from
+   * @return Robot after robotInit() and one disabled loop, null if the HAL didn't start
+   */
+  static Robot boot(AllianceStationID station) {
+    if (!HAL.initialize(500, 0)) {
+      System.err.println("Failed to initialize the HAL");
+      return null;
+    }
+    // time only moves when the harness steps it
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    DriverStationSim.setAllianceStationId(station);
+    DriverStationSim.setEnabled(false);
+    DriverStationSim.notifyNewData();
+    final Robot robot = new Robot();
+    robot.robotInit();
+    // one disabled loop, like the robot waiting for the match
+    robot.loopFunc();
+    SimHooks.stepTiming(kLoopPeriod);
+    return robot;
+  }
+
+  /**
+   * @brief run one robot loop, then move simulated time to the next one
+   *
+   * @param robot the robot
+   */
+  static void step(Robot robot) {
+    // phoenix devices only drive while enabled
+    Unmanaged.feedEnable(100);
+    robot.loopFunc();
+    SimHooks.stepTiming(kLoopPeriod);
+  }
+
+  /**
+   * @brief get the distance from the robot to the end of the auto's last path
+   *
+   * @param name name of the auto
+   * @param pose where the robot ended
+   * @return double meters, NaN if the auto has no paths
+   */
+  private static double getPoseError(String name, Pose2d pose) {
+    final List<PathPlannerPath> paths = PathPlannerAuto.getPathGroupFromAutoFile(name);
+    if (paths.isEmpty())
+      return Double.NaN;
+    final PathPlannerPath last = paths.get(paths.size() - 1);
+    final var points = last.getAllPathPoints();
+    return points.get(points.size() - 1).position.getDistance(pose.getTranslation());
+  }
+}
@@ -0,0 +1,143 @@
+package frc.robot;
+
+import java.util.function.Function;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.autonomous.MoveToPose;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+
+/**
+ * @brief Compares DriveToPose with MoveToPose in simulation
+ *
+ *        The robot is booted like in AutoHarness and enabled in teleop. For every move, the
+ *        robot is put at the start and each command drives it to the target. This prints how
+ *        long the command took to finish, how far the robot strayed from the straight line, and
+ *        how far it was from the target when the command ended and after holding still a while.
+ *
+ *        ./gradlew driveToPoseHarness
+ *
+ *        The exit code is the number of DriveToPose moves that did not finish.
+ */
+public final class DriveToPoseHarness {
+  // how long a move may take before it counts as broken (seconds)
+  private static final double kTimeout = 8.0;
+  // how long the robot holds still after a move (seconds)
+  private static final double kSettleTime = 1.0;
+  // start and target of every move, blue side
+  private static final Pose2d[][] kMoves = {
+      // diagonal with a quarter turn
+      {new Pose2d(2.0, 2.0, Rotation2d.fromDegrees(0)),
+          new Pose2d(5.0, 4.0, Rotation2d.fromDegrees(90))},
+      // along x with a half turn, longer to turn than to drive
+      {new Pose2d(2.0, 2.0, Rotation2d.fromDegrees(0)),
+          new Pose2d(6.0, 2.0, Rotation2d.fromDegrees(180))},
+      // short, like lining up to score
+      {new Pose2d(3.0, 5.0, Rotation2d.fromDegrees(0)),
+          new Pose2d(3.4, 5.3, Rotation2d.fromDegrees(0))},
+      // across the wrap of the angle
+      {new Pose2d(6.0, 6.0, Rotation2d.fromDegrees(170)),
+          new Pose2d(3.0, 3.0, Rotation2d.fromDegrees(-170))},
+      // turn in place
+      {new Pose2d(4.0, 4.0, Rotation2d.fromDegrees(0)),
+          new Pose2d(4.0, 4.0, Rotation2d.fromDegrees(170))}};
+
+  private DriveToPoseHarness() {}
+
+  /**
+   * @brief run every move with both commands
+   *
+   * @param args none
+   */
+  public static void main(String... args) {
+    final Robot robot = AutoHarness.boot(AllianceStationID.Blue1);
+    if (robot == null)
+      System.exit(1);
+    final CommandSwerveDrivetrain drivetrain = RobotContainer.m_drivetrain;
+    // teleop, so no auto runs, and the default command holds still between moves
+    DriverStationSim.setAutonomous(false);
+    DriverStationSim.setEnabled(true);
+    DriverStationSim.notifyNewData();
+    int failed = 0;
+    for (final Pose2d[] move : kMoves) {
+      System.out.printf("%s to %s:%n", format(move[0]), format(move[1]));
+      run(robot, drivetrain, "MoveToPose", target -> {
+        final Command command = new MoveToPose(target, drivetrain);
+        // MoveToPose doesn't require the drivetrain, so the default command would drive too
+        command.addRequirements(drivetrain);
+        return command;
+      }, move[0], move[1]);
+      if (!run(robot, drivetrain, "DriveToPose", drivetrain::driveToPose, move[0], move[1]))
+        failed++;
+    }
+    System.out.println("Ran " + kMoves.length + " moves, " + failed + " did not finish");
+    System.exit(failed);
+  }
+
+  /**
+   * @brief run one move with one command
+   *
+   * @return boolean true if the command finished
+   */
+  private static boolean run(Robot robot, CommandSwerveDrivetrain drivetrain, String name,
+      Function<Pose2d, Command> factory, Pose2d start, Pose2d target) {
+    drivetrain.seedFieldRelative(start);
+    final int settleLoops = (int) Math.ceil(kSettleTime / AutoHarness.kLoopPeriod);
+    for (int i = 0; i < settleLoops; i++) {
+      AutoHarness.step(robot);
+    }
+    final Command command = factory.apply(target);
+    CommandScheduler.getInstance().schedule(command);
+    final int maxLoops = (int) Math.ceil(kTimeout / AutoHarness.kLoopPeriod);
+    int loops = 0;
+    double offLine = 0;
+    while (loops < maxLoops && (loops == 0 || command.isScheduled())) {
+      AutoHarness.step(robot);
+      loops++;
+      offLine = Math.max(offLine,
+          distanceToSegment(drivetrain.getPose().getTranslation(), start, target));
+    }
+    final boolean finished = !command.isScheduled();
+    command.cancel();
+    final Pose2d end = drivetrain.getPose();
+    for (int i = 0; i < settleLoops; i++) {
+      AutoHarness.step(robot);
+    }
+    final Pose2d settled = drivetrain.getPose();
+    System.out.printf(
+        "  %-11s %s in %.2f s, %.3f m off the line, error %.3f m %.3f rad at the end,"
+            + " %.3f m %.3f rad after %.1f s%n",
+        name, finished ? "finished" : "TIMED OUT", loops * AutoHarness.kLoopPeriod, offLine,
+        end.getTranslation().getDistance(target.getTranslation()),
+        Math.abs(end.getRotation().minus(target.getRotation()).getRadians()),
+        settled.getTranslation().getDistance(target.getTranslation()),
+        Math.abs(settled.getRotation().minus(target.getRotation()).getRadians()), kSettleTime);
+    return finished;
+  }
+
+  /**
+   * @brief get the distance from a point to the segment between two poses
+   */
+  private static double distanceToSegment(Translation2d point, Pose2d start, Pose2d end) {
+    final double dx = end.getX() - start.getX();
+    final double dy = end.getY() - start.getY();
+    final double lengthSquared = dx * dx + dy * dy;
+    double t = 0;
+    if (lengthSquared > 0) {
+      t = ((point.getX() - start.getX()) * dx + (point.getY() - start.getY()) * dy)
+          / lengthSquared;
+      t = Math.max(0, Math.min(1, t));
+    }
+    return Math.hypot(point.getX() - start.getX() - t * dx, point.getY() - start.getY() - t * dy);
+  }
+
+  private static String format(Pose2d pose) {
+    return String.format("(%.1f, %.1f, %.0f deg)", pose.getX(), pose.getY(),
+        pose.getRotation().getDegrees());
+  }
+}
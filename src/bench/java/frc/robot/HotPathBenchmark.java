@@ -0,0 +1,209 @@
+package frc.robot;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ctre.phoenix6.mechanisms.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.WPIUtilJNI;
+import frc.robot.Constants.Limelight;
+import frc.robot.autonomous.DriveToPose;
+import frc.robot.autonomous.MoveToPose;
+import frc.robot.autonomous.TurnToPose;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+
+/**
+ * @brief JMH benchmarks of the code that runs every robot loop, off the robot
+ *
+ *        The robot is booted in simulation like in AutoHarness, so the drivetrain, the HAL and
+ *        NetworkTables are the simulated ones. Telemetry and the camera publish to a local
+ *        NetworkTables instance. With the GC profiler every benchmark reports ns/op and the bytes
+ *        allocated per op (gc.alloc.rate.norm). Run it before and after a change to tell a
+ *        regression from a gain before the code goes to the roboRIO:
+ *
+ *        ./gradlew benchmarkHotPaths
+ *
+ *        Converting paths is measured by PathConversionBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPathBenchmark {
+  private CommandSwerveDrivetrain m_drivetrain;
+  private RobotContainer m_container;
+  private SwerveDriveState m_state;
+  private NetworkTableInstance m_inst;
+  private Telemetry m_telemetry;
+  private final ChassisSpeeds m_speeds = new ChassisSpeeds(1.0, 0.5, 0.2);
+  private MoveToPose m_moveToPose;
+  private DriveToPose m_driveToPose;
+  private TurnToPose m_turnToPose;
+  private final Rotation2d m_heading = Rotation2d.fromDegrees(90);
+
+  /**
+   * @brief a camera publishing to a local NetworkTables instance
+   */
+  @State(Scope.Benchmark)
+  public static class Camera {
+    private NetworkTableInstance m_inst;
+    private Vision m_camera;
+    private DoubleArrayPublisher m_botpose;
+    private long m_frameTime = 0;
+    private double m_sink = 0;
+    private final Consumer<Vision.Frame> m_consumer = frame -> m_sink += frame.tagDistance;
+
+    @Setup(Level.Trial)
+    public void open() {
+      m_inst = NetworkTableInstance.create();
+      m_camera = new Vision("limelight-bench", null, m_inst);
+      m_camera.init();
+      m_botpose =
+          m_inst.getTable("limelight-bench").getDoubleArrayTopic("botpose_wpiblue").publish();
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+      m_inst.close();
+    }
+  }
+
+  /**
+   * @brief a camera queue filled before every Vision.poll, so it always has kQueueDepth frames
+   */
+  @State(Scope.Benchmark)
+  public static class FullQueue {
+    // 2024 firmware layout: pose, latency, tag count, span, distance, area
+    private final double[] m_frame = {3.0, 4.0, 0.0, 0.0, 0.0, 30.0, 25.0, 2.0, 1.0, 2.5, 0.4};
+
+    @Setup(Level.Invocation)
+    public void fill(Camera camera) {
+      for (int i = 0; i < Limelight.kQueueDepth; i++) {
+        // every frame needs a newer timestamp than the last one
+        camera.m_frameTime = Math.max(WPIUtilJNI.now(), camera.m_frameTime + 1);
+        camera.m_botpose.set(m_frame, camera.m_frameTime);
+      }
+    }
+  }
+
+  /**
+   * @brief boot the robot and build what the benchmarks call
+   */
+  @Setup(Level.Trial)
+  public void boot() {
+    final Robot robot = AutoHarness.boot(AllianceStationID.Blue1);
+    if (robot == null)
+      throw new IllegalStateException("the HAL didn't start");
+    m_drivetrain = RobotContainer.m_drivetrain;
+    m_container = robot.getRobotContainer();
+    m_drivetrain.seedFieldRelative(new Pose2d(2.0, 2.0, Rotation2d.fromDegrees(0)));
+    AutoHarness.step(robot);
+    m_state = m_drivetrain.getState();
+    m_inst = NetworkTableInstance.create();
+    // its own instance, without the notifier and dashboard widgets of the robot's telemetry
+    m_telemetry = new Telemetry(6.0, m_inst);
+    final Pose2d target = new Pose2d(5.0, 4.0, Rotation2d.fromDegrees(90));
+    m_moveToPose = new MoveToPose(target, m_drivetrain);
+    m_moveToPose.initialize();
+    m_driveToPose = new DriveToPose(target, m_drivetrain);
+    m_driveToPose.initialize();
+    m_turnToPose = new TurnToPose(m_drivetrain);
+  }
+
+  /**
+   * @brief stop the drivetrain and close the local instance
+   */
+  @TearDown(Level.Trial)
+  public void close() {
+    m_drivetrain.driveFieldRelative(0, 0, 0);
+    m_inst.close();
+  }
+
+  @Benchmark
+  public void telemetrySnapshot() {
+    m_telemetry.telemeterize(m_state);
+  }
+
+  @Benchmark
+  public void telemetryPublish() {
+    m_telemetry.telemeterize(m_state);
+    m_telemetry.publish();
+  }
+
+  @Benchmark
+  public void updatePoseEstimator() {
+    m_container.updatePoseEstimator();
+  }
+
+  @Benchmark
+  public ChassisSpeeds getChassisSpeeds() {
+    return m_drivetrain.getChassisSpeeds();
+  }
+
+  @Benchmark
+  public Pose2d getPose() {
+    return m_drivetrain.getPose();
+  }
+
+  @Benchmark
+  public void driveRobotRelative() {
+    m_drivetrain.driveRobotRelative(m_speeds);
+  }
+
+  @Benchmark
+  public void driveFieldRelative() {
+    m_drivetrain.driveFieldRelative(1.0, 0.5, 0.2);
+  }
+
+  @Benchmark
+  public void moveToPoseExecute() {
+    m_moveToPose.execute();
+  }
+
+  @Benchmark
+  public void driveToPoseExecute() {
+    m_driveToPose.execute();
+  }
+
+  @Benchmark
+  public double turnToPoseVelocity() {
+    return m_turnToPose.velocity(m_heading);
+  }
+
+  /**
+   * @brief read a full queue of frames, per frame, publishing them isn't measured
+   */
+  @Benchmark
+  @OperationsPerInvocation(Limelight.kQueueDepth)
+  public double visionPoll(Camera camera, FullQueue queue) {
+    camera.m_camera.poll(camera.m_consumer);
+    return camera.m_sink;
+  }
+
+  @Benchmark
+  public Pose2d visionGetPos2D(Camera camera) {
+    return camera.m_camera.getPos2D();
+  }
+}
@@ -0,0 +1,140 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.util.InputLog;
+
+/**
+ * @brief Replays recorded matches through the robot code on a computer
+ *
+ *        The robot is constructed as usual, but every input reads from the log instead of the
+ *        devices (see InputLog). Simulated time is paused and stepped from one recorded loop to
+ *        the next, so the replay runs as fast as the code does and every loop sees the same
+ *        timestamps it saw on the field. The outputs of the replay (pose, fused vision) are
+ *        written to [log]_replay.wpilog next to the log, to be compared with the original.
+ *
+ *        The robot code uses singletons, so every log is replayed in its own JVM. Several logs
+ *        are replayed in parallel, one JVM per core by default:
+ *
+ *        ./gradlew replay -Plogs=FRC_1.wpilog,FRC_2.wpilog
+ */
+public final class ReplayRunner {
+  private ReplayRunner() {}
+
+  /**
+   * @brief replay logs
+   *
+   * @param args [-j jobs] log files
+   * @throws Exception if a replay fails
+   */
+  public static void main(String... args) throws Exception {
+    int jobs = Runtime.getRuntime().availableProcessors();
+    final ArrayList<String> logs = new ArrayList<>();
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-j") && i + 1 < args.length)
+        jobs = Integer.parseInt(args[++i]);
+      else
+        logs.add(args[i]);
+    }
+    if (logs.isEmpty()) {
+      System.err.println("usage: ReplayRunner [-j jobs] <log.wpilog>...");
+      System.exit(1);
+    }
+    if (logs.size() == 1)
+      System.exit(replay(new File(logs.get(0))));
+    final int failed = runInJvms(ReplayRunner.class, logs, jobs);
+    System.out.println("Replayed " + logs.size() + " logs, " + failed + " failed");
+    System.exit(failed);
+  }
+
+  /**
+   * @brief run a main class once per argument, every run in its own JVM
+   *
+   *        The JVMs inherit this JVM's classpath and native library path.
+   *
+   * @param mainClass the class to run
+   * @param runs the argument of every run
+   * @param jobs how many JVMs to run at once
+   * @return int number of runs that failed
+   * @throws IOException if a JVM can't be started
+   * @throws InterruptedException if interrupted while waiting for a JVM
+   */
+  static int runInJvms(Class<?> mainClass, List<String> runs, int jobs)
+      throws IOException, InterruptedException {
+    final String java = ProcessHandle.current().info().command().orElse("java");
+    final ArrayDeque<String> pending = new ArrayDeque<>(runs);
+    final ArrayList<Process> running = new ArrayList<>();
+    int failed = 0;
+    while (!pending.isEmpty() || !running.isEmpty()) {
+      while (!pending.isEmpty() && running.size() < jobs) {
+        running.add(new ProcessBuilder(java,
+            "-Djava.library.path=" + System.getProperty("java.library.path"), "-cp",
+            System.getProperty("java.class.path"), mainClass.getName(), pending.poll())
+            .inheritIO().start());
+      }
+      // wait for the oldest, they take about as long as each other
+      final Process process = running.remove(0);
+      if (process.waitFor() != 0)
+        failed++;
+    }
+    return failed;
+  }
+
+  /**
+   * @brief replay a log in this JVM
+   *
+   * @param log the log file
+   * @return int exit code
+   * @throws IOException if the log can't be read
+   */
+  private static int replay(File log) throws IOException {
+    final String name = log.getName().replaceFirst("\\.wpilog$", "");
+    final File output = new File(log.getAbsoluteFile().getParentFile(), name + "_replay.wpilog");
+    if (!HAL.initialize(500, 0)) {
+      System.err.println("Failed to initialize the HAL");
+      return 1;
+    }
+    final InputLog inputLog = InputLog.startReplay(log, output);
+    if (inputLog.getCycleCount() == 0) {
+      System.err.println(log + " has no recorded loops");
+      return 1;
+    }
+    // time only moves when the replay steps it
+    SimHooks.pauseTiming();
+    DriverStationSim.setDsAttached(true);
+    final long start = System.nanoTime();
+    final Robot robot = new Robot();
+    robot.robotInit();
+    final AllianceStationID[] stations = AllianceStationID.values();
+    int cycles = 0;
+    while (inputLog.nextCycle()) {
+      SimHooks.stepTiming(Math.max(inputLog.getCycleTime() - Timer.getFPGATimestamp(), 0));
+      final double[] ds = inputLog.getDriverStationState();
+      if (ds != null) {
+        DriverStationSim.setEnabled(ds[0] != 0);
+        DriverStationSim.setAutonomous(ds[1] != 0);
+        DriverStationSim.setTest(ds[2] != 0);
+        DriverStationSim.setAllianceStationId(stations[(int) ds[3]]);
+        DriverStationSim.setMatchTime(ds[4]);
+        DriverStationSim.notifyNewData();
+      }
+      robot.loopFunc();
+      cycles++;
+    }
+    inputLog.flush();
+    final double elapsed = (System.nanoTime() - start) / 1e9;
+    final double duration = cycles * robot.getPeriod();
+    System.out.printf("%s: %d loops, %.1f s of match in %.1f s (%.1fx)%n", log.getName(), cycles,
+        duration, elapsed, duration / elapsed);
+    return 0;
+  }
+}
@@ -0,0 +1,237 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import frc.robot.Constants.PoseEstimation;
+import frc.robot.TableNoiseModel;
+import frc.robot.TableNoiseModel.Table;
+
+/**
+ * @brief Fits the vision noise model table from robot logs
+ *
+ *        Reads the samples TableNoiseModel logs for every frame and fits:
+ *
+ *        - the base table, from frames taken while the robot was still, binned by tag count and
+ *        the nearest table distance. Bins without enough frames keep their previous value
+ *
+ *        - the speed gains, from frames taken while moving, by least squares on the variance left
+ *        over after the base table
+ *
+ *        - the ambiguity gain, from still frames with a known ambiguity
+ *
+ *        The residuals are measured against the pose estimate, so the estimate's own variance is
+ *        subtracted out. Runs on a computer, not on the robot:
+ *
+ *        ./gradlew fitVisionNoise -Plogs=a.wpilog,b.wpilog
+ */
+public class NoiseModelFitter {
+  // frames below these speeds count as still
+  private static final double kStillSpeed = 0.2; // meters per second
+  private static final double kStillAngularSpeed = 0.2; // radians per second
+  // frames with less ambiguity than this are used for the base table
+  private static final double kClearAmbiguity = 0.2;
+  // frames a bin needs before its value is replaced
+  private static final int kMinBinSamples = 30;
+  // smallest standard deviation the fitter will write
+  private static final double kMinStdDev = 0.01;
+
+  /**
+   * @brief fit the table
+   *
+   * @param args the table file to update, followed by the log files
+   * @throws IOException if a file can't be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: NoiseModelFitter <table.json> <log.wpilog>...");
+      System.exit(1);
+    }
+    final File tableFile = new File(args[0]);
+    final Table table =
+        tableFile.exists() ? TableNoiseModel.load(tableFile) : TableNoiseModel.defaultTable();
+    final ArrayList<double[]> samples = new ArrayList<>();
+    for (int i = 1; i < args.length; i++) {
+      readSamples(args[i], samples);
+    }
+    System.out.println("Read " + samples.size() + " samples");
+    if (samples.isEmpty())
+      return;
+    fitBaseTable(table, samples);
+    fitSpeedGains(table, samples);
+    fitAmbiguityGain(table, samples);
+    new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(tableFile, table);
+    System.out.println("Wrote " + tableFile);
+  }
+
+  /**
+   * @brief read the noise samples of every camera from a log
+   *
+   * @param path the log file
+   * @param samples where to add the samples
+   * @throws IOException if the log can't be read
+   */
+  private static void readSamples(String path, ArrayList<double[]> samples) throws IOException {
+    final DataLogReader reader = new DataLogReader(path);
+    if (!reader.isValid()) {
+      System.err.println("Skipping " + path + ", not a valid log");
+      return;
+    }
+    final HashMap<Integer, String> entries = new HashMap<>();
+    for (final DataLogRecord record : reader) {
+      if (record.isStart()) {
+        final DataLogRecord.StartRecordData start = record.getStartData();
+        entries.put(start.entry, start.name);
+      } else if (!record.isControl()) {
+        final String name = entries.get(record.getEntry());
+        if (name != null && name.endsWith(TableNoiseModel.kSampleEntrySuffix)) {
+          final double[] sample = record.getDoubleArray();
+          if (sample.length == TableNoiseModel.kSampleLength)
+            samples.add(sample);
+        }
+      }
+    }
+  }
+
+  /**
+   * @brief fit the base table from still, unambiguous frames
+   */
+  private static void fitBaseTable(Table table, ArrayList<double[]> samples) {
+    final int rows = table.translation.length;
+    final int columns = table.distances.length;
+    final double[][] translationSum = new double[rows][columns];
+    final double[][] rotationSum = new double[rows][columns];
+    final int[][] counts = new int[rows][columns];
+    for (final double[] sample : samples) {
+      if (!isStill(sample) || sample[TableNoiseModel.kSampleAmbiguity] > kClearAmbiguity)
+        continue;
+      final int row = getRow(table, sample);
+      final int column = nearest(table.distances, sample[TableNoiseModel.kSampleDistance]);
+      translationSum[row][column] += translationResidual(sample);
+      rotationSum[row][column] += square(sample[TableNoiseModel.kSampleDtheta]);
+      counts[row][column]++;
+    }
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        final int count = counts[row][column];
+        System.out.printf("%d tags, %.1f m: %d samples%n", row + 1, table.distances[column],
+            count);
+        if (count < kMinBinSamples)
+          continue;
+        table.translation[row][column] = stdDev(translationSum[row][column] / count,
+            square(PoseEstimation.kStateStdDevs[0]));
+        table.rotation[row][column] = stdDev(rotationSum[row][column] / count,
+            square(PoseEstimation.kStateStdDevs[1]));
+      }
+    }
+  }
+
+  /**
+   * @brief fit the speed gains from moving frames
+   *
+   *        The extra variance of a moving frame is modeled as (gain * speed)^2, so the gain is the
+   *        least squares fit of the leftover variance against speed^2.
+   */
+  private static void fitSpeedGains(Table table, ArrayList<double[]> samples) {
+    double translationNumerator = 0;
+    double translationDenominator = 0;
+    double rotationNumerator = 0;
+    double rotationDenominator = 0;
+    for (final double[] sample : samples) {
+      if (isStill(sample))
+        continue;
+      final int row = getRow(table, sample);
+      final double distance = sample[TableNoiseModel.kSampleDistance];
+      final double speed = square(sample[TableNoiseModel.kSampleSpeed]);
+      final double angularSpeed = square(sample[TableNoiseModel.kSampleAngularSpeed]);
+      final double translationExcess = translationResidual(sample)
+          - square(TableNoiseModel.interpolate(table.distances, table.translation[row], distance))
+          - square(PoseEstimation.kStateStdDevs[0]);
+      final double rotationExcess = square(sample[TableNoiseModel.kSampleDtheta])
+          - square(TableNoiseModel.interpolate(table.distances, table.rotation[row], distance))
+          - square(PoseEstimation.kStateStdDevs[1]);
+      translationNumerator += translationExcess * speed;
+      translationDenominator += speed * speed;
+      rotationNumerator += rotationExcess * angularSpeed;
+      rotationDenominator += angularSpeed * angularSpeed;
+    }
+    if (translationDenominator > 0)
+      table.translationSpeedGain =
+          Math.sqrt(Math.max(translationNumerator / translationDenominator, 0));
+    if (rotationDenominator > 0)
+      table.rotationSpeedGain = Math.sqrt(Math.max(rotationNumerator / rotationDenominator, 0));
+    System.out.printf("Speed gains: %.3f m/(m/s), %.3f rad/(rad/s)%n",
+        table.translationSpeedGain, table.rotationSpeedGain);
+  }
+
+  /**
+   * @brief fit the ambiguity gain from still frames with a known ambiguity
+   *
+   *        The standard deviation of a frame is modeled as base * (1 + gain * ambiguity), so the
+   *        gain is the least squares fit of (residual / base - 1) against the ambiguity.
+   */
+  private static void fitAmbiguityGain(Table table, ArrayList<double[]> samples) {
+    double numerator = 0;
+    double denominator = 0;
+    for (final double[] sample : samples) {
+      final double ambiguity = sample[TableNoiseModel.kSampleAmbiguity];
+      if (!isStill(sample) || ambiguity < 0)
+        continue;
+      final int row = getRow(table, sample);
+      final double base = TableNoiseModel.interpolate(table.distances, table.translation[row],
+          sample[TableNoiseModel.kSampleDistance]);
+      final double ratio = Math.sqrt(
+          Math.max(translationResidual(sample) - square(PoseEstimation.kStateStdDevs[0]), 0))
+          / base;
+      numerator += (ratio - 1) * ambiguity;
+      denominator += ambiguity * ambiguity;
+    }
+    if (denominator > 0)
+      table.ambiguityGain = Math.max(numerator / denominator, 0);
+    System.out.printf("Ambiguity gain: %.3f%n", table.ambiguityGain);
+  }
+
+  private static boolean isStill(double[] sample) {
+    return sample[TableNoiseModel.kSampleSpeed] < kStillSpeed
+        && sample[TableNoiseModel.kSampleAngularSpeed] < kStillAngularSpeed;
+  }
+
+  private static int getRow(Table table, double[] sample) {
+    return Math.min(Math.max((int) sample[TableNoiseModel.kSampleTagCount], 1),
+        table.translation.length) - 1;
+  }
+
+  /**
+   * @brief get the squared translation residual of a sample, per axis
+   */
+  private static double translationResidual(double[] sample) {
+    return (square(sample[TableNoiseModel.kSampleDx]) + square(sample[TableNoiseModel.kSampleDy]))
+        / 2;
+  }
+
+  /**
+   * @brief get a standard deviation from a measured variance, without the estimate's variance
+   */
+  private static double stdDev(double variance, double estimateVariance) {
+    return Math.max(Math.sqrt(Math.max(variance - estimateVariance, 0)), kMinStdDev);
+  }
+
+  private static int nearest(double[] values, double value) {
+    int nearest = 0;
+    for (int i = 1; i < values.length; i++) {
+      if (Math.abs(values[i] - value) < Math.abs(values[nearest] - value))
+        nearest = i;
+    }
+    return nearest;
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+}
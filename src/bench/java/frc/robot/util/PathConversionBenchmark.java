@@ -0,0 +1,185 @@
+package frc.robot.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.Constants.Drivetrain;
+import frc.robot.Constants.Field;
+import frc.robot.Constants.Pathfinding;
+import frc.robot.autonomous.TrajectoryGen;
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+
+/**
+ * @brief Compares PathConverter with the three step conversion of Oxplorer paths it replaced
+ *
+ *        The old conversion made a Pose2d list with path.asPose2dList(), bezier points from it
+ *        with PathPlannerPath.bezierFromPoses(), a second Pose2d list from those, then the path.
+ *        Over random paths across the field, this prints the time and heap allocated per
+ *        conversion, for the bezier points alone and for the whole PathPlannerPath. Runs on a
+ *        computer, not on the robot:
+ *
+ *        ./gradlew benchmarkPathConversion
+ */
+public final class PathConversionBenchmark {
+  private static final int kPaths = 200;
+  private static final int kWarmupRounds = 20;
+  private static final int kRounds = 50;
+  private static final long kSeed = 6364;
+  // field width, the length is in Constants (meters)
+  private static final double kFieldWidth = 8.211;
+
+  private static final com.sun.management.ThreadMXBean kThreadBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  private static final PathConstraints kConstraints =
+      new PathConstraints(Drivetrain.kMaxLateralSpeed, Drivetrain.kMaxLateralAcceleration,
+          Drivetrain.kMaxAngularSpeed, Drivetrain.kMaxAngularAcceleration);
+
+  // keeps the results alive so the JIT can't drop the work
+  private static long s_sink = 0;
+
+  private PathConversionBenchmark() {}
+
+  /**
+   * @brief run the benchmark
+   *
+   * @param args none
+   */
+  public static void main(String... args) {
+    final Pathfinder pathfinder = TrajectoryGen.createPathfinder();
+    final Random random = new Random(kSeed);
+    final ArrayList<Pose2d> starts = new ArrayList<>();
+    final ArrayList<Pose2d> targets = new ArrayList<>();
+    final ArrayList<Path> paths = new ArrayList<>();
+    while (paths.size() < kPaths) {
+      final Pose2d start = randomPose(random);
+      final Pose2d target = randomPose(random);
+      try {
+        paths.add(pathfinder.generatePath(start, target));
+        starts.add(start);
+        targets.add(target);
+      } catch (final ImpossiblePathException | RuntimeException e) {
+        // inside a field element, try another pair
+      }
+    }
+    final PathConverter converter = new PathConverter(Pathfinding.kCornerSmoothing);
+    kThreadBean.setThreadAllocatedMemoryEnabled(true);
+    System.out.printf("%d Oxplorer paths%n", kPaths);
+
+    // bezier points alone
+    for (int round = 0; round < kWarmupRounds; round++) {
+      for (int i = 0; i < kPaths; i++) {
+        s_sink += oldBezierPoints(paths.get(i)).size();
+        s_sink += converter.bezierPoints(starts.get(i), paths.get(i), targets.get(i)).size();
+      }
+    }
+    final long[] oldNanos = new long[kRounds];
+    final long[] newNanos = new long[kRounds];
+    long oldBytes = 0;
+    long newBytes = 0;
+    for (int round = 0; round < kRounds; round++) {
+      long bytes = allocatedBytes();
+      long begin = System.nanoTime();
+      for (int i = 0; i < kPaths; i++) {
+        s_sink += oldBezierPoints(paths.get(i)).size();
+      }
+      oldNanos[round] = System.nanoTime() - begin;
+      oldBytes += allocatedBytes() - bytes;
+      bytes = allocatedBytes();
+      begin = System.nanoTime();
+      for (int i = 0; i < kPaths; i++) {
+        s_sink += converter.bezierPoints(starts.get(i), paths.get(i), targets.get(i)).size();
+      }
+      newNanos[round] = System.nanoTime() - begin;
+      newBytes += allocatedBytes() - bytes;
+    }
+    print("Bezier points", oldNanos, oldBytes, newNanos, newBytes);
+
+    // whole paths
+    for (int round = 0; round < kWarmupRounds; round++) {
+      for (int i = 0; i < kPaths; i++) {
+        s_sink += oldConvert(paths.get(i)).numPoints();
+        s_sink += converter.convert(starts.get(i), paths.get(i), targets.get(i), kConstraints)
+            .numPoints();
+      }
+    }
+    oldBytes = 0;
+    newBytes = 0;
+    for (int round = 0; round < kRounds; round++) {
+      long bytes = allocatedBytes();
+      long begin = System.nanoTime();
+      for (int i = 0; i < kPaths; i++) {
+        s_sink += oldConvert(paths.get(i)).numPoints();
+      }
+      oldNanos[round] = System.nanoTime() - begin;
+      oldBytes += allocatedBytes() - bytes;
+      bytes = allocatedBytes();
+      begin = System.nanoTime();
+      for (int i = 0; i < kPaths; i++) {
+        s_sink += converter.convert(starts.get(i), paths.get(i), targets.get(i), kConstraints)
+            .numPoints();
+      }
+      newNanos[round] = System.nanoTime() - begin;
+      newBytes += allocatedBytes() - bytes;
+    }
+    print("PathPlannerPaths", oldNanos, oldBytes, newNanos, newBytes);
+
+    System.out.println("(checksum " + s_sink + ")");
+  }
+
+  /**
+   * @brief the first two steps of the old conversion, CommandSwerveDrivetrain's
+   *        generatebezierPoints() and generatePosesFromBezierPoints()
+   */
+  private static List<Translation2d> oldBezierPoints(Path path) {
+    final List<Translation2d> bezierPoints = PathPlannerPath.bezierFromPoses(path.asPose2dList());
+    final List<Pose2d> poses = new ArrayList<>();
+    for (final Translation2d point : bezierPoints) {
+      poses.add(new Pose2d(point, new Rotation2d()));
+    }
+    s_sink += poses.size();
+    return bezierPoints;
+  }
+
+  /**
+   * @brief the whole old conversion, ending with CommandSwerveDrivetrain's GetPath()
+   */
+  private static PathPlannerPath oldConvert(Path path) {
+    return new PathPlannerPath(oldBezierPoints(path),
+        new PathConstraints(3.0, 3.0, 2 * Math.PI, 4 * Math.PI),
+        new GoalEndState(0.0, Rotation2d.fromDegrees(90)));
+  }
+
+  private static void print(String name, long[] oldNanos, long oldBytes, long[] newNanos,
+      long newBytes) {
+    Arrays.sort(oldNanos);
+    Arrays.sort(newNanos);
+    final double conversions = (double) kRounds * kPaths;
+    System.out.printf("%s, per conversion:%n", name);
+    System.out.printf("  old  median %8.2f us  %9.0f bytes%n",
+        oldNanos[kRounds / 2] / 1e3 / kPaths, oldBytes / conversions);
+    System.out.printf("  new  median %8.2f us  %9.0f bytes%n",
+        newNanos[kRounds / 2] / 1e3 / kPaths, newBytes / conversions);
+  }
+
+  private static Pose2d randomPose(Random random) {
+    return new Pose2d(random.nextDouble() * Field.kFieldLength,
+        random.nextDouble() * kFieldWidth,
+        Rotation2d.fromRadians(random.nextDouble() * 2 * Math.PI));
+  }
+
+  private static long allocatedBytes() {
+    return kThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
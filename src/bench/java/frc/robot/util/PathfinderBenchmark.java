@@ -0,0 +1,224 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants.Drivetrain;
+import frc.robot.Constants.Field;
+import frc.robot.Constants.Pathfinding;
+
+/**
+ * @brief Measures GridPathfinder over random start and goal cells on the navgrid
+ *
+ *        Prints the median, 99th percentile and worst time of a search, which has to stay under
+ *        a millisecond, then the time and heap allocated to build the PathPlannerPath from it.
+ *        Then it compares searching with reading the path from a flow field, from random starts
+ *        to the fixed targets of both alliances. Last, it compares repairing a D* Lite plan when a
+ *        robot on it moves with planning again. Runs on a computer, not on the robot:
+ *
+ *        ./gradlew benchmarkPathfinder
+ */
+public final class PathfinderBenchmark {
+  private static final int kWarmupQueries = 20_000;
+  private static final int kQueries = 10_000;
+  private static final int kPathQueries = 1_000;
+  private static final int kReplans = 5_000;
+  // another robot's bumpers (meters)
+  private static final double kObstacleRadius = 0.45;
+  // how far it moves between two detections (meters)
+  private static final double kObstacleStep = 0.3;
+  private static final long kSeed = 6364;
+  private static final double kBudgetNanos = 1e6;
+
+  private static final com.sun.management.ThreadMXBean kThreadBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  // keeps the results alive so the JIT can't drop the work
+  private static long s_sink = 0;
+
+  private PathfinderBenchmark() {}
+
+  /**
+   * @brief run the benchmark
+   *
+   * @param args the navgrid file
+   * @throws IOException if the navgrid can't be read
+   */
+  public static void main(String... args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("usage: PathfinderBenchmark <navgrid.json>");
+      System.exit(1);
+    }
+    final NavGrid grid = NavGrid.load(new File(args[0]), Pathfinding.kClearance);
+    final GridPathfinder pathfinder = new GridPathfinder(grid);
+    int free = 0;
+    for (int cell = 0; cell < grid.getWidth() * grid.getHeight(); cell++) {
+      if (!grid.isBlocked(cell))
+        free++;
+    }
+    System.out.printf("Navgrid %d x %d, %d free cells after %.2f m of clearance%n",
+        grid.getWidth(), grid.getHeight(), free, Pathfinding.kClearance);
+    kThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+    // searches
+    final Random random = new Random(kSeed);
+    for (int i = 0; i < kWarmupQueries; i++) {
+      search(pathfinder, grid, random);
+    }
+    final long[] nanos = new long[kQueries];
+    int found = 0;
+    long bytes = allocatedBytes();
+    for (int i = 0; i < kQueries; i++) {
+      final int start = randomFreeCell(grid, random);
+      final int goal = randomFreeCell(grid, random);
+      final long begin = System.nanoTime();
+      if (pathfinder.search(start, goal))
+        found++;
+      nanos[i] = System.nanoTime() - begin;
+      s_sink += pathfinder.getPathLength();
+    }
+    bytes = allocatedBytes() - bytes;
+    Arrays.sort(nanos);
+    System.out.printf("Search, %d random pairs, %d found:%n", kQueries, found);
+    System.out.printf("  median %8.1f us%n", nanos[kQueries / 2] / 1e3);
+    System.out.printf("  p99    %8.1f us%n", nanos[kQueries * 99 / 100] / 1e3);
+    System.out.printf("  worst  %8.1f us%s%n", nanos[kQueries - 1] / 1e3,
+        nanos[kQueries - 1] > kBudgetNanos ? "  OVER THE 1 ms BUDGET" : "");
+    System.out.printf("  %.1f bytes allocated per search%n", bytes / (double) kQueries);
+
+    // whole paths
+    final PathConstraints constraints =
+        new PathConstraints(Drivetrain.kMaxLateralSpeed, Drivetrain.kMaxLateralAcceleration,
+            Drivetrain.kMaxAngularSpeed, Drivetrain.kMaxAngularAcceleration);
+    final long[] pathNanos = new long[kPathQueries];
+    bytes = allocatedBytes();
+    for (int i = 0; i < kPathQueries; i++) {
+      final Pose2d start = randomFreePose(grid, random);
+      final Pose2d goal = randomFreePose(grid, random);
+      final long begin = System.nanoTime();
+      final PathPlannerPath path = pathfinder.findPath(start, goal, constraints);
+      pathNanos[i] = System.nanoTime() - begin;
+      if (path != null)
+        s_sink += path.numPoints();
+    }
+    bytes = allocatedBytes() - bytes;
+    Arrays.sort(pathNanos);
+    System.out.printf("Search and PathPlannerPath, %d random pairs:%n", kPathQueries);
+    System.out.printf("  median %8.1f us%n", pathNanos[kPathQueries / 2] / 1e3);
+    System.out.printf("  worst  %8.1f us%n", pathNanos[kPathQueries - 1] / 1e3);
+    System.out.printf("  %.0f bytes allocated per path%n", bytes / (double) kPathQueries);
+
+    // flow fields to the fixed targets against searching to them
+    final ArrayList<FlowField> fields = new ArrayList<>();
+    long buildNanos = 0;
+    for (final Pose2d target : Field.getNavigationTargets()) {
+      final long begin = System.nanoTime();
+      fields.add(new FlowField(grid, grid.cellAt(target.getX(), target.getY())));
+      buildNanos += System.nanoTime() - begin;
+    }
+    System.out.printf("Flow fields, %d targets, %.2f ms to build%n", fields.size(),
+        buildNanos / 1e6);
+    final int[] cells = new int[grid.getWidth() * grid.getHeight()];
+    for (int i = 0; i < kWarmupQueries; i++) {
+      final FlowField field = fields.get(i % fields.size());
+      s_sink += field.trace(randomFreeCell(grid, random), cells);
+    }
+    final long[] searchNanos = new long[kQueries];
+    final long[] fieldNanos = new long[kQueries];
+    for (int i = 0; i < kQueries; i++) {
+      final FlowField field = fields.get(i % fields.size());
+      final int start = randomFreeCell(grid, random);
+      final int goal = field.getGoalCell();
+      long begin = System.nanoTime();
+      pathfinder.search(start, goal);
+      searchNanos[i] = System.nanoTime() - begin;
+      s_sink += pathfinder.getPathLength();
+      begin = System.nanoTime();
+      s_sink += field.trace(start, cells);
+      fieldNanos[i] = System.nanoTime() - begin;
+    }
+    Arrays.sort(searchNanos);
+    Arrays.sort(fieldNanos);
+    System.out.printf("To the targets, %d random starts:%n", kQueries);
+    System.out.printf("  search      median %8.1f us  p99 %8.1f us  worst %8.1f us%n",
+        searchNanos[kQueries / 2] / 1e3, searchNanos[kQueries * 99 / 100] / 1e3,
+        searchNanos[kQueries - 1] / 1e3);
+    System.out.printf("  flow field  median %8.1f us  p99 %8.1f us  worst %8.1f us%n",
+        fieldNanos[kQueries / 2] / 1e3, fieldNanos[kQueries * 99 / 100] / 1e3,
+        fieldNanos[kQueries - 1] / 1e3);
+
+    // a robot on the path moving, repaired against planned again
+    final DStarLite incremental = new DStarLite(grid);
+    final DStarLite fresh = new DStarLite(grid);
+    final long[] repairNanos = new long[kReplans];
+    final long[] replanNanos = new long[kReplans];
+    long repairExpansions = 0;
+    long replanExpansions = 0;
+    for (int i = 0; i < kReplans; i++) {
+      final Pose2d start = randomFreePose(grid, random);
+      final Pose2d goal = randomFreePose(grid, random);
+      // somewhere between the start and the goal, then a step in any direction
+      final double t = random.nextDouble();
+      final double x = start.getX() + t * (goal.getX() - start.getX());
+      final double y = start.getY() + t * (goal.getY() - start.getY());
+      final double radius = kObstacleRadius + Pathfinding.kObstacleInflation;
+      final long[] before = grid.newObstacles();
+      grid.addObstacle(before, x, y, radius);
+      incremental.plan(start.getTranslation(), goal.getTranslation(), before);
+      final double direction = random.nextDouble() * 2 * Math.PI;
+      final long[] obstacles = grid.newObstacles();
+      grid.addObstacle(obstacles, x + kObstacleStep * Math.cos(direction),
+          y + kObstacleStep * Math.sin(direction), radius);
+      long begin = System.nanoTime();
+      incremental.replan(start.getTranslation(), obstacles);
+      repairNanos[i] = System.nanoTime() - begin;
+      repairExpansions += incremental.getExpansions();
+      begin = System.nanoTime();
+      fresh.plan(start.getTranslation(), goal.getTranslation(), obstacles);
+      replanNanos[i] = System.nanoTime() - begin;
+      replanExpansions += fresh.getExpansions();
+    }
+    Arrays.sort(repairNanos);
+    Arrays.sort(replanNanos);
+    System.out.printf("D* Lite, %d robots moving on random paths:%n", kReplans);
+    System.out.printf("  repaired  median %8.1f us  worst %8.1f us  %6.1f cells expanded%n",
+        repairNanos[kReplans / 2] / 1e3, repairNanos[kReplans - 1] / 1e3,
+        repairExpansions / (double) kReplans);
+    System.out.printf("  planned   median %8.1f us  worst %8.1f us  %6.1f cells expanded%n",
+        replanNanos[kReplans / 2] / 1e3, replanNanos[kReplans - 1] / 1e3,
+        replanExpansions / (double) kReplans);
+    System.out.println("(checksum " + s_sink + ")");
+  }
+
+  private static void search(GridPathfinder pathfinder, NavGrid grid, Random random) {
+    pathfinder.search(randomFreeCell(grid, random), randomFreeCell(grid, random));
+    s_sink += pathfinder.getPathLength();
+  }
+
+  private static int randomFreeCell(NavGrid grid, Random random) {
+    while (true) {
+      final int cell = random.nextInt(grid.getWidth() * grid.getHeight());
+      if (!grid.isBlocked(cell))
+        return cell;
+    }
+  }
+
+  private static Pose2d randomFreePose(NavGrid grid, Random random) {
+    final int cell = randomFreeCell(grid, random);
+    return new Pose2d(grid.centerX(cell), grid.centerY(cell),
+        Rotation2d.fromRadians(random.nextDouble() * 2 * Math.PI));
+  }
+
+  private static long allocatedBytes() {
+    return kThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
@@ -0,0 +1,164 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import com.ctre.phoenix6.mechanisms.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.generated.TunerConstants;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+
+/**
+ * @brief Compares reading the drive state through SwerveStatePublisher with the Phoenix lock
+ *
+ *        The simulated drivetrain's odometry thread is the writer, at its real rate. It updates
+ *        the Phoenix state under the drivetrain's lock and the seqlock. For every
+ *        reader count, that many threads read the state as fast as they can, first with
+ *        getStateSnapshot(), then with the lock-based getState() and a copy of the same fields.
+ *        This prints the mean, 99th percentile and worst time of a read, and how many odometry
+ *        updates the writer managed meanwhile. Runs on a computer, not on the robot:
+ *
+ *        ./gradlew benchmarkSwerveState -Preaders=1,2,4
+ */
+public final class SwerveStateBenchmark {
+  // how long each reader count runs, per way of reading (seconds)
+  private static final double kDuration = 3.0;
+  private static final double kWarmup = 1.0;
+  // every this many reads is timed on its own for the percentiles
+  private static final int kSampleEvery = 16;
+  private static final int kMaxSamples = 1 << 20;
+
+  // keeps the results alive so the JIT can't drop the work
+  private static volatile double s_sink = 0;
+
+  private SwerveStateBenchmark() {}
+
+  /**
+   * @brief results of one reader thread
+   */
+  private static class Reader {
+    private final long[] m_samples = new long[kMaxSamples];
+    private int m_sampleCount = 0;
+    private long m_reads = 0;
+    private long m_nanos = 0;
+    private long m_maxNanos = 0;
+    private double m_sum = 0;
+  }
+
+  /**
+   * @brief run the benchmark
+   *
+   * @param args reader thread counts, 1, 2 and 4 by default
+   * @throws InterruptedException if interrupted while waiting for the readers
+   */
+  public static void main(String... args) throws InterruptedException {
+    if (!HAL.initialize(500, 0)) {
+      System.err.println("Failed to initialize the HAL");
+      System.exit(1);
+    }
+    final CommandSwerveDrivetrain drivetrain = TunerConstants.DriveTrain;
+    final int[] readerCounts = args.length == 0 ? new int[] {1, 2, 4}
+        : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+    // let the odometry thread settle
+    Thread.sleep((long) (kWarmup * 1000));
+    System.out.printf("%-8s %-10s %10s %10s %10s %14s%n", "readers", "read", "mean ns",
+        "p99 ns", "max us", "odometry Hz");
+    for (final int readers : readerCounts) {
+      run(drivetrain, readers, "seqlock", snapshot -> drivetrain.getStateSnapshot(snapshot));
+      run(drivetrain, readers, "lock", snapshot -> {
+        final SwerveDriveState state = drivetrain.getState();
+        // the same fields the snapshot holds
+        snapshot.x = state.Pose.getX();
+        snapshot.y = state.Pose.getY();
+        snapshot.heading = state.Pose.getRotation().getRadians();
+        for (int i = 0; i < snapshot.moduleSpeeds.length; i++) {
+          snapshot.moduleSpeeds[i] = state.ModuleStates[i].speedMetersPerSecond;
+          snapshot.moduleAngles[i] = state.ModuleStates[i].angle.getRadians();
+        }
+      });
+    }
+    System.out.println("(checksum " + s_sink + ")");
+    System.exit(0);
+  }
+
+  /**
+   * @brief read the state from several threads at once and print the results
+   */
+  private static void run(CommandSwerveDrivetrain drivetrain, int readerCount, String name,
+      Consumer<SwerveStatePublisher.Snapshot> read) throws InterruptedException {
+    final Reader[] readers = new Reader[readerCount];
+    final Thread[] threads = new Thread[readerCount];
+    final CountDownLatch start = new CountDownLatch(1);
+    final long warmupNanos = (long) (kWarmup * 1e9);
+    final long durationNanos = (long) (kDuration * 1e9);
+    for (int t = 0; t < readerCount; t++) {
+      final Reader reader = readers[t] = new Reader();
+      final SwerveStatePublisher.Snapshot snapshot = drivetrain.createStateSnapshot();
+      threads[t] = new Thread(() -> {
+        try {
+          start.await();
+        } catch (final InterruptedException e) {
+          return;
+        }
+        final long warmupEnd = System.nanoTime() + warmupNanos;
+        while (System.nanoTime() < warmupEnd) {
+          read.accept(snapshot);
+          reader.m_sum += snapshot.x;
+        }
+        final long begin = System.nanoTime();
+        final long end = begin + durationNanos;
+        long now = begin;
+        while (now < end) {
+          for (int i = 0; i < kSampleEvery - 1; i++) {
+            read.accept(snapshot);
+            reader.m_sum += snapshot.x;
+          }
+          final long sampleStart = System.nanoTime();
+          read.accept(snapshot);
+          now = System.nanoTime();
+          reader.m_sum += snapshot.x;
+          final long sample = now - sampleStart;
+          if (reader.m_sampleCount < kMaxSamples)
+            reader.m_samples[reader.m_sampleCount++] = sample;
+          reader.m_maxNanos = Math.max(reader.m_maxNanos, sample);
+          reader.m_reads += kSampleEvery;
+        }
+        reader.m_nanos = now - begin;
+      }, "StateReader" + t);
+      threads[t].start();
+    }
+    final long updatesBefore = drivetrain.getState().SuccessfulDaqs;
+    final long writerStart = System.nanoTime();
+    start.countDown();
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    final double writerSeconds = (System.nanoTime() - writerStart) / 1e9;
+    final long updates = drivetrain.getState().SuccessfulDaqs - updatesBefore;
+
+    long reads = 0;
+    long nanos = 0;
+    long maxNanos = 0;
+    int sampleCount = 0;
+    for (final Reader reader : readers) {
+      reads += reader.m_reads;
+      nanos += reader.m_nanos;
+      maxNanos = Math.max(maxNanos, reader.m_maxNanos);
+      sampleCount += reader.m_sampleCount;
+      s_sink += reader.m_sum;
+    }
+    final long[] samples = new long[sampleCount];
+    int offset = 0;
+    for (final Reader reader : readers) {
+      System.arraycopy(reader.m_samples, 0, samples, offset, reader.m_sampleCount);
+      offset += reader.m_sampleCount;
+    }
+    Arrays.sort(samples);
+    System.out.printf("%-8d %-10s %10.1f %10d %10.1f %14.1f%n", readerCount, name,
+        nanos / (double) Math.max(reads, 1),
+        samples.length == 0 ? 0 : samples[(int) (0.99 * (samples.length - 1))],
+        maxNanos / 1e3, updates / writerSeconds);
+  }
+}
@@ -0,0 +1,159 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import com.choreo.lib.ChoreoTrajectory;
+import com.choreo.lib.ChoreoTrajectoryState;
+import com.google.gson.Gson;
+
+/**
+ * @brief Compares loading and sampling Choreo trajectories from JSON and from compiled files
+ *
+ *        The JSON side parses the .traj files the way ChoreoLib does on the robot. For each side
+ *        this prints the time and heap allocated to load every trajectory, and the time and heap
+ *        allocated per sample. Runs on a computer, not on the robot:
+ *
+ *        ./gradlew benchmarkTrajectories
+ */
+public final class TrajectoryBenchmark {
+  private static final int kWarmupRounds = 50;
+  private static final int kRounds = 200;
+  private static final int kSamples = 1_000_000;
+
+  private static final com.sun.management.ThreadMXBean kThreadBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+  private static final Gson kGson = new Gson();
+
+  // keeps the results alive so the JIT can't drop the work
+  private static double s_sink = 0;
+
+  private TrajectoryBenchmark() {}
+
+  /**
+   * @brief run the benchmark
+   *
+   * @param args the choreo deploy directory, with the compiled files in its bin directory
+   * @throws IOException if a trajectory can't be read
+   */
+  public static void main(String... args) throws IOException {
+    if (args.length != 1) {
+      System.err.println("usage: TrajectoryBenchmark <choreo directory>");
+      System.exit(1);
+    }
+    final File dir = new File(args[0]);
+    final File[] files = dir.listFiles((file, name) -> name.endsWith(".traj"));
+    if (files == null || files.length == 0) {
+      System.err.println("no trajectories in " + dir);
+      System.exit(1);
+    }
+    Arrays.sort(files);
+    final ArrayList<String> names = new ArrayList<>();
+    for (final File file : files) {
+      names.add(file.getName().substring(0, file.getName().length() - ".traj".length()));
+    }
+    kThreadBean.setThreadAllocatedMemoryEnabled(true);
+
+    // loading
+    for (int i = 0; i < kWarmupRounds; i++) {
+      loadJson(dir, names);
+      loadCompiled(dir, names);
+    }
+    final long[] jsonNanos = new long[kRounds];
+    final long[] compiledNanos = new long[kRounds];
+    long jsonBytes = 0;
+    long compiledBytes = 0;
+    for (int i = 0; i < kRounds; i++) {
+      long bytes = allocatedBytes();
+      long start = System.nanoTime();
+      loadJson(dir, names);
+      jsonNanos[i] = System.nanoTime() - start;
+      jsonBytes += allocatedBytes() - bytes;
+      bytes = allocatedBytes();
+      start = System.nanoTime();
+      loadCompiled(dir, names);
+      compiledNanos[i] = System.nanoTime() - start;
+      compiledBytes += allocatedBytes() - bytes;
+    }
+    Arrays.sort(jsonNanos);
+    Arrays.sort(compiledNanos);
+    System.out.printf("Loading %d trajectories, median of %d rounds:%n", names.size(), kRounds);
+    System.out.printf("  json      %9.3f ms %10d bytes allocated%n", jsonNanos[kRounds / 2] / 1e6,
+        jsonBytes / kRounds);
+    System.out.printf("  compiled  %9.3f ms %10d bytes allocated%n",
+        compiledNanos[kRounds / 2] / 1e6, compiledBytes / kRounds);
+
+    // sampling
+    final ArrayList<ChoreoTrajectory> json = loadJson(dir, names);
+    final ArrayList<CompiledTrajectory> compiled = loadCompiled(dir, names);
+    for (int i = 0; i < 5; i++) {
+      sampleJson(json);
+      sampleCompiled(compiled);
+    }
+    long bytes = allocatedBytes();
+    long start = System.nanoTime();
+    sampleJson(json);
+    final double jsonSampleNanos = (System.nanoTime() - start) / (double) kSamples;
+    final double jsonSampleBytes = (allocatedBytes() - bytes) / (double) kSamples;
+    bytes = allocatedBytes();
+    start = System.nanoTime();
+    sampleCompiled(compiled);
+    final double compiledSampleNanos = (System.nanoTime() - start) / (double) kSamples;
+    final double compiledSampleBytes = (allocatedBytes() - bytes) / (double) kSamples;
+    System.out.printf("Sampling, %d samples:%n", kSamples);
+    System.out.printf("  json      %9.1f ns %10.1f bytes allocated%n", jsonSampleNanos,
+        jsonSampleBytes);
+    System.out.printf("  compiled  %9.1f ns %10.1f bytes allocated%n", compiledSampleNanos,
+        compiledSampleBytes);
+    System.out.println("(checksum " + s_sink + ")");
+  }
+
+  private static ArrayList<ChoreoTrajectory> loadJson(File dir, ArrayList<String> names)
+      throws IOException {
+    final ArrayList<ChoreoTrajectory> trajectories = new ArrayList<>();
+    for (final String name : names) {
+      try (Reader reader = new FileReader(new File(dir, name + ".traj"))) {
+        trajectories.add(kGson.fromJson(reader, ChoreoTrajectory.class));
+      }
+    }
+    return trajectories;
+  }
+
+  private static ArrayList<CompiledTrajectory> loadCompiled(File dir, ArrayList<String> names)
+      throws IOException {
+    final ArrayList<CompiledTrajectory> trajectories = new ArrayList<>();
+    for (final String name : names) {
+      trajectories.add(
+          CompiledTrajectory.load(name, new File(dir, "bin/" + name + ".bin").toPath()));
+    }
+    return trajectories;
+  }
+
+  private static void sampleJson(ArrayList<ChoreoTrajectory> trajectories) {
+    for (int i = 0; i < kSamples; i++) {
+      final ChoreoTrajectory trajectory = trajectories.get(i % trajectories.size());
+      final double time = (i % 1000) / 1000.0 * trajectory.getTotalTime();
+      final ChoreoTrajectoryState state = trajectory.sample(time);
+      s_sink += state.x + state.velocityX;
+    }
+  }
+
+  private static void sampleCompiled(ArrayList<CompiledTrajectory> trajectories) {
+    final CompiledTrajectory.Sample sample = new CompiledTrajectory.Sample();
+    for (int i = 0; i < kSamples; i++) {
+      final CompiledTrajectory trajectory = trajectories.get(i % trajectories.size());
+      final double time = (i % 1000) / 1000.0 * trajectory.getTotalTime();
+      trajectory.sample(time, sample);
+      s_sink += sample.x + sample.vx;
+    }
+  }
+
+  private static long allocatedBytes() {
+    return kThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+}
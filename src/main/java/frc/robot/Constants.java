@@ -4,14 +4,14 @@ import com.ctre.phoenix.led.StrobeAnimation;
 import com.ctre.phoenix6.signals.GravityTypeValue;
 import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
+import com.pathplanner.lib.util.GeometryUtil;
 import com.pathplanner.lib.util.PIDConstants;
 import com.pathplanner.lib.util.ReplanningConfig;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.trajectory.TrajectoryConfig;
-import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import frc.robot.util.AllianceCache;
 
 public class Constants {
   public class Drivetrain {
@@ -50,6 +50,51 @@ public class Constants {
         .setKinematics(RobotContainer.m_drivetrain.getKinematics()).setEndVelocity(0);
   }
 
+  public class Telemetry {
+    // how often drivetrain telemetry is published (seconds)
+    public static final double kPublishPeriod = 0.05;
+  }
+
+  public class Profiling {
+    // how often hot section statistics are published (seconds)
+    public static final double kSectionPublishPeriod = 1.0;
+    // whether to measure heap allocations per section, costs two counter reads per section
+    public static final boolean kTrackAllocations = false;
+    // how often loop profiler histograms are published (seconds)
+    public static final double kLoopPublishPeriod = 1.0;
+    // number of sections printed when a loop overruns
+    public static final int kOverrunOffenders = 3;
+    // command names that get their own histogram, the rest share one
+    public static final int kMaxCommandSections = 64;
+  }
+
+  public class Limelight {
+    // frames buffered between polls, a loop at 50 Hz needs 2 at most for a 90 fps camera
+    public static final int kQueueDepth = 20;
+    // frames older than this are not fused (seconds)
+    public static final double kMaxFrameAge = 0.5;
+    // how often ingestion statistics are published (seconds)
+    public static final double kStatsPublishPeriod = 1.0;
+    // noise model table, relative to the deploy directory
+    public static final String kNoiseModelFile = "vision/limelight_noise.json";
+  }
+
+  public class PoseEstimation {
+    // odometry poses kept for vision, about 4 seconds at 250 Hz
+    public static final int kHistoryCapacity = 1024;
+    // odometry standard deviation added per meter driven and per radian turned
+    public static final double kTranslationDrift = 0.02;
+    public static final double kHeadingDrift = 0.01;
+    // standard deviation of the pose estimate itself (meters, radians)
+    public static final double[] kStateStdDevs = {0.1, 0.1};
+    // chi-squared, 3 degrees of freedom, 99%
+    public static final double kGateThreshold = 11.345;
+    // rejections in a row before the pose estimate is assumed to be wrong
+    public static final int kMaxConsecutiveRejections = 25;
+    // how often gate statistics are published (seconds)
+    public static final double kGatePublishPeriod = 1.0;
+  }
+
   public class Angler {
     // auto current limit
     public static final double kAutoCurrentLimit = 30;
@@ -94,11 +139,11 @@ public class Constants {
     public static final double kRampRate = 0.2;
     public static final double kStepVoltage = 8.0;
     public static final double kTimeout = 20.0;
+    // simulation, the limit switch closes this close to the hard stop (rotations)
+    public static final double kSimLimitTolerance = 0.001;
   }
 
   public class Climber {
-    // sim loop period (milliseconds)
-    public static final double kSimLoopPeriod = 0.005;
     // motor ids
     public static final int kMotorId = 16;
     // CAN bus name
@@ -132,11 +177,11 @@ public class Constants {
     public static final double kRampRate = 5.0;
     public static final double kStepVoltage = 2.0;
     public static final double kTimeout = 5.0;
+    // simulation, mass of the hooks without the robot (kg)
+    public static final double kSimCarriageMass = 2.0;
   }
 
   public class Deployer {
-    // sim loop period (milliseconds)
-    public static final double kSimLoopPeriod = 0.005;
     // motor ids
     public static final int kMotorId = 18;
     // CAN bus name
@@ -177,8 +222,6 @@ public class Constants {
   }
 
   public class Flywheel {
-    // sim loop period (seconds)
-    public static final double kSimLoopPeriod = 0.005;
     // motor ids
     public static final int kUpperMotorId = 14;
     public static final int kLowerMotorId = 15;
@@ -224,8 +267,6 @@ public class Constants {
   }
 
   public class Indexer {
-    // simulation loop period (seconds)
-    public static final double kSimLoopPeriod = 0.005; // 5 ms
     // motor ids
     public static final int kMotorId = 19;
     // sensor ids
@@ -250,8 +291,6 @@ public class Constants {
   }
 
   public class Intake {
-    // sim loop period (seconds)
-    public static final double kSimLoopPeriod = 0.005;
     // sensor ids
     public static final int kBeamBreakPort = 0;
     // motor ids
@@ -279,6 +318,31 @@ public class Constants {
     public static final int kStableAngle = 1;
   }
 
+  public class NoteSim {
+    // note length along its path through the robot (meters)
+    public static final double kNoteLength = 0.36;
+    // positions along the path, from the intake mouth (meters)
+    public static final double kIntakeSensorPosition = 0.25;
+    public static final double kHandoffPosition = 0.45; // the indexer takes the note here
+    public static final double kIndexerSensorPosition = 0.75;
+    public static final double kFlywheelPosition = 0.85; // the flywheels take the note here
+    // roller diameters (meters)
+    public static final double kIntakeRollerDiameter = 0.0508;
+    public static final double kIndexerRollerDiameter = 0.0508;
+    public static final double kFlywheelDiameter = 0.1016;
+    // fraction of the roller surface speed a note moves at
+    public static final double kGrip = 0.5;
+    // beam break output levels, the intake's reads high when broken, the indexer's low (volts)
+    public static final double kBeamBreakHigh = 5.0;
+    public static final double kBeamBreakLow = 0.0;
+    // the robot starts with a note in the indexer, like in a match
+    public static final boolean kPreload = true;
+    // an empty robot picks up a note after running the intake forward this long (seconds)
+    public static final double kFeedDelay = 0.5;
+    // slowest intake speed that picks up a note (rotations per second)
+    public static final double kFeedSpeed = 5;
+  }
+
   public class PathPlanner {
     public static final PIDConstants kTranslationalPIDConstants = new PIDConstants(0.0, 0.0, 0.0);
     public static final PIDConstants kRotationalPIDConstants = new PIDConstants(3.0, 0.0, 0.0);
@@ -288,7 +352,46 @@ public class Constants {
     public static final ReplanningConfig kReplanningConfig = new ReplanningConfig(true, true);
   }
 
+  public class Pathfinding {
+    // PathPlanner's navigation grid, in the deploy directory
+    public static final String kNavgridFile = "pathplanner/navgrid.json";
+    // the robot turns along its paths, so any side may face an obstacle: the radius of the
+    // circle around its frame (meters)
+    public static final double kRobotRadius =
+        Math.hypot(Drivetrain.kBotWidth, Drivetrain.kBotLength) / 2;
+    // clearance the robot needs from the navgrid's obstacle cells (meters)
+    public static final double kClearance = kRobotRadius;
+    // found paths, kept in the operating directory (/home/lvuser on the robot)
+    public static final String kPathCacheFile = "pathcache.bin";
+    // heap the cache's decoded paths may use, estimated from their corner counts (bytes)
+    public static final long kCacheMemoryBytes = 256 << 10;
+    public static final int kCacheBytesPerCorner = 48;
+    // paths kept in the file
+    public static final int kCacheStoredPaths = 512;
+    // goals and constraints closer than this share a path (meters, radians, per second)
+    public static final double kCacheResolution = 0.01;
+    // other robots and anything else not on the navgrid, as x, y and radius of each (meters)
+    public static final String kObstacleTable = "Obstacles";
+    public static final String kObstacleTopic = "Detections";
+    // room the robot needs around an obstacle (meters)
+    public static final double kObstacleInflation = kRobotRadius;
+    // how often the scripted obstacles move in simulation (seconds)
+    public static final double kObstacleScriptPeriod = 0.1;
+    // how far along the shorter segment next to a corner its curve starts, at most 1/3
+    public static final double kCornerSmoothing = 0.3;
+  }
+
+  public class Choreo {
+    // trajectory follower feedback, added to the trajectory's own speeds
+    public static final double kTranslationP = 5.0;
+    public static final double kTranslationD = 0.0;
+    public static final double kRotationP = 3.0;
+    public static final double kRotationD = 0.0;
+  }
+
   public class Field {
+    // field length, the red alliance is mirrored across its center line (meters)
+    public static final double kFieldLength = 16.541;
     // Blue Amp Pos
     public static final double kBlueAmpX = 5;
     public static final double kBlueAmpY = 5;
@@ -297,30 +400,51 @@ public class Constants {
     public static final double kBlueAmpLineupY = 5;
     public static final double kBlueAmpLineupTheta = new Rotation2d(kBlueAmpX - kBlueAmpLineupX,
         kBlueAmpY - kBlueAmpLineupY).getRadians();
+    // Blue Speaker Lineup Pos, against the subwoofer. Estimated, measure before driving to it
+    public static final double kBlueSpeakerLineupX = 1.4;
+    public static final double kBlueSpeakerLineupY = 5.55;
+    public static final double kBlueSpeakerLineupTheta = Math.PI;
+    // Blue Source Lineup Pos. Estimated, measure before driving to it
+    public static final double kBlueSourceLineupX = 15.0;
+    public static final double kBlueSourceLineupY = 1.0;
+    public static final double kBlueSourceLineupTheta = -Math.PI / 3;
     // Red Amp Pos
     public static final double kRedAmpX = 5;
     public static final double kRedAmpY = 5;
-    // Red Amp Lineup Pos
+    // Red Amp Lineup Pos. Not the blue lineup mirrored, which would be at x = kFieldLength - 3,
+    // measure both before driving to them
     public static final double kRedAmpLineupX = 14;
     public static final double kRedAmpLineupY = 5;
     public static final double kRedAmpLineupTheta = new Rotation2d(kRedAmpX - kRedAmpLineupX, kRedAmpY - kRedAmpLineupY)
         .getRadians();
 
     public static Translation2d getAmpPos() {
-      if (DriverStation.getAlliance().isPresent()
-          && DriverStation.getAlliance().get() == Alliance.Red)
+      if (AllianceCache.isRed())
         return new Translation2d(kRedAmpX, kRedAmpY);
       else
         return new Translation2d(kBlueAmpX, kBlueAmpY);
     }
 
     public static Pose2d getAmpLineupPose() {
-      if (DriverStation.getAlliance().isPresent()
-          && DriverStation.getAlliance().get() == Alliance.Red)
+      if (AllianceCache.isRed())
         return new Pose2d(kRedAmpLineupX, kRedAmpLineupY, new Rotation2d(kRedAmpLineupTheta));
       else
         return new Pose2d(kBlueAmpLineupX, kBlueAmpLineupY, new Rotation2d(kBlueAmpLineupTheta));
     }
+
+    // the speaker, amp and source lineups of both alliances, in field coordinates, where
+    // findAndFollowPath goes most
+    public static Pose2d[] getNavigationTargets() {
+      final Pose2d blueSpeaker = new Pose2d(kBlueSpeakerLineupX, kBlueSpeakerLineupY,
+          new Rotation2d(kBlueSpeakerLineupTheta));
+      final Pose2d blueSource = new Pose2d(kBlueSourceLineupX, kBlueSourceLineupY,
+          new Rotation2d(kBlueSourceLineupTheta));
+      return new Pose2d[] {blueSpeaker,
+          new Pose2d(kBlueAmpLineupX, kBlueAmpLineupY, new Rotation2d(kBlueAmpLineupTheta)),
+          blueSource, GeometryUtil.flipFieldPose(blueSpeaker),
+          new Pose2d(kRedAmpLineupX, kRedAmpLineupY, new Rotation2d(kRedAmpLineupTheta)),
+          GeometryUtil.flipFieldPose(blueSource)};
+    }
   }
 
   public class Lights {
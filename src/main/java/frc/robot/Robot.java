@@ -7,6 +7,8 @@ package frc.robot;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 
 import edu.wpi.first.cameraserver.CameraServer;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
@@ -14,31 +16,78 @@ import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.cscore.VideoMode;
 import edu.wpi.first.util.PixelFormat;
+import frc.robot.util.AllianceCache;
+import frc.robot.util.BootTimer;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
 
 public class Robot extends TimedRobot {
   private Command m_autonomousCommand;
   private RobotContainer m_robotContainer;
+  private final LoopProfiler m_profiler = LoopProfiler.getInstance();
+  private InputLog m_inputLog;
 
   SendableChooser<Integer> autoChooser = new SendableChooser<>();
 
   @Override
   public void robotInit() {
+    // inputs and vision noise samples are logged for replay and the noise model fitter. Off the
+    // robot only a replay writes a log, to the file ReplayRunner gave it
+    if (RobotBase.isReal())
+      InputLog.startRecording(DataLogManager.getLog());
+    m_inputLog = InputLog.getInstance();
+    // every phase is timed, see BootTimer
+    BootTimer.start();
     m_robotContainer = new RobotContainer();
+    BootTimer.phase("Dashboard");
+    // networktables is running now, start receiving the camera VisionFusion listens to
     m_robotContainer.limelight1.init();
     this.addPeriodic(() -> m_robotContainer.pollBeamBreaks(), 0.002);
+    BootTimer.phase("Limelight");
     var cam = CameraServer.startAutomaticCapture(0);
     cam.setVideoMode(PixelFormat.kMJPEG, 320, 240, 15);
+    BootTimer.phase("Camera");
     // etc.
     SmartDashboard.putData("Autonomous routine", autoChooser);
+    // bindings are configured, so the profiler can wrap the button loop
+    m_profiler.install(CommandScheduler.getInstance());
+    BootTimer.phase("Profiler");
+    BootTimer.ready();
+  }
+
+  /**
+   * @brief get the robot container, for the harnesses and benchmarks
+   *
+   * @return RobotContainer null before robotInit()
+   */
+  RobotContainer getRobotContainer() {
+    return m_robotContainer;
+  }
+
+  @Override
+  protected void loopFunc() {
+    m_profiler.loopStart();
+    m_inputLog.beginCycle();
+    super.loopFunc();
+    m_inputLog.endCycle();
+    m_profiler.loopEnd(getPeriod());
   }
 
   @Override
   public void robotPeriodic() {
+    // read the alliance once, everything else this loop uses the cached one
+    AllianceCache.update();
+    // fuse vision before commands read the pose
+    m_robotContainer.updatePoseEstimator();
+    m_profiler.schedulerStart();
     CommandScheduler.getInstance().run();
+    m_profiler.schedulerEnd();
   }
 
   @Override
   public void disabledPeriodic() {
+    // build the selected auto once it has loaded, so autonomousInit doesn't have to
+    m_robotContainer.prepareAutonomousCommand();
   }
 
   @Override
@@ -7,32 +7,60 @@ package frc.robot;
 import com.ctre.phoenix6.Utils;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveRequest;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveModule.DriveRequestType;
-import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.auto.NamedCommands;
-import edu.wpi.first.math.VecBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.math.util.Units;
-import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
-import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.Command.InterruptionBehavior;
 import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
-import frc.robot.Vision.MeasurementInfo;
+import frc.robot.Constants.Field;
+import frc.robot.Constants.Limelight;
 import frc.robot.subsystems.Climber;
 import frc.robot.generated.TunerConstants;
 import frc.robot.subsystems.CommandSwerveDrivetrain;
 import frc.robot.subsystems.Angler;
+import frc.robot.subsystems.AnglerIO;
+import frc.robot.subsystems.AnglerIOSim;
+import frc.robot.subsystems.AnglerIOTalonFX;
+import frc.robot.subsystems.ClimberIO;
+import frc.robot.subsystems.ClimberIOSim;
+import frc.robot.subsystems.ClimberIOTalonFX;
 import frc.robot.subsystems.Deployer;
+import frc.robot.subsystems.DeployerIO;
+import frc.robot.subsystems.DeployerIOSim;
+import frc.robot.subsystems.DeployerIOTalonFX;
 import frc.robot.subsystems.Flywheel;
+import frc.robot.subsystems.FlywheelIO;
+import frc.robot.subsystems.FlywheelIOSim;
+import frc.robot.subsystems.FlywheelIOTalonFX;
 import frc.robot.subsystems.Indexer;
+import frc.robot.subsystems.IndexerIO;
+import frc.robot.subsystems.IndexerIOSim;
+import frc.robot.subsystems.IndexerIOTalonFX;
 import frc.robot.subsystems.Intake;
+import frc.robot.subsystems.IntakeIO;
+import frc.robot.subsystems.IntakeIOSim;
+import frc.robot.subsystems.IntakeIOTalonFX;
 import frc.robot.subsystems.Lights;
 import frc.robot.subsystems.Releaser;
+import frc.robot.autonomous.AutoLoader;
+import frc.robot.util.AllianceCache;
+import frc.robot.util.BootTimer;
+import frc.robot.util.CompiledTrajectory;
+import frc.robot.util.GridPathfinder;
+import frc.robot.util.InputLog;
+import frc.robot.util.PathCache;
 
 public class RobotContainer {
 
@@ -47,19 +75,27 @@ public class RobotContainer {
 
   // Subsystems initialization
   public final Lights m_lights = new Lights();
-  private final Angler m_angler = new Angler();
-  private final Deployer m_deployer = new Deployer();
-  private final Intake m_intake = new Intake();
-  public final Indexer m_indexer = new Indexer();
-  private final Flywheel m_flywheel = new Flywheel();
-  private final Climber m_climber = new Climber();
+  private final Angler m_angler =
+      new Angler(createIO(AnglerIOTalonFX::new, AnglerIOSim::new, new AnglerIO() {}));
+  private final Deployer m_deployer = new Deployer(
+      createIO(DeployerIOTalonFX::new, DeployerIOSim::new, new DeployerIO() {}));
+  private final Intake m_intake =
+      new Intake(createIO(IntakeIOTalonFX::new, IntakeIOSim::new, new IntakeIO() {}));
+  public final Indexer m_indexer =
+      new Indexer(createIO(IndexerIOTalonFX::new, IndexerIOSim::new, new IndexerIO() {}));
+  private final Flywheel m_flywheel =
+      new Flywheel(createIO(FlywheelIOTalonFX::new, FlywheelIOSim::new, new FlywheelIO() {}));
+  private final Climber m_climber =
+      new Climber(createIO(ClimberIOTalonFX::new, ClimberIOSim::new, new ClimberIO() {}));
   private final Releaser m_releaser = new Releaser();
 
   // Setting up bindings for necessary control of the swerve drive platform
   private final CommandXboxController m_controller = new CommandXboxController(0);
   private final CommandXboxController m_secondary = new CommandXboxController(1);
   public static final CommandSwerveDrivetrain m_drivetrain = TunerConstants.DriveTrain;
-  private final SendableChooser<Command> autoChooser;
+  // autos load in the background, see AutoLoader
+  private final AutoLoader m_autoLoader =
+      new AutoLoader(m_drivetrain::seedFieldRelative, m_drivetrain::followPath);
 
   // shooting angle
   private volatile double m_shootingAngle = 0.177;
@@ -77,6 +113,16 @@ public class RobotContainer {
 
   private final Telemetry m_logger = new Telemetry(kMaxSpeed);
 
+  // vision measurements go to the drivetrain, which keeps its own timebase
+  private final VisionFusion m_visionFusion = new VisionFusion(
+      timestamp -> m_drivetrain.getPoseAt(Utils.fpgaToCurrentTime(timestamp)),
+      (pose, timestamp, stdDevs) -> {
+        if (m_drivetrain.addGatedVisionMeasurement(pose, Utils.fpgaToCurrentTime(timestamp),
+            stdDevs))
+          InputLog.getInstance().recordOutput("Vision/Fused", timestamp, pose.getX(),
+              pose.getY(), pose.getRotation().getRadians());
+      });
+
   // command to intake
   private final Command m_intakeCommand = Commands
       .sequence(m_angler.goToLoad(), m_deployer.deploy(), m_flywheel.forwards(),
@@ -121,13 +167,13 @@ public class RobotContainer {
   }
 
   private double getLeftY() {
-    if (DriverStation.getAlliance().isPresent() && DriverStation.getAlliance().get() == Alliance.Red)
+    if (AllianceCache.isRed())
       return m_controller.getLeftY();
     return -m_controller.getLeftY();
   }
 
   private double getLeftX() {
-    if (DriverStation.getAlliance().isPresent() && DriverStation.getAlliance().get() == Alliance.Red)
+    if (AllianceCache.isRed())
       return m_controller.getLeftX();
     return -m_controller.getLeftX();
   }
@@ -223,38 +269,29 @@ public class RobotContainer {
   }
 
   /**
-   * @brief Update the pose estimator with vision measurements
+   * @brief Update the pose estimator with every new vision measurement
+   *
+   *        Called once per loop. Every frame the cameras published since the last call is fused
+   *        exactly once, in the order they were captured.
    */
   public void updatePoseEstimator() {
-    double lateralDeviation; // standard deviation of the x and y measurements
-    double angularDeviation; // standard deviation of the angle measurement
-    final MeasurementInfo internalTag = limelight1.tagDetector();
-    final double posDiff = m_drivetrain.getPoseDifference(limelight1.getPos2D());
-    // return if no tag detected
-    if (internalTag.tagId == -1)
-      return;
-    // more than 1 tag in view
-    if (internalTag.tagCount > 1) {
-      lateralDeviation = 0.5;
-      angularDeviation = 6;
-    }
-    // 1 target with large area and close to estimated pose
-    else if (internalTag.tagArea > 0.8 && posDiff < 0.5) {
-      lateralDeviation = 1.0;
-      angularDeviation = 12;
-    }
-    // 1 target farther away and estimated pose is close
-    else if (internalTag.tagArea > 0.1 && posDiff < 0.3) {
-      lateralDeviation = 2.0;
-      angularDeviation = 30;
-    }
-    // conditions don't match to add a vision measurement
-    else
-      return;
-    // update the pose estimator
-    m_drivetrain.addVisionMeasurement(limelight1.getPos2D(),
-        limelight1.getLatestLatencyAdjustedTimeStamp(), VecBuilder.fill(lateralDeviation,
-            lateralDeviation, Units.degreesToRadians(angularDeviation)));
+    m_visionFusion.update();
+  }
+
+  /**
+   * @brief pick the hardware a subsystem runs on
+   * 
+   *        In replay nothing is constructed, the subsystem's inputs come from the log.
+   * 
+   * @param real creates the hardware of the real robot
+   * @param sim creates the simulated hardware
+   * @param replay hardware that does nothing
+   * @return T
+   */
+  private static <T> T createIO(Supplier<T> real, Supplier<T> sim, T replay) {
+    if (InputLog.getInstance().isReplay())
+      return replay;
+    return RobotBase.isSimulation() ? sim.get() : real.get();
   }
 
   /**
@@ -262,11 +299,32 @@ public class RobotContainer {
    *        startup
    */
   public RobotContainer() {
+    // the drivetrain and subsystems are configured by the field initializers
+    BootTimer.phase("Subsystems");
     ConfigureCommands();
-    autoChooser = AutoBuilder.buildAutoChooser();
+    BootTimer.phase("Named Commands");
+    m_autoLoader.addPathPlannerAutos();
+    addChoreoAutos();
+    BootTimer.phase("Auto Chooser");
     configureBindings();
-    limelight1.init();
-    SmartDashboard.putData("Auto Chooser", autoChooser);
+    BootTimer.phase("Bindings");
+    m_visionFusion.addCamera(limelight1, new TableNoiseModel(limelight1.getName(),
+        TableNoiseModel.loadOrDefault(Limelight.kNoiseModelFile), m_drivetrain::getChassisSpeeds));
+    BootTimer.phase("Vision");
+    // load the navgrid and start reading saved paths now instead of on the first
+    // findAndFollowPath
+    final GridPathfinder pathfinder = GridPathfinder.getInstance();
+    PathCache.getInstance();
+    // flow fields to the lineups of both alliances, built the first time a path goes to them
+    if (pathfinder != null) {
+      final ArrayList<Translation2d> goals = new ArrayList<>();
+      for (final Pose2d target : Field.getNavigationTargets()) {
+        goals.add(target.getTranslation());
+      }
+      pathfinder.addFlowFieldGoals(goals);
+    }
+    BootTimer.phase("Navgrid");
+    SmartDashboard.putData("Auto Chooser", m_autoLoader.getChooser());
     SmartDashboard.putData("Intake", m_intake);
     SmartDashboard.putData("Indexer", m_indexer);
     SmartDashboard.putData("Flywheel", m_flywheel);
@@ -277,12 +335,53 @@ public class RobotContainer {
     m_angleRequest.HeadingController.setD(0);
   }
 
+  /**
+   * @brief add an auto to the chooser for every Choreo trajectory
+   * 
+   *        The trajectories are loaded from the compiled files in the background, see
+   *        CompiledTrajectory.
+   */
+  private void addChoreoAutos() {
+    final File[] files = new File(Filesystem.getDeployDirectory(), "choreo").listFiles();
+    if (files == null)
+      return;
+    Arrays.sort(files);
+    for (final File file : files) {
+      if (!file.getName().endsWith(".traj"))
+        continue;
+      final String name = file.getName().substring(0, file.getName().length() - ".traj".length());
+      m_autoLoader.add("Choreo " + name, () -> {
+        final CompiledTrajectory trajectory = CompiledTrajectory.load(name);
+        // mirror on the worker, not when the command is built
+        trajectory.mirrored();
+        return () -> m_drivetrain.followTrajectory(trajectory, true);
+      });
+    }
+  }
+
+  /**
+   * @brief build the selected auto ahead of time if it is loaded, called while disabled
+   */
+  public void prepareAutonomousCommand() {
+    m_autoLoader.prepareSelected();
+  }
+
   /**
    * @brief Get the autonomous command to run
    * 
    * @return Command
    */
   public Command getAutonomousCommand() {
-    return autoChooser.getSelected();
+    return m_autoLoader.getSelected();
+  }
+
+  /**
+   * @brief Get an auto's command, the same one getAutonomousCommand() gives when it is selected
+   *
+   * @param name name of the auto
+   * @return Command
+   */
+  public Command getAutonomousCommand(String name) {
+    return m_autoLoader.get(name);
   }
 }
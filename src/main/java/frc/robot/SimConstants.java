@@ -3,4 +3,6 @@ package frc.robot;
 public class SimConstants {
 
   public static final double kSimLoopPeriod = 0.005; // 5 ms.
+  // most simulated time to catch up on at once, after a breakpoint for example (seconds)
+  public static final double kMaxCatchUp = 0.1;
 }
@@ -0,0 +1,215 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Vision.Frame;
+import frc.robot.util.InputLog;
+
+/**
+ * @brief Vision noise model backed by a calibrated table
+ *
+ *        The base standard deviations come from a table indexed by the number of tags in view and
+ *        the average distance to them, interpolated linearly between distances. They are scaled
+ *        up by the tag ambiguity, and motion blur and latency error are added on top in
+ *        proportion to the robot's speed.
+ *
+ *        The table is loaded from the deploy directory. Every frame is also logged with its
+ *        residual against the pose estimate, which is what NoiseModelFitter fits the table from.
+ */
+public class TableNoiseModel implements VisionNoiseModel {
+  /**
+   * @brief the calibration table, stored as JSON
+   */
+  public static class Table {
+    // average tag distances the table is sampled at (meters)
+    public double[] distances;
+    // translation standard deviations, [tag count - 1][distance] (meters). The last row is used
+    // for any number of tags above it
+    public double[][] translation;
+    // rotation standard deviations, [tag count - 1][distance] (radians)
+    public double[][] rotation;
+    // tag area (% of the image) at 1 meter, used if the limelight doesn't send the distance
+    public double areaAtOneMeter;
+    // translation standard deviation added per meter per second of robot speed
+    public double translationSpeedGain;
+    // rotation standard deviation added per radian per second of robot speed
+    public double rotationSpeedGain;
+    // relative increase of the standard deviations at ambiguity 1
+    public double ambiguityGain;
+    // single tag frames more ambiguous than this are rejected
+    public double maxAmbiguity;
+  }
+
+  // layout of a logged sample
+  public static final String kSampleEntrySuffix = "/NoiseSamples";
+  public static final int kSampleTagCount = 0;
+  public static final int kSampleDistance = 1;
+  public static final int kSampleArea = 2;
+  public static final int kSampleAmbiguity = 3;
+  public static final int kSampleSpeed = 4;
+  public static final int kSampleAngularSpeed = 5;
+  public static final int kSampleDx = 6;
+  public static final int kSampleDy = 7;
+  public static final int kSampleDtheta = 8;
+  public static final int kSampleLength = 9;
+
+  private final Table m_table;
+  private final Supplier<ChassisSpeeds> m_speeds;
+  private final DoubleArrayLogEntry m_sampleLog;
+  private final double[] m_sample = new double[kSampleLength];
+
+  /**
+   * @brief TableNoiseModel constructor
+   *
+   * @param name name of the camera, used for the log entry
+   * @param table the calibration table
+   * @param speeds supplies the robot relative chassis speeds
+   */
+  public TableNoiseModel(String name, Table table, Supplier<ChassisSpeeds> speeds) {
+    m_table = table;
+    m_speeds = speeds;
+    final DataLog log = InputLog.getInstance().getLog();
+    m_sampleLog =
+        log == null ? null : new DoubleArrayLogEntry(log, "Vision/" + name + kSampleEntrySuffix);
+  }
+
+  /**
+   * @brief load a table from a file
+   *
+   * @param file the JSON file
+   * @return Table
+   * @throws IOException if the file can't be read or parsed
+   */
+  public static Table load(File file) throws IOException {
+    return new ObjectMapper().readValue(file, Table.class);
+  }
+
+  /**
+   * @brief load a table from the deploy directory, or the default table if that fails
+   *
+   * @param path path of the JSON file, relative to the deploy directory
+   * @return Table
+   */
+  public static Table loadOrDefault(String path) {
+    try {
+      return load(new File(Filesystem.getDeployDirectory(), path));
+    } catch (IOException e) {
+      DriverStation.reportError("Failed to load vision noise model " + path + ": " + e, false);
+      return defaultTable();
+    }
+  }
+
+  /**
+   * @brief get the uncalibrated table
+   *
+   * @return Table
+   */
+  public static Table defaultTable() {
+    final Table table = new Table();
+    table.distances = new double[] {1, 2, 3, 4, 5, 6};
+    table.translation = new double[][] {{0.3, 0.6, 1.0, 1.5, 2.2, 3.0},
+        {0.15, 0.3, 0.5, 0.7, 1.0, 1.4}, {0.1, 0.2, 0.35, 0.5, 0.7, 1.0}};
+    table.rotation = new double[][] {{0.2, 0.35, 0.5, 0.7, 0.9, 1.2},
+        {0.08, 0.12, 0.18, 0.25, 0.35, 0.5}, {0.05, 0.08, 0.12, 0.17, 0.25, 0.35}};
+    table.areaAtOneMeter = 2.4;
+    table.translationSpeedGain = 0.15;
+    table.rotationSpeedGain = 0.1;
+    table.ambiguityGain = 2.0;
+    table.maxAmbiguity = 0.7;
+    return table;
+  }
+
+  @Override
+  public Matrix<N3, N1> getStdDevs(Frame frame, Pose2d estimatedPose) {
+    final ChassisSpeeds speeds = m_speeds.get();
+    final double speed = Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond);
+    final double angularSpeed = Math.abs(speeds.omegaRadiansPerSecond);
+    final double distance = getDistance(m_table, frame.tagDistance, frame.tagArea);
+    logSample(frame, estimatedPose, distance, speed, angularSpeed);
+    // a single ambiguous tag can flip the pose completely
+    if (frame.tagCount == 1 && frame.ambiguity > m_table.maxAmbiguity)
+      return null;
+    final int row = Math.min(frame.tagCount, m_table.translation.length) - 1;
+    final double scale = 1 + m_table.ambiguityGain * Math.max(frame.ambiguity, 0);
+    final double translation = interpolate(m_table.distances, m_table.translation[row], distance);
+    final double rotation = interpolate(m_table.distances, m_table.rotation[row], distance);
+    return VecBuilder.fill(
+        Math.hypot(translation * scale, m_table.translationSpeedGain * speed),
+        Math.hypot(translation * scale, m_table.translationSpeedGain * speed),
+        Math.hypot(rotation * scale, m_table.rotationSpeedGain * angularSpeed));
+  }
+
+  /**
+   * @brief log a frame and its residual for the fitter
+   *
+   * @param frame the frame
+   * @param estimatedPose the pose estimate when the frame was captured
+   * @param distance distance to the tags in meters
+   * @param speed robot speed in meters per second
+   * @param angularSpeed robot angular speed in radians per second
+   */
+  private void logSample(Frame frame, Pose2d estimatedPose, double distance, double speed,
+      double angularSpeed) {
+    if (m_sampleLog == null)
+      return;
+    m_sample[kSampleTagCount] = frame.tagCount;
+    m_sample[kSampleDistance] = distance;
+    m_sample[kSampleArea] = frame.tagArea;
+    m_sample[kSampleAmbiguity] = frame.ambiguity;
+    m_sample[kSampleSpeed] = speed;
+    m_sample[kSampleAngularSpeed] = angularSpeed;
+    m_sample[kSampleDx] = frame.pose.getX() - estimatedPose.getX();
+    m_sample[kSampleDy] = frame.pose.getY() - estimatedPose.getY();
+    m_sample[kSampleDtheta] = MathUtil.angleModulus(
+        frame.pose.getRotation().getRadians() - estimatedPose.getRotation().getRadians());
+    m_sampleLog.append(m_sample);
+  }
+
+  /**
+   * @brief get the distance to the tags, estimating it from the area if it is missing
+   *
+   * @param table the calibration table
+   * @param distance average distance to the tags, 0 if unknown
+   * @param area average area of the tags in % of the image
+   * @return double distance in meters
+   */
+  public static double getDistance(Table table, double distance, double area) {
+    if (distance > 0 || area <= 0)
+      return distance;
+    // area falls off with the square of the distance
+    return Math.sqrt(table.areaAtOneMeter / area);
+  }
+
+  /**
+   * @brief interpolate linearly in a table, clamping at the ends
+   *
+   * @param xs sample points, ascending
+   * @param ys values at the sample points
+   * @param x where to interpolate
+   * @return double
+   */
+  public static double interpolate(double[] xs, double[] ys, double x) {
+    if (x <= xs[0])
+      return ys[0];
+    for (int i = 1; i < xs.length; i++) {
+      if (x <= xs[i])
+        return MathUtil.interpolate(ys[i - 1], ys[i], (x - xs[i - 1]) / (xs[i] - xs[i - 1]));
+    }
+    return ys[ys.length - 1];
+  }
+}
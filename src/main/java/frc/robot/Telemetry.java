@@ -1,14 +1,17 @@
 package frc.robot;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import com.ctre.phoenix6.Utils;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveDrivetrain.SwerveDriveState;
-import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.networktables.DoubleArrayPublisher;
 import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.networktables.StringPublisher;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
 import edu.wpi.first.wpilibj.smartdashboard.Mechanism2d;
 import edu.wpi.first.wpilibj.smartdashboard.MechanismLigament2d;
@@ -16,37 +19,84 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj.util.Color8Bit;
 
+/**
+ * @brief Drivetrain telemetry
+ *
+ *        telemeterize() is called by the Phoenix odometry thread on every odometry update, so it
+ *        only copies the drive state into a preallocated snapshot. A low priority notifier picks up
+ *        the newest snapshot at a fixed rate and publishes whatever changed.
+ */
 public class Telemetry {
   private final double MaxSpeed;
 
-  /**
-   * Construct a telemetry object, with the specified max speed of the robot
-   * 
-   * @param maxSpeed Maximum speed in meters per second
-   */
-  public Telemetry(double maxSpeed) {
-    MaxSpeed = maxSpeed;
+  /* Copy of the drive state. Only primitives, so filling one never allocates */
+  private static class Snapshot {
+    long sequence; // 0 means the snapshot was never written
+    double timestamp; // seconds
+    double poseX; // meters
+    double poseY; // meters
+    double poseDegrees;
+    double odometryPeriod; // seconds
+    final double[] moduleAngles = new double[4]; // degrees
+    final double[] moduleSpeeds = new double[4]; // meters per second
   }
 
+  /*
+   * The odometry thread fills m_back, then swaps it with the hand-off slot. The publisher swaps
+   * m_front with the hand-off slot to take the newest snapshot. Neither thread ever touches a
+   * buffer the other one owns, so there is no locking on the odometry thread.
+   */
+  private Snapshot m_back = new Snapshot(); // owned by the odometry thread
+  private Snapshot m_front = new Snapshot(); // owned by the publisher
+  private final AtomicReference<Snapshot> m_handoff = new AtomicReference<>(new Snapshot());
+  private long m_writeSequence = 0; // odometry thread only
+  private long m_readSequence = 0; // publisher only
+
+  /* Callback statistics, written by the odometry thread and published by the notifier */
+  private volatile long m_callbackNanos = 0;
+  private volatile long m_maxCallbackNanos = 0;
+  private long m_droppedSnapshots = 0;
+
+  private Notifier m_publisher = null; // null until started
+  private boolean m_priorityLowered = false;
+
   /* What to publish over Network Tables for telemetry */
-  NetworkTableInstance inst = NetworkTableInstance.getDefault();
+  final NetworkTableInstance inst;
 
   /* Robot pose for field positioning */
-  NetworkTable table = inst.getTable("Pose");
-  DoubleArrayPublisher fieldPub = table.getDoubleArrayTopic("robotPose").publish();
-  StringPublisher fieldTypePub = table.getStringTopic(".type").publish();
+  final NetworkTable table;
+  final DoubleArrayPublisher fieldPub;
+  final StringPublisher fieldTypePub;
 
   /* Robot speeds for general checking */
-  NetworkTable driveStats = inst.getTable("Drive");
-  DoublePublisher velocityX = driveStats.getDoubleTopic("Velocity X").publish();
-  DoublePublisher velocityY = driveStats.getDoubleTopic("Velocity Y").publish();
-  DoublePublisher speed = driveStats.getDoubleTopic("Speed").publish();
-  DoublePublisher odomPeriod = driveStats.getDoubleTopic("Odometry Period").publish();
-  DoublePublisher gyroAngle = driveStats.getDoubleTopic("Gyro Angle").publish();
+  final NetworkTable driveStats;
+  final DoublePublisher velocityX;
+  final DoublePublisher velocityY;
+  final DoublePublisher speed;
+  final DoublePublisher odomPeriod;
+  final DoublePublisher gyroAngle;
+
+  /* Telemetry pipeline health */
+  final DoublePublisher callbackTime;
+  final DoublePublisher maxCallbackTime;
+  final IntegerPublisher droppedSnapshots;
 
-  /* Keep a reference of the last pose to calculate the speeds */
-  Pose2d m_lastPose = new Pose2d();
-  double lastTime = Utils.getCurrentTimeSeconds();
+  /* Last published values, so unchanged values are not sent again */
+  private final double[] m_poseArray = new double[3];
+  private double m_lastPoseX = Double.NaN;
+  private double m_lastPoseY = Double.NaN;
+  private double m_lastPoseDegrees = Double.NaN;
+  private double m_lastVelocityX = Double.NaN;
+  private double m_lastVelocityY = Double.NaN;
+  private double m_lastSpeed = Double.NaN;
+  private double m_lastOdomPeriod = Double.NaN;
+  private final double[] m_lastModuleAngles = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+  private final double[] m_lastModuleSpeeds = {Double.NaN, Double.NaN, Double.NaN, Double.NaN};
+
+  /* Keep the previous snapshot's pose and time to calculate the speeds */
+  private double m_prevPoseX = 0;
+  private double m_prevPoseY = 0;
+  private double m_prevTimestamp = Utils.getCurrentTimeSeconds();
 
   /* Mechanisms to represent the swerve module states */
   Mechanism2d[] m_moduleMechanisms = new Mechanism2d[] {new Mechanism2d(1, 1),
@@ -72,41 +122,171 @@ public class Telemetry {
       m_moduleMechanisms[3].getRoot("RootDirection", 0.5, 0.5)
           .append(new MechanismLigament2d("Direction", 0.1, 0, 0, new Color8Bit(Color.kWhite))),};
 
-  /* Accept the swerve drive state and telemeterize it to SmartDashboard */
+  /* Field widget for the robot pose */
   Field2d field = new Field2d();
 
-  public void telemeterize(SwerveDriveState state) {
-    /* Telemeterize the pose */
-    Pose2d pose = RobotContainer.m_drivetrain.getState().Pose;
-    fieldTypePub.set("Field2d");
-    fieldPub.set(new double[] {pose.getX(), pose.getY(), pose.getRotation().getDegrees()});
-
-    field.getObject("Robot").setPose(pose);
+  /**
+   * Construct a telemetry object, with the specified max speed of the robot
+   *
+   * @param maxSpeed Maximum speed in meters per second
+   */
+  public Telemetry(double maxSpeed) {
+    this(maxSpeed, Constants.Telemetry.kPublishPeriod);
+  }
 
+  /**
+   * Construct a telemetry object, with the specified max speed of the robot and publish rate
+   *
+   * @param maxSpeed Maximum speed in meters per second
+   * @param publishPeriod how often changed values are published, in seconds
+   */
+  public Telemetry(double maxSpeed, double publishPeriod) {
+    this(maxSpeed, NetworkTableInstance.getDefault());
+    // sendables only need to be registered once, they update themselves afterwards
     SmartDashboard.putData("Field", field);
+    for (int i = 0; i < 4; ++i) {
+      SmartDashboard.putData("Module " + i, m_moduleMechanisms[i]);
+    }
+    // start the publisher
+    m_publisher = new Notifier(this::publish);
+    m_publisher.setName("Telemetry");
+    m_publisher.startPeriodic(publishPeriod);
+  }
 
-    /* Telemeterize the robot's general speeds */
-    double currentTime = Utils.getCurrentTimeSeconds();
-    double diffTime = currentTime - lastTime;
-    lastTime = currentTime;
-    Translation2d distanceDiff = pose.minus(m_lastPose).getTranslation();
-    m_lastPose = pose;
+  /**
+   * Construct a telemetry object that only publishes when publish() is called, without the
+   * dashboard widgets, for HotPathBenchmark
+   *
+   * @param maxSpeed Maximum speed in meters per second
+   * @param inst the NetworkTables instance to publish to
+   */
+  Telemetry(double maxSpeed, NetworkTableInstance inst) {
+    MaxSpeed = maxSpeed;
+    this.inst = inst;
+    table = inst.getTable("Pose");
+    fieldPub = table.getDoubleArrayTopic("robotPose").publish();
+    fieldTypePub = table.getStringTopic(".type").publish();
+    driveStats = inst.getTable("Drive");
+    velocityX = driveStats.getDoubleTopic("Velocity X").publish();
+    velocityY = driveStats.getDoubleTopic("Velocity Y").publish();
+    speed = driveStats.getDoubleTopic("Speed").publish();
+    odomPeriod = driveStats.getDoubleTopic("Odometry Period").publish();
+    gyroAngle = driveStats.getDoubleTopic("Gyro Angle").publish();
+    callbackTime = driveStats.getDoubleTopic("Telemetry Callback Time").publish();
+    maxCallbackTime = driveStats.getDoubleTopic("Telemetry Max Callback Time").publish();
+    droppedSnapshots = driveStats.getIntegerTopic("Telemetry Dropped Snapshots").publish();
+    fieldTypePub.set("Field2d");
+  }
 
-    Translation2d velocities = distanceDiff.div(diffTime);
+  /**
+   * @brief Accept the swerve drive state from the odometry thread
+   *
+   *        Copies the state into the back buffer and hands it to the publisher. Nothing here
+   *        allocates or touches NetworkTables.
+   *
+   * @param state the drive state
+   */
+  public void telemeterize(SwerveDriveState state) {
+    if (state.Pose == null || state.ModuleStates == null)
+      return;
+    final long start = System.nanoTime();
+    final Snapshot snapshot = m_back;
+    snapshot.sequence = ++m_writeSequence;
+    snapshot.timestamp = Utils.getCurrentTimeSeconds();
+    snapshot.poseX = state.Pose.getX();
+    snapshot.poseY = state.Pose.getY();
+    snapshot.poseDegrees = state.Pose.getRotation().getDegrees();
+    snapshot.odometryPeriod = state.OdometryPeriod;
+    for (int i = 0; i < 4; ++i) {
+      snapshot.moduleAngles[i] = state.ModuleStates[i].angle.getDegrees();
+      snapshot.moduleSpeeds[i] = state.ModuleStates[i].speedMetersPerSecond;
+    }
+    // hand the snapshot over, and take back whichever buffer was in the hand-off slot
+    m_back = m_handoff.getAndSet(snapshot);
+    // record how long the callback took
+    final long elapsed = System.nanoTime() - start;
+    m_callbackNanos = elapsed;
+    if (elapsed > m_maxCallbackNanos)
+      m_maxCallbackNanos = elapsed;
+  }
 
-    speed.set(velocities.getNorm());
-    velocityX.set(velocities.getX());
-    velocityY.set(velocities.getY());
-    gyroAngle.set(pose.getRotation().getDegrees());
-    odomPeriod.set(state.OdometryPeriod);
+  /**
+   * @brief Publish the newest snapshot
+   *
+   *        Runs on the telemetry notifier thread.
+   */
+  void publish() {
+    // only the notifier's thread, not a caller's
+    if (!m_priorityLowered && m_publisher != null) {
+      Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+      m_priorityLowered = true;
+    }
+    // take the newest snapshot, give back the one we already published
+    final Snapshot snapshot = m_handoff.getAndSet(m_front);
+    m_front = snapshot;
+    // pipeline health
+    callbackTime.set(m_callbackNanos / 1e6);
+    maxCallbackTime.set(m_maxCallbackNanos / 1e6);
+    // nothing new since the last publish
+    if (snapshot.sequence <= m_readSequence)
+      return;
+    m_droppedSnapshots += snapshot.sequence - m_readSequence - 1;
+    m_readSequence = snapshot.sequence;
+    droppedSnapshots.set(m_droppedSnapshots);
+
+    /* Telemeterize the pose */
+    if (snapshot.poseX != m_lastPoseX || snapshot.poseY != m_lastPoseY
+        || snapshot.poseDegrees != m_lastPoseDegrees) {
+      m_poseArray[0] = snapshot.poseX;
+      m_poseArray[1] = snapshot.poseY;
+      m_poseArray[2] = snapshot.poseDegrees;
+      fieldPub.set(m_poseArray);
+      field.setRobotPose(snapshot.poseX, snapshot.poseY,
+          Rotation2d.fromDegrees(snapshot.poseDegrees));
+      m_lastPoseX = snapshot.poseX;
+      m_lastPoseY = snapshot.poseY;
+    }
+    m_lastPoseDegrees = setIfChanged(gyroAngle, snapshot.poseDegrees, m_lastPoseDegrees);
+
+    /* Telemeterize the robot's general speeds */
+    final double diffTime = snapshot.timestamp - m_prevTimestamp;
+    if (diffTime > 0) {
+      final double vx = (snapshot.poseX - m_prevPoseX) / diffTime;
+      final double vy = (snapshot.poseY - m_prevPoseY) / diffTime;
+      m_lastVelocityX = setIfChanged(velocityX, vx, m_lastVelocityX);
+      m_lastVelocityY = setIfChanged(velocityY, vy, m_lastVelocityY);
+      m_lastSpeed = setIfChanged(speed, Math.hypot(vx, vy), m_lastSpeed);
+    }
+    m_prevPoseX = snapshot.poseX;
+    m_prevPoseY = snapshot.poseY;
+    m_prevTimestamp = snapshot.timestamp;
+    m_lastOdomPeriod = setIfChanged(odomPeriod, snapshot.odometryPeriod, m_lastOdomPeriod);
 
     /* Telemeterize the module's states */
     for (int i = 0; i < 4; ++i) {
-      m_moduleSpeeds[i].setAngle(state.ModuleStates[i].angle);
-      m_moduleDirections[i].setAngle(state.ModuleStates[i].angle);
-      m_moduleSpeeds[i].setLength(state.ModuleStates[i].speedMetersPerSecond / (2 * MaxSpeed));
-
-      SmartDashboard.putData("Module " + i, m_moduleMechanisms[i]);
+      if (snapshot.moduleAngles[i] != m_lastModuleAngles[i]) {
+        m_moduleSpeeds[i].setAngle(snapshot.moduleAngles[i]);
+        m_moduleDirections[i].setAngle(snapshot.moduleAngles[i]);
+        m_lastModuleAngles[i] = snapshot.moduleAngles[i];
+      }
+      if (snapshot.moduleSpeeds[i] != m_lastModuleSpeeds[i]) {
+        m_moduleSpeeds[i].setLength(snapshot.moduleSpeeds[i] / (2 * MaxSpeed));
+        m_lastModuleSpeeds[i] = snapshot.moduleSpeeds[i];
+      }
     }
   }
+
+  /**
+   * @brief publish a value only if it changed since it was last published
+   *
+   * @param publisher the publisher
+   * @param value the new value
+   * @param last the last published value
+   * @return double the value that is now published
+   */
+  private static double setIfChanged(DoublePublisher publisher, double value, double last) {
+    if (value != last)
+      publisher.set(value);
+    return value;
+  }
 }
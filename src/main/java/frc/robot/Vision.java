@@ -1,153 +1,437 @@
 package frc.robot;
 
+import java.util.EnumSet;
+import java.util.function.Consumer;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
 import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.IntegerPublisher;
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEvent;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableValue;
+import edu.wpi.first.networktables.PubSubOption;
 import edu.wpi.first.networktables.TimestampedDoubleArray;
 
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.util.WPIUtilJNI;
+import frc.robot.Constants.Limelight;
 
 /**
  * @brief LimeLight wrapper
  *
  *        We interact with the limelight through networktables. It posts data, and we need to read
  *        that data from networktables.
- * 
+ *
  *        Using networktables all the time inflates code size, so we have this wrapper to simplify
  *        using limelights
+ *
+ *        Every pose the limelight publishes is queued by networktables. poll() drains the queue
+ *        from the caller's thread, listen() receives frames on the networktables listener thread.
+ *        Both drop repeated and stale frames, and hand every new frame to the caller exactly once.
+ *        Everything a frame needs comes from the same botpose sample, so the pose, timestamp and
+ *        tag information always belong together.
+ *
+ *        Frames are recorded for replay by VisionFusion, on the main loop.
  */
 public class Vision {
-  public class MeasurementInfo {
-    public final Integer tagId;
-    public final Integer tagCount;
-    public final Double tagArea;
+  /**
+   * @brief a single frame measured by the limelight
+   */
+  public static class Frame {
+    public final double timestamp; // capture time in seconds, FPGA timebase
+    public final Pose2d pose; // robot pose, blue alliance origin
+    public final int tagCount; // number of tags in view
+    public final double tagDistance; // average distance to the tags in meters
+    public final double tagArea; // average area of the tags in % of the image
+    public final double ambiguity; // worst pose ambiguity of the tags (0-1), -1 if unknown
 
-    public MeasurementInfo(Integer tagId, Integer tagCount, Double tagArea) {
-      this.tagId = tagId;
+    /**
+     * @brief Frame constructor
+     *
+     * @param timestamp capture time in seconds, FPGA timebase
+     * @param pose robot pose
+     * @param tagCount number of tags in view
+     * @param tagDistance average distance to the tags in meters
+     * @param tagArea average area of the tags in % of the image
+     * @param ambiguity worst pose ambiguity of the tags (0-1), -1 if unknown
+     */
+    public Frame(double timestamp, Pose2d pose, int tagCount, double tagDistance, double tagArea,
+        double ambiguity) {
+      this.timestamp = timestamp;
+      this.pose = pose;
       this.tagCount = tagCount;
+      this.tagDistance = tagDistance;
       this.tagArea = tagArea;
+      this.ambiguity = ambiguity;
+    }
+
+    /**
+     * @brief Frame constructor, from a recorded frame
+     *
+     * @param recorded the frame as written by toArray()
+     */
+    public Frame(double[] recorded) {
+      this(recorded[0], new Pose2d(recorded[1], recorded[2], new Rotation2d(recorded[3])),
+          (int) recorded[4], recorded[5], recorded[6], recorded[7]);
+    }
+
+    /**
+     * @brief write the frame to an array, for recording
+     *
+     * @param out array of at least 8 values
+     * @return double[] out
+     */
+    public double[] toArray(double[] out) {
+      out[0] = timestamp;
+      out[1] = pose.getX();
+      out[2] = pose.getY();
+      out[3] = pose.getRotation().getRadians();
+      out[4] = tagCount;
+      out[5] = tagDistance;
+      out[6] = tagArea;
+      out[7] = ambiguity;
+      return out;
     }
   }
 
+  /**
+   * @brief check whether the limelight is publishing poses
+   *
+   * @return Boolean
+   */
   public Boolean isConnected() {
-    return m_table.containsSubTable("botpose_wpiblue");
+    return m_poseSubscriber != null && m_poseSubscriber.exists();
   }
 
-  private DoubleArraySubscriber m_poseSubscriber; // red pose subscriber
+  private final String m_name; // name of the limelight
+  private final Transform3d m_robotToCamera; // camera mount, null if set on the limelight
+  private final NetworkTableInstance m_inst; // networktables instance the limelight uses
   private final NetworkTable m_table; // limelight network table instance
+  // subscribers, created once in init()
+  private DoubleArraySubscriber m_poseSubscriber; // blue origin pose subscriber
+  private DoubleArraySubscriber m_cornersSubscriber; // tag corner subscriber
+  private DoubleArraySubscriber m_targetPoseSubscriber; // target pose subscriber
+  private DoubleArraySubscriber m_fiducialsSubscriber; // per tag detection subscriber
+  private DoubleSubscriber m_tagAreaSubscriber; // tag area subscriber
+  private DoubleSubscriber m_heartbeatSubscriber; // frame counter subscriber
+  private DoubleArrayPublisher m_cameraPosePublisher; // camera mount publisher
+  private Consumer<Frame> m_listener = null; // set by listen(), started by init()
+  // ingestion statistics publishers
+  private final DoublePublisher m_framesPerSecond;
+  private final DoublePublisher m_latency;
+  private final DoublePublisher m_maxLatency;
+  private final IntegerPublisher m_droppedFrames;
+  private final IntegerPublisher m_duplicateFrames;
+  private final IntegerPublisher m_staleFrames;
+  // capture time of the newest frame handed out
+  private double m_lastFrameTimestamp = 0;
+  // totals
+  private long m_dropped = 0;
+  private long m_duplicates = 0;
+  private long m_stale = 0;
+  // current statistics window
+  private double m_windowStart = 0;
+  private long m_windowHeartbeat = -1;
+  private long m_windowSamples = 0;
+  private long m_windowFrames = 0;
+  private double m_windowLatency = 0;
+  private double m_windowMaxLatency = 0;
 
   /**
    * @brief Vision class constructor
-   * 
+   *
    * @param limelightName name of the limelight
    */
   public Vision(String limelightName) {
-    m_table = NetworkTableInstance.getDefault().getTable(limelightName);
+    this(limelightName, null, NetworkTableInstance.getDefault());
+  }
+
+  /**
+   * @brief Vision class constructor
+   *
+   * @param limelightName name of the limelight
+   * @param robotToCamera where the camera is mounted on the robot, or null to keep the pose
+   *        configured on the limelight
+   * @param inst networktables instance the limelight publishes to
+   */
+  public Vision(String limelightName, Transform3d robotToCamera, NetworkTableInstance inst) {
+    m_name = limelightName;
+    m_robotToCamera = robotToCamera;
+    m_inst = inst;
+    m_table = inst.getTable(limelightName);
+    final NetworkTable stats = inst.getTable("Vision").getSubTable(limelightName);
+    m_framesPerSecond = stats.getDoubleTopic("Frames Per Second").publish();
+    m_latency = stats.getDoubleTopic("Ingest Latency ms").publish();
+    m_maxLatency = stats.getDoubleTopic("Max Ingest Latency ms").publish();
+    m_droppedFrames = stats.getIntegerTopic("Dropped Frames").publish();
+    m_duplicateFrames = stats.getIntegerTopic("Duplicate Frames").publish();
+    m_staleFrames = stats.getIntegerTopic("Stale Frames").publish();
   }
 
   /**
    * @brief initialize the limelight
-   * 
+   *
    *        This is not run in the constructor because it is not safe to run networktables during
    *        program startup, as the networktables server may not be running yet.
+   *
+   *        The subscribers are created whether or not the limelight is connected yet, they start
+   *        receiving as soon as it publishes. A consumer given to listen() before starts receiving
+   *        here. Calling this more than once does nothing.
    */
   public void init() {
+    if (m_poseSubscriber != null)
+      return;
     // robot position is different if its on the Blue alliance or the Red alliance
-    if (isConnected()) {
-      m_poseSubscriber = m_table.getDoubleArrayTopic("botpose_wpiblue").subscribe(new double[7]);
+    // keep every sample, even if two frames measure the same pose
+    m_poseSubscriber = m_table.getDoubleArrayTopic("botpose_wpiblue").subscribe(new double[0],
+        PubSubOption.keepDuplicates(true), PubSubOption.pollStorage(Limelight.kQueueDepth));
+    m_cornersSubscriber = m_table.getDoubleArrayTopic("tcornxy").subscribe(new double[0]);
+    m_targetPoseSubscriber =
+        m_table.getDoubleArrayTopic("targetpose_robotspace").subscribe(new double[6]);
+    m_tagAreaSubscriber = m_table.getDoubleTopic("ta").subscribe(0.0);
+    m_fiducialsSubscriber = m_table.getDoubleArrayTopic("rawfiducials").subscribe(new double[0]);
+    m_heartbeatSubscriber = m_table.getDoubleTopic("hb").subscribe(-1);
+    // tell the limelight where it is mounted, botpose is the pose of the robot center
+    if (m_robotToCamera != null) {
+      m_cameraPosePublisher = m_table.getDoubleArrayTopic("camerapose_robotspace_set").publish();
+      m_cameraPosePublisher.set(new double[] {m_robotToCamera.getX(), m_robotToCamera.getY(),
+          m_robotToCamera.getZ(), Units.radiansToDegrees(m_robotToCamera.getRotation().getX()),
+          Units.radiansToDegrees(m_robotToCamera.getRotation().getY()),
+          Units.radiansToDegrees(m_robotToCamera.getRotation().getZ())});
     }
+    if (m_listener != null)
+      addListener();
   }
 
   /**
-   * @brief get the number of tags in view
-   * 
-   * @return double number of tags in view
+   * @brief get the name of the limelight
+   *
+   * @return String
    */
-  private Integer numTags() {
-    final double[] cornerCount = m_table.getEntry("tcornxy").getDoubleArray(new double[32]);
-    return (int) Math.ceil(cornerCount.length / 8);
+  public String getName() {
+    return m_name;
   }
 
   /**
-   * @brief get the area of the detected tag in mm^2
-   * 
-   * @return double area of the tag in mm^2
+   * @brief hand every new frame to a consumer
+   *
+   *        Frames without tags, frames that were already handed out and frames older than
+   *        Limelight.kMaxFrameAge are skipped. Frames are handed out oldest first.
+   *
+   * @param consumer called once for every new frame
+   * @return int number of frames handed out
    */
-  private double tagArea() {
-    return m_table.getEntry("ta").getDouble(0.0);
+  public int poll(Consumer<Frame> consumer) {
+    if (m_poseSubscriber == null)
+      return 0;
+    int count = 0;
+    for (final TimestampedDoubleArray sample : m_poseSubscriber.readQueue()) {
+      if (ingest(sample, consumer))
+        count++;
+    }
+    return count;
   }
 
   /**
-   * @brief get information about the detected tag
-   * 
-   * @return MeasurementInfo information about the detected tag
+   * @brief hand every new frame to a consumer as soon as it arrives
+   *
+   *        The consumer is called from the networktables listener thread, so the main loop does
+   *        not spend any time on this camera. The same frames are skipped as in poll(). Do not mix
+   *        listen() and poll() on the same camera, and only listen once.
+   *
+   *        Nothing is received until init() has run, so this is safe during program startup.
+   *
+   * @param consumer called once for every new frame, from the listener thread
    */
-  public MeasurementInfo tagDetector() {
-    final Integer tagID = Math.toIntExact(m_table.getEntry("tid").getInteger(-1));
-    return new MeasurementInfo(tagID, numTags(), tagArea());
+  public void listen(Consumer<Frame> consumer) {
+    m_listener = consumer;
+    if (m_poseSubscriber != null)
+      addListener();
   }
 
   /**
-   * @brief get the 2D position measured by the limelight
-   * 
-   * @return Pose2d 2D position measured by the limelight
+   * @brief start handing the frames of the pose subscriber to the listen() consumer
    */
-  public Pose2d getPos2D() {
+  private void addListener() {
+    final Consumer<Frame> consumer = m_listener;
+    m_inst.addListener(m_poseSubscriber, EnumSet.of(NetworkTableEvent.Kind.kValueAll), event -> {
+      final NetworkTableValue value = event.valueData.value;
+      ingest(new TimestampedDoubleArray(value.getTime(), value.getServerTime(),
+          value.getDoubleArray()), consumer);
+    });
+  }
+
+  /**
+   * @brief check a botpose sample and hand it to the consumer if it is a new frame
+   *
+   * @param sample the botpose sample
+   * @param consumer called if the sample is a new frame
+   * @return boolean whether the consumer was called
+   */
+  private boolean ingest(TimestampedDoubleArray sample, Consumer<Frame> consumer) {
+    // same timebase as networktables timestamps
+    final double now = WPIUtilJNI.now() / 1e6;
+    m_windowSamples++;
     try {
-      final double[] raw = m_poseSubscriber.get();
-      return new Pose2d(new Translation2d(raw[0], raw[1]),
-          new Rotation2d(Units.degreesToRadians(raw[5])));
-    } catch (NullPointerException e) {
-      System.out.println(e.toString());
+      final Frame frame = toFrame(sample);
+      // no tags in view
+      if (frame == null)
+        return false;
+      // the same frame published again, or an older one
+      if (frame.timestamp <= m_lastFrameTimestamp) {
+        m_duplicates++;
+        return false;
+      }
+      m_lastFrameTimestamp = frame.timestamp;
+      // too old to correct the pose with
+      final double latency = now - frame.timestamp;
+      if (latency > Limelight.kMaxFrameAge) {
+        m_stale++;
+        return false;
+      }
+      m_windowFrames++;
+      m_windowLatency += latency;
+      m_windowMaxLatency = Math.max(m_windowMaxLatency, latency);
+      consumer.accept(frame);
+      return true;
+    } finally {
+      updateStatistics(now);
+    }
+  }
+
+  /**
+   * @brief convert a botpose sample to a frame
+   *
+   *        Limelight firmware 2024 appends the tag count, span, average distance and average area
+   *        to botpose. Older firmware only sends the pose and latency, in which case the tag
+   *        information is read from the latest values of the other topics instead.
+   *
+   * @param sample the botpose sample
+   * @return Frame the frame, or null if no tags are in view
+   */
+  private Frame toFrame(TimestampedDoubleArray sample) {
+    final double[] raw = sample.value;
+    if (raw.length < 7)
       return null;
+    final int tagCount;
+    final double tagDistance;
+    final double tagArea;
+    if (raw.length >= 11) {
+      tagCount = (int) raw[7];
+      tagDistance = raw[9];
+      tagArea = raw[10];
+    } else {
+      tagCount = raw[0] == 0 && raw[1] == 0 ? 0 : Math.max(numTags(), 1);
+      tagDistance = getDist3D();
+      tagArea = m_tagAreaSubscriber.get();
     }
+    if (tagCount == 0)
+      return null;
+    // sample time is in microseconds, latency is in milliseconds
+    final double timestamp = sample.timestamp / 1e6 - raw[6] / 1e3;
+    final Pose2d pose = new Pose2d(new Translation2d(raw[0], raw[1]),
+        new Rotation2d(Units.degreesToRadians(raw[5])));
+    return new Frame(timestamp, pose, tagCount, tagDistance, tagArea, ambiguity(sample));
   }
 
   /**
-   * @brief get the distance from the robot to the tag
-   * 
-   * @return distance in meters
+   * @brief get the worst tag ambiguity of a frame
+   *
+   *        rawfiducials is a separate topic, so it is only used if the limelight published it
+   *        together with the botpose sample.
+   *
+   * @param sample the botpose sample
+   * @return double worst ambiguity of the tags in the frame, -1 if unknown
    */
-  public double getDist3D() {
-    // get the measured pose in the target coordinate system
-    final double[] measuredPoseArray =
-        m_table.getEntry("targetpose_robotspace").getDoubleArray(new double[6]);
-    // create the vector
-    final Translation3d measuredPose =
-        new Translation3d(measuredPoseArray[0], measuredPoseArray[1], measuredPoseArray[2]);
-    // return the magnitude of the vector
-    return measuredPose.getNorm();
+  private double ambiguity(TimestampedDoubleArray sample) {
+    final TimestampedDoubleArray fiducials = m_fiducialsSubscriber.getAtomic();
+    if (fiducials.serverTime != sample.serverTime || fiducials.value.length < 7)
+      return -1;
+    // 7 values per tag, ambiguity is the last one
+    double ambiguity = 0;
+    for (int i = 6; i < fiducials.value.length; i += 7) {
+      ambiguity = Math.max(ambiguity, fiducials.value[i]);
+    }
+    return ambiguity;
   }
 
   /**
-   * @brief get the timestamp of the latest measurement in milliseconds
-   * 
-   * @return long timestamp of the latest measurement in milliseconds
+   * @brief publish the ingestion statistics once per window
+   *
+   * @param now current time in seconds
    */
-  public long getLatestTimestamp() {
-    return m_poseSubscriber.getAtomic().timestamp;
+  private void updateStatistics(double now) {
+    final double elapsed = now - m_windowStart;
+    if (elapsed < Limelight.kStatsPublishPeriod)
+      return;
+    // the heartbeat counts every frame the limelight processed, any it did not publish to us
+    // were dropped
+    final long heartbeat = (long) m_heartbeatSubscriber.get();
+    if (m_windowHeartbeat >= 0 && heartbeat >= m_windowHeartbeat)
+      m_dropped += Math.max(heartbeat - m_windowHeartbeat - m_windowSamples, 0);
+    m_framesPerSecond.set(m_windowFrames / elapsed);
+    m_latency.set(m_windowFrames == 0 ? 0 : m_windowLatency / m_windowFrames * 1000.0);
+    m_maxLatency.set(m_windowMaxLatency * 1000.0);
+    m_droppedFrames.set(m_dropped);
+    m_duplicateFrames.set(m_duplicates);
+    m_staleFrames.set(m_stale);
+    m_windowStart = now;
+    m_windowHeartbeat = heartbeat;
+    m_windowSamples = 0;
+    m_windowFrames = 0;
+    m_windowLatency = 0;
+    m_windowMaxLatency = 0;
   }
 
   /**
-   * @brief get the raw pose data
-   * 
-   * @return TimestampedDoubleArray raw pose data
+   * @brief get the number of tags in view
+   *
+   * @return int number of tags in view
    */
-  public TimestampedDoubleArray getPoseRaw() {
-    return m_poseSubscriber.getAtomic();
+  private int numTags() {
+    // 4 corners per tag, x and y per corner
+    return m_cornersSubscriber.get().length / 8;
   }
 
   /**
-   * @brief get the latest latency adjusted timestamp in seconds
-   * 
-   * @return double latest latency adjusted timestamp in seconds
+   * @brief get the latest 2D position measured by the limelight
+   *
+   * @return Pose2d 2D position measured by the limelight, or null if there is none
    */
-  public double getLatestLatencyAdjustedTimeStamp() {
-    final TimestampedDoubleArray internal2 = m_poseSubscriber.getAtomic();
-    return ((internal2.timestamp - internal2.value[6]) / 1000.0);
+  public Pose2d getPos2D() {
+    if (m_poseSubscriber == null)
+      return null;
+    final double[] raw = m_poseSubscriber.get();
+    if (raw.length < 6)
+      return null;
+    return new Pose2d(new Translation2d(raw[0], raw[1]),
+        new Rotation2d(Units.degreesToRadians(raw[5])));
+  }
+
+  /**
+   * @brief get the distance from the robot to the tag
+   *
+   * @return distance in meters
+   */
+  public double getDist3D() {
+    if (m_targetPoseSubscriber == null)
+      return 0;
+    // get the measured pose in the target coordinate system
+    final double[] measuredPoseArray = m_targetPoseSubscriber.get();
+    if (measuredPoseArray.length < 3)
+      return 0;
+    // create the vector
+    final Translation3d measuredPose =
+        new Translation3d(measuredPoseArray[0], measuredPoseArray[1], measuredPoseArray[2]);
+    // return the magnitude of the vector
+    return measuredPose.getNorm();
   }
 }
@@ -0,0 +1,189 @@
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.DoubleFunction;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Vision.Frame;
+import frc.robot.util.InputLog;
+import frc.robot.util.SectionTimer;
+
+/**
+ * @brief Fuses the measurements of any number of cameras into the pose estimator
+ *
+ *        Every camera is ingested on the networktables listener thread, which parses and filters
+ *        its frames and queues them here. update() runs on the main loop, takes everything queued
+ *        since the last call, sorts it by capture time and hands each measurement to the pose
+ *        estimator with the standard deviations from that camera's noise model. The main loop
+ *        only pays for the measurements themselves, not for the number of cameras.
+ *
+ *        Frames are recorded for replay when update() takes them, so a replay fuses them in the
+ *        same loop the robot did. In replay the cameras aren't listened to, the recorded frames
+ *        of a loop are queued when it starts.
+ *
+ *        Nothing here depends on the drivetrain, so cameras publishing to a local networktables
+ *        instance can be fused into any consumer.
+ */
+public class VisionFusion {
+  /**
+   * @brief receives fused vision measurements
+   */
+  @FunctionalInterface
+  public interface MeasurementConsumer {
+    /**
+     * @brief add a vision measurement
+     *
+     * @param pose the measured robot pose
+     * @param timestamp capture time in seconds, FPGA timebase
+     * @param stdDevs standard deviations of x and y in meters and heading in radians
+     */
+    void accept(Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs);
+  }
+
+  /**
+   * @brief a frame waiting to be fused, with the model of the camera it came from
+   */
+  private static class Measurement {
+    private final VisionNoiseModel m_noiseModel;
+    private final Frame m_frame;
+    private final InputLog.ArrayInput m_input; // recorded frames of the camera
+
+    private Measurement(VisionNoiseModel noiseModel, Frame frame, InputLog.ArrayInput input) {
+      m_noiseModel = noiseModel;
+      m_frame = frame;
+      m_input = input;
+    }
+  }
+
+  private static final Comparator<Measurement> kByTimestamp =
+      Comparator.comparingDouble(measurement -> measurement.m_frame.timestamp);
+
+  private final DoubleFunction<Pose2d> m_poseEstimate;
+  private final MeasurementConsumer m_consumer;
+  private final ArrayList<Vision> m_cameras = new ArrayList<>();
+  // filled by the listener threads, drained by the main loop
+  private final ConcurrentLinkedQueue<Measurement> m_queue = new ConcurrentLinkedQueue<>();
+  // reused every update
+  private final ArrayList<Measurement> m_batch = new ArrayList<>();
+  private final double[] m_frameSample = new double[8];
+  // statistics
+  private final IntegerPublisher m_fusedPublisher;
+  private final IntegerPublisher m_rejectedPublisher;
+  private final IntegerPublisher m_batchPublisher;
+  private long m_fused = 0;
+  private long m_rejected = 0;
+  // hot path timer
+  private final SectionTimer m_updateTimer = new SectionTimer("VisionFusion.update");
+
+  /**
+   * @brief VisionFusion constructor
+   *
+   * @param poseEstimate gives the pose estimate at a capture time (seconds, FPGA timebase),
+   *        passed to the noise models
+   * @param consumer receives the measurements, usually the drivetrain's pose estimator
+   */
+  public VisionFusion(DoubleFunction<Pose2d> poseEstimate, MeasurementConsumer consumer) {
+    this(poseEstimate, consumer, NetworkTableInstance.getDefault());
+  }
+
+  /**
+   * @brief VisionFusion constructor
+   *
+   * @param poseEstimate gives the pose estimate at a capture time (seconds, FPGA timebase),
+   *        passed to the noise models
+   * @param consumer receives the measurements, usually the drivetrain's pose estimator
+   * @param inst networktables instance the statistics are published to
+   */
+  public VisionFusion(DoubleFunction<Pose2d> poseEstimate, MeasurementConsumer consumer,
+      NetworkTableInstance inst) {
+    m_poseEstimate = poseEstimate;
+    m_consumer = consumer;
+    final NetworkTable table = inst.getTable("Vision").getSubTable("Fusion");
+    m_fusedPublisher = table.getIntegerTopic("Fused").publish();
+    m_rejectedPublisher = table.getIntegerTopic("Rejected").publish();
+    m_batchPublisher = table.getIntegerTopic("Batch Size").publish();
+  }
+
+  /**
+   * @brief start fusing a camera
+   *
+   *        Its frames are received once the camera's init() has run.
+   *
+   * @param camera the camera
+   * @param noiseModel how much the camera's measurements can be trusted
+   * @return Vision the camera
+   */
+  public Vision addCamera(Vision camera, VisionNoiseModel noiseModel) {
+    m_cameras.add(camera);
+    final InputLog.ArrayInput input =
+        InputLog.getInstance().arrayInput("Vision/" + camera.getName() + "/Frames");
+    if (InputLog.getInstance().isReplay()) {
+      input.replay(
+          recorded -> m_queue.add(new Measurement(noiseModel, new Frame(recorded), input)));
+    } else {
+      camera.listen(frame -> m_queue.add(new Measurement(noiseModel, frame, input)));
+    }
+    return camera;
+  }
+
+  /**
+   * @brief get the cameras being fused
+   *
+   * @return ArrayList<Vision>
+   */
+  public ArrayList<Vision> getCameras() {
+    return m_cameras;
+  }
+
+  /**
+   * @brief fuse every measurement queued since the last call, oldest first
+   *
+   *        Must be called from the main loop.
+   *
+   * @return int number of measurements fused
+   */
+  public int update() {
+    m_updateTimer.start();
+    try {
+      Measurement measurement;
+      while ((measurement = m_queue.poll()) != null) {
+        // recorded on the main thread, in the loop that fuses it
+        measurement.m_input.record(measurement.m_frame.toArray(m_frameSample));
+        m_batch.add(measurement);
+      }
+      if (m_batch.isEmpty())
+        return 0;
+      // cameras are received independently, merge them by capture time
+      m_batch.sort(kByTimestamp);
+      int fused = 0;
+      for (int i = 0; i < m_batch.size(); i++) {
+        final Frame frame = m_batch.get(i).m_frame;
+        // compare against where the robot was when the frame was captured
+        final Pose2d estimate = m_poseEstimate.apply(frame.timestamp);
+        final Matrix<N3, N1> stdDevs = m_batch.get(i).m_noiseModel.getStdDevs(frame, estimate);
+        if (stdDevs == null) {
+          m_rejected++;
+          continue;
+        }
+        m_consumer.accept(frame.pose, frame.timestamp, stdDevs);
+        fused++;
+      }
+      m_fused += fused;
+      m_fusedPublisher.set(m_fused);
+      m_rejectedPublisher.set(m_rejected);
+      m_batchPublisher.set(m_batch.size());
+      m_batch.clear();
+      return fused;
+    } finally {
+      m_updateTimer.stop();
+    }
+  }
+}
@@ -0,0 +1,26 @@
+package frc.robot;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.Vision.Frame;
+
+/**
+ * @brief Decides how much a camera's measurement can be trusted
+ *
+ *        Every camera in VisionFusion has its own model, since cameras at different mounting
+ *        positions and resolutions are not equally accurate.
+ */
+@FunctionalInterface
+public interface VisionNoiseModel {
+  /**
+   * @brief get the standard deviations of a measurement
+   *
+   * @param frame the frame measured by the camera
+   * @param estimatedPose the pose estimate of the drivetrain when the frame was captured
+   * @return Matrix standard deviations of x and y in meters and heading in radians, or null if
+   *         the frame should not be fused
+   */
+  Matrix<N3, N1> getStdDevs(Frame frame, Pose2d estimatedPose);
+}
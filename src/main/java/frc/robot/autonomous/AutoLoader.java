@@ -0,0 +1,288 @@
+package frc.robot.autonomous;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.auto.NamedCommands;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.util.GeometryUtil;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.util.AllianceCache;
+import frc.robot.util.BootTimer;
+
+/**
+ * @brief Loads the autos in the background
+ *
+ *        The chooser is filled from the file names right away, and the files are parsed on a pool
+ *        of worker threads: the auto itself and every path it follows. The commands are built
+ *        from the parsed files on the main thread, when the auto is needed, because composing
+ *        commands registers them with the CommandScheduler, which isn't thread safe.
+ *
+ *        getSelected() waits for the selected auto only. If no worker has picked it up yet, it is
+ *        parsed right away on the calling thread instead of waiting its turn.
+ *
+ *        The red side of every path and starting pose is made on the worker too, so the autos pick
+ *        a side when they start instead of flipping paths on the main thread.
+ */
+public class AutoLoader {
+  private static final ObjectMapper kMapper = new ObjectMapper();
+  // PathPlanner registers path files for hot reload in a plain map
+  private static final Object kPathFileLock = new Object();
+  private static final String kNone = "None";
+
+  private final Consumer<Pose2d> m_resetPose;
+  private final BiFunction<PathPlannerPath, PathPlannerPath, Command> m_followPath;
+  private final SendableChooser<String> m_chooser = new SendableChooser<>();
+  private final ExecutorService m_workers =
+      Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+        final Thread thread = new Thread(runnable, "AutoLoader");
+        thread.setDaemon(true);
+        return thread;
+      });
+  // loads of every auto, then the commands built from them, only used from the main thread
+  private final HashMap<String, FutureTask<Supplier<Command>>> m_loads = new HashMap<>();
+  private final HashMap<String, Command> m_commands = new HashMap<>();
+  // loads still running, to time how long loading every auto took
+  private final AtomicInteger m_pending = new AtomicInteger();
+  private final long m_start = System.nanoTime();
+
+  /**
+   * @brief AutoLoader constructor
+   *
+   * @param resetPose resets the robot's pose at the start of an auto
+   * @param followPath follows a path given its blue and red sides
+   */
+  public AutoLoader(Consumer<Pose2d> resetPose,
+      BiFunction<PathPlannerPath, PathPlannerPath, Command> followPath) {
+    m_resetPose = resetPose;
+    m_followPath = followPath;
+    m_chooser.setDefaultOption(kNone, kNone);
+  }
+
+  /**
+   * @brief add every auto in deploy/pathplanner/autos
+   */
+  public void addPathPlannerAutos() {
+    final File[] files =
+        new File(Filesystem.getDeployDirectory(), "pathplanner/autos").listFiles();
+    if (files == null)
+      return;
+    Arrays.sort(files);
+    for (final File file : files) {
+      if (!file.getName().endsWith(".auto"))
+        continue;
+      final String name = file.getName().substring(0, file.getName().length() - ".auto".length());
+      add(name, () -> loadPathPlannerAuto(file));
+    }
+  }
+
+  /**
+   * @brief add an auto
+   *
+   * @param name name in the chooser
+   * @param load loads the auto on a worker, returns what builds its command on the main thread
+   */
+  public void add(String name, Callable<Supplier<Command>> load) {
+    final FutureTask<Supplier<Command>> task = new FutureTask<>(load) {
+      @Override
+      protected void done() {
+        if (m_pending.decrementAndGet() == 0)
+          BootTimer.record("Autos Loaded", (System.nanoTime() - m_start) / 1e6);
+      }
+    };
+    m_pending.incrementAndGet();
+    m_loads.put(name, task);
+    m_chooser.addOption(name, name);
+    m_workers.execute(task);
+  }
+
+  /**
+   * @brief get the chooser
+   *
+   * @return SendableChooser<String>
+   */
+  public SendableChooser<String> getChooser() {
+    return m_chooser;
+  }
+
+  /**
+   * @brief build the selected auto's command if its files are loaded, without waiting
+   *
+   *        Called while disabled, so the auto is ready before it starts.
+   */
+  public void prepareSelected() {
+    final FutureTask<Supplier<Command>> load = m_loads.get(m_chooser.getSelected());
+    if (load != null && load.isDone())
+      getSelected();
+  }
+
+  /**
+   * @brief get the command of the selected auto, waiting for its files if needed
+   *
+   * @return Command
+   */
+  public Command getSelected() {
+    return get(m_chooser.getSelected());
+  }
+
+  /**
+   * @brief get the command of an auto, waiting for its files if needed
+   *
+   * @param name name of the auto
+   * @return Command, does nothing if the auto doesn't exist or couldn't be loaded
+   */
+  public Command get(String name) {
+    final Command command = m_commands.get(name);
+    if (command != null)
+      return command;
+    final FutureTask<Supplier<Command>> load = m_loads.get(name);
+    if (load == null)
+      return Commands.none();
+    // runs the load here if no worker started it yet, does nothing otherwise
+    load.run();
+    try {
+      final Command built = load.get().get();
+      m_commands.put(name, built);
+      return built;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      DriverStation.reportError("Couldn't load auto " + name + ": " + e.getCause(),
+          e.getCause().getStackTrace());
+      m_commands.put(name, Commands.none());
+    }
+    return Commands.none();
+  }
+
+  /**
+   * @brief parse a PathPlanner auto and its paths, on a worker
+   *
+   * @param file the .auto file
+   * @return Supplier<Command> builds the auto
+   * @throws Exception if a file can't be read
+   */
+  private Supplier<Command> loadPathPlannerAuto(File file) throws Exception {
+    final JsonNode auto = kMapper.readTree(file);
+    final boolean choreo = auto.path("choreoAuto").asBoolean(false);
+    // blue side first, then red side, of every path
+    final HashMap<String, PathPlannerPath[]> paths = new HashMap<>();
+    final ArrayList<String> order = new ArrayList<>();
+    findPaths(auto.get("command"), order);
+    for (final String pathName : order) {
+      if (paths.containsKey(pathName))
+        continue;
+      final PathPlannerPath path;
+      if (choreo) {
+        path = PathPlannerPath.fromChoreoTrajectory(pathName);
+      } else {
+        synchronized (kPathFileLock) {
+          path = PathPlannerPath.fromPathFile(pathName);
+        }
+      }
+      paths.put(pathName, new PathPlannerPath[] {path, path.flipPath()});
+    }
+    // choreo autos start where their first path does
+    Pose2d startingPose = null;
+    if (choreo && !order.isEmpty()) {
+      startingPose = paths.get(order.get(0))[0].getPreviewStartingHolonomicPose();
+    } else if (auto.hasNonNull("startingPose")) {
+      final JsonNode pose = auto.get("startingPose");
+      startingPose = new Pose2d(pose.get("position").get("x").asDouble(),
+          pose.get("position").get("y").asDouble(),
+          Rotation2d.fromDegrees(pose.get("rotation").asDouble()));
+    }
+    final Pose2d blueStart = startingPose;
+    final Pose2d redStart = startingPose == null ? null : GeometryUtil.flipFieldPose(startingPose);
+    return () -> {
+      final Command command = buildCommand(auto.get("command"), paths);
+      if (blueStart == null)
+        return command;
+      return Commands.sequence(
+          Commands.runOnce(() -> m_resetPose.accept(AllianceCache.isRed() ? redStart : blueStart)),
+          command);
+    };
+  }
+
+  /**
+   * @brief find the paths a command follows, in order
+   *
+   * @param command the command in the auto file
+   * @param out where to add the path names
+   */
+  private static void findPaths(JsonNode command, ArrayList<String> out) {
+    final JsonNode data = command.get("data");
+    if (command.get("type").asText().equals("path") && data.hasNonNull("pathName"))
+      out.add(data.get("pathName").asText());
+    for (final JsonNode child : data.path("commands")) {
+      findPaths(child, out);
+    }
+  }
+
+  /**
+   * @brief build a command from the auto file, on the main thread
+   *
+   *        Builds the same commands PathPlanner builds from the file.
+   *
+   * @param command the command in the auto file
+   * @param paths the blue and red sides of the paths the auto follows
+   * @return Command
+   */
+  private Command buildCommand(JsonNode command, HashMap<String, PathPlannerPath[]> paths) {
+    final JsonNode data = command.get("data");
+    switch (command.get("type").asText()) {
+      case "wait":
+        return Commands.waitSeconds(data.get("waitTime").asDouble());
+      case "named":
+        return data.hasNonNull("name") ? NamedCommands.getCommand(data.get("name").asText())
+            : Commands.none();
+      case "path": {
+        if (!data.hasNonNull("pathName"))
+          return Commands.none();
+        final PathPlannerPath[] path = paths.get(data.get("pathName").asText());
+        return m_followPath.apply(path[0], path[1]);
+      }
+      case "sequential":
+        return Commands.sequence(buildChildren(data, paths));
+      case "parallel":
+        return Commands.parallel(buildChildren(data, paths));
+      case "race":
+        return Commands.race(buildChildren(data, paths));
+      case "deadline": {
+        final Command[] children = buildChildren(data, paths);
+        if (children.length == 0)
+          return Commands.none();
+        return Commands.deadline(children[0], Arrays.copyOfRange(children, 1, children.length));
+      }
+      default:
+        return Commands.none();
+    }
+  }
+
+  private Command[] buildChildren(JsonNode data, HashMap<String, PathPlannerPath[]> paths) {
+    final ArrayList<Command> children = new ArrayList<>();
+    for (final JsonNode child : data.path("commands")) {
+      children.add(buildCommand(child, paths));
+    }
+    return children.toArray(new Command[0]);
+  }
+}
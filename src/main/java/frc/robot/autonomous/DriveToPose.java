@@ -0,0 +1,227 @@
+package frc.robot.autonomous;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.Drivetrain;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.util.InputLog;
+import frc.robot.util.SectionTimer;
+
+/**
+ * A command that drives the robot to a pose in a straight line
+ */
+public class DriveToPose extends Command {
+  // shorter moves than this only turn (meters, radians)
+  private static final double kMinDistance = 1e-3;
+  private static final double kMinTurn = 1e-3;
+  // bisection steps to slow a profile down to the other's length
+  private static final int kStretchIterations = 30;
+
+  private final Pose2d m_target; // the pose to move to
+  private final CommandSwerveDrivetrain m_drivetrain; // the drivetrain to move
+
+  private final PIDController m_xController; // PID controller for the X position of the robot
+  private final PIDController m_yController; // PID controller for the Y position of the robot
+  private final PIDController m_angleController; // PID controller for the angle
+
+  private final Timer m_timer = new Timer();
+  // along the line, from 0 to its length
+  private final TrapezoidProfile.State m_lineStart = new TrapezoidProfile.State();
+  private final TrapezoidProfile.State m_lineGoal = new TrapezoidProfile.State();
+  // turned since the start, from 0 to the whole turn
+  private final TrapezoidProfile.State m_turnStart = new TrapezoidProfile.State();
+  private final TrapezoidProfile.State m_turnGoal = new TrapezoidProfile.State();
+  private TrapezoidProfile m_lineProfile;
+  private TrapezoidProfile m_turnProfile;
+  private double m_startX; // where the line starts
+  private double m_startY;
+  private double m_directionX; // unit vector along the line
+  private double m_directionY;
+  private double m_startHeading; // heading when the command started
+  private double m_duration; // how long both profiles take
+  // written every tick
+  private final InputLog.Output m_errorOutput =
+      InputLog.getInstance().output("DriveToPose/Error", 2);
+
+  private final SectionTimer m_executeTimer = new SectionTimer("DriveToPose.execute");
+
+  /**
+   * @brief drive to a pose along a straight line, turning on the way
+   *
+   *        When the command starts, a single trapezoidal profile is made along the line from
+   *        the robot to the target, starting from the robot's speed along it, and another for
+   *        the turn, the short way around. Whichever would finish first is slowed down so both
+   *        finish together. The profiles' speeds are driven as feedforward, with PID on x, y
+   *        and heading to keep the robot on the line.
+   *
+   *        Profiling x and y apart, like MoveToPose, bends the path whenever one axis has
+   *        farther to go and lets the robot go faster than its limit diagonally.
+   *
+   * @param target the pose to move to, in field coordinates
+   * @param drivetrain the drivetrain to move
+   */
+  public DriveToPose(Pose2d target, CommandSwerveDrivetrain drivetrain) {
+    m_target = target;
+    m_drivetrain = drivetrain;
+    m_xController =
+        new PIDController(Drivetrain.kLateralPositionP, 0.0, Drivetrain.kLateralPositionD);
+    m_yController =
+        new PIDController(Drivetrain.kLateralPositionP, 0.0, Drivetrain.kLateralPositionD);
+    m_angleController =
+        new PIDController(Drivetrain.kAngularPositionP, 0.0, Drivetrain.kAngularPositionD);
+    m_angleController.enableContinuousInput(-Math.PI, Math.PI);
+    addRequirements(drivetrain);
+  }
+
+  /**
+   * @brief makes both profiles from where the robot is and starts the clock
+   *
+   */
+  @Override
+  public void initialize() {
+    final Pose2d pose = m_drivetrain.getPose();
+    m_startX = pose.getX();
+    m_startY = pose.getY();
+    m_startHeading = pose.getRotation().getRadians();
+    final double dx = m_target.getX() - m_startX;
+    final double dy = m_target.getY() - m_startY;
+    final double distance = Math.hypot(dx, dy);
+    m_directionX = distance > kMinDistance ? dx / distance : 0;
+    m_directionY = distance > kMinDistance ? dy / distance : 0;
+    final double turn =
+        MathUtil.angleModulus(m_target.getRotation().getRadians() - m_startHeading);
+
+    // start from the speed the robot already has along the line, field relative
+    final ChassisSpeeds speeds = m_drivetrain.getChassisSpeeds();
+    final double cos = pose.getRotation().getCos();
+    final double sin = pose.getRotation().getSin();
+    final double vx = speeds.vxMetersPerSecond * cos - speeds.vyMetersPerSecond * sin;
+    final double vy = speeds.vxMetersPerSecond * sin + speeds.vyMetersPerSecond * cos;
+    m_lineStart.position = 0;
+    m_lineStart.velocity = MathUtil.clamp(vx * m_directionX + vy * m_directionY,
+        -Drivetrain.kMaxLateralSpeed, Drivetrain.kMaxLateralSpeed);
+    m_lineGoal.position = distance > kMinDistance ? distance : 0;
+    m_lineGoal.velocity = 0;
+    m_turnStart.position = 0;
+    m_turnStart.velocity = MathUtil.clamp(speeds.omegaRadiansPerSecond,
+        -Drivetrain.kMaxAngularSpeed, Drivetrain.kMaxAngularSpeed);
+    m_turnGoal.position = Math.abs(turn) > kMinTurn ? turn : 0;
+    m_turnGoal.velocity = 0;
+
+    // as fast as each can go, then slow the faster one down to the other's length
+    m_lineProfile = new TrapezoidProfile(new TrapezoidProfile.Constraints(
+        Drivetrain.kMaxLateralSpeed, Drivetrain.kMaxLateralAcceleration));
+    m_turnProfile = new TrapezoidProfile(new TrapezoidProfile.Constraints(
+        Drivetrain.kMaxAngularSpeed, Drivetrain.kMaxAngularAcceleration));
+    final double lineTime = totalTime(m_lineProfile, m_lineStart, m_lineGoal);
+    final double turnTime = totalTime(m_turnProfile, m_turnStart, m_turnGoal);
+    m_duration = Math.max(lineTime, turnTime);
+    if (lineTime < m_duration && m_lineGoal.position != 0)
+      m_lineProfile = stretch(Drivetrain.kMaxLateralSpeed, Drivetrain.kMaxLateralAcceleration,
+          m_lineStart, m_lineGoal, m_duration);
+    else if (turnTime < m_duration && m_turnGoal.position != 0)
+      m_turnProfile = stretch(Drivetrain.kMaxAngularSpeed, Drivetrain.kMaxAngularAcceleration,
+          m_turnStart, m_turnGoal, m_duration);
+
+    m_xController.reset();
+    m_yController.reset();
+    m_angleController.reset();
+    m_timer.restart();
+  }
+
+  /**
+   * @brief runs periodically while the command is scheduled
+   *
+   */
+  @Override
+  public void execute() {
+    m_executeTimer.start();
+    final double time = m_timer.get();
+    final TrapezoidProfile.State line = m_lineProfile.calculate(time, m_lineStart, m_lineGoal);
+    final TrapezoidProfile.State turn = m_turnProfile.calculate(time, m_turnStart, m_turnGoal);
+    final double x = m_startX + m_directionX * line.position;
+    final double y = m_startY + m_directionY * line.position;
+    final double heading = MathUtil.angleModulus(m_startHeading + turn.position);
+    // get the current pose of the robot
+    final Pose2d pose = m_drivetrain.getPose();
+    // feedforward plus correction
+    final double xSpeed = m_directionX * line.velocity + m_xController.calculate(pose.getX(), x);
+    final double ySpeed = m_directionY * line.velocity + m_yController.calculate(pose.getY(), y);
+    final double angleSpeed =
+        turn.velocity + m_angleController.calculate(pose.getRotation().getRadians(), heading);
+    m_drivetrain.driveFieldRelative(xSpeed, ySpeed, angleSpeed);
+    m_executeTimer.stop();
+    // tracking error, meters and radians
+    final double[] error = m_errorOutput.value();
+    error[0] = Math.hypot(x - pose.getX(), y - pose.getY());
+    error[1] = m_angleController.getPositionError();
+    m_errorOutput.record();
+  }
+
+  /**
+   * @brief checks if the command is finished
+   *
+   * @return true once the profiles are done and the robot is at the target pose
+   */
+  @Override
+  public boolean isFinished() {
+    if (!m_timer.hasElapsed(m_duration))
+      return false;
+    final Pose2d pose = m_drivetrain.getPose();
+    final double distance = pose.getTranslation().getDistance(m_target.getTranslation());
+    return distance < Drivetrain.kLateralTolerance
+        && Math.abs(pose.getRotation().minus(m_target.getRotation()).getRadians())
+            < Drivetrain.kAngularTolerance;
+  }
+
+  /**
+   * @brief ends the command
+   *
+   */
+  @Override
+  public void end(boolean interrupted) {
+    m_timer.stop();
+    m_drivetrain.driveFieldRelative(0, 0, 0);
+  }
+
+  /**
+   * @brief how long a profile takes from start to goal
+   */
+  private static double totalTime(TrapezoidProfile profile, TrapezoidProfile.State start,
+      TrapezoidProfile.State goal) {
+    profile.calculate(0, start, goal);
+    return profile.totalTime();
+  }
+
+  /**
+   * @brief find the top speed that makes a profile take the given time
+   *
+   *        A profile only gets longer as its top speed goes down, so the speed is bisected. It
+   *        never goes below the start speed, which the profile would cut to its top speed at once.
+   */
+  private static TrapezoidProfile stretch(double maxSpeed, double maxAcceleration,
+      TrapezoidProfile.State start, TrapezoidProfile.State goal, double duration) {
+    double low = Math.min(Math.abs(start.velocity), maxSpeed);
+    double high = maxSpeed;
+    TrapezoidProfile profile = null;
+    for (int i = 0; i < kStretchIterations; i++) {
+      final double speed = (low + high) / 2;
+      final TrapezoidProfile candidate =
+          new TrapezoidProfile(new TrapezoidProfile.Constraints(speed, maxAcceleration));
+      if (totalTime(candidate, start, goal) > duration) {
+        low = speed;
+      } else {
+        high = speed;
+        profile = candidate;
+      }
+    }
+    // never slower than asked, so neither ends after the other
+    return profile != null ? profile
+        : new TrapezoidProfile(new TrapezoidProfile.Constraints(maxSpeed, maxAcceleration));
+  }
+}
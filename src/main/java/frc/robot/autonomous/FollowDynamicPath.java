@@ -0,0 +1,184 @@
+package frc.robot.autonomous;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.Constants.Pathfinding;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.util.DStarLite;
+import frc.robot.util.GridPathfinder;
+import frc.robot.util.NavGrid;
+import frc.robot.util.ObstacleSource;
+import frc.robot.util.SectionTimer;
+
+/**
+ * Drives to a target around the navgrid and around obstacles that move
+ */
+public final class FollowDynamicPath {
+  private final CommandSwerveDrivetrain m_drivetrain; // the drivetrain to move
+  private final ObstacleSource m_obstacles; // where the other robots are
+  private final Supplier<Pose2d> m_target; // where to go, read when the command starts
+  private final PathConstraints m_constraints; // the constraints of every path
+  private final ChassisSpeeds m_stopped = new ChassisSpeeds(); // held while there is no path
+
+  private final SectionTimer m_replanTimer = new SectionTimer("FollowDynamicPath.replan");
+  private final IntegerPublisher m_replansPublisher;
+  private final IntegerPublisher m_changedPathsPublisher;
+  private final IntegerPublisher m_expansionsPublisher;
+  private long m_replans = 0;
+  private long m_changedPaths = 0;
+
+  private DStarLite m_planner = null; // made the first time the command runs
+  private Pose2d m_goal; // the target when the command started
+  private long m_version; // the version of the obstacles planned around
+  private List<Translation2d> m_waypoints; // corners of the path being followed
+  private PathPlannerPath m_path; // the path being followed, null while there is none
+  private boolean m_finished; // at the target already, or no navgrid
+
+  private FollowDynamicPath(CommandSwerveDrivetrain drivetrain, ObstacleSource obstacles,
+      Supplier<Pose2d> target, PathConstraints constraints) {
+    m_drivetrain = drivetrain;
+    m_obstacles = obstacles;
+    m_target = target;
+    m_constraints = constraints;
+    final NetworkTable table = NetworkTableInstance.getDefault().getTable("DynamicPath");
+    m_replansPublisher = table.getIntegerTopic("Replans").publish();
+    m_changedPathsPublisher = table.getIntegerTopic("Changed Paths").publish();
+    m_expansionsPublisher = table.getIntegerTopic("Expansions").publish();
+  }
+
+  /**
+   * @brief drive to a target around moving obstacles
+   *
+   *        The path is planned with D* Lite when the command starts. Every time the obstacles
+   *        change, the plan is repaired instead of searched again, and the robot only switches
+   *        to the new path if the repair changed it: the path being followed is interrupted and
+   *        the new one is followed from the next loop. While the obstacles leave no way to the
+   *        target, the robot stops and waits for them to move.
+   *
+   * @param drivetrain the drivetrain to move
+   * @param obstacles where the obstacles that aren't on the navgrid are
+   * @param target where to go, in field coordinates
+   * @param constraints the constraints of every path
+   * @return Command
+   */
+  public static Command create(CommandSwerveDrivetrain drivetrain, ObstacleSource obstacles,
+      Supplier<Pose2d> target, PathConstraints constraints) {
+    final FollowDynamicPath plan = new FollowDynamicPath(drivetrain, obstacles, target,
+        constraints);
+    return Commands.defer(plan::follow, Set.of(drivetrain))
+        .until(plan::replan)
+        .repeatedly()
+        .until(() -> plan.m_finished)
+        .beforeStarting(plan::plan);
+  }
+
+  /**
+   * @brief plan the path from scratch
+   */
+  private void plan() {
+    m_path = null;
+    m_waypoints = null;
+    final GridPathfinder pathfinder = GridPathfinder.getInstance();
+    m_finished = pathfinder == null;
+    if (m_finished)
+      return;
+    if (m_planner == null)
+      m_planner = new DStarLite(pathfinder.getGrid());
+    m_goal = m_target.get();
+    m_version = m_obstacles.getVersion();
+    final Translation2d start = m_drivetrain.getPose().getTranslation();
+    if (m_planner.plan(start, m_goal.getTranslation(), readObstacles()))
+      update(start);
+    m_expansionsPublisher.set(m_planner.getExpansions());
+  }
+
+  /**
+   * @brief repair the plan if the obstacles changed, checked every loop
+   *
+   * @return true if the path being followed has to change
+   */
+  private boolean replan() {
+    final long version = m_obstacles.getVersion();
+    if (m_finished || version == m_version)
+      return false;
+    m_version = version;
+    final Translation2d start = m_drivetrain.getPose().getTranslation();
+    m_replanTimer.start();
+    final boolean found = m_planner.replan(start, readObstacles());
+    m_replanTimer.stop();
+    m_replansPublisher.set(++m_replans);
+    m_expansionsPublisher.set(m_planner.getExpansions());
+    if (found)
+      return update(start);
+    final boolean following = m_path != null;
+    m_path = null;
+    m_waypoints = null;
+    return following;
+  }
+
+  /**
+   * @brief take the planned path, unless it is the one already followed
+   *
+   * @return true if the path changed
+   */
+  private boolean update(Translation2d start) {
+    final List<Translation2d> waypoints = m_planner.getWaypoints(start);
+    if (waypoints == null) {
+      // already at the target
+      m_finished = true;
+      return true;
+    }
+    // the first waypoint is where the robot was when the path was planned
+    if (m_path != null && waypoints.subList(1, waypoints.size())
+        .equals(m_waypoints.subList(1, m_waypoints.size())))
+      return false;
+    m_waypoints = waypoints;
+    m_path = GridPathfinder.toPath(waypoints, m_goal.getRotation(), m_constraints);
+    m_changedPathsPublisher.set(++m_changedPaths);
+    return true;
+  }
+
+  /**
+   * @brief follow the current path, or hold still while there is none
+   *
+   * @return Command, finishing the whole command once the path is followed
+   */
+  private Command follow() {
+    if (m_finished)
+      return Commands.none();
+    if (m_path == null)
+      return Commands.run(() -> m_drivetrain.driveRobotRelative(m_stopped));
+    // the path is already in field coordinates, the same for both alliances
+    return m_drivetrain.followPath(m_path, m_path).finallyDo(interrupted -> {
+      if (!interrupted)
+        m_finished = true;
+    });
+  }
+
+  /**
+   * @brief mark the cells the obstacles and the room the robot needs around them cover
+   */
+  private long[] readObstacles() {
+    final NavGrid grid = GridPathfinder.getInstance().getGrid();
+    final long[] cells = grid.newObstacles();
+    final double[] obstacles = m_obstacles.getObstacles();
+    for (int i = 0; i + 2 < obstacles.length; i += 3) {
+      grid.addObstacle(cells, obstacles[i], obstacles[i + 1],
+          obstacles[i + 2] + Pathfinding.kObstacleInflation);
+    }
+    return cells;
+  }
+}
@@ -0,0 +1,95 @@
+package frc.robot.autonomous;
+
+import java.util.function.Supplier;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+
+/**
+ * A command that drives to a target along a path planned by TrajectoryGen
+ */
+public class FollowGeneratedPath extends Command {
+  private final TrajectoryGen m_generator; // plans the path in the background
+  private final CommandSwerveDrivetrain m_drivetrain; // the drivetrain to move
+  private final Supplier<Pose2d> m_target; // where to go, read when the command starts
+
+  private long m_request; // id of the request to the generator
+  private Command m_follow; // follows the path once it is planned
+  private boolean m_failed; // there is no path to the target
+
+  /**
+   * @brief drive to a target along a generated path
+   *
+   *        The path is requested when the command starts and followed once it is planned. Until
+   *        then the command does nothing, so the scheduler never waits for the planner. Ending
+   *        the command before the path is planned cancels the request.
+   *
+   * @param generator the planner
+   * @param drivetrain the drivetrain to move
+   * @param target where to go, in field coordinates
+   */
+  public FollowGeneratedPath(TrajectoryGen generator, CommandSwerveDrivetrain drivetrain,
+      Supplier<Pose2d> target) {
+    m_generator = generator;
+    m_drivetrain = drivetrain;
+    m_target = target;
+    addRequirements(drivetrain);
+  }
+
+  /**
+   * @brief requests the path
+   *
+   */
+  @Override
+  public void initialize() {
+    m_follow = null;
+    m_failed = false;
+    m_request = m_generator.request(m_drivetrain.getPose(), m_target.get());
+  }
+
+  /**
+   * @brief follows the path once it is planned
+   *
+   */
+  @Override
+  public void execute() {
+    if (m_follow == null) {
+      final TrajectoryGen.Plan plan = m_generator.getPlan(m_request);
+      if (plan == null)
+        return;
+      if (plan.path == null) {
+        m_failed = true;
+        return;
+      }
+      // the path is already in field coordinates, the same for both alliances
+      m_follow = m_drivetrain.followPath(plan.path, plan.path);
+      CommandScheduler.getInstance().registerComposedCommands(m_follow);
+      m_follow.initialize();
+    }
+    m_follow.execute();
+  }
+
+  /**
+   * @brief checks if the command is finished
+   *
+   * @return true once the path is followed, or if there is no path
+   */
+  @Override
+  public boolean isFinished() {
+    return m_failed || (m_follow != null && m_follow.isFinished());
+  }
+
+  /**
+   * @brief ends the path, or cancels the request if it isn't planned yet
+   *
+   */
+  @Override
+  public void end(boolean interrupted) {
+    if (m_follow != null)
+      m_follow.end(interrupted);
+    else
+      m_generator.cancel(m_request);
+  }
+}
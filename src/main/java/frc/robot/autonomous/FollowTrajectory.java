@@ -0,0 +1,133 @@
+package frc.robot.autonomous;
+
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.Choreo;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.util.AllianceCache;
+import frc.robot.util.CompiledTrajectory;
+import frc.robot.util.InputLog;
+import frc.robot.util.SectionTimer;
+
+/**
+ * A command that follows a Choreo trajectory
+ */
+public class FollowTrajectory extends Command {
+  private final CompiledTrajectory m_blueTrajectory; // the trajectory on the blue side
+  private final CompiledTrajectory m_redTrajectory; // the trajectory on the red side
+  private final CommandSwerveDrivetrain m_drivetrain; // the drivetrain to move
+  private final boolean m_resetPose; // whether to start from the trajectory's first pose
+
+  private final PIDController m_xController; // PID controller for the X position of the robot
+  private final PIDController m_yController; // PID controller for the Y position of the robot
+  private final PIDController m_angleController; // PID controller for the angle
+
+  private final Timer m_timer = new Timer();
+  private final CompiledTrajectory.Sample m_sample = new CompiledTrajectory.Sample();
+  private CompiledTrajectory m_trajectory;
+  // written every tick
+  private final InputLog.Output m_errorOutput = InputLog.getInstance().output("Choreo/Error", 2);
+  private final InputLog.Output m_setpointOutput =
+      InputLog.getInstance().output("Choreo/Setpoint", 3);
+
+  private final SectionTimer m_executeTimer = new SectionTimer("FollowTrajectory.execute");
+
+  /**
+   * @brief follow a Choreo trajectory
+   *
+   *        The trajectory is sampled at the time since the command started. Its speeds are
+   *        driven as feedforward, with PID on the distance between the robot and the sample to
+   *        correct drift. The red side trajectory is mirrored here, when the command is created,
+   *        and picked when the command starts.
+   *
+   * @param trajectory the trajectory, on the blue side of the field
+   * @param drivetrain the drivetrain to move
+   * @param resetPose whether to reset the pose to the start of the trajectory first
+   */
+  public FollowTrajectory(CompiledTrajectory trajectory, CommandSwerveDrivetrain drivetrain,
+      boolean resetPose) {
+    m_blueTrajectory = trajectory;
+    m_redTrajectory = trajectory.mirrored();
+    m_trajectory = trajectory;
+    m_drivetrain = drivetrain;
+    m_resetPose = resetPose;
+    m_xController = new PIDController(Choreo.kTranslationP, 0.0, Choreo.kTranslationD);
+    m_yController = new PIDController(Choreo.kTranslationP, 0.0, Choreo.kTranslationD);
+    m_angleController = new PIDController(Choreo.kRotationP, 0.0, Choreo.kRotationD);
+    m_angleController.enableContinuousInput(-Math.PI, Math.PI);
+    addRequirements(drivetrain);
+  }
+
+  /**
+   * @brief picks the trajectory for the alliance and starts the clock
+   *
+   *        seedFieldRelative() publishes the pose before returning, so the first execute() in the
+   *        same loop already reads the trajectory's start instead of the pose before the reset.
+   */
+  @Override
+  public void initialize() {
+    m_trajectory = AllianceCache.isRed() ? m_redTrajectory : m_blueTrajectory;
+    if (m_resetPose) {
+      m_trajectory.sample(0, m_sample);
+      m_drivetrain
+          .seedFieldRelative(new Pose2d(m_sample.x, m_sample.y, new Rotation2d(m_sample.heading)));
+    }
+    m_xController.reset();
+    m_yController.reset();
+    m_angleController.reset();
+    m_timer.restart();
+  }
+
+  /**
+   * @brief runs periodically while the command is scheduled
+   *
+   */
+  @Override
+  public void execute() {
+    m_executeTimer.start();
+    m_trajectory.sample(m_timer.get(), m_sample);
+    // get the current pose of the robot
+    final Pose2d pose = m_drivetrain.getPose();
+    final double heading = pose.getRotation().getRadians();
+    // feedforward plus correction
+    final double xSpeed = m_sample.vx + m_xController.calculate(pose.getX(), m_sample.x);
+    final double ySpeed = m_sample.vy + m_yController.calculate(pose.getY(), m_sample.y);
+    final double angleSpeed =
+        m_sample.omega + m_angleController.calculate(heading, m_sample.heading);
+    m_drivetrain.driveFieldRelative(xSpeed, ySpeed, angleSpeed);
+    m_executeTimer.stop();
+    // tracking error, meters and radians
+    final double[] error = m_errorOutput.value();
+    error[0] = Math.hypot(m_sample.x - pose.getX(), m_sample.y - pose.getY());
+    error[1] = m_angleController.getPositionError();
+    m_errorOutput.record();
+    final double[] setpoint = m_setpointOutput.value();
+    setpoint[0] = m_sample.x;
+    setpoint[1] = m_sample.y;
+    setpoint[2] = m_sample.heading;
+    m_setpointOutput.record();
+  }
+
+  /**
+   * @brief checks if the command is finished
+   *
+   * @return true once the trajectory's time has run out
+   */
+  @Override
+  public boolean isFinished() {
+    return m_timer.hasElapsed(m_trajectory.getTotalTime());
+  }
+
+  /**
+   * @brief ends the command
+   *
+   */
+  @Override
+  public void end(boolean interrupted) {
+    m_timer.stop();
+    m_drivetrain.driveFieldRelative(0, 0, 0);
+  }
+}
@@ -1,7 +1,5 @@
 package frc.robot.autonomous;
 
-import com.ctre.phoenix6.mechanisms.swerve.SwerveModule.DriveRequestType;
-import com.ctre.phoenix6.mechanisms.swerve.SwerveRequest;
 import edu.wpi.first.math.controller.ProfiledPIDController;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.trajectory.TrapezoidProfile;
@@ -11,6 +9,9 @@ import frc.robot.subsystems.CommandSwerveDrivetrain;
 
 /**
  * A command that moves the robot to a specified pose
+ *
+ * Profiles x, y and the angle apart, so the path bends and the three don't finish together. Use
+ * DriveToPose, this is kept to compare against in DriveToPoseHarness.
  */
 public class MoveToPose extends Command {
   private final Pose2d m_target; // the pose to move to
@@ -22,9 +23,6 @@ public class MoveToPose extends Command {
   private final ProfiledPIDController m_yController; // PID controller for the Y position of the
                                                      // robot
 
-  private final SwerveRequest.FieldCentric m_drive = new SwerveRequest.FieldCentric()
-      .withDriveRequestType(DriveRequestType.Velocity); // field-centric
-
   /**
    * @brief motion to move the robot to a specified pose
    * 
@@ -70,17 +68,14 @@ public class MoveToPose extends Command {
   @Override
   public void execute() {
     // get the current pose of the robot
-    final Pose2d pose = m_drivetrain.getState().Pose;
+    final Pose2d pose = m_drivetrain.getPose();
     // calculate speeds
     final double xSpeed = m_xController.calculate(pose.getTranslation().getX(), m_target.getTranslation().getX());
     final double ySpeed = m_yController.calculate(pose.getTranslation().getY(), m_target.getTranslation().getY());
     final double angleSpeed = m_angleController.calculate(pose.getRotation().getRadians(),
         m_target.getRotation().getRadians());
     // move the robot to the target pose
-    m_drivetrain.applyRequest(
-        () -> m_drive.withVelocityX(xSpeed).withVelocityY(ySpeed).withRotationalRate(angleSpeed));
-    m_drivetrain.setControl(
-        m_drive.withVelocityX(xSpeed).withVelocityY(ySpeed).withRotationalRate(angleSpeed));
+    m_drivetrain.driveFieldRelative(xSpeed, ySpeed, angleSpeed);
   }
 
   /**
@@ -100,7 +95,6 @@ public class MoveToPose extends Command {
   @Override
   public void end(boolean interrupted) {
     if (!interrupted)
-      m_drivetrain
-          .applyRequest(() -> m_drive.withVelocityX(0).withVelocityY(0).withRotationalRate(0));
+      m_drivetrain.driveFieldRelative(0, 0, 0);
   }
 }
@@ -1,107 +1,229 @@
-// package frc.robot.autonomous;
-
-// import java.util.Optional;
-// import com.pathplanner.lib.path.GoalEndState;
-// import com.pathplanner.lib.path.PathConstraints;
-// import com.pathplanner.lib.path.PathPlannerPath;
-// import edu.wpi.first.math.geometry.Pose2d;
-// import me.nabdev.pathfinding.structures.Path;
-// import me.nabdev.pathfinding.Pathfinder;
-// import java.util.ArrayList;
-// import java.util.List;
-// import edu.wpi.first.math.geometry.Rotation2d;
-// import edu.wpi.first.math.geometry.Translation2d;
-// import frc.robot.Constants;
-// import frc.robot.RobotContainer;
-// import frc.robot.util.PathfindingDebugUtils;
-// import me.nabdev.pathfinding.PathfinderBuilder;
-// import me.nabdev.pathfinding.structures.Edge;
-// import me.nabdev.pathfinding.structures.ImpossiblePathException;
-// import me.nabdev.pathfinding.utilities.FieldLoader.Field;
-
-// public class TrajectoryGen {
-// // m_pathfinder is used to generate a path that avoids obstacles
-// private final Pathfinder m_pathfinder = new PathfinderBuilder(Field.CRESCENDO_2024)
-// .setInjectPoints(true).setPointSpacing(0.5).setCornerPointSpacing(0.05)
-// .setRobotLength(Constants.Drivetrain.kBotLength).setRobotWidth(Constants.Drivetrain.kBotWidth)
-// .setCornerDist(0.3).setCornerCutDist(0.1).build();
-// // m_pathfinderPath is the path generated by the pathfinder. It's converted to a PathPlannerPath
-// // later
-// private Optional<Path> m_pathfinderPath = Optional.empty();
-// // m_pathPlannerPath is what's fed into the path follower
-// private Optional<PathPlannerPath> m_pathPlannerPath = Optional.empty();
-// // m_targetPose is the target pose
-// private Pose2d m_targetPose;
-
-// /**
-// * @brief TrajectoryGenerator constructor
-// *
-// * This class is used to generate trajectories
-// */
-// public TrajectoryGen() {
-// // set up visualizations
-// final ArrayList<Edge> edges = m_pathfinder.visualizeEdges();
-// PathfindingDebugUtils.drawLines("Field Map", edges, m_pathfinder.visualizeVertices());
-// PathfindingDebugUtils.drawLines("Field Map Inflated", edges,
-// m_pathfinder.visualizeInflatedVertices());
-// generate(new Pose2d(new Translation2d(1, 0), new Rotation2d(0, 0)));
-// }
-
-// /**
-// * @brief generate the pathfinder path
-// *
-// * @param targetPose
-// */
-// public void generate(final Pose2d targetPose) {
-// final Pose2d pose = RobotContainer.m_drivetrain.getPose();
-// // don't regenerate the path if the target pose is the same as the last one
-// if (m_targetPose == targetPose)
-// return;
-// // update the target pose
-// m_targetPose = targetPose;
-// try {
-// m_pathfinderPath = Optional.of(m_pathfinder.generatePath(pose, targetPose));
-// } catch (final ImpossiblePathException e) { // throw an error if the path is impossible
-// e.printStackTrace();
-// }
-// }
-
-// public Pose2d getTargetPose() {
-// generate(m_targetPose);
-// return m_pathfinderPath.get().getTarget().asPose2d();
-// }
-
-// public List<Pose2d> generatePosesFromBezierPoints(final List<Translation2d> bezierPoints) {
-// final List<Pose2d> poses = new ArrayList<>();
-// // Assuming you want to set a default orientation (facing in the x-direction)
-// final Rotation2d defaultOrientation = new Rotation2d();
-
-// // Convert each Translation2d point to a Pose2d with default orientation
-// for (final Translation2d point : bezierPoints) {
-// poses.add(new Pose2d(point, defaultOrientation));
-// }
-
-// return poses;
-// }
-
-// public void generatePathPlannerPath(final Pose2d targetPose2d) {
-// generate(targetPose2d);
-// final List<Translation2d> bezierPoints =
-// PathPlannerPath.bezierFromPoses(m_pathfinderPath.get().asPose2dList());
-// m_pathPlannerPath = Optional.of(new PathPlannerPath(bezierPoints,
-// new PathConstraints(3.0, 3.0, 2 * Math.PI, 4 * Math.PI), // constraints
-// new GoalEndState(0.0, Rotation2d.fromDegrees(getTargetPose().getRotation().getDegrees())) // goal
-// ));
-// m_pathPlannerPath.get().preventFlipping = true;
-// m_pathPlannerPath.get().replan(RobotContainer.m_drivetrain.getPose(),
-// RobotContainer.m_drivetrain.getChassisSpeeds());
-// }
-
-// public PathPlannerPath getPath(final Pose2d targetPose) {
-// if (m_pathPlannerPath.isEmpty())
-// generatePathPlannerPath(new Pose2d(new Translation2d(0, 1), Rotation2d.fromDegrees(0)));
-// else
-// generatePathPlannerPath(targetPose);
-// return m_pathPlannerPath.get();
-// }
-// }
+package frc.robot.autonomous;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants;
+import frc.robot.util.PathConverter;
+import frc.robot.util.PathfindingDebugUtils;
+import frc.robot.util.SectionTimer;
+import me.nabdev.pathfinding.Pathfinder;
+import me.nabdev.pathfinding.PathfinderBuilder;
+import me.nabdev.pathfinding.structures.Edge;
+import me.nabdev.pathfinding.structures.ImpossiblePathException;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.utilities.FieldLoader.Field;
+
+/**
+ * @brief Plans paths around the field with Oxplorer, in the background
+ *
+ *        request() hands the current pose and a target to a worker thread and returns right
+ *        away. The worker builds the visibility graph once, then solves one request at a time and
+ *        turns the result into a PathPlannerPath with PathConverter, ready to follow. Callers poll
+ *        getPlan() with the id request() returned.
+ *
+ *        Only the latest request matters. A new request cancels the one waiting on the worker, and
+ *        a request superseded while it was being solved is dropped when it finishes. Asking again
+ *        for the target still being solved doesn't start over.
+ *
+ *        Published under TrajectoryGen: requests, cancelled, failed, the cancel rate and the time
+ *        from request to plan. The time spent in Oxplorer alone is under
+ *        Profiling/TrajectoryGen.generatePath, and turning its path into a PathPlannerPath under
+ *        Profiling/TrajectoryGen.convert.
+ */
+public class TrajectoryGen {
+  private static final PathConstraints kConstraints =
+      new PathConstraints(Constants.Drivetrain.kMaxLateralSpeed,
+          Constants.Drivetrain.kMaxLateralAcceleration, Constants.Drivetrain.kMaxAngularSpeed,
+          Constants.Drivetrain.kMaxAngularAcceleration);
+
+  /**
+   * @brief The answer to a request
+   */
+  public static final class Plan {
+    public final long id;
+    public final Pose2d target;
+    // null if there is no path to the target
+    public final PathPlannerPath path;
+
+    private Plan(long id, Pose2d target, PathPlannerPath path) {
+      this.id = id;
+      this.target = target;
+      this.path = path;
+    }
+  }
+
+  private final ExecutorService m_worker = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "TrajectoryGen");
+    thread.setDaemon(true);
+    return thread;
+  });
+  // built and used on the worker only
+  private Pathfinder m_pathfinder;
+  private final PathConverter m_converter =
+      new PathConverter(Constants.Pathfinding.kCornerSmoothing);
+  private final SectionTimer m_generateTimer = new SectionTimer("TrajectoryGen.generatePath");
+  private final SectionTimer m_convertTimer = new SectionTimer("TrajectoryGen.convert");
+
+  // id of the latest request, plans for older ones are dropped
+  private final AtomicLong m_latest = new AtomicLong();
+  private volatile Plan m_plan = null;
+  // the request on the worker, guarded by this
+  private Future<?> m_pending = null;
+  private Pose2d m_pendingTarget = null;
+
+  // statistics
+  private final AtomicLong m_requests = new AtomicLong();
+  private final AtomicLong m_cancelled = new AtomicLong();
+  private final AtomicLong m_failed = new AtomicLong();
+  private final IntegerPublisher m_requestsPublisher;
+  private final IntegerPublisher m_cancelledPublisher;
+  private final IntegerPublisher m_failedPublisher;
+  private final DoublePublisher m_cancelRatePublisher;
+  private final DoublePublisher m_latencyPublisher;
+
+  /**
+   * @brief TrajectoryGen constructor
+   *
+   *        Starts building the visibility graph on the worker.
+   */
+  public TrajectoryGen() {
+    final NetworkTable table = NetworkTableInstance.getDefault().getTable("TrajectoryGen");
+    m_requestsPublisher = table.getIntegerTopic("Requests").publish();
+    m_cancelledPublisher = table.getIntegerTopic("Cancelled").publish();
+    m_failedPublisher = table.getIntegerTopic("Failed").publish();
+    m_cancelRatePublisher = table.getDoubleTopic("Cancel Rate").publish();
+    m_latencyPublisher = table.getDoubleTopic("Latency (ms)").publish();
+    m_worker.execute(this::buildPathfinder);
+  }
+
+  /**
+   * @brief ask for a path, superseding every earlier request
+   *
+   * @param start where the robot is
+   * @param target where the robot should go, in field coordinates
+   * @return long id of the request, to pass to getPlan()
+   */
+  public synchronized long request(Pose2d start, Pose2d target) {
+    // compared by value, a new pose object for the same target isn't a new request
+    if (m_pending != null && !m_pending.isDone() && target.equals(m_pendingTarget))
+      return m_latest.get();
+    final long id = m_latest.incrementAndGet();
+    // still waiting for the worker, it never starts
+    if (m_pending != null && m_pending.cancel(false))
+      m_cancelled.incrementAndGet();
+    final long requested = System.nanoTime();
+    m_pendingTarget = target;
+    m_pending = m_worker.submit(() -> solve(id, start, target, requested));
+    m_requests.incrementAndGet();
+    publishCounts();
+    return id;
+  }
+
+  /**
+   * @brief drop a request, if it is still the latest one
+   *
+   * @param id id of the request
+   */
+  public synchronized void cancel(long id) {
+    if (!m_latest.compareAndSet(id, id + 1))
+      return;
+    if (m_pending != null && m_pending.cancel(false))
+      m_cancelled.incrementAndGet();
+    m_pending = null;
+    m_pendingTarget = null;
+    publishCounts();
+  }
+
+  /**
+   * @brief get the answer to a request, without waiting
+   *
+   * @param id id of the request
+   * @return Plan, null until it is solved or if it was superseded
+   */
+  public Plan getPlan(long id) {
+    final Plan plan = m_plan;
+    return plan != null && plan.id == id ? plan : null;
+  }
+
+  /**
+   * @brief build Oxplorer's visibility graph of the field, for our robot
+   *
+   * @return Pathfinder
+   */
+  public static Pathfinder createPathfinder() {
+    return new PathfinderBuilder(Field.CRESCENDO_2024).setInjectPoints(true)
+        .setPointSpacing(0.5).setCornerPointSpacing(0.05)
+        .setRobotLength(Constants.Drivetrain.kBotLength)
+        .setRobotWidth(Constants.Drivetrain.kBotWidth).setCornerDist(0.3).setCornerCutDist(0.1)
+        .build();
+  }
+
+  /**
+   * @brief build the visibility graph and draw it, on the worker
+   */
+  private void buildPathfinder() {
+    m_pathfinder = createPathfinder();
+    final ArrayList<Edge> edges = m_pathfinder.visualizeEdges();
+    PathfindingDebugUtils.drawLines("Field Map", edges, m_pathfinder.visualizeVertices());
+    PathfindingDebugUtils.drawLines("Field Map Inflated", edges,
+        m_pathfinder.visualizeInflatedVertices());
+  }
+
+  /**
+   * @brief solve a request, on the worker
+   */
+  private void solve(long id, Pose2d start, Pose2d target, long requested) {
+    // superseded between cancel() and the worker picking it up
+    if (m_latest.get() != id) {
+      m_cancelled.incrementAndGet();
+      publishCounts();
+      return;
+    }
+    Path solution = null;
+    m_generateTimer.start();
+    try {
+      solution = m_pathfinder.generatePath(start, target);
+    } catch (final ImpossiblePathException | RuntimeException e) {
+      // a plan without a path still tells the caller to stop waiting
+    }
+    m_generateTimer.stop();
+    PathPlannerPath path = null;
+    if (solution != null) {
+      m_convertTimer.start();
+      path = m_converter.convert(start, solution, target, kConstraints);
+      m_convertTimer.stop();
+    }
+    if (path == null)
+      m_failed.incrementAndGet();
+    // superseded while it was being solved
+    if (m_latest.get() != id) {
+      m_cancelled.incrementAndGet();
+      publishCounts();
+      return;
+    }
+    m_plan = new Plan(id, target, path);
+    m_latencyPublisher.set((System.nanoTime() - requested) / 1e6);
+    publishCounts();
+  }
+
+  private void publishCounts() {
+    final long requests = m_requests.get();
+    final long cancelled = m_cancelled.get();
+    m_requestsPublisher.set(requests);
+    m_cancelledPublisher.set(cancelled);
+    m_failedPublisher.set(m_failed.get());
+    m_cancelRatePublisher.set(requests == 0 ? 0 : cancelled / (double) requests);
+  }
+}
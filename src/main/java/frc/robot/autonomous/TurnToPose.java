@@ -25,7 +25,7 @@ public class TurnToPose {
   public double velocity(Rotation2d target) {
     m_target = target;
     // get the current pose of the robot
-    final Rotation2d posedif = m_drivetrain.getState().Pose.getRotation().minus(m_target);
+    final Rotation2d posedif = m_drivetrain.getPose().getRotation().minus(m_target);
     // calculate speeds
     final double angleSpeed = m_angleController.calculate(posedif.getRadians(), 0);
     // move the robot to the target pose
@@ -1,13 +1,6 @@
 package frc.robot.subsystems;
 
 import static edu.wpi.first.units.MutableMeasure.mutable;
-import com.ctre.phoenix6.configs.MotionMagicConfigs;
-import com.ctre.phoenix6.configs.Slot0Configs;
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.MotionMagicVoltage;
-import com.ctre.phoenix6.controls.VoltageOut;
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.signals.NeutralModeValue;
 
 import edu.wpi.first.units.Angle;
 import edu.wpi.first.units.Measure;
@@ -15,13 +8,13 @@ import edu.wpi.first.units.MutableMeasure;
 import edu.wpi.first.units.Velocity;
 import edu.wpi.first.units.Voltage;
 import edu.wpi.first.util.sendable.SendableBuilder;
-import edu.wpi.first.wpilibj.DigitalInput;
-import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
 import static edu.wpi.first.units.Units.Rotations;
 import static edu.wpi.first.units.Units.RotationsPerSecond;
 import static edu.wpi.first.units.Units.Second;
@@ -29,16 +22,21 @@ import static edu.wpi.first.units.Units.Seconds;
 import static edu.wpi.first.units.Units.Volts;
 import static frc.robot.Constants.Angler.*;
 
+/**
+ * @brief Angler Subsystem
+ *
+ *        The hardware is read once per loop into m_inputs, everything else uses those values.
+ */
 public class Angler extends SubsystemBase {
-  // init motors
-  public final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
-  // init sensors
-  private final DigitalInput m_limit = new DigitalInput(kLimitPort);
-  // control outputs
-  private final MotionMagicVoltage m_output = new MotionMagicVoltage(kLoadingPosition);
+  // hardware
+  private final AnglerIO m_io;
+  private final AnglerIO.AnglerInputs m_inputs = new AnglerIO.AnglerInputs();
+  private final InputLog.LoggedInputs m_loggedInputs =
+      InputLog.getInstance().loggedInputs("Angler", m_inputs);
+  // target position in rotations
+  private double m_target = kLoadingPosition;
 
   // sysid routine
-  private final VoltageOut m_sysIdOutput = new VoltageOut(0);
   private final MutableMeasure<Voltage> m_appliedVoltage = mutable(Volts.of(0));
   private final MutableMeasure<Angle> m_angle = mutable(Rotations.of(0));
   private final MutableMeasure<Velocity<Angle>> m_velocity = mutable(RotationsPerSecond.of(0));
@@ -46,47 +44,25 @@ public class Angler extends SubsystemBase {
       new SysIdRoutine.Config(Volts.of(kRampRate).per(Second), Volts.of(kStepVoltage),
           Seconds.of(kTimeout)),
       new SysIdRoutine.Mechanism((Measure<Voltage> volts) -> {
-        m_motor.setControl(m_sysIdOutput.withOutput(volts.in(Volts)));
+        m_io.setVoltage(volts.in(Volts));
       }, log -> {
-        log.motor("angler")
-            .voltage(m_appliedVoltage
-                .mut_replace(m_motor.get() * RobotController.getBatteryVoltage(), Volts))
-            .angularPosition(
-                m_angle.mut_replace(m_motor.getPosition().getValueAsDouble(), Rotations))
-            .angularVelocity(m_velocity.mut_replace(m_motor.getVelocity().getValueAsDouble(),
-                RotationsPerSecond));
+        log.motor("angler").voltage(m_appliedVoltage.mut_replace(m_inputs.appliedVoltage, Volts))
+            .angularPosition(m_angle.mut_replace(m_inputs.position, Rotations))
+            .angularVelocity(m_velocity.mut_replace(m_inputs.velocity, RotationsPerSecond));
       }, this));
 
+  // profiling
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.getInstance().section("Angler.periodic");
+
   /**
-   * @brief IntakeSubsystem constructor
+   * @brief Angler constructor
    * 
-   *        This is where the motors are configured. We configure them here so
-   *        that we can swap
-   *        motors without having to worry about reconfiguring them in Phoenix
-   *        Tuner.
+   * @param io the angler hardware
    */
-  public Angler() {
+  public Angler(AnglerIO io) {
     super();
-    // configure motors
-    final TalonFXConfiguration config = new TalonFXConfiguration();
-    // set controller gains
-    config.Slot0 = new Slot0Configs().withKP(kP).withKI(kI).withKD(kD).withKS(kS).withKV(kV)
-        .withKA(kA).withKG(kG).withGravityType(kGravityType);
-    // invert motors
-    config.MotorOutput.Inverted = kMotorInverted;
-    // set motor ratios
-    config.Feedback.SensorToMechanismRatio = kRatio;
-    // set Motion Magic settings
-    final MotionMagicConfigs motionMagicConfig = config.MotionMagic;
-    motionMagicConfig.MotionMagicCruiseVelocity = kMaxSpeed; // rps
-    motionMagicConfig.MotionMagicAcceleration = kAcceleration; // rps^2
-    motionMagicConfig.MotionMagicJerk = kJerk; // rps^3
-    // set motor brake
-    m_motor.setNeutralMode(NeutralModeValue.Brake);
-    // apply configuration
-    m_motor.getConfigurator().apply(config);
-    // set 0 position
-    m_motor.setPosition(kZeroPosition);
+    m_io = io;
     // commands
     SmartDashboard.putData("Angler To Load", this.goToLoad());
     SmartDashboard.putData("Angler Calibrate", this.calibrate());
@@ -98,7 +74,25 @@ public class Angler extends SubsystemBase {
    * @return boolean
    */
   public boolean atTarget() {
-    return Math.abs(m_output.Position - m_motor.getPosition().getValueAsDouble()) < kTolerance;
+    return Math.abs(m_target - getPosition()) < kTolerance;
+  }
+
+  /**
+   * @brief get the position of the angler
+   * 
+   * @return double position in rotations
+   */
+  public double getPosition() {
+    return m_inputs.position;
+  }
+
+  /**
+   * @brief whether the limit switch is triggered or not
+   * 
+   * @return boolean
+   */
+  public boolean isLimitTriggered() {
+    return m_inputs.limit;
   }
 
   /**
@@ -107,10 +101,11 @@ public class Angler extends SubsystemBase {
    * @return Command
    */
   private Command calibrate() {
-    return Commands.sequence(setVoltage(kProbeFastSpeed), Commands.waitUntil(() -> m_limit.get()),
-        setVoltage(-kProbeFastSpeed), Commands.waitSeconds(0.3), setVoltage(kProbeSlowSpeed),
-        Commands.waitUntil(() -> m_limit.get()), this.setVoltage(0), Commands.waitSeconds(1.0),
-        Commands.runOnce(() -> m_motor.setPosition(kZeroPosition)));
+    return Commands.sequence(setVoltage(kProbeFastSpeed),
+        Commands.waitUntil(this::isLimitTriggered), setVoltage(-kProbeFastSpeed),
+        Commands.waitSeconds(0.3), setVoltage(kProbeSlowSpeed),
+        Commands.waitUntil(this::isLimitTriggered), this.setVoltage(0), Commands.waitSeconds(1.0),
+        Commands.runOnce(() -> m_io.resetPosition(kZeroPosition)));
   }
 
   /**
@@ -120,7 +115,7 @@ public class Angler extends SubsystemBase {
    * @return Command
    */
   private Command setVoltage(double voltage) {
-    return this.runOnce(() -> m_motor.setControl(new VoltageOut(voltage)));
+    return this.runOnce(() -> m_io.setVoltage(voltage));
   }
 
   /**
@@ -131,8 +126,8 @@ public class Angler extends SubsystemBase {
    */
   public Command goToAngle(double angle) {
     return this.runOnce(() -> {
-      m_output.Position = angle;
-      m_motor.setControl(m_output);
+      m_target = angle;
+      m_io.setTarget(angle);
     });
   }
 
@@ -183,6 +178,19 @@ public class Angler extends SubsystemBase {
     return m_sysIdRoutine.dynamic(direction);
   }
 
+  /**
+   * @brief periodic update method
+   * 
+   *        Reads the hardware once for the loop.
+   */
+  @Override
+  public void periodic() {
+    m_periodicSection.start();
+    m_io.updateInputs(m_inputs);
+    m_loggedInputs.update();
+    m_periodicSection.stop();
+  }
+
   /**
    * @brief Send telemetry data to Shuffleboard
    * 
@@ -199,12 +207,12 @@ public class Angler extends SubsystemBase {
   public void initSendable(SendableBuilder builder) {
     super.initSendable(builder); // call the superclass method
     // measured position
-    builder.addDoubleProperty("Position", () -> m_motor.getPosition().getValueAsDouble(),
-        (double position) -> m_motor.setPosition(position));
+    builder.addDoubleProperty("Position", this::getPosition,
+        (double position) -> m_io.resetPosition(position));
     // target position
-    builder.addDoubleProperty("Target Position", () -> m_output.Position,
+    builder.addDoubleProperty("Target Position", () -> m_target,
         (double target) -> this.goToAngle(target).schedule());
     // limit switch
-    builder.addBooleanProperty("Limit Triggered", () -> m_limit.get(), null);
+    builder.addBooleanProperty("Limit Triggered", this::isLimitTriggered, null);
   }
 }
@@ -0,0 +1,70 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.InputLog;
+
+/**
+ * @brief Angler hardware
+ *
+ *        The default methods do nothing, which is what the angler uses in replay. Its inputs then
+ *        come from the log.
+ */
+public interface AnglerIO {
+  /**
+   * @brief everything the angler reads from its hardware, once per loop
+   */
+  public static class AnglerInputs implements InputLog.Inputs {
+    public double position = 0; // rotations
+    public double velocity = 0; // rotations per second
+    public double appliedVoltage = 0; // volts
+    public boolean limit = false; // limit switch triggered
+
+    @Override
+    public int size() {
+      return 4;
+    }
+
+    @Override
+    public void toArray(double[] out) {
+      out[0] = position;
+      out[1] = velocity;
+      out[2] = appliedVoltage;
+      out[3] = limit ? 1 : 0;
+    }
+
+    @Override
+    public void fromArray(double[] in) {
+      position = in[0];
+      velocity = in[1];
+      appliedVoltage = in[2];
+      limit = in[3] != 0;
+    }
+  }
+
+  /**
+   * @brief read the hardware
+   *
+   * @param inputs updated in place
+   */
+  default void updateInputs(AnglerInputs inputs) {}
+
+  /**
+   * @brief move to a position with motion magic
+   *
+   * @param position target position in rotations
+   */
+  default void setTarget(double position) {}
+
+  /**
+   * @brief apply a voltage
+   *
+   * @param voltage volts
+   */
+  default void setVoltage(double voltage) {}
+
+  /**
+   * @brief reset the measured position
+   *
+   * @param position the current position in rotations
+   */
+  default void resetPosition(double position) {}
+}
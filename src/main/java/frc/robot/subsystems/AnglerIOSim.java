@@ -0,0 +1,59 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.sim.ChassisReference;
+import com.ctre.phoenix6.sim.TalonFXSimState;
+import com.ctre.phoenix6.signals.InvertedValue;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import frc.robot.util.MechanismSimulator;
+import static frc.robot.Constants.Angler.*;
+
+/**
+ * @brief Simulated angler, the TalonFX hardware driving an arm model
+ *
+ *        The arm sags under gravity and stops at kMinPosition and at the hard stop at
+ *        kZeroPosition, where the limit switch closes. It starts resting on the hard stop, like
+ *        the real angler when the robot boots, so calibration works in simulation.
+ */
+public class AnglerIOSim extends AnglerIOTalonFX {
+  // simulation objects
+  private final TalonFXSimState m_motorSimState = m_motor.getSimState();
+  private final SingleJointedArmSim m_armSim = new SingleJointedArmSim(DCMotor.getFalcon500(1),
+      kRatio, MechanismSimulator.momentOfInertia(DCMotor.getFalcon500(1), kRatio, kA),
+      MechanismSimulator.equivalentArmLength(kG, kA), Units.rotationsToRadians(kMinPosition),
+      Units.rotationsToRadians(kZeroPosition), true, Units.rotationsToRadians(kZeroPosition));
+  private final DIOSim m_limitSim = new DIOSim(m_limit);
+
+  /**
+   * @brief AnglerIOSim constructor
+   */
+  public AnglerIOSim() {
+    super();
+    m_motorSimState.Orientation = kMotorInverted == InvertedValue.Clockwise_Positive
+        ? ChassisReference.Clockwise_Positive
+        : ChassisReference.CounterClockwise_Positive;
+    MechanismSimulator.getInstance().register(this::update);
+  }
+
+  /**
+   * @brief step the arm
+   *
+   * @param dt time step in seconds
+   */
+  private void update(double dt) {
+    // set supply voltage (voltage of the simulated battery)
+    m_motorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
+    m_armSim.setInputVoltage(m_motorSimState.getMotorVoltage());
+    m_armSim.update(dt);
+    final double position = Units.radiansToRotations(m_armSim.getAngleRads());
+    // the encoder was set to kZeroPosition at boot, with the rotor at 0
+    m_motorSimState.setRawRotorPosition((position - kZeroPosition) * kRatio);
+    m_motorSimState
+        .setRotorVelocity(Units.radiansToRotations(m_armSim.getVelocityRadPerSec()) * kRatio);
+    m_limitSim.setValue(position >= kZeroPosition - kSimLimitTolerance);
+  }
+}
@@ -0,0 +1,85 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.MotionMagicConfigs;
+import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.MotionMagicVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.NeutralModeValue;
+
+import edu.wpi.first.wpilibj.DigitalInput;
+import static frc.robot.Constants.Angler.*;
+
+/**
+ * @brief Angler hardware, a TalonFX with a limit switch
+ */
+public class AnglerIOTalonFX implements AnglerIO {
+  // init motors
+  protected final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
+  // init sensors
+  protected final DigitalInput m_limit = new DigitalInput(kLimitPort);
+  // signals, refreshed together
+  private final StatusSignal<Double> m_position = m_motor.getPosition();
+  private final StatusSignal<Double> m_velocity = m_motor.getVelocity();
+  private final StatusSignal<Double> m_appliedVoltage = m_motor.getMotorVoltage();
+  // control outputs
+  private final MotionMagicVoltage m_output = new MotionMagicVoltage(kLoadingPosition);
+  private final VoltageOut m_voltageOutput = new VoltageOut(0);
+
+  /**
+   * @brief AnglerIOTalonFX constructor
+   *
+   *        This is where the motors are configured. We configure them here so that we can swap
+   *        motors without having to worry about reconfiguring them in Phoenix Tuner.
+   */
+  public AnglerIOTalonFX() {
+    // configure motors
+    final TalonFXConfiguration config = new TalonFXConfiguration();
+    // set controller gains
+    config.Slot0 = new Slot0Configs().withKP(kP).withKI(kI).withKD(kD).withKS(kS).withKV(kV)
+        .withKA(kA).withKG(kG).withGravityType(kGravityType);
+    // invert motors
+    config.MotorOutput.Inverted = kMotorInverted;
+    // set motor ratios
+    config.Feedback.SensorToMechanismRatio = kRatio;
+    // set Motion Magic settings
+    final MotionMagicConfigs motionMagicConfig = config.MotionMagic;
+    motionMagicConfig.MotionMagicCruiseVelocity = kMaxSpeed; // rps
+    motionMagicConfig.MotionMagicAcceleration = kAcceleration; // rps^2
+    motionMagicConfig.MotionMagicJerk = kJerk; // rps^3
+    // set motor brake
+    m_motor.setNeutralMode(NeutralModeValue.Brake);
+    // apply configuration
+    m_motor.getConfigurator().apply(config);
+    // set 0 position
+    m_motor.setPosition(kZeroPosition);
+  }
+
+  @Override
+  public void updateInputs(AnglerInputs inputs) {
+    BaseStatusSignal.refreshAll(m_position, m_velocity, m_appliedVoltage);
+    inputs.position = m_position.getValueAsDouble();
+    inputs.velocity = m_velocity.getValueAsDouble();
+    inputs.appliedVoltage = m_appliedVoltage.getValueAsDouble();
+    inputs.limit = m_limit.get();
+  }
+
+  @Override
+  public void setTarget(double position) {
+    m_output.Position = position;
+    m_motor.setControl(m_output);
+  }
+
+  @Override
+  public void setVoltage(double voltage) {
+    m_motor.setControl(m_voltageOutput.withOutput(voltage));
+  }
+
+  @Override
+  public void resetPosition(double position) {
+    m_motor.setPosition(position);
+  }
+}
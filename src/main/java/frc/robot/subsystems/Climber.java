@@ -4,12 +4,8 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.util.sendable.SendableBuilder;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.signals.NeutralModeValue;
-import com.ctre.phoenix6.configs.Slot0Configs;
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.StaticBrake;
-import com.ctre.phoenix6.controls.VoltageOut;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
 import static frc.robot.Constants.Climber.*;
 
 /**
@@ -17,38 +13,24 @@ import static frc.robot.Constants.Climber.*;
  * 
  */
 public class Climber extends SubsystemBase {
-  // init motors
-  private final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
-  // init output
-  private final VoltageOut m_output = new VoltageOut(0);
+  // hardware, read once per loop
+  private final ClimberIO m_io;
+  private final ClimberIO.ClimberInputs m_inputs = new ClimberIO.ClimberInputs();
+  private final InputLog.LoggedInputs m_loggedInputs =
+      InputLog.getInstance().loggedInputs("Climber", m_inputs);
+
+  // profiling
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.getInstance().section("Climber.periodic");
 
   /**
-   * @brief IntakeSubsystem constructor
+   * @brief Climber constructor
    * 
-   *        This is where the motors are configured. We configure them here so
-   *        that we can swap
-   *        motors without having to worry about reconfiguring them in Phoenix
-   *        Tuner.
+   * @param io the climber hardware
    */
-  public Climber() {
+  public Climber(ClimberIO io) {
     super();
-    // configure motors
-    final TalonFXConfiguration config = new TalonFXConfiguration();
-    // set controller gains
-    config.Slot0 = new Slot0Configs().withKP(kP).withKI(kI).withKD(kD).withKS(kS).withKV(kV)
-        .withKA(kA).withKG(kG).withGravityType(kGravityType);
-    // invert motors
-    config.MotorOutput.Inverted = kMotorInverted;
-    // set motor ratios
-    config.Feedback.SensorToMechanismRatio = kRatio;
-    // set brake
-    m_motor.setNeutralMode(NeutralModeValue.Brake);
-    // apply configuration
-    m_motor.getConfigurator().apply(config);
-    // set motor position to 0
-    m_motor.setPosition(0);
-    // brake the motor
-    m_motor.setControl(new StaticBrake());
+    m_io = io;
     // commands
     SmartDashboard.putData("Climber Up", up());
     SmartDashboard.putData("Climber Down", down());
@@ -61,7 +43,7 @@ public class Climber extends SubsystemBase {
    * @return true if its deployed, false otherwise
    */
   public boolean isDeployed() {
-    return m_motor.getPosition().getValueAsDouble() - kTolerance < kMinPosition;
+    return getPosition() - kTolerance < kMinPosition;
   }
 
   /**
@@ -70,7 +52,16 @@ public class Climber extends SubsystemBase {
    * @return true if its retracted, false otherwise
    */
   public boolean isRetracted() {
-    return m_motor.getPosition().getValueAsDouble() + kTolerance > kMaxPosition;
+    return getPosition() + kTolerance > kMaxPosition;
+  }
+
+  /**
+   * @brief get the position of the climber
+   * 
+   * @return double position in rotations
+   */
+  public double getPosition() {
+    return m_inputs.position;
   }
 
   /**
@@ -79,10 +70,7 @@ public class Climber extends SubsystemBase {
    * @return Command
    */
   public Command down() {
-    return this.runOnce(() -> {
-      m_output.Output = -kSpeed;
-      m_motor.setControl(m_output);
-    });
+    return this.runOnce(() -> m_io.setVoltage(-kSpeed));
   }
 
   /**
@@ -91,10 +79,7 @@ public class Climber extends SubsystemBase {
    * @return Command
    */
   public Command up() {
-    return this.runOnce(() -> {
-      m_output.Output = kSpeed;
-      m_motor.setControl(m_output);
-    });
+    return this.runOnce(() -> m_io.setVoltage(kSpeed));
   }
 
   /**
@@ -104,12 +89,24 @@ public class Climber extends SubsystemBase {
    */
   public Command stop() {
     return this.runOnce(() -> {
-      m_output.Output = 0;
-      m_motor.setControl(m_output);
-      m_motor.setControl(new StaticBrake());
+      m_io.setVoltage(0);
+      m_io.brake();
     });
   }
 
+  /**
+   * @brief periodic update method
+   * 
+   *        Reads the hardware once for the loop.
+   */
+  @Override
+  public void periodic() {
+    m_periodicSection.start();
+    m_io.updateInputs(m_inputs);
+    m_loggedInputs.update();
+    m_periodicSection.stop();
+  }
+
   /**
    * @brief Send telemetry data to Shuffleboard
    * 
@@ -126,7 +123,7 @@ public class Climber extends SubsystemBase {
   public void initSendable(SendableBuilder builder) {
     super.initSendable(builder); // call the superclass method
     // measured position
-    builder.addDoubleProperty("Position", () -> m_motor.getPosition().getValueAsDouble(),
-        (double position) -> m_motor.setPosition(position));
+    builder.addDoubleProperty("Position", this::getPosition,
+        (double position) -> m_io.resetPosition(position));
   }
 }
@@ -0,0 +1,65 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.InputLog;
+
+/**
+ * @brief Climber hardware
+ *
+ *        The default methods do nothing, which is what the climber uses in replay. Its inputs then
+ *        come from the log.
+ */
+public interface ClimberIO {
+  /**
+   * @brief everything the climber reads from its hardware, once per loop
+   */
+  public static class ClimberInputs implements InputLog.Inputs {
+    public double position = 0; // rotations
+    public double velocity = 0; // rotations per second
+    public double appliedVoltage = 0; // volts
+
+    @Override
+    public int size() {
+      return 3;
+    }
+
+    @Override
+    public void toArray(double[] out) {
+      out[0] = position;
+      out[1] = velocity;
+      out[2] = appliedVoltage;
+    }
+
+    @Override
+    public void fromArray(double[] in) {
+      position = in[0];
+      velocity = in[1];
+      appliedVoltage = in[2];
+    }
+  }
+
+  /**
+   * @brief read the hardware
+   *
+   * @param inputs updated in place
+   */
+  default void updateInputs(ClimberInputs inputs) {}
+
+  /**
+   * @brief apply a voltage
+   *
+   * @param voltage volts
+   */
+  default void setVoltage(double voltage) {}
+
+  /**
+   * @brief hold the motor with a static brake
+   */
+  default void brake() {}
+
+  /**
+   * @brief reset the measured position
+   *
+   * @param position the current position in rotations
+   */
+  default void resetPosition(double position) {}
+}
@@ -0,0 +1,51 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.sim.ChassisReference;
+import com.ctre.phoenix6.sim.TalonFXSimState;
+import com.ctre.phoenix6.signals.InvertedValue;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.ElevatorSim;
+import frc.robot.util.MechanismSimulator;
+import static frc.robot.Constants.Climber.*;
+
+/**
+ * @brief Simulated climber, the TalonFX hardware driving an elevator model
+ *
+ *        The drum is sized so one meter of travel is one rotation of the climber, which keeps
+ *        the model in the same units as the rest of the climber. Travel is limited to the range
+ *        between kMaxPosition and kMinPosition.
+ */
+public class ClimberIOSim extends ClimberIOTalonFX {
+  // simulation objects
+  private final TalonFXSimState m_motorSimState = m_motor.getSimState();
+  private final ElevatorSim m_elevatorSim = new ElevatorSim(DCMotor.getFalcon500(1), kRatio,
+      kSimCarriageMass, 1 / (2 * Math.PI), Math.min(kMinPosition, kMaxPosition),
+      Math.max(kMinPosition, kMaxPosition), true, 0);
+
+  /**
+   * @brief ClimberIOSim constructor
+   */
+  public ClimberIOSim() {
+    super();
+    m_motorSimState.Orientation = kMotorInverted == InvertedValue.Clockwise_Positive
+        ? ChassisReference.Clockwise_Positive
+        : ChassisReference.CounterClockwise_Positive;
+    MechanismSimulator.getInstance().register(this::update);
+  }
+
+  /**
+   * @brief step the elevator
+   *
+   * @param dt time step in seconds
+   */
+  private void update(double dt) {
+    // set supply voltage (voltage of the simulated battery)
+    m_motorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
+    m_elevatorSim.setInputVoltage(m_motorSimState.getMotorVoltage());
+    m_elevatorSim.update(dt);
+    m_motorSimState.setRawRotorPosition(m_elevatorSim.getPositionMeters() * kRatio);
+    m_motorSimState.setRotorVelocity(m_elevatorSim.getVelocityMetersPerSecond() * kRatio);
+  }
+}
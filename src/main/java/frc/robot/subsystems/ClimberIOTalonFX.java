@@ -0,0 +1,76 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.StaticBrake;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.NeutralModeValue;
+import static frc.robot.Constants.Climber.*;
+
+/**
+ * @brief Climber hardware, a single TalonFX
+ */
+public class ClimberIOTalonFX implements ClimberIO {
+  // init motors
+  protected final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
+  // signals, refreshed together
+  private final StatusSignal<Double> m_position = m_motor.getPosition();
+  private final StatusSignal<Double> m_velocity = m_motor.getVelocity();
+  private final StatusSignal<Double> m_appliedVoltage = m_motor.getMotorVoltage();
+  // control outputs
+  private final VoltageOut m_output = new VoltageOut(0);
+  private final StaticBrake m_brake = new StaticBrake();
+
+  /**
+   * @brief ClimberIOTalonFX constructor
+   *
+   *        This is where the motors are configured. We configure them here so that we can swap
+   *        motors without having to worry about reconfiguring them in Phoenix Tuner.
+   */
+  public ClimberIOTalonFX() {
+    // configure motors
+    final TalonFXConfiguration config = new TalonFXConfiguration();
+    // set controller gains
+    config.Slot0 = new Slot0Configs().withKP(kP).withKI(kI).withKD(kD).withKS(kS).withKV(kV)
+        .withKA(kA).withKG(kG).withGravityType(kGravityType);
+    // invert motors
+    config.MotorOutput.Inverted = kMotorInverted;
+    // set motor ratios
+    config.Feedback.SensorToMechanismRatio = kRatio;
+    // set brake
+    m_motor.setNeutralMode(NeutralModeValue.Brake);
+    // apply configuration
+    m_motor.getConfigurator().apply(config);
+    // set motor position to 0
+    m_motor.setPosition(0);
+    // brake the motor
+    m_motor.setControl(m_brake);
+  }
+
+  @Override
+  public void updateInputs(ClimberInputs inputs) {
+    BaseStatusSignal.refreshAll(m_position, m_velocity, m_appliedVoltage);
+    inputs.position = m_position.getValueAsDouble();
+    inputs.velocity = m_velocity.getValueAsDouble();
+    inputs.appliedVoltage = m_appliedVoltage.getValueAsDouble();
+  }
+
+  @Override
+  public void setVoltage(double voltage) {
+    m_output.Output = voltage;
+    m_motor.setControl(m_output);
+  }
+
+  @Override
+  public void brake() {
+    m_motor.setControl(m_brake);
+  }
+
+  @Override
+  public void resetPosition(double position) {
+    m_motor.setPosition(position);
+  }
+}
@@ -2,6 +2,8 @@ package frc.robot.subsystems;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import static edu.wpi.first.units.MutableMeasure.mutable;
@@ -19,10 +21,11 @@ import com.ctre.phoenix6.mechanisms.swerve.SwerveRequest;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveModule.DriveRequestType;
 import com.ctre.phoenix6.mechanisms.swerve.SwerveModule.SteerRequestType;
 import com.pathplanner.lib.auto.AutoBuilder;
-import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.commands.FollowPathHolonomic;
 import com.pathplanner.lib.path.PathConstraints;
 import com.pathplanner.lib.path.PathPlannerPath;
 import com.pathplanner.lib.util.HolonomicPathFollowerConfig;
+import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -30,16 +33,21 @@ import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Twist2d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.math.util.Units;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.units.Angle;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.MutableMeasure;
 import edu.wpi.first.units.Velocity;
 import edu.wpi.first.units.Voltage;
-import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.RobotController;
-import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.sysid.SysIdRoutineLog;
 import edu.wpi.first.wpilibj.sysid.SysIdRoutineLog.MotorLog;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -49,16 +57,87 @@ import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import frc.robot.SimConstants;
 import frc.robot.Constants.Drivetrain;
 import frc.robot.Constants.PathPlanner;
+import frc.robot.Constants.Pathfinding;
+import frc.robot.Constants.PoseEstimation;
+import frc.robot.autonomous.DriveToPose;
+import frc.robot.autonomous.FollowDynamicPath;
+import frc.robot.autonomous.FollowTrajectory;
+import frc.robot.util.AllianceCache;
+import frc.robot.util.CompiledTrajectory;
+import frc.robot.util.GridPathfinder;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
+import frc.robot.util.ObstacleSource;
+import frc.robot.util.PathCache;
+import frc.robot.util.PathConverter;
+import frc.robot.util.PoseHistory;
+import frc.robot.util.SectionTimer;
+import frc.robot.util.SwerveStatePublisher;
+import frc.robot.util.VisionGate;
 import me.nabdev.pathfinding.structures.Path;
 
 /**
  * Drivetrain Subsystem
  */
 public class CommandSwerveDrivetrain extends SwerveDrivetrain implements Subsystem {
+  private static final HolonomicPathFollowerConfig kPathFollowerConfig =
+      new HolonomicPathFollowerConfig(PathPlanner.kTranslationalPIDConstants,
+          PathPlanner.kRotationalPIDConstants, PathPlanner.kMaxModuleSpeed,
+          PathPlanner.kDriveBaseRadius, PathPlanner.kReplanningConfig);
+  private static final PathConstraints kPathConstraints =
+      new PathConstraints(Drivetrain.kMaxLateralSpeed, Drivetrain.kMaxLateralAcceleration,
+          Drivetrain.kMaxAngularSpeed, Drivetrain.kMaxAngularAcceleration);
 
   private Notifier m_simNotifier = null;
   private double m_lastSimTime;
 
+  // drive state for readers on other threads, written by the odometry thread
+  private final SwerveStatePublisher m_statePublisher =
+      new SwerveStatePublisher(m_moduleLocations);
+  // recent odometry poses, written on the odometry thread
+  private final PoseHistory m_poseHistory = new PoseHistory(PoseEstimation.kHistoryCapacity,
+      PoseEstimation.kTranslationDrift, PoseEstimation.kHeadingDrift);
+  // only used from the main loop
+  private final VisionGate m_visionGate = new VisionGate(m_poseHistory);
+  private final PoseHistory.Sample m_historySample = new PoseHistory.Sample();
+  private volatile Consumer<SwerveDriveState> m_telemetryFunction = null;
+  private final IntegerPublisher m_stateRetriesPublisher = NetworkTableInstance.getDefault()
+      .getTable("Drive").getIntegerTopic("State Read Retries").publish();
+  // written every loop
+  private final InputLog.Output m_poseOutput = InputLog.getInstance().output("Drive/Pose", 3);
+
+  // recorded odometry, one sample per odometry update: FPGA time, yaw in degrees, then distance
+  // and angle of every module position, then speed and angle of every module state
+  private final InputLog.ArrayInput m_odometryInput =
+      InputLog.getInstance().arrayInput("Drive/Odometry");
+  private final double[] m_odometrySample = new double[2 + 4 * Modules.length];
+  // replayed odometry, only used from the main loop
+  private final SwerveModulePosition[] m_replayPositions =
+      new SwerveModulePosition[Modules.length];
+  private final SwerveDriveState m_replayState = new SwerveDriveState();
+  private Rotation2d m_replayYaw = new Rotation2d();
+  private double m_lastReplayTime = 0;
+
+  // profiling
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.getInstance().section("CommandSwerveDrivetrain.periodic");
+  // how long finding a path takes when a command starts
+  private final SectionTimer m_pathfinderTimer =
+      new SectionTimer("CommandSwerveDrivetrain.findAndFollowPath");
+
+  // only used from the main loop
+  private final PathConverter m_pathConverter = new PathConverter(Pathfinding.kCornerSmoothing);
+
+  // drive requests, updated in place so following a path doesn't allocate every tick
+  private final ChassisSpeeds m_robotRelativeSpeeds = new ChassisSpeeds();
+  private final SwerveRequest.ApplyChassisSpeeds m_robotRelativeRequest =
+      new SwerveRequest.ApplyChassisSpeeds().withSpeeds(m_robotRelativeSpeeds)
+          .withDriveRequestType(DriveRequestType.Velocity)
+          .withSteerRequestType(SteerRequestType.MotionMagic);
+  private final SwerveRequest.FieldCentric m_fieldRelativeRequest =
+      new SwerveRequest.FieldCentric().withDriveRequestType(DriveRequestType.Velocity)
+          .withSteerRequestType(SteerRequestType.MotionMagic);
+
   // sysid routine
   private final SwerveRequest.SysIdSwerveTranslation m_sysIdDrive =
       new SwerveRequest.SysIdSwerveTranslation();
@@ -213,91 +292,225 @@ public class CommandSwerveDrivetrain extends SwerveDrivetrain implements Subsyst
       SwerveModuleConstants... modules) {
     super(driveTrainConstants, modules);
 
-    if (Utils.isSimulation()) {
+    if (InputLog.getInstance().isReplay()) {
+      // odometry comes from the log instead of the devices
+      m_odometryThread.stop();
+      for (int i = 0; i < Modules.length; i++) {
+        m_replayPositions[i] = new SwerveModulePosition();
+      }
+      m_replayState.ModuleStates = new SwerveModuleState[Modules.length];
+      m_odometryInput.replay(this::replayOdometry);
+    } else if (Utils.isSimulation()) {
       startSimThread();
     }
 
+    // every odometry update goes through the state publisher first
+    super.registerTelemetry(state -> {
+      recordOdometry(state);
+      onOdometryUpdate(state, Utils.getCurrentTimeSeconds());
+    });
+
     AutoBuilder.configureHolonomic(this::getPose, // Supply robot pose. See SwerveDrivetrain
                                                   // superclass.
         this::seedFieldRelative, // Reset odometry (only called if auto has a set starting
                                  // pose).
         this::getChassisSpeeds, // Supply robot relative chassis speed.
         this::driveRobotRelative, // Drive the robot given robot relative chassis speeds.
-        new HolonomicPathFollowerConfig(PathPlanner.kTranslationalPIDConstants,
-            PathPlanner.kRotationalPIDConstants, PathPlanner.kMaxModuleSpeed,
-            PathPlanner.kDriveBaseRadius, PathPlanner.kReplanningConfig),
-        () -> {
-          // Boolean supplier that controls when the path will be mirrored for the red
-          // alliance.
-          // This will flip the path being followed to the red side of the field.
-          // THE ORIGIN WILL REMAIN ON THE BLUE SIDE.
-          var alliance = DriverStation.getAlliance();
-          if (alliance.isPresent()) {
-            return alliance.get() == DriverStation.Alliance.Red;
-          }
-          return false;
-        }, this // Reference to this subsystem to set requirements.
+        kPathFollowerConfig,
+        // Boolean supplier that controls when the path will be mirrored for the red alliance.
+        // This will flip the path being followed to the red side of the field.
+        // THE ORIGIN WILL REMAIN ON THE BLUE SIDE.
+        // Called every tick, so it reads the cached alliance.
+        AllianceCache::isRed, this // Reference to this subsystem to set requirements.
     );
   }
 
-  public List<Translation2d> generatebezierPoints(Path path) {
-    return PathPlannerPath.bezierFromPoses(path.asPose2dList());
+  /**
+   * @brief turn a path from Oxplorer into a PathPlannerPath
+   * 
+   * @param start where the path starts
+   * @param path the path
+   * @param target where the path ends, the robot faces its rotation at the end
+   * @return PathPlannerPath, never flipped, null if the path has no length
+   */
+  public PathPlannerPath convertPath(Pose2d start, Path path, Pose2d target) {
+    return m_pathConverter.convert(start, path, target, kPathConstraints);
   }
 
-  public List<Pose2d> generatePosesFromBezierPoints(List<Translation2d> bezierPoints) {
-    List<Pose2d> poses = new ArrayList<>();
-    // Assuming you want to set a default orientation (facing in the x-direction)
-    Rotation2d defaultOrientation = new Rotation2d();
+  /**
+   * @brief called after every odometry update, by the odometry thread or the replay, with the
+   *        odometry lock held
+   * 
+   * @param state the drive state
+   * @param timestamp when the state was measured, same timebase as Utils.getCurrentTimeSeconds()
+   */
+  private void onOdometryUpdate(SwerveDriveState state, double timestamp) {
+    m_statePublisher.write(state, timestamp);
+    if (state.Pose != null)
+      m_poseHistory.add(timestamp, state.Pose);
+    final Consumer<SwerveDriveState> telemetryFunction = m_telemetryFunction;
+    if (telemetryFunction != null)
+      telemetryFunction.accept(state);
+  }
 
-    // Convert each Translation2d point to a Pose2d with default orientation
-    for (Translation2d point : bezierPoints) {
-      poses.add(new Pose2d(point, defaultOrientation));
+  /**
+   * @brief record what the odometry was updated with, on the odometry thread
+   * 
+   *        The yaw is the cached pigeon signal the odometry thread just refreshed.
+   * 
+   * @param state the drive state
+   */
+  private void recordOdometry(SwerveDriveState state) {
+    if (state.ModuleStates == null)
+      return;
+    m_odometrySample[0] = Timer.getFPGATimestamp();
+    m_odometrySample[1] = m_pigeon2.getYaw().getValueAsDouble();
+    for (int i = 0; i < Modules.length; i++) {
+      final SwerveModulePosition position = Modules[i].getCachedPosition();
+      m_odometrySample[2 + 2 * i] = position.distanceMeters;
+      m_odometrySample[3 + 2 * i] = position.angle.getRadians();
+      m_odometrySample[2 + 2 * (Modules.length + i)] = state.ModuleStates[i].speedMetersPerSecond;
+      m_odometrySample[3 + 2 * (Modules.length + i)] = state.ModuleStates[i].angle.getRadians();
     }
+    m_odometryInput.record(m_odometrySample);
+  }
 
-    return poses;
+  /**
+   * @brief update the odometry with a recorded sample, on the main loop
+   * 
+   * @param sample the recorded sample
+   */
+  private void replayOdometry(double[] sample) {
+    final double timestamp = Utils.fpgaToCurrentTime(sample[0]);
+    m_replayYaw = Rotation2d.fromDegrees(sample[1]);
+    for (int i = 0; i < Modules.length; i++) {
+      m_replayPositions[i].distanceMeters = sample[2 + 2 * i];
+      m_replayPositions[i].angle = new Rotation2d(sample[3 + 2 * i]);
+      final int state = 2 + 2 * (Modules.length + i);
+      m_replayState.ModuleStates[i] =
+          new SwerveModuleState(sample[state], new Rotation2d(sample[state + 1]));
+    }
+    m_replayState.OdometryPeriod = m_lastReplayTime == 0 ? 0 : sample[0] - m_lastReplayTime;
+    m_lastReplayTime = sample[0];
+    // published under the lock, like the odometry thread does
+    m_stateLock.writeLock().lock();
+    try {
+      m_odometry.updateWithTime(timestamp, m_replayYaw, m_replayPositions);
+      m_replayState.Pose = m_odometry.getEstimatedPosition();
+      onOdometryUpdate(m_replayState, timestamp);
+    } finally {
+      m_stateLock.writeLock().unlock();
+    }
   }
 
-  public PathPlannerPath GetPath(List<Translation2d> bezierPoints) {
-    final PathPlannerPath path =
-        new PathPlannerPath(bezierPoints, new PathConstraints(3.0, 3.0, 2 * Math.PI, 4 * Math.PI), // constraints
-            new GoalEndState(0.0, Rotation2d.fromDegrees(90)) // goal end state
-        );
-    return path;
+  /**
+   * @brief reset the pose of the robot
+   * 
+   *        The new pose is published before returning, so getPose() returns it right away instead
+   *        of after the next odometry update. A path that starts in the same loop plans from it.
+   *        In replay the odometry thread is stopped, so the pose is reset against the replayed
+   *        yaw and module positions instead of the devices.
+   * 
+   * @param location the new pose
+   */
+  @Override
+  public void seedFieldRelative(Pose2d location) {
+    // the odometry thread publishes under the same lock, so the writes never overlap
+    m_stateLock.writeLock().lock();
+    try {
+      if (InputLog.getInstance().isReplay())
+        m_odometry.resetPosition(m_replayYaw, m_replayPositions, location);
+      else
+        super.seedFieldRelative(location);
+      m_statePublisher.writePose(location, Utils.getCurrentTimeSeconds());
+    } finally {
+      m_stateLock.writeLock().unlock();
+    }
   }
 
+  /**
+   * @brief register a function to be called with the drive state on every odometry update
+   * 
+   *        The function runs on the odometry thread, after the state publisher is updated.
+   * 
+   * @param telemetryFunction the function
+   */
   @Override
-  public SwerveDriveState getState() {
-    // TODO Auto-generated method stub
-    return super.getState();
+  public void registerTelemetry(Consumer<SwerveDriveState> telemetryFunction) {
+    m_telemetryFunction = telemetryFunction;
+  }
+
+  /**
+   * @brief copy the latest drive state without taking the odometry lock
+   * 
+   * @param out where to copy the state to
+   */
+  public void getStateSnapshot(SwerveStatePublisher.Snapshot out) {
+    m_statePublisher.read(out);
+  }
+
+  /**
+   * @brief create a snapshot object sized for this drivetrain
+   * 
+   * @return SwerveStatePublisher.Snapshot
+   */
+  public SwerveStatePublisher.Snapshot createStateSnapshot() {
+    return new SwerveStatePublisher.Snapshot(Modules.length);
   }
 
   /**
    * Calculate the scalar distance between the robot position and a given position.
    */
   public double getPoseDifference(final Pose2d pose) {
-    try {
-      return m_odometry.getEstimatedPosition().getTranslation().getDistance(pose.getTranslation());
-    } catch (NullPointerException e) {
-      System.out.println(e);
+    if (pose == null)
       return 0.0;
-    }
+    return getPose().getTranslation().getDistance(pose.getTranslation());
   }
 
+  /**
+   * @brief drive the robot with robot relative chassis speeds
+   * 
+   *        Called by the path follower every tick. The speeds are copied into a preallocated
+   *        request, so nothing is allocated here.
+   * 
+   * @param chassisSpeeds robot relative speeds
+   */
   public void driveRobotRelative(ChassisSpeeds chassisSpeeds) {
-    applyRequest(() -> new SwerveRequest.FieldCentric.ApplyChassisSpeeds().withSpeeds(chassisSpeeds)
-        .withDriveRequestType(DriveRequestType.Velocity)
-        .withSteerRequestType(SteerRequestType.MotionMagic));
-    setControl(new SwerveRequest.FieldCentric.ApplyChassisSpeeds().withSpeeds(chassisSpeeds)
-        .withDriveRequestType(DriveRequestType.Velocity)
-        .withSteerRequestType(SteerRequestType.MotionMagic));
+    m_robotRelativeSpeeds.vxMetersPerSecond = chassisSpeeds.vxMetersPerSecond;
+    m_robotRelativeSpeeds.vyMetersPerSecond = chassisSpeeds.vyMetersPerSecond;
+    m_robotRelativeSpeeds.omegaRadiansPerSecond = chassisSpeeds.omegaRadiansPerSecond;
+    setControl(m_robotRelativeRequest);
+  }
+
+  /**
+   * @brief drive the robot with field relative speeds
+   * 
+   *        Like driveRobotRelative, this updates a preallocated request in place.
+   * 
+   * @param vx velocity along the field x axis, in meters per second
+   * @param vy velocity along the field y axis, in meters per second
+   * @param omega rotational rate, in radians per second
+   */
+  public void driveFieldRelative(double vx, double vy, double omega) {
+    m_fieldRelativeRequest.VelocityX = vx;
+    m_fieldRelativeRequest.VelocityY = vy;
+    m_fieldRelativeRequest.RotationalRate = omega;
+    setControl(m_fieldRelativeRequest);
   }
 
   public SwerveDriveKinematics getKinematics() {
     return m_kinematics;
   }
 
+  /**
+   * @brief get the estimated pose of the robot
+   * 
+   *        Safe to call from any thread, never waits for the odometry thread.
+   * 
+   * @return Pose2d
+   */
   public Pose2d getPose() {
-    return m_odometry.getEstimatedPosition();
+    return m_statePublisher.getPose();
   }
 
   public Twist2d getTwist2d() {
@@ -305,7 +518,7 @@ public class CommandSwerveDrivetrain extends SwerveDrivetrain implements Subsyst
   }
 
   public ChassisSpeeds getChassisSpeeds() {
-    return getKinematics().toChassisSpeeds(getState().ModuleStates);
+    return m_statePublisher.getChassisSpeeds();
   }
 
   /**
@@ -321,28 +534,151 @@ public class CommandSwerveDrivetrain extends SwerveDrivetrain implements Subsyst
         VecBuilder.fill(xyStds, xyStds, Units.degreesToRadians(degStds)));
   }
 
-  public Command findAndFollowPath(final Pose2d targetPose) {
+  /**
+   * @brief get the pose the robot was at in the past
+   * 
+   *        Falls back to the current pose if the time is older than the pose history.
+   * 
+   * @param timestamp the time, in the same timebase as Utils.getCurrentTimeSeconds()
+   * @return Pose2d
+   */
+  public Pose2d getPoseAt(double timestamp) {
+    if (m_poseHistory.sample(timestamp, m_historySample))
+      return m_historySample.toPose2d();
+    return getPose();
+  }
+
+  /**
+   * @brief update the odometry with a vision measurement, if it agrees with odometry
+   * 
+   *        The measurement is compared against the pose at the time it was captured. Must be
+   *        called from the main loop.
+   * 
+   * @param pose the position of the robot
+   * @param timestamp when the measurement was captured, same timebase as
+   *        Utils.getCurrentTimeSeconds()
+   * @param stdDevs standard deviations of the measurement (x, y, heading)
+   * @return boolean whether the measurement was fused
+   */
+  public boolean addGatedVisionMeasurement(Pose2d pose, double timestamp,
+      Matrix<N3, N1> stdDevs) {
+    if (!m_visionGate.accept(pose, timestamp, stdDevs))
+      return false;
+    addVisionMeasurement(pose, timestamp, stdDevs);
+    return true;
+  }
 
-    PathConstraints pathConstraints =
-        new PathConstraints(Drivetrain.kMaxLateralSpeed, Drivetrain.kMaxLateralAcceleration,
-            Drivetrain.kMaxAngularSpeed, Drivetrain.kMaxAngularAcceleration);
+  /**
+   * @brief follow a Choreo trajectory with feedforward and PID, see FollowTrajectory
+   * 
+   * @param trajectory the trajectory, on the blue side of the field
+   * @param resetPose whether to reset the pose to the start of the trajectory first
+   * @return Command
+   */
+  public Command followTrajectory(CompiledTrajectory trajectory, boolean resetPose) {
+    return new FollowTrajectory(trajectory, this, resetPose);
+  }
 
-    if (DriverStation.getAlliance().equals(Alliance.Blue))
-      return AutoBuilder.pathfindToPose(targetPose, pathConstraints);
-    else
-      return AutoBuilder.pathfindToPoseFlipped(targetPose, pathConstraints);
+  /**
+   * @brief drive to a pose in a straight line, see DriveToPose
+   * 
+   * @param target the pose, in field coordinates
+   * @return Command
+   */
+  public Command driveToPose(Pose2d target) {
+    return new DriveToPose(target, this);
   }
 
-  public Command followPath(final PathPlannerPath path, boolean fromfile) {
+  /**
+   * @brief drive to a pose around the obstacles on the navgrid
+   * 
+   *        The path is found by GridPathfinder when the command starts, from the navgrid cell
+   *        the robot is in then, unless PathCache already has it. If the navgrid didn't load or there is no
+   *        path, PathPlanner's pathfinding is used instead. The path followed always starts where
+   *        the robot is, only its corners are shared by the cell.
+   * 
+   * @param targetPose the pose, in field coordinates, read when the command starts, e.g.
+   *        Field::getAmpLineupPose
+   * @return Command
+   */
+  public Command findAndFollowPath(final Supplier<Pose2d> targetPose) {
+    return Commands.defer(() -> {
+      final Pose2d target = targetPose.get();
+      final GridPathfinder pathfinder = GridPathfinder.getInstance();
+      final PathCache cache = PathCache.getInstance();
+      if (pathfinder == null || cache == null)
+        return AutoBuilder.pathfindToPose(target, kPathConstraints);
+      final Pose2d pose = getPose();
+      final PathCache.Key key = PathCache.key(pathfinder.getGrid(), pose, target, kPathConstraints);
+      List<Translation2d> corners = cache.get(key);
+      if (corners == null) {
+        m_pathfinderTimer.start();
+        // shared by every start in the cell, so found from the cell's center
+        final List<Translation2d> found = pathfinder.findWaypoints(
+            PathCache.start(pathfinder.getGrid(), key), target.getTranslation());
+        m_pathfinderTimer.stop();
+        if (found == null)
+          return AutoBuilder.pathfindToPose(target, kPathConstraints);
+        corners = found.subList(1, found.size());
+        cache.put(key, corners);
+      }
+      // from where the robot really is, at most half a cell diagonal off the searched start
+      final ArrayList<Translation2d> waypoints = new ArrayList<>(corners.size() + 1);
+      waypoints.add(pose.getTranslation());
+      waypoints.addAll(corners);
+      return followPathAsIs(
+          GridPathfinder.toPath(waypoints, target.getRotation(), kPathConstraints));
+    }, Set.of(this));
+  }
 
-    if (DriverStation.getAlliance().isPresent() == false)
-      return new Command() {};
+  /**
+   * @brief drive to a pose around the navgrid and around obstacles that move
+   * 
+   * @param obstacles where the obstacles that aren't on the navgrid are
+   * @param target the pose, in field coordinates, read when the command starts
+   * @return Command
+   */
+  public Command followDynamicPath(ObstacleSource obstacles, Supplier<Pose2d> target) {
+    return FollowDynamicPath.create(this, obstacles, target, kPathConstraints);
+  }
+
+  /**
+   * @brief follow a path, on either alliance
+   * 
+   *        The red variant is made here, when the command is built, not every time it runs.
+   * 
+   * @param path the path, on the blue side of the field
+   * @param fromfile unused
+   * @return Command
+   */
+  public Command followPath(final PathPlannerPath path, boolean fromfile) {
+    return followPath(path, path.flipPath());
+  }
 
-    if (DriverStation.getAlliance().equals(Alliance.Blue))
-      return AutoBuilder.followPath(path);
-    else
-      return AutoBuilder.followPath(path.flipPath());
+  /**
+   * @brief follow a path whose red variant was made ahead of time
+   * 
+   *        The variant for the alliance is picked when the command starts. Neither path is
+   *        flipped again while it is followed.
+   * 
+   * @param bluePath the path on the blue side of the field
+   * @param redPath the same path mirrored to the red side
+   * @return Command
+   */
+  public Command followPath(PathPlannerPath bluePath, PathPlannerPath redPath) {
+    return Commands.either(followPathAsIs(redPath), followPathAsIs(bluePath),
+        AllianceCache::isRed);
+  }
 
+  /**
+   * @brief follow a path without flipping it for the alliance
+   * 
+   * @param path the path
+   * @return Command
+   */
+  private Command followPathAsIs(PathPlannerPath path) {
+    return new FollowPathHolonomic(path, this::getPose, this::getChassisSpeeds,
+        this::driveRobotRelative, kPathFollowerConfig, () -> false, this);
   }
 
   private void startSimThread() {
@@ -360,6 +696,22 @@ public class CommandSwerveDrivetrain extends SwerveDrivetrain implements Subsyst
     m_simNotifier.startPeriodic(SimConstants.kSimLoopPeriod);
   }
 
+  /**
+   * @brief periodic update method
+   */
+  @Override
+  public void periodic() {
+    m_periodicSection.start();
+    m_stateRetriesPublisher.set(m_statePublisher.getRetries());
+    final Pose2d pose = getPose();
+    final double[] value = m_poseOutput.value();
+    value[0] = pose.getX();
+    value[1] = pose.getY();
+    value[2] = pose.getRotation().getRadians();
+    m_poseOutput.record();
+    m_periodicSection.stop();
+  }
+
   public Command applyRequest(Supplier<SwerveRequest> requestSupplier) {
     return run(() -> this.setControl(requestSupplier.get()));
   }
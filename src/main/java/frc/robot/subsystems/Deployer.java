@@ -10,19 +10,14 @@ import edu.wpi.first.units.MutableMeasure;
 import edu.wpi.first.units.Velocity;
 import edu.wpi.first.units.Voltage;
 import edu.wpi.first.util.sendable.SendableBuilder;
-import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.signals.NeutralModeValue;
-import com.ctre.phoenix6.configs.Slot0Configs;
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.PositionVoltage;
-import com.ctre.phoenix6.controls.VoltageOut;
 import static edu.wpi.first.units.Units.Rotations;
 import static edu.wpi.first.units.Units.RotationsPerSecond;
 import static edu.wpi.first.units.Units.Second;
 import static edu.wpi.first.units.Units.Seconds;
 import static edu.wpi.first.units.Units.Volts;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
 import static frc.robot.Constants.Deployer.*;
 
 /**
@@ -30,12 +25,14 @@ import static frc.robot.Constants.Deployer.*;
  * 
  */
 public class Deployer extends SubsystemBase {
-  // init motors
-  private final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
-  // init output
-  private final PositionVoltage m_output = new PositionVoltage(kMaxPosition);
+  // hardware, read once per loop
+  private final DeployerIO m_io;
+  private final DeployerIO.DeployerInputs m_inputs = new DeployerIO.DeployerInputs();
+  private final InputLog.LoggedInputs m_loggedInputs =
+      InputLog.getInstance().loggedInputs("Deployer", m_inputs);
+  // target position in rotations
+  private double m_target = kMaxPosition;
 
-  private final VoltageOut m_sysIdOutput = new VoltageOut(0);
   private final MutableMeasure<Voltage> m_appliedVoltage = mutable(Volts.of(0));
   private final MutableMeasure<Angle> m_angle = mutable(Rotations.of(0));
   private final MutableMeasure<Velocity<Angle>> m_velocity = mutable(RotationsPerSecond.of(0));
@@ -43,49 +40,25 @@ public class Deployer extends SubsystemBase {
       new SysIdRoutine.Config(Volts.of(kRampRate).per(Second), Volts.of(kStepVoltage),
           Seconds.of(kTimeout)),
       new SysIdRoutine.Mechanism((Measure<Voltage> volts) -> {
-        m_motor.setControl(m_sysIdOutput.withOutput(volts.in(Volts)));
+        m_io.setVoltage(volts.in(Volts));
       }, log -> {
-        log.motor("angler")
-            .voltage(m_appliedVoltage
-                .mut_replace(m_motor.get() * RobotController.getBatteryVoltage(), Volts))
-            .angularPosition(
-                m_angle.mut_replace(m_motor.getPosition().getValueAsDouble(), Rotations))
-            .angularVelocity(m_velocity.mut_replace(m_motor.getVelocity().getValueAsDouble(),
-                RotationsPerSecond));
+        log.motor("angler").voltage(m_appliedVoltage.mut_replace(m_inputs.appliedVoltage, Volts))
+            .angularPosition(m_angle.mut_replace(m_inputs.position, Rotations))
+            .angularVelocity(m_velocity.mut_replace(m_inputs.velocity, RotationsPerSecond));
       }, this));
 
+  // profiling
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.getInstance().section("Deployer.periodic");
+
   /**
-   * @brief IntakeSubsystem constructor
+   * @brief Deployer constructor
    * 
-   *        This is where the motors are configured. We configure them here so
-   *        that we can swap
-   *        motors without having to worry about reconfiguring them in Phoenix
-   *        Tuner.
+   * @param io the deployer hardware
    */
-  public Deployer() {
+  public Deployer(DeployerIO io) {
     super();
-    // configure motors
-    final TalonFXConfiguration config = new TalonFXConfiguration();
-    // set controller gains
-    config.Slot0 = new Slot0Configs().withKP(kP).withKI(kI).withKD(kD).withKS(kS).withKV(kV)
-        .withKA(kA).withKG(kG).withGravityType(kGravityType);
-    // invert motors
-    config.MotorOutput.Inverted = kMotorInverted;
-    // set motor ratios
-    config.Feedback.SensorToMechanismRatio = kRatio;
-    // set current limit
-    config.CurrentLimits.StatorCurrentLimit = kCurrentLimit;
-    config.CurrentLimits.SupplyCurrentLimit = kCurrentLimit;
-    config.CurrentLimits.StatorCurrentLimitEnable = true;
-    config.CurrentLimits.SupplyCurrentLimitEnable = true;
-    // set brake
-    m_motor.setNeutralMode(NeutralModeValue.Brake);
-    // apply configuration
-    m_motor.getConfigurator().apply(config);
-    // set motor position to 0
-    m_motor.setPosition(kMaxPosition);
-    // set motor control mode
-    m_motor.setControl(m_output);
+    m_io = io;
     // commands
     SmartDashboard.putData("Deployer Deploy", deploy());
     SmartDashboard.putData("Deployer Retract", retract());
@@ -97,7 +70,7 @@ public class Deployer extends SubsystemBase {
    * @return true if its deployed, false otherwise
    */
   public boolean isDeployed() {
-    return m_motor.getPosition().getValueAsDouble() - kTolerance < kMinPosition;
+    return getPosition() - kTolerance < kMinPosition;
   }
 
   /**
@@ -106,7 +79,26 @@ public class Deployer extends SubsystemBase {
    * @return true if its retracted, false otherwise
    */
   public boolean isRetracted() {
-    return m_motor.getPosition().getValueAsDouble() + kTolerance > kMaxPosition;
+    return getPosition() + kTolerance > kMaxPosition;
+  }
+
+  /**
+   * @brief get the position of the deployer
+   * 
+   * @return double position in rotations
+   */
+  public double getPosition() {
+    return m_inputs.position;
+  }
+
+  /**
+   * @brief set the target position
+   * 
+   * @param position position in rotations
+   */
+  private void setTarget(double position) {
+    m_target = position;
+    m_io.setTarget(position);
   }
 
   /**
@@ -116,10 +108,7 @@ public class Deployer extends SubsystemBase {
    * @return Command
    */
   public Command goToAngle(double position) {
-    return this.runOnce(() -> {
-      m_output.Position = position;
-      m_motor.setControl(m_output);
-    });
+    return this.runOnce(() -> setTarget(position));
   }
 
   /**
@@ -128,10 +117,7 @@ public class Deployer extends SubsystemBase {
    * @return Command
    */
   public Command toAmp() {
-    return this.runOnce(() -> {
-      m_output.Position = kAmpPosition;
-      m_motor.setControl(m_output);
-    });
+    return this.runOnce(() -> setTarget(kAmpPosition));
   }
 
   /**
@@ -140,10 +126,7 @@ public class Deployer extends SubsystemBase {
    * @return Command
    */
   public Command deploy() {
-    return this.runOnce(() -> {
-      m_output.Position = kMinPosition;
-      m_motor.setControl(m_output);
-    });
+    return this.runOnce(() -> setTarget(kMinPosition));
   }
 
   /**
@@ -152,10 +135,7 @@ public class Deployer extends SubsystemBase {
    * @return Command
    */
   public Command retract() {
-    return this.runOnce(() -> {
-      m_output.Position = kMaxPosition;
-      m_motor.setControl(m_output);
-    });
+    return this.runOnce(() -> setTarget(kMaxPosition));
   }
 
   /**
@@ -187,6 +167,19 @@ public class Deployer extends SubsystemBase {
     return m_sysIdRoutine.dynamic(direction);
   }
 
+  /**
+   * @brief periodic update method
+   * 
+   *        Reads the hardware once for the loop.
+   */
+  @Override
+  public void periodic() {
+    m_periodicSection.start();
+    m_io.updateInputs(m_inputs);
+    m_loggedInputs.update();
+    m_periodicSection.stop();
+  }
+
   /**
    * @brief Send telemetry data to Shuffleboard
    * 
@@ -203,9 +196,9 @@ public class Deployer extends SubsystemBase {
   public void initSendable(SendableBuilder builder) {
     super.initSendable(builder); // call the superclass method
     // measured position
-    builder.addDoubleProperty("Position", () -> m_motor.getPosition().getValueAsDouble(),
-        (double position) -> m_motor.setPosition(position));
-    builder.addDoubleProperty("Target Position", () -> m_output.Position,
+    builder.addDoubleProperty("Position", this::getPosition,
+        (double position) -> m_io.resetPosition(position));
+    builder.addDoubleProperty("Target Position", () -> m_target,
         (double target) -> this.goToAngle(target).schedule());
   }
 }
@@ -0,0 +1,67 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.InputLog;
+
+/**
+ * @brief Deployer hardware
+ *
+ *        The default methods do nothing, which is what the deployer uses in replay. Its inputs then
+ *        come from the log.
+ */
+public interface DeployerIO {
+  /**
+   * @brief everything the deployer reads from its hardware, once per loop
+   */
+  public static class DeployerInputs implements InputLog.Inputs {
+    public double position = 0; // rotations
+    public double velocity = 0; // rotations per second
+    public double appliedVoltage = 0; // volts
+
+    @Override
+    public int size() {
+      return 3;
+    }
+
+    @Override
+    public void toArray(double[] out) {
+      out[0] = position;
+      out[1] = velocity;
+      out[2] = appliedVoltage;
+    }
+
+    @Override
+    public void fromArray(double[] in) {
+      position = in[0];
+      velocity = in[1];
+      appliedVoltage = in[2];
+    }
+  }
+
+  /**
+   * @brief read the hardware
+   *
+   * @param inputs updated in place
+   */
+  default void updateInputs(DeployerInputs inputs) {}
+
+  /**
+   * @brief move to a position
+   *
+   * @param position target position in rotations
+   */
+  default void setTarget(double position) {}
+
+  /**
+   * @brief apply a voltage
+   *
+   * @param voltage volts
+   */
+  default void setVoltage(double voltage) {}
+
+  /**
+   * @brief reset the measured position
+   *
+   * @param position the current position in rotations
+   */
+  default void resetPosition(double position) {}
+}
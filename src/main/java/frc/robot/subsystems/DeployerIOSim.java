@@ -0,0 +1,55 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.sim.ChassisReference;
+import com.ctre.phoenix6.sim.TalonFXSimState;
+import com.ctre.phoenix6.signals.InvertedValue;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.SingleJointedArmSim;
+import frc.robot.util.MechanismSimulator;
+import static frc.robot.Constants.Deployer.*;
+
+/**
+ * @brief Simulated deployer, the TalonFX hardware driving an arm model
+ *
+ *        The deployer swings between kMinPosition and kMaxPosition and starts retracted. Its
+ *        measured kG is 0, so gravity isn't simulated.
+ */
+public class DeployerIOSim extends DeployerIOTalonFX {
+  // simulation objects
+  private final TalonFXSimState m_motorSimState = m_motor.getSimState();
+  private final SingleJointedArmSim m_armSim = new SingleJointedArmSim(DCMotor.getFalcon500(1),
+      kRatio, MechanismSimulator.momentOfInertia(DCMotor.getFalcon500(1), kRatio, kA), 1.0,
+      Units.rotationsToRadians(kMinPosition), Units.rotationsToRadians(kMaxPosition), false,
+      Units.rotationsToRadians(kMaxPosition));
+
+  /**
+   * @brief DeployerIOSim constructor
+   */
+  public DeployerIOSim() {
+    super();
+    m_motorSimState.Orientation = kMotorInverted == InvertedValue.Clockwise_Positive
+        ? ChassisReference.Clockwise_Positive
+        : ChassisReference.CounterClockwise_Positive;
+    MechanismSimulator.getInstance().register(this::update);
+  }
+
+  /**
+   * @brief step the arm
+   *
+   * @param dt time step in seconds
+   */
+  private void update(double dt) {
+    // set supply voltage (voltage of the simulated battery)
+    m_motorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
+    m_armSim.setInputVoltage(m_motorSimState.getMotorVoltage());
+    m_armSim.update(dt);
+    final double position = Units.radiansToRotations(m_armSim.getAngleRads());
+    // the encoder was set to kMaxPosition at boot, with the rotor at 0
+    m_motorSimState.setRawRotorPosition((position - kMaxPosition) * kRatio);
+    m_motorSimState
+        .setRotorVelocity(Units.radiansToRotations(m_armSim.getVelocityRadPerSec()) * kRatio);
+  }
+}
@@ -0,0 +1,81 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.PositionVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.NeutralModeValue;
+import static frc.robot.Constants.Deployer.*;
+
+/**
+ * @brief Deployer hardware, a single TalonFX
+ */
+public class DeployerIOTalonFX implements DeployerIO {
+  // init motors
+  protected final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
+  // signals, refreshed together
+  private final StatusSignal<Double> m_position = m_motor.getPosition();
+  private final StatusSignal<Double> m_velocity = m_motor.getVelocity();
+  private final StatusSignal<Double> m_appliedVoltage = m_motor.getMotorVoltage();
+  // control outputs
+  private final PositionVoltage m_output = new PositionVoltage(kMaxPosition);
+  private final VoltageOut m_voltageOutput = new VoltageOut(0);
+
+  /**
+   * @brief DeployerIOTalonFX constructor
+   *
+   *        This is where the motors are configured. We configure them here so that we can swap
+   *        motors without having to worry about reconfiguring them in Phoenix Tuner.
+   */
+  public DeployerIOTalonFX() {
+    // configure motors
+    final TalonFXConfiguration config = new TalonFXConfiguration();
+    // set controller gains
+    config.Slot0 = new Slot0Configs().withKP(kP).withKI(kI).withKD(kD).withKS(kS).withKV(kV)
+        .withKA(kA).withKG(kG).withGravityType(kGravityType);
+    // invert motors
+    config.MotorOutput.Inverted = kMotorInverted;
+    // set motor ratios
+    config.Feedback.SensorToMechanismRatio = kRatio;
+    // set current limit
+    config.CurrentLimits.StatorCurrentLimit = kCurrentLimit;
+    config.CurrentLimits.SupplyCurrentLimit = kCurrentLimit;
+    config.CurrentLimits.StatorCurrentLimitEnable = true;
+    config.CurrentLimits.SupplyCurrentLimitEnable = true;
+    // set brake
+    m_motor.setNeutralMode(NeutralModeValue.Brake);
+    // apply configuration
+    m_motor.getConfigurator().apply(config);
+    // the deployer starts retracted
+    m_motor.setPosition(kMaxPosition);
+    // hold it there
+    m_motor.setControl(m_output);
+  }
+
+  @Override
+  public void updateInputs(DeployerInputs inputs) {
+    BaseStatusSignal.refreshAll(m_position, m_velocity, m_appliedVoltage);
+    inputs.position = m_position.getValueAsDouble();
+    inputs.velocity = m_velocity.getValueAsDouble();
+    inputs.appliedVoltage = m_appliedVoltage.getValueAsDouble();
+  }
+
+  @Override
+  public void setTarget(double position) {
+    m_output.Position = position;
+    m_motor.setControl(m_output);
+  }
+
+  @Override
+  public void setVoltage(double voltage) {
+    m_motor.setControl(m_voltageOutput.withOutput(voltage));
+  }
+
+  @Override
+  public void resetPosition(double position) {
+    m_motor.setPosition(position);
+  }
+}
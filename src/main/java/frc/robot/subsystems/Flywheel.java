@@ -4,25 +4,15 @@ import static edu.wpi.first.units.MutableMeasure.mutable;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
-import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.units.Angle;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.MutableMeasure;
 import edu.wpi.first.units.Velocity;
 import edu.wpi.first.units.Voltage;
 import edu.wpi.first.util.sendable.SendableBuilder;
-import edu.wpi.first.wpilibj.RobotController;
-import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import com.ctre.phoenix6.Utils;
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.signals.NeutralModeValue;
-import com.ctre.phoenix6.sim.TalonFXSimState;
-import com.ctre.phoenix6.configs.Slot0Configs;
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.StaticBrake;
-import com.ctre.phoenix6.controls.VelocityVoltage;
-import com.ctre.phoenix6.controls.VoltageOut;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
 import static edu.wpi.first.units.Units.Rotations;
 import static edu.wpi.first.units.Units.RotationsPerSecond;
 import static edu.wpi.first.units.Units.Second;
@@ -35,19 +25,15 @@ import static frc.robot.Constants.Flywheel.*;
  * 
  */
 public class Flywheel extends SubsystemBase {
-  // init motors
-  private final TalonFX m_upperMotor = new TalonFX(kUpperMotorId, kUpperMotorBus);
-  private final TalonFX m_lowerMotor = new TalonFX(kLowerMotorId, kLowerMotorBus);
-  // control output objects
-  private final VelocityVoltage m_upperOutput = new VelocityVoltage(kUpperSpeed);
-  private final VelocityVoltage m_lowerOutput = new VelocityVoltage(kLowerSpeed);
-  // simulation objects
-  private final TalonFXSimState m_upperMotorSimState = m_upperMotor.getSimState();
-  private final TalonFXSimState m_lowerMotorSimState = m_lowerMotor.getSimState();
-  private final DCMotorSim m_upperMotorSim = new DCMotorSim(DCMotor.getFalcon500(1), 1, 0.001);
-  private final DCMotorSim m_lowerMotorSim = new DCMotorSim(DCMotor.getFalcon500(1), 1, 0.001);
+  // hardware, read once per loop
+  private final FlywheelIO m_io;
+  private final FlywheelIO.FlywheelInputs m_inputs = new FlywheelIO.FlywheelInputs();
+  private final InputLog.LoggedInputs m_loggedInputs =
+      InputLog.getInstance().loggedInputs("Flywheel", m_inputs);
+  // target velocities in rotations per second
+  private double m_upperTarget = kUpperSpeed;
+  private double m_lowerTarget = kLowerSpeed;
   // upper sysid routine
-  private final VoltageOut m_upperSysIdOutput = new VoltageOut(0);
   private final MutableMeasure<Voltage> m_upperAppliedVoltage = mutable(Volts.of(0));
   private final MutableMeasure<Angle> m_upperAngle = mutable(Rotations.of(0));
   private final MutableMeasure<Velocity<Angle>> m_upperVelocity = mutable(RotationsPerSecond.of(0));
@@ -55,18 +41,15 @@ public class Flywheel extends SubsystemBase {
       new SysIdRoutine.Config(Volts.of(kRampRate).per(Second), Volts.of(kStepVoltage),
           Seconds.of(kTimeout)),
       new SysIdRoutine.Mechanism((Measure<Voltage> volts) -> {
-        m_upperMotor.setControl(m_upperSysIdOutput.withOutput(volts.in(Volts)));
+        m_io.setUpperVoltage(volts.in(Volts));
       }, log -> {
         log.motor("Upper Flywheel")
-            .voltage(m_upperAppliedVoltage
-                .mut_replace(m_upperMotor.get() * RobotController.getBatteryVoltage(), Volts))
-            .angularPosition(
-                m_upperAngle.mut_replace(m_upperMotor.getPosition().getValueAsDouble(), Rotations))
-            .angularVelocity(m_upperVelocity
-                .mut_replace(m_upperMotor.getVelocity().getValueAsDouble(), RotationsPerSecond));
+            .voltage(m_upperAppliedVoltage.mut_replace(m_inputs.upperAppliedVoltage, Volts))
+            .angularPosition(m_upperAngle.mut_replace(m_inputs.upperPosition, Rotations))
+            .angularVelocity(
+                m_upperVelocity.mut_replace(m_inputs.upperVelocity, RotationsPerSecond));
       }, this));
   // lower sysid routine
-  private final VoltageOut m_lowerSysIdOutput = new VoltageOut(0);
   private final MutableMeasure<Voltage> m_lowerAppliedVoltage = mutable(Volts.of(0));
   private final MutableMeasure<Angle> m_lowerAngle = mutable(Rotations.of(0));
   private final MutableMeasure<Velocity<Angle>> m_lowerVelocity = mutable(RotationsPerSecond.of(0));
@@ -74,45 +57,27 @@ public class Flywheel extends SubsystemBase {
       new SysIdRoutine.Config(Volts.of(kRampRate).per(Second), Volts.of(kStepVoltage),
           Seconds.of(kTimeout)),
       new SysIdRoutine.Mechanism((Measure<Voltage> volts) -> {
-        m_lowerMotor.setControl(m_lowerSysIdOutput.withOutput(volts.in(Volts)));
+        m_io.setLowerVoltage(volts.in(Volts));
       }, log -> {
         log.motor("Lower Flywheel")
-            .voltage(m_lowerAppliedVoltage
-                .mut_replace(m_lowerMotor.get() * RobotController.getBatteryVoltage(), Volts))
-            .angularPosition(
-                m_lowerAngle.mut_replace(m_lowerMotor.getPosition().getValueAsDouble(), Rotations))
-            .angularVelocity(m_lowerVelocity
-                .mut_replace(m_lowerMotor.getVelocity().getValueAsDouble(), RotationsPerSecond));
+            .voltage(m_lowerAppliedVoltage.mut_replace(m_inputs.lowerAppliedVoltage, Volts))
+            .angularPosition(m_lowerAngle.mut_replace(m_inputs.lowerPosition, Rotations))
+            .angularVelocity(
+                m_lowerVelocity.mut_replace(m_inputs.lowerVelocity, RotationsPerSecond));
       }, this));
 
+  // profiling
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.getInstance().section("Flywheel.periodic");
+
   /**
-   * @brief FlywheelSubsystem constructor
+   * @brief Flywheel constructor
    * 
-   *        This is where the motors are configured. We configure them here so that we can swap
-   *        motors without having to worry about reconfiguring them in Phoenix Tuner.
+   * @param io the flywheel hardware
    */
-  public Flywheel() {
+  public Flywheel(FlywheelIO io) {
     super();
-    // configure motors
-    final TalonFXConfiguration upperConfig = new TalonFXConfiguration();
-    final TalonFXConfiguration lowerConfig = new TalonFXConfiguration();
-    // set controller gains
-    upperConfig.Slot0 = new Slot0Configs().withKP(kUpperKP).withKI(kUpperKI).withKD(kUpperKD)
-        .withKS(kUpperKS).withKV(kUpperKV).withKA(kUpperKA);
-    lowerConfig.Slot0 = new Slot0Configs().withKP(kLowerKP).withKI(kLowerKI).withKD(kLowerKD)
-        .withKS(kLowerKS).withKV(kLowerKV).withKA(kLowerKA);
-    // invert motors
-    upperConfig.MotorOutput.Inverted = kUpperMotorInverted;
-    lowerConfig.MotorOutput.Inverted = kLowerMotorInverted;
-    // set ratios
-    upperConfig.Feedback.SensorToMechanismRatio = kUpperRatio;
-    lowerConfig.Feedback.SensorToMechanismRatio = kLowerRatio;
-    // set neutral modes
-    m_upperMotor.setNeutralMode(kUpperNeutralMode);
-    m_lowerMotor.setNeutralMode(kLowerNeutralMode);
-    // apply configuration
-    m_upperMotor.getConfigurator().apply((upperConfig));
-    m_lowerMotor.getConfigurator().apply((lowerConfig));
+    m_io = io;
     // commands
     SmartDashboard.putData("Flywheel Forwards", this.forwards());
     SmartDashboard.putData("Flywheel Reverse", this.reverse());
@@ -125,7 +90,7 @@ public class Flywheel extends SubsystemBase {
    * @return double
    */
   public double getUpperVelocity() {
-    return m_upperMotor.getVelocity().getValueAsDouble();
+    return m_inputs.upperVelocity;
   }
 
   /**
@@ -134,7 +99,7 @@ public class Flywheel extends SubsystemBase {
    * @return double
    */
   public double getLowerVelocity() {
-    return m_lowerMotor.getVelocity().getValueAsDouble();
+    return m_inputs.lowerVelocity;
   }
 
   /**
@@ -143,8 +108,8 @@ public class Flywheel extends SubsystemBase {
    * @return boolean
    */
   public Boolean isAtSpeed() {
-    return Math.abs(kUpperSpeed - m_upperMotor.getVelocity().getValueAsDouble()) < kUpperTolerance
-        && Math.abs(kLowerSpeed - m_lowerMotor.getVelocity().getValueAsDouble()) < kLowerTolerance;
+    return Math.abs(kUpperSpeed - getUpperVelocity()) < kUpperTolerance
+        && Math.abs(kLowerSpeed - getLowerVelocity()) < kLowerTolerance;
   }
 
   /**
@@ -154,11 +119,10 @@ public class Flywheel extends SubsystemBase {
    * @return Command
    */
   public void setUpperSpeed(double speed) {
-    m_upperOutput.Velocity = speed;
-    m_upperMotor.setControl(m_upperOutput);
-    m_upperMotor.setNeutralMode(NeutralModeValue.Brake);
+    m_upperTarget = speed;
+    m_io.setUpperVelocity(speed);
     if (speed == 0.0)
-      m_lowerMotor.setControl(new StaticBrake());
+      m_io.brakeLower();
   }
 
   /**
@@ -168,11 +132,10 @@ public class Flywheel extends SubsystemBase {
    * @return Command
    */
   public void setLowerSpeed(double speed) {
-    m_lowerOutput.Velocity = speed;
-    m_lowerMotor.setControl(m_lowerOutput);
-    m_lowerMotor.setNeutralMode(NeutralModeValue.Brake);
+    m_lowerTarget = speed;
+    m_io.setLowerVelocity(speed);
     if (speed == 0.0)
-      m_lowerMotor.setControl(new StaticBrake());
+      m_io.brakeLower();
   }
 
   /**
@@ -276,28 +239,15 @@ public class Flywheel extends SubsystemBase {
   /**
    * @brief periodic update method
    * 
-   *        This method is called periodically by the scheduler. We use it to update the simulated
-   *        motors.
+   *        This method is called periodically by the scheduler. It reads the hardware once for the
+   *        loop.
    */
   @Override
   public void periodic() {
-    if (Utils.isSimulation()) {
-      // update simulated motors
-      // set supply voltage (voltage of the simulated battery)
-      m_upperMotorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
-      m_lowerMotorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
-      // set motor sim input voltage
-      m_upperMotorSim.setInputVoltage(m_upperMotorSimState.getMotorVoltage());
-      m_lowerMotorSim.setInputVoltage(m_lowerMotorSimState.getMotorVoltage());
-      // update motor sim
-      m_upperMotorSim.update(kSimLoopPeriod);
-      m_lowerMotorSim.update(kSimLoopPeriod);
-      // update motor sim state
-      m_upperMotorSimState.setRawRotorPosition(m_upperMotorSim.getAngularPositionRotations());
-      m_upperMotorSimState.setRotorVelocity(m_upperMotorSim.getAngularVelocityRPM() / 60.0);
-      m_lowerMotorSimState.setRawRotorPosition(m_lowerMotorSim.getAngularPositionRotations());
-      m_lowerMotorSimState.setRotorVelocity(m_lowerMotorSim.getAngularVelocityRPM() / 60.0);
-    }
+    m_periodicSection.start();
+    m_io.updateInputs(m_inputs);
+    m_loggedInputs.update();
+    m_periodicSection.stop();
   }
 
   /**
@@ -313,16 +263,14 @@ public class Flywheel extends SubsystemBase {
   public void initSendable(SendableBuilder builder) {
     super.initSendable(builder); // call the superclass method
     // add upper motor target velocity property
-    builder.addDoubleProperty("Upper Target Velocity", () -> m_upperOutput.Velocity,
+    builder.addDoubleProperty("Upper Target Velocity", () -> m_upperTarget,
         (double target) -> this.setUpperSpeed(target));
     // add upper motor measured velocity property
-    builder.addDoubleProperty("Upper Measured Velocity",
-        () -> m_upperMotor.getVelocity().getValueAsDouble(), null);
+    builder.addDoubleProperty("Upper Measured Velocity", this::getUpperVelocity, null);
     // add lower motor target velocity property
-    builder.addDoubleProperty("Lower Target Velocity", () -> m_lowerOutput.Velocity,
+    builder.addDoubleProperty("Lower Target Velocity", () -> m_lowerTarget,
         (double target) -> this.setLowerSpeed(target));
     // add lower motor measured velocity property
-    builder.addDoubleProperty("Lower Measured Velocity",
-        () -> m_lowerMotor.getVelocity().getValueAsDouble(), null);
+    builder.addDoubleProperty("Lower Measured Velocity", this::getLowerVelocity, null);
   }
 }
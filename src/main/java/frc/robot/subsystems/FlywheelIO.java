@@ -0,0 +1,88 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.InputLog;
+
+/**
+ * @brief Flywheel hardware
+ *
+ *        The default methods do nothing, which is what the flywheel uses in replay. Its inputs then
+ *        come from the log.
+ */
+public interface FlywheelIO {
+  /**
+   * @brief everything the flywheel reads from its hardware, once per loop
+   */
+  public static class FlywheelInputs implements InputLog.Inputs {
+    public double upperPosition = 0; // rotations
+    public double upperVelocity = 0; // rotations per second
+    public double upperAppliedVoltage = 0; // volts
+    public double lowerPosition = 0; // rotations
+    public double lowerVelocity = 0; // rotations per second
+    public double lowerAppliedVoltage = 0; // volts
+
+    @Override
+    public int size() {
+      return 6;
+    }
+
+    @Override
+    public void toArray(double[] out) {
+      out[0] = upperPosition;
+      out[1] = upperVelocity;
+      out[2] = upperAppliedVoltage;
+      out[3] = lowerPosition;
+      out[4] = lowerVelocity;
+      out[5] = lowerAppliedVoltage;
+    }
+
+    @Override
+    public void fromArray(double[] in) {
+      upperPosition = in[0];
+      upperVelocity = in[1];
+      upperAppliedVoltage = in[2];
+      lowerPosition = in[3];
+      lowerVelocity = in[4];
+      lowerAppliedVoltage = in[5];
+    }
+  }
+
+  /**
+   * @brief read the hardware
+   *
+   * @param inputs updated in place
+   */
+  default void updateInputs(FlywheelInputs inputs) {}
+
+  /**
+   * @brief spin the upper motor at a velocity, in brake mode
+   *
+   * @param velocity rotations per second
+   */
+  default void setUpperVelocity(double velocity) {}
+
+  /**
+   * @brief spin the lower motor at a velocity, in brake mode
+   *
+   * @param velocity rotations per second
+   */
+  default void setLowerVelocity(double velocity) {}
+
+  /**
+   * @brief hold the lower motor with a static brake
+   */
+  default void brakeLower() {}
+
+  /**
+   * @brief apply a voltage to the upper motor
+   *
+   * @param voltage volts
+   */
+  default void setUpperVoltage(double voltage) {}
+
+  /**
+   * @brief apply a voltage to the lower motor
+   *
+   * @param voltage volts
+   */
+  default void setLowerVoltage(double voltage) {}
+}
@@ -0,0 +1,53 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.sim.TalonFXSimState;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.util.MechanismSimulator;
+import frc.robot.util.NoteSimulator;
+
+/**
+ * @brief Simulated flywheel, the TalonFX hardware driving a motor model
+ */
+public class FlywheelIOSim extends FlywheelIOTalonFX {
+  // simulation objects
+  private final TalonFXSimState m_upperMotorSimState = m_upperMotor.getSimState();
+  private final TalonFXSimState m_lowerMotorSimState = m_lowerMotor.getSimState();
+  private final DCMotorSim m_upperMotorSim = new DCMotorSim(DCMotor.getFalcon500(1), 1, 0.001);
+  private final DCMotorSim m_lowerMotorSim = new DCMotorSim(DCMotor.getFalcon500(1), 1, 0.001);
+
+  /**
+   * @brief FlywheelIOSim constructor
+   */
+  public FlywheelIOSim() {
+    super();
+    MechanismSimulator.getInstance().register(this::update);
+    // the rollers move the simulated note
+    NoteSimulator.getInstance().setFlywheels(() -> m_upperMotorSim.getAngularVelocityRPM() / 60.0,
+        () -> m_lowerMotorSim.getAngularVelocityRPM() / 60.0);
+  }
+
+  /**
+   * @brief step the motors
+   *
+   * @param dt time step in seconds
+   */
+  private void update(double dt) {
+    // set supply voltage (voltage of the simulated battery)
+    m_upperMotorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
+    m_lowerMotorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
+    // set motor sim input voltage
+    m_upperMotorSim.setInputVoltage(m_upperMotorSimState.getMotorVoltage());
+    m_lowerMotorSim.setInputVoltage(m_lowerMotorSimState.getMotorVoltage());
+    // update motor sim
+    m_upperMotorSim.update(dt);
+    m_lowerMotorSim.update(dt);
+    // update motor sim state
+    m_upperMotorSimState.setRawRotorPosition(m_upperMotorSim.getAngularPositionRotations());
+    m_upperMotorSimState.setRotorVelocity(m_upperMotorSim.getAngularVelocityRPM() / 60.0);
+    m_lowerMotorSimState.setRawRotorPosition(m_lowerMotorSim.getAngularPositionRotations());
+    m_lowerMotorSimState.setRotorVelocity(m_lowerMotorSim.getAngularVelocityRPM() / 60.0);
+  }
+}
@@ -0,0 +1,104 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.StaticBrake;
+import com.ctre.phoenix6.controls.VelocityVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.NeutralModeValue;
+import static frc.robot.Constants.Flywheel.*;
+
+/**
+ * @brief Flywheel hardware, an upper and a lower TalonFX
+ */
+public class FlywheelIOTalonFX implements FlywheelIO {
+  // init motors
+  protected final TalonFX m_upperMotor = new TalonFX(kUpperMotorId, kUpperMotorBus);
+  protected final TalonFX m_lowerMotor = new TalonFX(kLowerMotorId, kLowerMotorBus);
+  // signals, refreshed together
+  private final StatusSignal<Double> m_upperPosition = m_upperMotor.getPosition();
+  private final StatusSignal<Double> m_upperVelocity = m_upperMotor.getVelocity();
+  private final StatusSignal<Double> m_upperAppliedVoltage = m_upperMotor.getMotorVoltage();
+  private final StatusSignal<Double> m_lowerPosition = m_lowerMotor.getPosition();
+  private final StatusSignal<Double> m_lowerVelocity = m_lowerMotor.getVelocity();
+  private final StatusSignal<Double> m_lowerAppliedVoltage = m_lowerMotor.getMotorVoltage();
+  // control output objects
+  private final VelocityVoltage m_upperOutput = new VelocityVoltage(kUpperSpeed);
+  private final VelocityVoltage m_lowerOutput = new VelocityVoltage(kLowerSpeed);
+  private final VoltageOut m_upperVoltageOutput = new VoltageOut(0);
+  private final VoltageOut m_lowerVoltageOutput = new VoltageOut(0);
+  private final StaticBrake m_brake = new StaticBrake();
+
+  /**
+   * @brief FlywheelIOTalonFX constructor
+   * 
+   *        This is where the motors are configured. We configure them here so that we can swap
+   *        motors without having to worry about reconfiguring them in Phoenix Tuner.
+   */
+  public FlywheelIOTalonFX() {
+    // configure motors
+    final TalonFXConfiguration upperConfig = new TalonFXConfiguration();
+    final TalonFXConfiguration lowerConfig = new TalonFXConfiguration();
+    // set controller gains
+    upperConfig.Slot0 = new Slot0Configs().withKP(kUpperKP).withKI(kUpperKI).withKD(kUpperKD)
+        .withKS(kUpperKS).withKV(kUpperKV).withKA(kUpperKA);
+    lowerConfig.Slot0 = new Slot0Configs().withKP(kLowerKP).withKI(kLowerKI).withKD(kLowerKD)
+        .withKS(kLowerKS).withKV(kLowerKV).withKA(kLowerKA);
+    // invert motors
+    upperConfig.MotorOutput.Inverted = kUpperMotorInverted;
+    lowerConfig.MotorOutput.Inverted = kLowerMotorInverted;
+    // set ratios
+    upperConfig.Feedback.SensorToMechanismRatio = kUpperRatio;
+    lowerConfig.Feedback.SensorToMechanismRatio = kLowerRatio;
+    // set neutral modes
+    m_upperMotor.setNeutralMode(kUpperNeutralMode);
+    m_lowerMotor.setNeutralMode(kLowerNeutralMode);
+    // apply configuration
+    m_upperMotor.getConfigurator().apply((upperConfig));
+    m_lowerMotor.getConfigurator().apply((lowerConfig));
+  }
+
+  @Override
+  public void updateInputs(FlywheelInputs inputs) {
+    BaseStatusSignal.refreshAll(m_upperPosition, m_upperVelocity, m_upperAppliedVoltage,
+        m_lowerPosition, m_lowerVelocity, m_lowerAppliedVoltage);
+    inputs.upperPosition = m_upperPosition.getValueAsDouble();
+    inputs.upperVelocity = m_upperVelocity.getValueAsDouble();
+    inputs.upperAppliedVoltage = m_upperAppliedVoltage.getValueAsDouble();
+    inputs.lowerPosition = m_lowerPosition.getValueAsDouble();
+    inputs.lowerVelocity = m_lowerVelocity.getValueAsDouble();
+    inputs.lowerAppliedVoltage = m_lowerAppliedVoltage.getValueAsDouble();
+  }
+
+  @Override
+  public void setUpperVelocity(double velocity) {
+    m_upperOutput.Velocity = velocity;
+    m_upperMotor.setControl(m_upperOutput);
+    m_upperMotor.setNeutralMode(NeutralModeValue.Brake);
+  }
+
+  @Override
+  public void setLowerVelocity(double velocity) {
+    m_lowerOutput.Velocity = velocity;
+    m_lowerMotor.setControl(m_lowerOutput);
+    m_lowerMotor.setNeutralMode(NeutralModeValue.Brake);
+  }
+
+  @Override
+  public void brakeLower() {
+    m_lowerMotor.setControl(m_brake);
+  }
+
+  @Override
+  public void setUpperVoltage(double voltage) {
+    m_upperMotor.setControl(m_upperVoltageOutput.withOutput(voltage));
+  }
+
+  @Override
+  public void setLowerVoltage(double voltage) {
+    m_lowerMotor.setControl(m_lowerVoltageOutput.withOutput(voltage));
+  }
+}
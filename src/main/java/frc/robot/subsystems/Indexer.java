@@ -4,20 +4,11 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
-import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.util.sendable.SendableBuilder;
-import edu.wpi.first.wpilibj.AnalogInput;
-import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.event.EventLoop;
-import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import com.ctre.phoenix6.Utils;
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.signals.NeutralModeValue;
-import com.ctre.phoenix6.sim.TalonFXSimState;
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.StaticBrake;
-import com.ctre.phoenix6.controls.VoltageOut;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
 import static frc.robot.Constants.Indexer.*;
 
 /**
@@ -25,38 +16,30 @@ import static frc.robot.Constants.Indexer.*;
  * 
  */
 public class Indexer extends SubsystemBase {
-  // init devices
-  private final AnalogInput m_beamBreak = new AnalogInput(kBeamBreakPort);
-  private final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
+  // hardware, read once per loop
+  private final IndexerIO m_io;
+  private final IndexerIO.IndexerInputs m_inputs = new IndexerIO.IndexerInputs();
+  private final InputLog.LoggedInputs m_loggedInputs =
+      InputLog.getInstance().loggedInputs("Indexer", m_inputs);
   // triggers and event loops
-  public final Trigger noteDetected = new Trigger(() -> m_beamBreak.getVoltage() < 0.83);
+  public final Trigger noteDetected = new Trigger(LoopProfiler.getInstance()
+      .timed("Indexer.noteDetected", this::isNoteDetected));
   private final EventLoop m_noteDetectedLoop = new EventLoop();
-  // control output objects
-  private final VoltageOut m_output = new VoltageOut(0);
-  // simulation objects
-  private final TalonFXSimState m_motorSimState = m_motor.getSimState();
-  private final DCMotorSim m_motorSim = new DCMotorSim(DCMotor.getFalcon500(1), 1, 0.001);
+  // target voltage
+  private double m_target = 0;
+
+  // profiling
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.getInstance().section("Indexer.periodic");
 
   /**
-   * @brief IndexerSubsystem constructor
+   * @brief Indexer constructor
    * 
-   *        This is where the motors are configured. We configure them here so that we can swap
-   *        motors without having to worry about reconfiguring them in Phoenix Tuner.
+   * @param io the indexer hardware
    */
-  public Indexer() {
+  public Indexer(IndexerIO io) {
     super();
-    // configure motors
-    final TalonFXConfiguration motorConfig = new TalonFXConfiguration();
-    // invert motors
-    motorConfig.MotorOutput.Inverted = kInverted;
-    // set gear ratio
-    motorConfig.Feedback.SensorToMechanismRatio = kRatio;
-    // set brake
-    m_motor.setNeutralMode(NeutralModeValue.Brake);
-    // apply configuration
-    m_motor.getConfigurator().apply((motorConfig));
-    // brake the motor
-    m_motor.setControl(new StaticBrake());
+    m_io = io;
     // commands
     SmartDashboard.putData("Indexer Load", this.load());
     SmartDashboard.putData("Indexer Slow Load", this.slowLoad());
@@ -71,13 +54,14 @@ public class Indexer extends SubsystemBase {
    * @return Boolean
    */
   public Boolean isNoteDetected() {
-    return m_beamBreak.getVoltage() < 0.83;
+    return m_inputs.beamBreakVoltage < 0.83;
   }
 
   /**
    * @brief Poll the note detector
    */
   public void pollNoteDetector() {
+    m_io.updateBeamBreak(m_inputs);
     m_noteDetectedLoop.poll();
   }
 
@@ -88,8 +72,8 @@ public class Indexer extends SubsystemBase {
    * @return Command
    */
   public void setSpeed(double speed) {
-    m_output.Output = speed;
-    m_motor.setControl(m_output);
+    m_target = speed;
+    m_io.setVoltage(speed);
   }
 
   /**
@@ -134,32 +118,23 @@ public class Indexer extends SubsystemBase {
    */
   public Command stop() {
     return this.runOnce(() -> {
-      m_output.Output = 0;
-      m_motor.setControl(m_output);
-      m_motor.setControl(new StaticBrake());
+      this.setSpeed(0);
+      m_io.brake();
     });
   }
 
   /**
    * @brief periodic update method
    * 
-   *        This method is called periodically by the scheduler. We use it to update the simulated
-   *        motors.
+   *        This method is called periodically by the scheduler. It reads the hardware once for the
+   *        loop.
    */
   @Override
   public void periodic() {
-    if (Utils.isSimulation()) {
-      // update simulated motors
-      // set supply voltage (voltage of the simulated battery)
-      m_motorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
-      // set motor sim input voltage
-      m_motorSim.setInputVoltage(m_motorSimState.getMotorVoltage());
-      // update motor sim
-      m_motorSim.update(kSimLoopPeriod);
-      // update motor sim state
-      m_motorSimState.setRawRotorPosition(m_motorSim.getAngularPositionRotations());
-      m_motorSimState.setRotorVelocity(m_motorSim.getAngularVelocityRPM() / 60.0);
-    }
+    m_periodicSection.start();
+    m_io.updateInputs(m_inputs);
+    m_loggedInputs.update();
+    m_periodicSection.stop();
   }
 
   /**
@@ -175,11 +150,10 @@ public class Indexer extends SubsystemBase {
   public void initSendable(SendableBuilder builder) {
     super.initSendable(builder); // call the superclass method
     // add target velocity property
-    builder.addDoubleProperty("Target Velocity", () -> m_output.Output,
+    builder.addDoubleProperty("Target Velocity", () -> m_target,
         (double target) -> this.setSpeed(target));
     // add measured velocity property
-    builder.addDoubleProperty("Measured Velocity", () -> m_motor.getVelocity().getValueAsDouble(),
-        null);
-    builder.addBooleanProperty("Note Detected", () -> m_beamBreak.getVoltage() < 0.83, null);
+    builder.addDoubleProperty("Measured Velocity", () -> m_inputs.velocity, null);
+    builder.addBooleanProperty("Note Detected", this::isNoteDetected, null);
   }
 }
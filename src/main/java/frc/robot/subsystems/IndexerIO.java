@@ -0,0 +1,65 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.InputLog;
+
+/**
+ * @brief Indexer hardware
+ *
+ *        The default methods do nothing, which is what the indexer uses in replay. Its inputs then
+ *        come from the log.
+ */
+public interface IndexerIO {
+  /**
+   * @brief everything the indexer reads from its hardware, once per loop
+   */
+  public static class IndexerInputs implements InputLog.Inputs {
+    public double velocity = 0; // rotations per second
+    public double appliedVoltage = 0; // volts
+    public double beamBreakVoltage = 0; // volts
+
+    @Override
+    public int size() {
+      return 3;
+    }
+
+    @Override
+    public void toArray(double[] out) {
+      out[0] = velocity;
+      out[1] = appliedVoltage;
+      out[2] = beamBreakVoltage;
+    }
+
+    @Override
+    public void fromArray(double[] in) {
+      velocity = in[0];
+      appliedVoltage = in[1];
+      beamBreakVoltage = in[2];
+    }
+  }
+
+  /**
+   * @brief read the hardware
+   *
+   * @param inputs updated in place
+   */
+  default void updateInputs(IndexerInputs inputs) {}
+
+  /**
+   * @brief read only the beam break, between loops
+   *
+   * @param inputs updated in place
+   */
+  default void updateBeamBreak(IndexerInputs inputs) {}
+
+  /**
+   * @brief apply a voltage
+   *
+   * @param voltage volts
+   */
+  default void setVoltage(double voltage) {}
+
+  /**
+   * @brief hold the motor with a static brake
+   */
+  default void brake() {}
+}
@@ -0,0 +1,72 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.StaticBrake;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.signals.NeutralModeValue;
+
+import edu.wpi.first.wpilibj.AnalogInput;
+import static frc.robot.Constants.Indexer.*;
+
+/**
+ * @brief Indexer hardware, a TalonFX and a beam break
+ */
+public class IndexerIOTalonFX implements IndexerIO {
+  // init devices
+  protected final AnalogInput m_beamBreak = new AnalogInput(kBeamBreakPort);
+  protected final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
+  // signals, refreshed together
+  private final StatusSignal<Double> m_velocity = m_motor.getVelocity();
+  private final StatusSignal<Double> m_appliedVoltage = m_motor.getMotorVoltage();
+  // control output objects
+  private final VoltageOut m_output = new VoltageOut(0);
+  private final StaticBrake m_brake = new StaticBrake();
+
+  /**
+   * @brief IndexerIOTalonFX constructor
+   * 
+   *        This is where the motors are configured. We configure them here so that we can swap
+   *        motors without having to worry about reconfiguring them in Phoenix Tuner.
+   */
+  public IndexerIOTalonFX() {
+    // configure motors
+    final TalonFXConfiguration motorConfig = new TalonFXConfiguration();
+    // invert motors
+    motorConfig.MotorOutput.Inverted = kInverted;
+    // set gear ratio
+    motorConfig.Feedback.SensorToMechanismRatio = kRatio;
+    // set brake
+    m_motor.setNeutralMode(NeutralModeValue.Brake);
+    // apply configuration
+    m_motor.getConfigurator().apply((motorConfig));
+    // brake the motor
+    m_motor.setControl(m_brake);
+  }
+
+  @Override
+  public void updateInputs(IndexerInputs inputs) {
+    BaseStatusSignal.refreshAll(m_velocity, m_appliedVoltage);
+    inputs.velocity = m_velocity.getValueAsDouble();
+    inputs.appliedVoltage = m_appliedVoltage.getValueAsDouble();
+    updateBeamBreak(inputs);
+  }
+
+  @Override
+  public void updateBeamBreak(IndexerInputs inputs) {
+    inputs.beamBreakVoltage = m_beamBreak.getVoltage();
+  }
+
+  @Override
+  public void setVoltage(double voltage) {
+    m_output.Output = voltage;
+    m_motor.setControl(m_output);
+  }
+
+  @Override
+  public void brake() {
+    m_motor.setControl(m_brake);
+  }
+}
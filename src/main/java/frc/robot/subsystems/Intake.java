@@ -3,18 +3,11 @@ package frc.robot.subsystems;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
-import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.util.sendable.SendableBuilder;
-import edu.wpi.first.wpilibj.AnalogInput;
-import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.event.EventLoop;
-import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import com.ctre.phoenix6.Utils;
-import com.ctre.phoenix6.hardware.TalonFX;
-import com.ctre.phoenix6.sim.TalonFXSimState;
-import com.ctre.phoenix6.configs.TalonFXConfiguration;
-import com.ctre.phoenix6.controls.VoltageOut;
+import frc.robot.util.InputLog;
+import frc.robot.util.LoopProfiler;
 import static frc.robot.Constants.Intake.*;
 
 /**
@@ -22,40 +15,30 @@ import static frc.robot.Constants.Intake.*;
  * 
  */
 public class Intake extends SubsystemBase {
-  // init devices
-  private final AnalogInput m_beamBreak = new AnalogInput(kBeamBreakPort);
-  private final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
+  // hardware, read once per loop
+  private final IntakeIO m_io;
+  private final IntakeIO.IntakeInputs m_inputs = new IntakeIO.IntakeInputs();
+  private final InputLog.LoggedInputs m_loggedInputs =
+      InputLog.getInstance().loggedInputs("Intake", m_inputs);
   // triggers and event loops
-  public final Trigger noteDetected = new Trigger(() -> m_beamBreak.getVoltage() > 0.83);
+  public final Trigger noteDetected = new Trigger(LoopProfiler.getInstance()
+      .timed("Intake.noteDetected", this::isNoteDetected));
   private final EventLoop m_noteDetectedLoop = new EventLoop();
-  // control outputs
-  private final VoltageOut m_output = new VoltageOut(0);
-  // simulation objects
-  private final TalonFXSimState m_motorSimState = m_motor.getSimState();
-  private final DCMotorSim m_motorSim = new DCMotorSim(DCMotor.getFalcon500(1), 1, 0.001);
+  // target voltage
+  private double m_target = 0;
+
+  // profiling
+  private final LoopProfiler.Section m_periodicSection =
+      LoopProfiler.getInstance().section("Intake.periodic");
 
   /**
-   * @brief IntakeSubsystem constructor
+   * @brief Intake constructor
    * 
-   *        This is where the motors are configured. We configure them here so
-   *        that we can swap
-   *        motors without having to worry about reconfiguring them in Phoenix
-   *        Tuner.
+   * @param io the intake hardware
    */
-  public Intake() {
+  public Intake(IntakeIO io) {
     super();
-    final TalonFXConfiguration config = new TalonFXConfiguration();
-    // set motor inversions
-    config.MotorOutput.Inverted = kMotorInverted;
-    // set motor ratios
-    config.Feedback.SensorToMechanismRatio = kRatio;
-    // current limit
-    config.CurrentLimits.StatorCurrentLimit = kCurrentLimit;
-    config.CurrentLimits.SupplyCurrentLimit = kCurrentLimit;
-    config.CurrentLimits.StatorCurrentLimitEnable = true;
-    config.CurrentLimits.SupplyCurrentLimitEnable = true;
-    // apply configuration
-    m_motor.getConfigurator().apply(config);
+    m_io = io;
     // commands
     SmartDashboard.putData("Intake Intake", this.intake());
     SmartDashboard.putData("Intake Slow Intake", this.slowIntake());
@@ -69,13 +52,14 @@ public class Intake extends SubsystemBase {
    * @return Boolean
    */
   public Boolean isNoteDetected() {
-    return m_beamBreak.getVoltage() > 0.83;
+    return m_inputs.beamBreakVoltage > 0.83;
   }
 
   /**
    * @brief Poll the note detector
    */
   public void pollNoteDetector() {
+    m_io.updateBeamBreak(m_inputs);
     m_noteDetectedLoop.poll();
   }
 
@@ -85,8 +69,8 @@ public class Intake extends SubsystemBase {
    * @return
    */
   public void setSpeed(double speed) {
-    m_output.Output = speed;
-    m_motor.setControl(m_output);
+    m_target = speed;
+    m_io.setVoltage(speed);
   }
 
   /**
@@ -155,24 +139,15 @@ public class Intake extends SubsystemBase {
   /**
    * @brief periodic update method
    * 
-   *        This method is called periodically by the scheduler. We use it to
-   *        update the simulated
-   *        motors.
+   *        This method is called periodically by the scheduler. It reads the hardware once for the
+   *        loop.
    */
   @Override
   public void periodic() {
-    if (Utils.isSimulation()) {
-      // update simulated motors
-      // set supply voltage (voltage of the simulated battery)
-      m_motorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
-      // set motor sim input voltage
-      m_motorSim.setInputVoltage(m_motorSimState.getMotorVoltage());
-      // update motor sim
-      m_motorSim.update(kSimLoopPeriod);
-      // update motor sim state
-      m_motorSimState.setRawRotorPosition(m_motorSim.getAngularPositionRotations());
-      m_motorSimState.setRotorVelocity(m_motorSim.getAngularVelocityRPM() / 60.0);
-    }
+    m_periodicSection.start();
+    m_io.updateInputs(m_inputs);
+    m_loggedInputs.update();
+    m_periodicSection.stop();
   }
 
   /**
@@ -191,11 +166,10 @@ public class Intake extends SubsystemBase {
   public void initSendable(SendableBuilder builder) {
     super.initSendable(builder); // call the superclass method
     // measured velocity
-    builder.addDoubleProperty("Measured Velocity", () -> m_motor.getVelocity().getValueAsDouble(),
-        null);
+    builder.addDoubleProperty("Measured Velocity", () -> m_inputs.velocity, null);
     // target velocity
-    builder.addDoubleProperty("Target Velocity", () -> m_output.Output,
+    builder.addDoubleProperty("Target Velocity", () -> m_target,
         (double target) -> this.setSpeed(target));
-    builder.addBooleanProperty("Note Detected", () -> m_beamBreak.getVoltage() > 0.83, null);
+    builder.addBooleanProperty("Note Detected", this::isNoteDetected, null);
   }
 }
@@ -0,0 +1,60 @@
+package frc.robot.subsystems;
+
+import frc.robot.util.InputLog;
+
+/**
+ * @brief Intake hardware
+ *
+ *        The default methods do nothing, which is what the intake uses in replay. Its inputs then
+ *        come from the log.
+ */
+public interface IntakeIO {
+  /**
+   * @brief everything the intake reads from its hardware, once per loop
+   */
+  public static class IntakeInputs implements InputLog.Inputs {
+    public double velocity = 0; // rotations per second
+    public double appliedVoltage = 0; // volts
+    public double beamBreakVoltage = 0; // volts
+
+    @Override
+    public int size() {
+      return 3;
+    }
+
+    @Override
+    public void toArray(double[] out) {
+      out[0] = velocity;
+      out[1] = appliedVoltage;
+      out[2] = beamBreakVoltage;
+    }
+
+    @Override
+    public void fromArray(double[] in) {
+      velocity = in[0];
+      appliedVoltage = in[1];
+      beamBreakVoltage = in[2];
+    }
+  }
+
+  /**
+   * @brief read the hardware
+   *
+   * @param inputs updated in place
+   */
+  default void updateInputs(IntakeInputs inputs) {}
+
+  /**
+   * @brief read only the beam break, between loops
+   *
+   * @param inputs updated in place
+   */
+  default void updateBeamBreak(IntakeInputs inputs) {}
+
+  /**
+   * @brief apply a voltage
+   *
+   * @param voltage volts
+   */
+  default void setVoltage(double voltage) {}
+}
@@ -0,0 +1,46 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.sim.TalonFXSimState;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import frc.robot.util.MechanismSimulator;
+import frc.robot.util.NoteSimulator;
+
+/**
+ * @brief Simulated intake, the TalonFX hardware driving a motor model
+ */
+public class IntakeIOSim extends IntakeIOTalonFX {
+  // simulation objects
+  private final TalonFXSimState m_motorSimState = m_motor.getSimState();
+  private final DCMotorSim m_motorSim = new DCMotorSim(DCMotor.getFalcon500(1), 1, 0.001);
+
+  /**
+   * @brief IntakeIOSim constructor
+   */
+  public IntakeIOSim() {
+    super();
+    MechanismSimulator.getInstance().register(this::update);
+    // the rollers move the simulated note
+    NoteSimulator.getInstance()
+        .setIntakeRoller(() -> m_motorSim.getAngularVelocityRPM() / 60.0);
+  }
+
+  /**
+   * @brief step the motor
+   *
+   * @param dt time step in seconds
+   */
+  private void update(double dt) {
+    // set supply voltage (voltage of the simulated battery)
+    m_motorSimState.setSupplyVoltage(RobotController.getBatteryVoltage());
+    // set motor sim input voltage
+    m_motorSim.setInputVoltage(m_motorSimState.getMotorVoltage());
+    // update motor sim
+    m_motorSim.update(dt);
+    // update motor sim state
+    m_motorSimState.setRawRotorPosition(m_motorSim.getAngularPositionRotations());
+    m_motorSimState.setRotorVelocity(m_motorSim.getAngularVelocityRPM() / 60.0);
+  }
+}
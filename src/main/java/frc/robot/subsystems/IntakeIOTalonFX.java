@@ -0,0 +1,64 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.configs.TalonFXConfiguration;
+import com.ctre.phoenix6.controls.VoltageOut;
+import com.ctre.phoenix6.hardware.TalonFX;
+
+import edu.wpi.first.wpilibj.AnalogInput;
+import static frc.robot.Constants.Intake.*;
+
+/**
+ * @brief Intake hardware, a TalonFX and a beam break
+ */
+public class IntakeIOTalonFX implements IntakeIO {
+  // init devices
+  protected final AnalogInput m_beamBreak = new AnalogInput(kBeamBreakPort);
+  protected final TalonFX m_motor = new TalonFX(kMotorId, kMotorBus);
+  // signals, refreshed together
+  private final StatusSignal<Double> m_velocity = m_motor.getVelocity();
+  private final StatusSignal<Double> m_appliedVoltage = m_motor.getMotorVoltage();
+  // control output objects
+  private final VoltageOut m_output = new VoltageOut(0);
+
+  /**
+   * @brief IntakeIOTalonFX constructor
+   * 
+   *        This is where the motors are configured. We configure them here so that we can swap
+   *        motors without having to worry about reconfiguring them in Phoenix Tuner.
+   */
+  public IntakeIOTalonFX() {
+    final TalonFXConfiguration config = new TalonFXConfiguration();
+    // set motor inversions
+    config.MotorOutput.Inverted = kMotorInverted;
+    // set motor ratios
+    config.Feedback.SensorToMechanismRatio = kRatio;
+    // current limit
+    config.CurrentLimits.StatorCurrentLimit = kCurrentLimit;
+    config.CurrentLimits.SupplyCurrentLimit = kCurrentLimit;
+    config.CurrentLimits.StatorCurrentLimitEnable = true;
+    config.CurrentLimits.SupplyCurrentLimitEnable = true;
+    // apply configuration
+    m_motor.getConfigurator().apply(config);
+  }
+
+  @Override
+  public void updateInputs(IntakeInputs inputs) {
+    BaseStatusSignal.refreshAll(m_velocity, m_appliedVoltage);
+    inputs.velocity = m_velocity.getValueAsDouble();
+    inputs.appliedVoltage = m_appliedVoltage.getValueAsDouble();
+    updateBeamBreak(inputs);
+  }
+
+  @Override
+  public void updateBeamBreak(IntakeInputs inputs) {
+    inputs.beamBreakVoltage = m_beamBreak.getVoltage();
+  }
+
+  @Override
+  public void setVoltage(double voltage) {
+    m_output.Output = voltage;
+    m_motor.setControl(m_output);
+  }
+}
@@ -0,0 +1,48 @@
+package frc.robot.util;
+
+import java.util.Optional;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * @brief The robot's alliance, read from the driver station once per loop
+ *
+ *        Path followers and drive controls ask for the alliance every tick. Reading it from
+ *        DriverStation every time allocates an Optional and takes the driver station's lock, so
+ *        Robot updates this once per loop and everything else reads the cached flag. Until the
+ *        alliance is known the robot is on the blue side, like PathPlanner assumes.
+ */
+public final class AllianceCache {
+  private static volatile boolean s_red = false;
+  private static volatile boolean s_known = false;
+
+  private AllianceCache() {}
+
+  /**
+   * @brief read the alliance from the driver station, called once per loop by Robot
+   */
+  public static void update() {
+    final Optional<Alliance> alliance = DriverStation.getAlliance();
+    s_known = alliance.isPresent();
+    s_red = s_known && alliance.get() == Alliance.Red;
+  }
+
+  /**
+   * @brief whether the robot is on the red alliance
+   *
+   * @return boolean false while the alliance isn't known
+   */
+  public static boolean isRed() {
+    return s_red;
+  }
+
+  /**
+   * @brief whether the driver station has sent the alliance yet
+   *
+   * @return boolean
+   */
+  public static boolean isKnown() {
+    return s_known;
+  }
+}
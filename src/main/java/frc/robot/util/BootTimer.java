@@ -0,0 +1,62 @@
+package frc.robot.util;
+
+import java.lang.management.ManagementFactory;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+
+/**
+ * @brief Times the phases of robotInit
+ *
+ *        Call start() when robotInit starts and phase() at the end of every phase. Every phase
+ *        is published in milliseconds under Boot in NetworkTables, recorded as an output in the
+ *        log and printed. ready() publishes the time from JVM start to the robot being ready, the
+ *        number to watch when boot time regresses.
+ *
+ *        Work that finishes in the background, like loading autos, can report itself with
+ *        record().
+ */
+public final class BootTimer {
+  private static final NetworkTable kTable = NetworkTableInstance.getDefault().getTable("Boot");
+  private static long s_phaseStart = System.nanoTime();
+
+  private BootTimer() {}
+
+  /**
+   * @brief start timing, publishing how long the JVM ran before robotInit
+   */
+  public static synchronized void start() {
+    s_phaseStart = System.nanoTime();
+    record("Before robotInit", ManagementFactory.getRuntimeMXBean().getUptime());
+  }
+
+  /**
+   * @brief end a phase and start the next one
+   *
+   * @param name name of the phase that ended
+   */
+  public static synchronized void phase(String name) {
+    final long now = System.nanoTime();
+    record(name, (now - s_phaseStart) / 1e6);
+    s_phaseStart = now;
+  }
+
+  /**
+   * @brief publish the time from JVM start to now, when the robot is ready
+   */
+  public static void ready() {
+    record("Ready", ManagementFactory.getRuntimeMXBean().getUptime());
+  }
+
+  /**
+   * @brief publish a time
+   *
+   * @param name what was timed
+   * @param millis how long it took, in milliseconds
+   */
+  public static synchronized void record(String name, double millis) {
+    kTable.getEntry(name + " (ms)").setDouble(millis);
+    InputLog.getInstance().recordOutput("Boot/" + name, millis);
+    System.out.printf("Boot: %s %.1f ms%n", name, millis);
+  }
+}
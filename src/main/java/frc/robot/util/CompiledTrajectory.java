@@ -0,0 +1,262 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.Field;
+
+/**
+ * @brief A Choreo trajectory compiled to columns of doubles, mapped from a file
+ *
+ *        The compileTrajectories task in build.gradle converts every deploy/choreo/[name].traj to
+ *        deploy/choreo/bin/[name].bin: an int magic, an int version and an int sample count,
+ *        followed by one column of doubles for each of t, x, y, heading, vx, vy and omega, all
+ *        little endian.
+ *
+ *        The file is memory mapped instead of read and parsed, so loading a trajectory costs a
+ *        few system calls and the samples stay off the heap. Sampling writes into a Sample owned
+ *        by the caller and allocates nothing. The sample before a time is found in constant time
+ *        from a uniform grid over the trajectory's duration, built at load, whose cells are no
+ *        wider than the closest two samples.
+ */
+public final class CompiledTrajectory {
+  public static final int kMagic = 0x4A415254; // "TRAJ" in little endian
+  public static final int kVersion = 1;
+  private static final int kHeaderBytes = 12;
+  // columns, in file order
+  private static final int kTime = 0;
+  private static final int kX = 1;
+  private static final int kY = 2;
+  private static final int kHeading = 3;
+  private static final int kVx = 4;
+  private static final int kVy = 5;
+  private static final int kOmega = 6;
+  private static final int kColumns = 7;
+  // bounds the grid for trajectories with very close samples
+  private static final int kMaxCellsPerSample = 16;
+
+  /**
+   * @brief A trajectory sample, reused between calls to sample()
+   */
+  public static final class Sample {
+    public double t;
+    public double x;
+    public double y;
+    public double heading; // radians
+    public double vx; // field relative, meters per second
+    public double vy;
+    public double omega; // radians per second
+  }
+
+  private final String m_name;
+  private final DoubleBuffer m_data;
+  private final int m_count;
+  // index of the last sample at or before the start of every cell
+  private final int[] m_grid;
+  private final double m_cellWidth;
+  // the same trajectory on the red side of the field, created on first use
+  private CompiledTrajectory m_mirrored = null;
+
+  private CompiledTrajectory(String name, DoubleBuffer data, int count) {
+    m_name = name;
+    m_data = data;
+    m_count = count;
+    final double start = get(kTime, 0);
+    final double duration = getTotalTime() - start;
+    double minSpacing = Double.POSITIVE_INFINITY;
+    for (int i = 0; i + 1 < count; i++) {
+      final double spacing = get(kTime, i + 1) - get(kTime, i);
+      if (spacing > 0)
+        minSpacing = Math.min(minSpacing, spacing);
+    }
+    m_cellWidth = duration > 0
+        ? Math.max(Math.min(minSpacing, duration), duration / (kMaxCellsPerSample * count))
+        : 1;
+    m_grid = new int[(int) (duration / m_cellWidth) + 1];
+    int index = 0;
+    for (int cell = 0; cell < m_grid.length; cell++) {
+      final double time = start + cell * m_cellWidth;
+      while (index + 1 < count && get(kTime, index + 1) <= time)
+        index++;
+      m_grid[cell] = index;
+    }
+  }
+
+  /**
+   * @brief load a compiled trajectory from the deploy directory
+   *
+   * @param name name of the trajectory, without extension
+   * @return CompiledTrajectory
+   * @throws IOException if the file is missing or not a compiled trajectory
+   */
+  public static CompiledTrajectory load(String name) throws IOException {
+    return load(name,
+        new File(Filesystem.getDeployDirectory(), "choreo/bin/" + name + ".bin").toPath());
+  }
+
+  /**
+   * @brief load a compiled trajectory
+   *
+   * @param name name of the trajectory
+   * @param path the compiled file
+   * @return CompiledTrajectory
+   * @throws IOException if the file is missing or not a compiled trajectory
+   */
+  public static CompiledTrajectory load(String name, Path path) throws IOException {
+    final ByteBuffer buffer;
+    // the mapping stays valid after the channel is closed
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+          .order(ByteOrder.LITTLE_ENDIAN);
+    }
+    if (buffer.capacity() < kHeaderBytes || buffer.getInt(0) != kMagic)
+      throw new IOException(path + " is not a compiled trajectory");
+    if (buffer.getInt(4) != kVersion)
+      throw new IOException(path + " was compiled by another version, rebuild the project");
+    final int count = buffer.getInt(8);
+    if (count < 1 || buffer.capacity() != kHeaderBytes + (long) count * kColumns * Double.BYTES)
+      throw new IOException(path + " is truncated");
+    final DoubleBuffer data = buffer.position(kHeaderBytes).slice()
+        .order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    return new CompiledTrajectory(name, data, count);
+  }
+
+  /**
+   * @brief get the name of the trajectory
+   *
+   * @return String
+   */
+  public String getName() {
+    return m_name;
+  }
+
+  /**
+   * @brief get this trajectory mirrored to the red side of the field
+   *
+   *        The mirror is computed once, on the first call, and kept on the heap. The field is
+   *        mirrored across its center line, like Choreo does for the red alliance.
+   *
+   * @return CompiledTrajectory
+   */
+  public synchronized CompiledTrajectory mirrored() {
+    if (m_mirrored == null) {
+      final DoubleBuffer data = DoubleBuffer.allocate(m_count * kColumns);
+      for (int i = 0; i < m_count; i++) {
+        data.put(kTime * m_count + i, get(kTime, i));
+        data.put(kX * m_count + i, Field.kFieldLength - get(kX, i));
+        data.put(kY * m_count + i, get(kY, i));
+        data.put(kHeading * m_count + i, MathUtil.angleModulus(Math.PI - get(kHeading, i)));
+        data.put(kVx * m_count + i, -get(kVx, i));
+        data.put(kVy * m_count + i, get(kVy, i));
+        data.put(kOmega * m_count + i, -get(kOmega, i));
+      }
+      m_mirrored = new CompiledTrajectory(m_name, data, m_count);
+      m_mirrored.m_mirrored = this;
+    }
+    return m_mirrored;
+  }
+
+  /**
+   * @brief get the number of samples
+   *
+   * @return int
+   */
+  public int getSampleCount() {
+    return m_count;
+  }
+
+  /**
+   * @brief get the time the trajectory ends at
+   *
+   * @return double seconds
+   */
+  public double getTotalTime() {
+    return get(kTime, m_count - 1);
+  }
+
+  /**
+   * @brief sample the trajectory, interpolating between the stored samples
+   *
+   *        Times outside the trajectory are clamped to its ends.
+   *
+   * @param time seconds since the start of the trajectory
+   * @param out the sample to write to
+   * @return Sample out
+   */
+  public Sample sample(double time, Sample out) {
+    final int index = findSample(time);
+    if (index == m_count - 1) {
+      read(index, out);
+      out.t = time;
+      return out;
+    }
+    final double t0 = get(kTime, index);
+    final double t1 = get(kTime, index + 1);
+    final double frac = MathUtil.clamp((time - t0) / (t1 - t0), 0, 1);
+    out.t = time;
+    out.x = lerp(kX, index, frac);
+    out.y = lerp(kY, index, frac);
+    final double heading = get(kHeading, index);
+    out.heading = MathUtil
+        .angleModulus(heading + MathUtil.angleModulus(get(kHeading, index + 1) - heading) * frac);
+    out.vx = lerp(kVx, index, frac);
+    out.vy = lerp(kVy, index, frac);
+    out.omega = lerp(kOmega, index, frac);
+    return out;
+  }
+
+  /**
+   * @brief read a stored sample
+   *
+   * @param index index of the sample
+   * @param out the sample to write to
+   * @return Sample out
+   */
+  public Sample read(int index, Sample out) {
+    out.t = get(kTime, index);
+    out.x = get(kX, index);
+    out.y = get(kY, index);
+    out.heading = get(kHeading, index);
+    out.vx = get(kVx, index);
+    out.vy = get(kVy, index);
+    out.omega = get(kOmega, index);
+    return out;
+  }
+
+  /**
+   * @brief find the last sample at or before a time
+   *
+   * @param time seconds since the start of the trajectory
+   * @return int sample index, 0 before the start
+   */
+  private int findSample(double time) {
+    final double offset = time - get(kTime, 0);
+    if (!(offset > 0))
+      return 0;
+    final int cell = (int) (offset / m_cellWidth);
+    if (cell >= m_grid.length)
+      return m_count - 1;
+    // at most one step, unless the grid was bounded
+    int index = m_grid[cell];
+    while (index + 1 < m_count && get(kTime, index + 1) <= time)
+      index++;
+    return index;
+  }
+
+  private double get(int column, int index) {
+    return m_data.get(column * m_count + index);
+  }
+
+  private double lerp(int column, int index, double frac) {
+    final double start = get(column, index);
+    return start + (get(column, index + 1) - start) * frac;
+  }
+}
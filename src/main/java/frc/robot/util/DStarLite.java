@@ -0,0 +1,362 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * @brief Paths on the navgrid that are repaired when obstacles move, with D* Lite
+ *
+ *        Koenig and Likhachev, "D* Lite". The search runs backward from the goal, so every cell
+ *        it settled keeps its distance to the goal. When obstacles appear or go, only the cells
+ *        next to the ones that changed are queued again, and the search fixes the distances the
+ *        change reaches. A replan costs in proportion to the change, not the field. The robot
+ *        moving only shifts the heuristic, which is folded into km instead of requeueing cells.
+ *
+ *        Moves and costs are the same as GridPathfinder's, and paths are string pulled the same
+ *        way. Not thread safe, a planner belongs to the command that uses it.
+ */
+public final class DStarLite {
+  private static final double kSqrt2 = Math.sqrt(2);
+  // keeps the heuristic under the summed move costs after rounding, or cells on the path whose
+  // key ties the robot's are left stale and the path can't be traced
+  private static final double kHeuristicScale = 1 - 1e-9;
+
+  // the navgrid without the obstacles, then with them
+  private final NavGrid m_grid;
+  private NavGrid m_current;
+  private long[] m_obstacles;
+  private final int m_width;
+  private final int m_height;
+
+  // distance to the goal, then the distance through the best neighbour
+  private final double[] m_g;
+  private final double[] m_rhs;
+  // open list, a binary heap of cells, with the key of every cell and its place in the heap
+  private final int[] m_heap;
+  private final int[] m_heapIndex;
+  private final double[] m_key;
+  private final double[] m_tieKey;
+  private int m_heapSize = 0;
+
+  private Translation2d m_goalPoint = null;
+  private int m_goal = -1;
+  private int m_start = -1;
+  // added to every key as the robot moves, so the queued keys stay lower bounds
+  private double m_km = 0;
+  private int m_expansions = 0;
+
+  // the last path, as cells from start to goal
+  private final int[] m_path;
+  private int m_pathLength = 0;
+
+  /**
+   * @brief DStarLite constructor, allocates everything the planner uses
+   *
+   * @param grid the navgrid, without obstacles
+   */
+  public DStarLite(NavGrid grid) {
+    m_grid = grid;
+    m_current = grid;
+    m_obstacles = grid.newObstacles();
+    m_width = grid.getWidth();
+    m_height = grid.getHeight();
+    final int cells = m_width * m_height;
+    m_g = new double[cells];
+    m_rhs = new double[cells];
+    m_heap = new int[cells];
+    m_heapIndex = new int[cells];
+    m_key = new double[cells];
+    m_tieKey = new double[cells];
+    m_path = new int[cells];
+    Arrays.fill(m_heapIndex, -1);
+  }
+
+  /**
+   * @brief get the navgrid with the current obstacles
+   *
+   * @return NavGrid
+   */
+  public NavGrid getGrid() {
+    return m_current;
+  }
+
+  /**
+   * @brief get the number of cells the last plan or replan expanded
+   *
+   * @return int
+   */
+  public int getExpansions() {
+    return m_expansions;
+  }
+
+  /**
+   * @brief search from scratch to a new goal
+   *
+   * @param start where the robot is (meters)
+   * @param goal where the robot should go (meters), moved to the nearest free cell if blocked
+   * @param obstacles one bit per cell, from NavGrid.newObstacles() and kept by the planner, null
+   *        to keep the last ones
+   * @return boolean whether the goal can be reached
+   */
+  public boolean plan(Translation2d start, Translation2d goal, long[] obstacles) {
+    if (obstacles != null) {
+      m_current = m_grid.withObstacles(obstacles);
+      m_obstacles = obstacles;
+    }
+    Arrays.fill(m_g, Double.POSITIVE_INFINITY);
+    Arrays.fill(m_rhs, Double.POSITIVE_INFINITY);
+    for (int i = 0; i < m_heapSize; i++) {
+      m_heapIndex[m_heap[i]] = -1;
+    }
+    m_heapSize = 0;
+    m_km = 0;
+    m_pathLength = 0;
+    m_goalPoint = goal;
+    // moved out of the navgrid's obstacles only, the others may leave the goal
+    m_goal = m_grid.nearestFree(m_grid.cellAt(goal.getX(), goal.getY()));
+    m_start = m_current.nearestFree(m_current.cellAt(start.getX(), start.getY()));
+    if (m_goal < 0 || m_start < 0)
+      return false;
+    m_rhs[m_goal] = 0;
+    queue(m_goal);
+    return computeShortestPath();
+  }
+
+  /**
+   * @brief move the robot and change the obstacles, then repair the path
+   *
+   * @param start where the robot is (meters)
+   * @param obstacles one bit per cell, from NavGrid.newObstacles() and kept by the planner, null
+   *        if they haven't changed
+   * @return boolean whether the goal can still be reached
+   */
+  public boolean replan(Translation2d start, long[] obstacles) {
+    if (m_goalPoint == null)
+      return false;
+    final long[] previous = m_obstacles;
+    if (obstacles != null) {
+      m_current = m_grid.withObstacles(obstacles);
+      m_obstacles = obstacles;
+    }
+    // nothing was searched, the robot or the goal was in an obstacle
+    if (m_goal < 0 || m_start < 0)
+      return plan(start, m_goalPoint, null);
+    final int startCell = m_current.nearestFree(m_current.cellAt(start.getX(), start.getY()));
+    if (startCell < 0)
+      return false;
+    m_km += heuristic(m_start, startCell);
+    m_start = startCell;
+    if (obstacles != null) {
+      for (int i = 0; i < previous.length; i++) {
+        long changed = previous[i] ^ obstacles[i];
+        while (changed != 0) {
+          final int cell = (i << 6) + Long.numberOfTrailingZeros(changed);
+          changed &= changed - 1;
+          // the costs of every move into and out of the cell and past its corners changed
+          updateAround(cell);
+          updateVertex(cell);
+        }
+      }
+    }
+    return computeShortestPath();
+  }
+
+  /**
+   * @brief find the corners of the path from the robot to the goal
+   *
+   * @param start where the robot is (meters), in the cell of the last plan or replan
+   * @return List<Translation2d> from start to goal, null if there is no path or the goal is
+   *         where the robot is
+   */
+  public List<Translation2d> getWaypoints(Translation2d start) {
+    if (m_pathLength == 0 || start.getDistance(m_goalPoint) < m_grid.getCellSize() / 2)
+      return null;
+    return m_current.toWaypoints(start, m_path, m_pathLength, m_goalPoint);
+  }
+
+  /**
+   * @brief settle cells until the robot's cell has its distance to the goal, then trace the path
+   */
+  private boolean computeShortestPath() {
+    m_expansions = 0;
+    while (m_heapSize > 0) {
+      final int cell = m_heap[0];
+      final double startMin = Math.min(m_g[m_start], m_rhs[m_start]);
+      final double startKey = startMin + m_km;
+      if (!less(m_key[cell], m_tieKey[cell], startKey, startMin)
+          && m_rhs[m_start] == m_g[m_start])
+        break;
+      m_expansions++;
+      final double min = Math.min(m_g[cell], m_rhs[cell]);
+      final double key = min + heuristic(m_start, cell) + m_km;
+      if (less(m_key[cell], m_tieKey[cell], key, min)) {
+        // queued before the robot moved
+        m_key[cell] = key;
+        m_tieKey[cell] = min;
+        siftDown(0);
+      } else if (m_g[cell] > m_rhs[cell]) {
+        m_g[cell] = m_rhs[cell];
+        remove(cell);
+        updateAround(cell);
+      } else {
+        m_g[cell] = Double.POSITIVE_INFINITY;
+        updateVertex(cell);
+        updateAround(cell);
+      }
+    }
+    tracePath();
+    return m_pathLength > 0;
+  }
+
+  /**
+   * @brief recompute a cell's distance through its neighbours, and queue it if that changed it
+   */
+  private void updateVertex(int cell) {
+    if (cell != m_goal) {
+      double rhs = Double.POSITIVE_INFINITY;
+      if (!m_current.isBlocked(cell)) {
+        final int cellX = cell % m_width;
+        final int cellY = cell / m_width;
+        for (int i = 0; i < NavGrid.kNeighbours; i++) {
+          final int neighbour = m_current.neighbour(cellX, cellY, i);
+          if (neighbour >= 0)
+            rhs = Math.min(rhs, m_g[neighbour] + NavGrid.neighbourCost(i));
+        }
+      }
+      m_rhs[cell] = rhs;
+    }
+    if (m_g[cell] != m_rhs[cell])
+      queue(cell);
+    else
+      remove(cell);
+  }
+
+  /**
+   * @brief update the eight cells around a cell, whether or not they are blocked
+   */
+  private void updateAround(int cell) {
+    final int cellX = cell % m_width;
+    final int cellY = cell / m_width;
+    for (int y = Math.max(cellY - 1, 0); y <= Math.min(cellY + 1, m_height - 1); y++) {
+      for (int x = Math.max(cellX - 1, 0); x <= Math.min(cellX + 1, m_width - 1); x++) {
+        if (x != cellX || y != cellY)
+          updateVertex(x + y * m_width);
+      }
+    }
+  }
+
+  /**
+   * @brief follow the distances from the robot's cell down to the goal, then string pull
+   */
+  private void tracePath() {
+    m_pathLength = 0;
+    if (m_g[m_start] == Double.POSITIVE_INFINITY)
+      return;
+    int cell = m_start;
+    m_path[m_pathLength++] = cell;
+    while (cell != m_goal) {
+      final int cellX = cell % m_width;
+      final int cellY = cell / m_width;
+      int best = -1;
+      double bestCost = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < NavGrid.kNeighbours; i++) {
+        final int neighbour = m_current.neighbour(cellX, cellY, i);
+        if (neighbour >= 0 && m_g[neighbour] + NavGrid.neighbourCost(i) < bestCost) {
+          best = neighbour;
+          bestCost = m_g[neighbour] + NavGrid.neighbourCost(i);
+        }
+      }
+      // a path is never longer than the grid, anything else is a loop
+      if (best < 0 || m_pathLength == m_path.length) {
+        m_pathLength = 0;
+        return;
+      }
+      cell = best;
+      m_path[m_pathLength++] = cell;
+    }
+    if (m_pathLength == 1)
+      m_path[m_pathLength++] = cell;
+    m_pathLength = m_current.stringPull(m_path, m_pathLength);
+  }
+
+  /**
+   * @brief octile distance between two cells, the length of the shortest path with no obstacles
+   */
+  private double heuristic(int from, int to) {
+    final int dx = Math.abs(from % m_width - to % m_width);
+    final int dy = Math.abs(from / m_width - to / m_width);
+    return (Math.max(dx, dy) + (kSqrt2 - 1) * Math.min(dx, dy)) * kHeuristicScale;
+  }
+
+  private static boolean less(double key, double tieKey, double otherKey, double otherTieKey) {
+    return key < otherKey || (key == otherKey && tieKey < otherTieKey);
+  }
+
+  /**
+   * @brief put a cell on the open list with its current key, or move it if it is already there
+   */
+  private void queue(int cell) {
+    final double min = Math.min(m_g[cell], m_rhs[cell]);
+    m_key[cell] = min + heuristic(m_start, cell) + m_km;
+    m_tieKey[cell] = min;
+    int index = m_heapIndex[cell];
+    if (index < 0) {
+      index = m_heapSize++;
+      m_heap[index] = cell;
+      m_heapIndex[cell] = index;
+    }
+    siftDown(siftUp(index));
+  }
+
+  private void remove(int cell) {
+    final int index = m_heapIndex[cell];
+    if (index < 0)
+      return;
+    m_heapIndex[cell] = -1;
+    final int last = m_heap[--m_heapSize];
+    if (index == m_heapSize)
+      return;
+    m_heap[index] = last;
+    m_heapIndex[last] = index;
+    siftDown(siftUp(index));
+  }
+
+  private int siftUp(int index) {
+    final int cell = m_heap[index];
+    while (index > 0) {
+      final int parent = (index - 1) / 2;
+      final int parentCell = m_heap[parent];
+      if (!less(m_key[cell], m_tieKey[cell], m_key[parentCell], m_tieKey[parentCell]))
+        break;
+      m_heap[index] = parentCell;
+      m_heapIndex[parentCell] = index;
+      index = parent;
+    }
+    m_heap[index] = cell;
+    m_heapIndex[cell] = index;
+    return index;
+  }
+
+  private void siftDown(int index) {
+    final int cell = m_heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= m_heapSize)
+        break;
+      final int right = child + 1;
+      if (right < m_heapSize && less(m_key[m_heap[right]], m_tieKey[m_heap[right]],
+          m_key[m_heap[child]], m_tieKey[m_heap[child]]))
+        child = right;
+      final int childCell = m_heap[child];
+      if (!less(m_key[childCell], m_tieKey[childCell], m_key[cell], m_tieKey[cell]))
+        break;
+      m_heap[index] = childCell;
+      m_heapIndex[childCell] = index;
+      index = child;
+    }
+    m_heap[index] = cell;
+    m_heapIndex[cell] = index;
+  }
+}
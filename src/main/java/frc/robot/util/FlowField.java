@@ -0,0 +1,133 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * @brief The way to one goal from every cell of the navgrid
+ *
+ *        Built once with a Dijkstra search outward from the goal, which leaves every free cell
+ *        with its cost to the goal and the neighbour to go to next. A path from anywhere is then
+ *        read off by following the next cells, in time proportional to its length, and string
+ *        pulled like GridPathfinder's paths. It never searches, so it takes the same time from
+ *        across the field as from next to the goal.
+ *
+ *        A field leads to a cell, not a point, so every goal in that cell shares it. Immutable
+ *        once built, any thread can read paths from it.
+ */
+public final class FlowField {
+  private final NavGrid m_grid;
+  private final int m_goalCell;
+  // cells to the goal, infinite where the goal can't be reached
+  private final float[] m_cost;
+  // the next cell toward the goal, -1 at the goal and where it can't be reached
+  private final int[] m_next;
+
+  /**
+   * @brief FlowField constructor, computes the field
+   *
+   * @param grid the navgrid
+   * @param goalCell the goal's cell, moved to the nearest free cell if it is blocked
+   */
+  public FlowField(NavGrid grid, int goalCell) {
+    m_grid = grid;
+    final int cells = grid.getWidth() * grid.getHeight();
+    m_cost = new float[cells];
+    m_next = new int[cells];
+    Arrays.fill(m_cost, Float.POSITIVE_INFINITY);
+    Arrays.fill(m_next, -1);
+    m_goalCell = grid.nearestFree(goalCell);
+    if (m_goalCell < 0)
+      return;
+
+    // costs are positive, so their bits sort like the costs, and the cell fits below them
+    final PriorityQueue<Long> open = new PriorityQueue<>();
+    m_cost[m_goalCell] = 0;
+    open.add(encode(0, m_goalCell));
+    while (!open.isEmpty()) {
+      final long entry = open.poll();
+      final int cell = (int) entry;
+      final float cost = Float.intBitsToFloat((int) (entry >>> 32));
+      // a cheaper way to this cell was found after this entry was queued
+      if (cost > m_cost[cell])
+        continue;
+      final int cellX = cell % grid.getWidth();
+      final int cellY = cell / grid.getWidth();
+      for (int i = 0; i < NavGrid.kNeighbours; i++) {
+        final int neighbour = grid.neighbour(cellX, cellY, i);
+        if (neighbour < 0)
+          continue;
+        final float neighbourCost = cost + (float) NavGrid.neighbourCost(i);
+        if (neighbourCost < m_cost[neighbour]) {
+          m_cost[neighbour] = neighbourCost;
+          m_next[neighbour] = cell;
+          open.add(encode(neighbourCost, neighbour));
+        }
+      }
+    }
+  }
+
+  /**
+   * @brief get the cell the field leads to
+   *
+   * @return int cell index, -1 if every cell is blocked
+   */
+  public int getGoalCell() {
+    return m_goalCell;
+  }
+
+  /**
+   * @brief read the path from a cell to the goal
+   *
+   * @param startCell the cell the robot is in, moved to the nearest free cell if blocked
+   * @param out where to write the string pulled path, long enough for the path before pulling,
+   *        which an array with a slot per cell of the grid always is
+   * @return int number of cells in the path, 0 if the goal can't be reached
+   */
+  public int trace(int startCell, int[] out) {
+    int cell = m_grid.nearestFree(startCell);
+    if (cell < 0 || m_cost[cell] == Float.POSITIVE_INFINITY)
+      return 0;
+    int length = 0;
+    out[length++] = cell;
+    while (cell != m_goalCell) {
+      cell = m_next[cell];
+      out[length++] = cell;
+    }
+    if (length == 1)
+      out[length++] = cell;
+    return m_grid.stringPull(out, length);
+  }
+
+  /**
+   * @brief find the corners of the path from a point to the goal
+   *
+   * @param start where the robot is (meters)
+   * @param goal where the robot should go, in the field's goal cell (meters)
+   * @return List<Translation2d> from start to goal, null if the goal can't be reached or is
+   *         where the robot is
+   */
+  public List<Translation2d> findWaypoints(Translation2d start, Translation2d goal) {
+    if (start.getDistance(goal) < m_grid.getCellSize() / 2)
+      return null;
+    final int startCell = m_grid.cellAt(start.getX(), start.getY());
+    // one walk to size the path, one to read it
+    int steps = 1;
+    for (int cell = m_grid.nearestFree(startCell); cell >= 0 && cell != m_goalCell;
+        cell = m_next[cell]) {
+      steps++;
+    }
+    final int[] cells = new int[Math.max(steps, 2)];
+    final int length = trace(startCell, cells);
+    if (length == 0)
+      return null;
+    return m_grid.toWaypoints(start, cells, length, goal);
+  }
+
+  private static long encode(float cost, int cell) {
+    return (long) Float.floatToIntBits(cost) << 32 | cell;
+  }
+}
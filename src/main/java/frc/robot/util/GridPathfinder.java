@@ -0,0 +1,384 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.Pathfinding;
+
+/**
+ * @brief Finds any-angle paths on the navgrid
+ *
+ *        Searches with Lazy Theta*: A* over the eight neighbours of every cell, where a cell's
+ *        parent can be any cell it can see instead of only a neighbour. Line of sight is checked
+ *        once per expanded cell, when the cell is taken off the open list, so a search costs about
+ *        as much as a plain A* on this small grid. The path is then string pulled, dropping every
+ *        waypoint the robot can drive past in a straight line, and turned into a PathPlannerPath.
+ *
+ *        All search state is allocated once, for the size of the grid. A search only bumps a
+ *        generation number instead of clearing it, so planning allocates nothing until the path
+ *        is built. Searches are synchronized, one runs at a time.
+ *
+ *        Goals used all the time can be registered with addFlowFieldGoals(). The first path to a
+ *        registered goal cell computes its FlowField on a background thread, later paths are read
+ *        from the field instead of searched.
+ *
+ *        PathfinderBenchmark measures the queries over random start and goal cells.
+ */
+public final class GridPathfinder {
+  private static GridPathfinder s_instance = null;
+  private static boolean s_loaded = false;
+
+  private final NavGrid m_grid;
+  private final int m_width;
+  // search state, per cell, valid where m_visited is the current generation
+  private final double[] m_cost;
+  private final int[] m_parent;
+  private final int[] m_visited;
+  private final int[] m_closed;
+  private int m_generation = 0;
+  // open list, a binary heap of cells ordered by m_priority
+  private final int[] m_heap;
+  private final int[] m_heapIndex;
+  private final double[] m_priority;
+  private int m_heapSize = 0;
+  // the last path, as cells from start to goal
+  private final int[] m_path;
+  private int m_pathLength = 0;
+  // flow fields to fixed goals, by goal cell, and the goal cells whose field isn't started yet
+  private final ConcurrentHashMap<Integer, FlowField> m_flowFields = new ConcurrentHashMap<>();
+  private final Set<Integer> m_flowFieldGoals = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @brief GridPathfinder constructor
+   *
+   * @param grid the navgrid to search
+   */
+  public GridPathfinder(NavGrid grid) {
+    m_grid = grid;
+    m_width = grid.getWidth();
+    final int cells = grid.getWidth() * grid.getHeight();
+    m_cost = new double[cells];
+    m_parent = new int[cells];
+    m_visited = new int[cells];
+    m_closed = new int[cells];
+    m_heap = new int[cells];
+    m_heapIndex = new int[cells];
+    m_priority = new double[cells];
+    m_path = new int[cells];
+  }
+
+  /**
+   * @brief get the pathfinder for the deployed navgrid, loading it on first use
+   *
+   * @return GridPathfinder, null if the navgrid couldn't be loaded
+   */
+  public static synchronized GridPathfinder getInstance() {
+    if (!s_loaded) {
+      s_loaded = true;
+      try {
+        s_instance = new GridPathfinder(NavGrid.load(
+            new File(Filesystem.getDeployDirectory(), Pathfinding.kNavgridFile),
+            Pathfinding.kClearance));
+      } catch (IOException e) {
+        DriverStation.reportError("Couldn't load the navgrid: " + e, e.getStackTrace());
+      }
+    }
+    return s_instance;
+  }
+
+  /**
+   * @brief get the navgrid
+   *
+   * @return NavGrid
+   */
+  public NavGrid getGrid() {
+    return m_grid;
+  }
+
+  /**
+   * @brief register goals to build flow fields to
+   *
+   *        Nothing is computed until the first path to a goal's cell asks for its field.
+   *
+   * @param goals the goals, in field coordinates
+   */
+  public void addFlowFieldGoals(List<Translation2d> goals) {
+    for (final Translation2d goal : goals) {
+      m_flowFieldGoals.add(m_grid.cellAt(goal.getX(), goal.getY()));
+    }
+  }
+
+  /**
+   * @brief get the flow field to a goal's cell
+   *
+   *        The first call for a registered goal cell starts computing its field on a background
+   *        thread.
+   *
+   * @param goal the goal, in field coordinates
+   * @return FlowField, null if the cell isn't registered or its field isn't ready yet
+   */
+  public FlowField getFlowField(Translation2d goal) {
+    final int cell = m_grid.cellAt(goal.getX(), goal.getY());
+    final FlowField flowField = m_flowFields.get(cell);
+    if (flowField == null && m_flowFieldGoals.remove(cell)) {
+      final Thread thread =
+          new Thread(() -> m_flowFields.put(cell, new FlowField(m_grid, cell)), "FlowField");
+      thread.setDaemon(true);
+      thread.start();
+    }
+    return flowField;
+  }
+
+  /**
+   * @brief find a path and turn it into a PathPlannerPath
+   *
+   *        Starts and goals inside an obstacle are moved to the nearest free cell for the search.
+   *        The path still starts and ends at the given poses, and the robot faces the goal's
+   *        rotation at the end. The path is in field coordinates, it is never flipped.
+   *
+   * @param start where the robot is
+   * @param goal where the robot should go
+   * @param constraints the path's constraints
+   * @return PathPlannerPath, null if there is no path or the goal is where the robot is
+   */
+  public PathPlannerPath findPath(Pose2d start, Pose2d goal, PathConstraints constraints) {
+    final List<Translation2d> waypoints = findWaypoints(start.getTranslation(),
+        goal.getTranslation());
+    if (waypoints == null)
+      return null;
+    return toPath(waypoints, goal.getRotation(), constraints);
+  }
+
+  /**
+   * @brief turn the corners of a path into a PathPlannerPath
+   *
+   * @param waypoints from start to goal, at least two
+   * @param goalRotation the rotation the robot faces at the end
+   * @param constraints the path's constraints
+   * @return PathPlannerPath, never flipped
+   */
+  public static PathPlannerPath toPath(List<Translation2d> waypoints, Rotation2d goalRotation,
+      PathConstraints constraints) {
+    final ArrayList<Pose2d> poses = new ArrayList<>(waypoints.size());
+    Rotation2d heading = new Rotation2d();
+    for (int i = 0; i < waypoints.size(); i++) {
+      // the direction of travel through every waypoint
+      if (i + 1 < waypoints.size())
+        heading = waypoints.get(i + 1).minus(waypoints.get(i)).getAngle();
+      poses.add(new Pose2d(waypoints.get(i), heading));
+    }
+    final PathPlannerPath path = new PathPlannerPath(PathPlannerPath.bezierFromPoses(poses),
+        constraints, new GoalEndState(0.0, goalRotation));
+    path.preventFlipping = true;
+    return path;
+  }
+
+  /**
+   * @brief find the corners of a path, from the goal's flow field if it has one
+   *
+   * @param start where the robot is (meters)
+   * @param goal where the robot should go (meters)
+   * @return List<Translation2d> from start to goal, null if there is no path or the goal is
+   *         where the robot is
+   */
+  public List<Translation2d> findWaypoints(Translation2d start, Translation2d goal) {
+    if (start.getDistance(goal) < m_grid.getCellSize() / 2)
+      return null;
+    final FlowField flowField = getFlowField(goal);
+    if (flowField != null)
+      return flowField.findWaypoints(start, goal);
+    final int length;
+    final int[] cells;
+    synchronized (this) {
+      if (!search(m_grid.cellAt(start.getX(), start.getY()),
+          m_grid.cellAt(goal.getX(), goal.getY())))
+        return null;
+      length = m_pathLength;
+      cells = Arrays.copyOf(m_path, length);
+    }
+    return m_grid.toWaypoints(start, cells, length, goal);
+  }
+
+  /**
+   * @brief search between two cells, leaving the string pulled path in m_path
+   *
+   * @param startCell the cell the robot is in
+   * @param goalCell the cell to go to
+   * @return boolean whether there is a path
+   */
+  public synchronized boolean search(int startCell, int goalCell) {
+    final int start = m_grid.nearestFree(startCell);
+    final int goal = m_grid.nearestFree(goalCell);
+    m_pathLength = 0;
+    if (start < 0 || goal < 0)
+      return false;
+    if (start == goal) {
+      m_path[m_pathLength++] = start;
+      m_path[m_pathLength++] = goal;
+      return true;
+    }
+    if (++m_generation == Integer.MAX_VALUE) {
+      Arrays.fill(m_visited, 0);
+      Arrays.fill(m_closed, 0);
+      m_generation = 1;
+    }
+    m_heapSize = 0;
+    final double goalX = goal % m_width;
+    final double goalY = goal / m_width;
+
+    visit(start, 0, start, goalX, goalY);
+    while (m_heapSize > 0) {
+      final int cell = pop();
+      final int cellX = cell % m_width;
+      final int cellY = cell / m_width;
+      // lazy theta*: the parent was assumed visible, fall back to the best closed neighbour
+      if (!m_grid.lineOfSight(m_parent[cell], cell)) {
+        m_cost[cell] = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < NavGrid.kNeighbours; i++) {
+          final int neighbour = m_grid.neighbour(cellX, cellY, i);
+          if (neighbour >= 0 && m_closed[neighbour] == m_generation
+              && m_cost[neighbour] + NavGrid.neighbourCost(i) < m_cost[cell]) {
+            m_cost[cell] = m_cost[neighbour] + NavGrid.neighbourCost(i);
+            m_parent[cell] = neighbour;
+          }
+        }
+      }
+      m_closed[cell] = m_generation;
+      if (cell == goal) {
+        tracePath(start, goal);
+        return true;
+      }
+      final int parent = m_parent[cell];
+      final double parentX = parent % m_width;
+      final double parentY = parent / m_width;
+      for (int i = 0; i < NavGrid.kNeighbours; i++) {
+        final int neighbour = m_grid.neighbour(cellX, cellY, i);
+        if (neighbour < 0 || m_closed[neighbour] == m_generation)
+          continue;
+        // path 2 of theta*, straight from this cell's parent
+        final double cost = m_cost[parent]
+            + distance(neighbour % m_width - parentX, neighbour / m_width - parentY);
+        if (m_visited[neighbour] != m_generation || cost < m_cost[neighbour])
+          visit(neighbour, cost, parent, goalX, goalY);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @brief get the length of the last path found by search()
+   *
+   * @return int number of cells, 0 if there was no path
+   */
+  public synchronized int getPathLength() {
+    return m_pathLength;
+  }
+
+  /**
+   * @brief get a cell of the last path found by search()
+   *
+   * @param index index along the path, 0 is the start
+   * @return int cell index
+   */
+  public synchronized int getPathCell(int index) {
+    return m_path[index];
+  }
+
+  /**
+   * @brief set a cell's cost and parent and put it on the open list
+   */
+  private void visit(int cell, double cost, int parent, double goalX, double goalY) {
+    final boolean open = m_visited[cell] == m_generation;
+    m_visited[cell] = m_generation;
+    m_cost[cell] = cost;
+    m_parent[cell] = parent;
+    m_priority[cell] = cost + distance(cell % m_width - goalX, cell / m_width - goalY);
+    if (open) {
+      siftUp(m_heapIndex[cell]);
+    } else {
+      m_heap[m_heapSize] = cell;
+      m_heapIndex[cell] = m_heapSize;
+      siftUp(m_heapSize++);
+    }
+  }
+
+  /**
+   * @brief follow the parents back from the goal and string pull the path into m_path
+   */
+  private void tracePath(int start, int goal) {
+    // parents, goal first
+    int length = 0;
+    for (int cell = goal; cell != start; cell = m_parent[cell]) {
+      m_path[length++] = cell;
+    }
+    m_path[length++] = start;
+    // reverse and drop every corner the path can skip
+    int head = 0;
+    int tail = length - 1;
+    while (head < tail) {
+      final int swap = m_path[head];
+      m_path[head++] = m_path[tail];
+      m_path[tail--] = swap;
+    }
+    m_pathLength = m_grid.stringPull(m_path, length);
+  }
+
+  // Math.hypot guards against overflow, which cell distances can't reach, and is much slower
+  private static double distance(double dx, double dy) {
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  private int pop() {
+    final int cell = m_heap[0];
+    m_heap[0] = m_heap[--m_heapSize];
+    m_heapIndex[m_heap[0]] = 0;
+    siftDown(0);
+    return cell;
+  }
+
+  private void siftUp(int index) {
+    final int cell = m_heap[index];
+    while (index > 0) {
+      final int parent = (index - 1) / 2;
+      if (m_priority[m_heap[parent]] <= m_priority[cell])
+        break;
+      m_heap[index] = m_heap[parent];
+      m_heapIndex[m_heap[index]] = index;
+      index = parent;
+    }
+    m_heap[index] = cell;
+    m_heapIndex[cell] = index;
+  }
+
+  private void siftDown(int index) {
+    final int cell = m_heap[index];
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= m_heapSize)
+        break;
+      if (child + 1 < m_heapSize && m_priority[m_heap[child + 1]] < m_priority[m_heap[child]])
+        child++;
+      if (m_priority[m_heap[child]] >= m_priority[cell])
+        break;
+      m_heap[index] = m_heap[child];
+      m_heapIndex[m_heap[index]] = index;
+      index = child;
+    }
+    m_heap[index] = cell;
+    m_heapIndex[cell] = index;
+  }
+}
@@ -0,0 +1,612 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+import edu.wpi.first.util.datalog.BooleanLogEntry;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DataLogReader;
+import edu.wpi.first.util.datalog.DataLogRecord;
+import edu.wpi.first.util.datalog.DoubleArrayLogEntry;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * @brief Records robot inputs so a match can be replayed off the robot
+ *
+ *        Every sensor read that decides what the robot does goes through an input. On the robot
+ *        (record mode) an input returns the live value and writes it to the WPILog under
+ *        Inputs/[key]. In replay mode the live value is ignored and the input returns the value
+ *        recorded during the same robot loop, so the code makes the same decisions it made on the
+ *        field. Nothing is written until startRecording() is given a log, so tests, benchmarks
+ *        and harnesses write no logs.
+ *
+ *        Robot loops are marked in the log under Replay/Cycle. A value belongs to the loop it was
+ *        recorded in, by timestamp, so inputs recorded on other threads (odometry) are replayed
+ *        in the loop that would have seen them.
+ *
+ *        There are four kinds of inputs:
+ *
+ *        - DoubleInput and BooleanInput, read once per loop. Only changes are written
+ *
+ *        - ArrayInput.update(), an array read once per loop
+ *
+ *        - LoggedInputs, a group of inputs a subsystem reads together once per loop
+ *
+ *        - ArrayInput.record(), a stream of samples. In replay, every sample of a loop is handed to
+ *        the consumer registered with ArrayInput.replay() at the start of that loop, on the main
+ *        thread. Record on the main thread, where the samples are used, so they are replayed in
+ *        the loop that used them
+ *
+ *        Outputs are written under Outputs/[key] in both modes, so a replay can be compared to the
+ *        match it came from.
+ */
+public class InputLog {
+  private static InputLog instance;
+
+  // layout of the driver station input
+  private static final int kDsEnabled = 0;
+  private static final int kDsAutonomous = 1;
+  private static final int kDsTest = 2;
+  private static final int kDsAllianceStation = 3;
+  private static final int kDsMatchTime = 4;
+  private static final int kDsLength = 5;
+
+  /**
+   * @brief recorded values of one input, only used in replay
+   */
+  private static class Series {
+    private long[] m_times = new long[64];
+    private double[][] m_values = new double[64][];
+    private int m_size = 0;
+    // newest sample of the current loop, -1 if there is none yet
+    private int m_latest = -1;
+    // next sample to hand to a stream consumer
+    private int m_next = 0;
+
+    private void add(long time, double[] value) {
+      if (m_size == m_times.length) {
+        m_times = Arrays.copyOf(m_times, m_size * 2);
+        m_values = Arrays.copyOf(m_values, m_size * 2);
+      }
+      m_times[m_size] = time;
+      m_values[m_size] = value;
+      m_size++;
+    }
+
+    private double[] latest(long cycleEnd) {
+      while (m_latest + 1 < m_size && m_times[m_latest + 1] < cycleEnd)
+        m_latest++;
+      return m_latest < 0 ? null : m_values[m_latest];
+    }
+  }
+
+  /**
+   * @brief a double read once per loop
+   */
+  public class DoubleInput {
+    private final DoubleLogEntry m_entry;
+    private final Series m_series;
+    private boolean m_recorded = false;
+    private double m_last = 0;
+
+    private DoubleInput(String key) {
+      m_entry = m_recording ? new DoubleLogEntry(m_log, "Inputs/" + key) : null;
+      m_series = m_replay ? series(key) : null;
+    }
+
+    /**
+     * @brief record or replay the input
+     *
+     * @param live the value read from the hardware
+     * @return double the live value, or the recorded value in replay
+     */
+    public double update(double live) {
+      if (m_replay) {
+        final double[] recorded = m_series.latest(m_cycleEnd);
+        return recorded == null ? live : recorded[0];
+      }
+      if (m_recording && (!m_recorded || live != m_last)) {
+        m_entry.append(live);
+        m_recorded = true;
+        m_last = live;
+      }
+      return live;
+    }
+  }
+
+  /**
+   * @brief a boolean read once per loop
+   */
+  public class BooleanInput {
+    private final BooleanLogEntry m_entry;
+    private final Series m_series;
+    private boolean m_recorded = false;
+    private boolean m_last = false;
+
+    private BooleanInput(String key) {
+      m_entry = m_recording ? new BooleanLogEntry(m_log, "Inputs/" + key) : null;
+      m_series = m_replay ? series(key) : null;
+    }
+
+    /**
+     * @brief record or replay the input
+     *
+     * @param live the value read from the hardware
+     * @return boolean the live value, or the recorded value in replay
+     */
+    public boolean update(boolean live) {
+      if (m_replay) {
+        final double[] recorded = m_series.latest(m_cycleEnd);
+        return recorded == null ? live : recorded[0] != 0;
+      }
+      if (m_recording && (!m_recorded || live != m_last)) {
+        m_entry.append(live);
+        m_recorded = true;
+        m_last = live;
+      }
+      return live;
+    }
+  }
+
+  /**
+   * @brief an array read once per loop, or a stream of samples
+   */
+  public class ArrayInput {
+    private final DoubleArrayLogEntry m_entry;
+    private final Series m_series;
+    private double[] m_last = null;
+    private Consumer<double[]> m_consumer = null;
+
+    private ArrayInput(String key) {
+      m_entry = m_recording ? new DoubleArrayLogEntry(m_log, "Inputs/" + key) : null;
+      m_series = m_replay ? series(key) : null;
+    }
+
+    /**
+     * @brief record or replay the input, once per loop
+     *
+     * @param live the value read from the hardware
+     * @return double[] the live value, or the recorded value in replay
+     */
+    public double[] update(double[] live) {
+      if (m_replay) {
+        final double[] recorded = m_series.latest(m_cycleEnd);
+        return recorded == null ? live : recorded;
+      }
+      if (m_recording && (m_last == null || !Arrays.equals(live, m_last))) {
+        m_entry.append(live);
+        if (m_last == null || m_last.length != live.length)
+          m_last = live.clone();
+        else
+          System.arraycopy(live, 0, m_last, 0, live.length);
+      }
+      return live;
+    }
+
+    /**
+     * @brief record a sample of a stream
+     *
+     *        Thread safe. Does nothing in replay, or when nothing is recorded.
+     *
+     * @param sample the sample, copied into the log
+     */
+    public void record(double[] sample) {
+      if (m_recording)
+        m_entry.append(sample);
+    }
+
+    /**
+     * @brief replay a stream
+     *
+     *        In replay, the consumer is called from nextCycle() with every sample recorded during
+     *        that loop, oldest first. Does nothing in record mode.
+     *
+     * @param consumer called with every recorded sample
+     */
+    public void replay(Consumer<double[]> consumer) {
+      if (m_replay) {
+        m_consumer = consumer;
+        m_streams.add(this);
+      }
+    }
+
+    private void deliver() {
+      while (m_series.m_next < m_series.m_size && m_series.m_times[m_series.m_next] < m_cycleEnd)
+        m_consumer.accept(m_series.m_values[m_series.m_next++]);
+    }
+  }
+
+  /**
+   * @brief a group of inputs read together, recorded as one array
+   */
+  public interface Inputs {
+    /**
+     * @brief get the number of values in the group
+     *
+     * @return int
+     */
+    int size();
+
+    /**
+     * @brief write the inputs to an array
+     *
+     * @param out array of size() values
+     */
+    void toArray(double[] out);
+
+    /**
+     * @brief read the inputs from a recorded array
+     *
+     * @param in array of size() values
+     */
+    void fromArray(double[] in);
+  }
+
+  /**
+   * @brief records or replays a group of inputs
+   */
+  public class LoggedInputs {
+    private final ArrayInput m_input;
+    private final Inputs m_inputs;
+    private final double[] m_buffer;
+
+    private LoggedInputs(String key, Inputs inputs) {
+      m_input = new ArrayInput(key);
+      m_inputs = inputs;
+      m_buffer = new double[inputs.size()];
+    }
+
+    /**
+     * @brief record the inputs, or overwrite them with the recorded values in replay
+     *
+     *        Call once per loop, right after the inputs were read.
+     */
+    public void update() {
+      if (m_replay) {
+        final double[] recorded = m_input.m_series.latest(m_cycleEnd);
+        if (recorded != null && recorded.length == m_buffer.length)
+          m_inputs.fromArray(recorded);
+        return;
+      }
+      m_inputs.toArray(m_buffer);
+      m_input.update(m_buffer);
+    }
+  }
+
+  /**
+   * @brief an output written every loop, for callers that shouldn't look it up by name each time
+   */
+  public class Output {
+    private final DoubleArrayLogEntry m_entry;
+    private final double[] m_value;
+
+    private Output(DoubleArrayLogEntry entry, int size) {
+      m_entry = entry;
+      m_value = new double[size];
+    }
+
+    /**
+     * @brief get the array the next value is written into
+     *
+     * @return double[] reused on every record()
+     */
+    public double[] value() {
+      return m_value;
+    }
+
+    /**
+     * @brief write the value filled into value(), if there is a log
+     */
+    public void record() {
+      if (m_entry != null)
+        m_entry.append(m_value);
+    }
+  }
+
+  private final boolean m_replay;
+  private final DataLog m_log; // null when nothing is written
+  private final boolean m_recording; // record mode with a log
+  // record mode
+  private final DoubleLogEntry m_cycleEntry;
+  private final ArrayInput m_driverStation;
+  private final double[] m_driverStationState = new double[kDsLength];
+  // replay mode
+  private final HashMap<String, Series> m_series = new HashMap<>();
+  private final ArrayList<ArrayInput> m_streams = new ArrayList<>();
+  private long[] m_cycles = new long[0];
+  private int m_cycle = -1;
+  private long m_cycleEnd = Long.MAX_VALUE;
+  // outputs
+  private final HashMap<String, DoubleArrayLogEntry> m_outputs = new HashMap<>();
+
+  /**
+   * @brief get the input log
+   *
+   *        In record mode unless replay was started. Unless recording was started, inputs return
+   *        the live values and nothing is written.
+   *
+   * @return InputLog
+   */
+  public static synchronized InputLog getInstance() {
+    if (instance == null)
+      instance = new InputLog(false, null);
+    return instance;
+  }
+
+  /**
+   * @brief start recording inputs and outputs
+   *
+   *        Must be called before any input is created, so before the robot container is
+   *        constructed.
+   *
+   * @param log the log to write to, DataLogManager's on the robot
+   * @return InputLog
+   */
+  public static synchronized InputLog startRecording(DataLog log) {
+    if (instance != null)
+      throw new IllegalStateException("Recording must start before the input log is used");
+    instance = new InputLog(false, log);
+    return instance;
+  }
+
+  /**
+   * @brief switch to replay mode
+   *
+   *        Must be called before any input is created, so before the robot is constructed.
+   *
+   * @param input the log to replay
+   * @param output where to write the replay's outputs
+   * @return InputLog
+   * @throws IOException if the log can't be read
+   */
+  public static synchronized InputLog startReplay(File input, File output) throws IOException {
+    if (instance != null)
+      throw new IllegalStateException("Replay must start before the input log is used");
+    final InputLog log =
+        new InputLog(true, new DataLog(output.getAbsoluteFile().getParent(), output.getName()));
+    log.read(input);
+    instance = log;
+    return instance;
+  }
+
+  private InputLog(boolean replay, DataLog log) {
+    m_replay = replay;
+    m_log = log;
+    m_recording = !replay && log != null;
+    m_cycleEntry = m_recording ? new DoubleLogEntry(m_log, "Replay/Cycle") : null;
+    m_driverStation = arrayInput("DriverStation");
+  }
+
+  /**
+   * @brief read every input of a log
+   *
+   * @param file the log
+   * @throws IOException if the log can't be read
+   */
+  private void read(File file) throws IOException {
+    final DataLogReader reader = new DataLogReader(file.getPath());
+    if (!reader.isValid())
+      throw new IOException(file + " is not a valid log");
+    final HashMap<Integer, DataLogRecord.StartRecordData> entries = new HashMap<>();
+    final Series cycles = new Series();
+    for (final DataLogRecord record : reader) {
+      if (record.isStart()) {
+        final DataLogRecord.StartRecordData start = record.getStartData();
+        entries.put(start.entry, start);
+        continue;
+      }
+      if (record.isControl())
+        continue;
+      final DataLogRecord.StartRecordData start = entries.get(record.getEntry());
+      if (start == null)
+        continue;
+      if (start.name.equals("Replay/Cycle")) {
+        cycles.add(record.getTimestamp(), null);
+      } else if (start.name.startsWith("Inputs/")) {
+        final double[] value;
+        switch (start.type) {
+          case "double":
+            value = new double[] {record.getDouble()};
+            break;
+          case "boolean":
+            value = new double[] {record.getBoolean() ? 1 : 0};
+            break;
+          case "double[]":
+            value = record.getDoubleArray();
+            break;
+          default:
+            continue;
+        }
+        series(start.name.substring("Inputs/".length())).add(record.getTimestamp(), value);
+      }
+    }
+    m_cycles = Arrays.copyOf(cycles.m_times, cycles.m_size);
+  }
+
+  private Series series(String key) {
+    return m_series.computeIfAbsent(key, k -> new Series());
+  }
+
+  /**
+   * @brief create a double input
+   *
+   * @param key name of the input
+   * @return DoubleInput
+   */
+  public DoubleInput doubleInput(String key) {
+    return new DoubleInput(key);
+  }
+
+  /**
+   * @brief create a boolean input
+   *
+   * @param key name of the input
+   * @return BooleanInput
+   */
+  public BooleanInput booleanInput(String key) {
+    return new BooleanInput(key);
+  }
+
+  /**
+   * @brief create an array input
+   *
+   * @param key name of the input
+   * @return ArrayInput
+   */
+  public ArrayInput arrayInput(String key) {
+    return new ArrayInput(key);
+  }
+
+  /**
+   * @brief create a group of inputs
+   *
+   * @param key name of the group
+   * @param inputs the inputs, updated in place
+   * @return LoggedInputs
+   */
+  public LoggedInputs loggedInputs(String key, Inputs inputs) {
+    return new LoggedInputs(key, inputs);
+  }
+
+  /**
+   * @brief whether the robot is being replayed
+   *
+   * @return boolean
+   */
+  public boolean isReplay() {
+    return m_replay;
+  }
+
+  /**
+   * @brief get the log inputs and outputs are written to
+   *
+   * @return DataLog null when nothing is written
+   */
+  public DataLog getLog() {
+    return m_log;
+  }
+
+  /**
+   * @brief mark the start of a robot loop
+   *
+   *        Does nothing in replay, where nextCycle() marks the loops instead.
+   */
+  public void beginCycle() {
+    if (m_recording)
+      m_cycleEntry.append(Timer.getFPGATimestamp());
+  }
+
+  /**
+   * @brief mark the end of a robot loop, after the driver station data was used
+   */
+  public void endCycle() {
+    if (!m_recording)
+      return;
+    m_driverStationState[kDsEnabled] = DriverStation.isEnabled() ? 1 : 0;
+    m_driverStationState[kDsAutonomous] = DriverStation.isAutonomous() ? 1 : 0;
+    m_driverStationState[kDsTest] = DriverStation.isTest() ? 1 : 0;
+    m_driverStationState[kDsAllianceStation] = DriverStation.getRawAllianceStation().ordinal();
+    m_driverStationState[kDsMatchTime] = DriverStation.getMatchTime();
+    m_driverStation.update(m_driverStationState);
+  }
+
+  /**
+   * @brief advance the replay to the next robot loop
+   *
+   *        Hands every stream sample of the loop to its consumer.
+   *
+   * @return boolean false when there are no loops left
+   */
+  public boolean nextCycle() {
+    if (++m_cycle >= m_cycles.length)
+      return false;
+    m_cycleEnd = m_cycle + 1 < m_cycles.length ? m_cycles[m_cycle + 1] : Long.MAX_VALUE;
+    for (int i = 0; i < m_streams.size(); i++) {
+      m_streams.get(i).deliver();
+    }
+    return true;
+  }
+
+  /**
+   * @brief get the number of recorded robot loops
+   *
+   * @return int
+   */
+  public int getCycleCount() {
+    return m_cycles.length;
+  }
+
+  /**
+   * @brief get the time of the current replayed loop
+   *
+   * @return double seconds, FPGA timebase of the recorded match
+   */
+  public double getCycleTime() {
+    return m_cycles[Math.max(m_cycle, 0)] / 1e6;
+  }
+
+  /**
+   * @brief get how long the current replayed loop lasted on the robot
+   *
+   * @return double seconds
+   */
+  public double getCycleDuration() {
+    return m_cycle + 1 < m_cycles.length ? (m_cycles[m_cycle + 1] - m_cycles[m_cycle]) / 1e6
+        : 0.02;
+  }
+
+  /**
+   * @brief get the replayed driver station state of the current loop
+   *
+   * @return double[] enabled, autonomous, test, alliance station ordinal, match time. Null if
+   *         nothing was recorded yet
+   */
+  public double[] getDriverStationState() {
+    return m_driverStation.update(null);
+  }
+
+  /**
+   * @brief create an output that is written every loop
+   *
+   * @param key name of the output
+   * @param size number of values in the output
+   * @return Output
+   */
+  public synchronized Output output(String key, int size) {
+    return new Output(outputEntry(key), size);
+  }
+
+  /**
+   * @brief write an output
+   *
+   *        The entry is looked up by name, use output() for outputs written every loop.
+   *
+   * @param key name of the output
+   * @param value the value
+   */
+  public synchronized void recordOutput(String key, double... value) {
+    final DoubleArrayLogEntry entry = outputEntry(key);
+    if (entry != null)
+      entry.append(value);
+  }
+
+  private DoubleArrayLogEntry outputEntry(String key) {
+    if (m_log == null)
+      return null;
+    return m_outputs.computeIfAbsent(key, k -> new DoubleArrayLogEntry(m_log, "Outputs/" + k));
+  }
+
+  /**
+   * @brief flush the log to disk
+   */
+  public void flush() {
+    if (m_log != null)
+      m_log.flush();
+  }
+}
@@ -0,0 +1,94 @@
+package frc.robot.util;
+
+/**
+ * @brief Fixed size latency histogram
+ *
+ *        Bucket i counts samples between 2^i and 2^(i+1) microseconds, the last bucket counts
+ *        everything slower. Recording a sample is a couple of integer operations and never
+ *        allocates, so it is safe to use inside the robot loop.
+ */
+public class LatencyHistogram {
+  // 2^16 us = 65 ms is slower than any loop we care about
+  private static final int kBuckets = 17;
+
+  private final long[] m_buckets = new long[kBuckets];
+  private long m_count = 0;
+  private long m_totalNanos = 0;
+  private long m_maxNanos = 0;
+
+  /**
+   * @brief record a sample
+   *
+   * @param nanos the sample, in nanoseconds
+   */
+  public void record(long nanos) {
+    final long micros = Math.max(nanos / 1000, 1);
+    final int bucket = Math.min(63 - Long.numberOfLeadingZeros(micros), kBuckets - 1);
+    m_buckets[bucket]++;
+    m_count++;
+    m_totalNanos += nanos;
+    if (nanos > m_maxNanos)
+      m_maxNanos = nanos;
+  }
+
+  /**
+   * @brief get the number of recorded samples
+   *
+   * @return long
+   */
+  public long getCount() {
+    return m_count;
+  }
+
+  /**
+   * @brief get the mean of the recorded samples
+   *
+   * @return double mean in microseconds
+   */
+  public double getMeanMicros() {
+    return m_count == 0 ? 0 : m_totalNanos / 1000.0 / m_count;
+  }
+
+  /**
+   * @brief get the largest recorded sample
+   *
+   * @return double maximum in microseconds
+   */
+  public double getMaxMicros() {
+    return m_maxNanos / 1000.0;
+  }
+
+  /**
+   * @brief get an upper bound of a percentile
+   *
+   *        The result is the upper edge of the bucket the percentile falls in, so it is accurate to
+   *        a factor of two.
+   *
+   * @param percentile the percentile, between 0 and 1
+   * @return double upper bound of the percentile in microseconds
+   */
+  public double getPercentileMicros(double percentile) {
+    if (m_count == 0)
+      return 0;
+    final long target = (long) Math.ceil(percentile * m_count);
+    long seen = 0;
+    for (int i = 0; i < kBuckets; i++) {
+      seen += m_buckets[i];
+      if (seen >= target)
+        return Math.min(1L << (i + 1), getMaxMicros());
+    }
+    return getMaxMicros();
+  }
+
+  /**
+   * @brief clear all samples
+   */
+  public void reset() {
+    for (int i = 0; i < kBuckets; i++) {
+      m_buckets[i] = 0;
+    }
+    m_count = 0;
+    m_totalNanos = 0;
+    m_maxNanos = 0;
+  }
+}
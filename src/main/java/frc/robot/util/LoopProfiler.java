@@ -0,0 +1,303 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.event.EventLoop;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.Constants.Profiling;
+
+/**
+ * @brief Robot loop profiler
+ *
+ *        Times every part of the robot loop into fixed size histograms, publishes them to
+ *        NetworkTables under LoopProfiler/[section] once per second, and prints the slowest
+ *        sections whenever a loop overruns.
+ *
+ *        What gets timed:
+ *
+ *        - subsystem periodic() methods that do work, through sections they own
+ *
+ *        - trigger conditions wrapped with timed(), once per evaluation
+ *
+ *        - all trigger bindings together, by polling the default button loop from a profiled loop
+ *
+ *        - every running command. Commands are timed from the scheduler's execute callbacks, so a
+ *        command's sample is its execute() plus the isFinished() of the command before it. Sections
+ *        are per command name, so commands built for every use share one
+ *
+ *        - everything after robotPeriodic(), which is mostly Sendable and dashboard updates
+ *
+ *        All of this runs on the main robot thread. Only registering a new section allocates.
+ */
+public class LoopProfiler {
+  private static LoopProfiler instance;
+
+  /**
+   * @brief a timed section of the robot loop
+   */
+  public class Section {
+    private final String m_name;
+    private final boolean m_aggregate; // spans other work, never ranked as an offender
+    private final LatencyHistogram m_histogram = new LatencyHistogram();
+    private final DoubleArrayPublisher m_publisher;
+    private final double[] m_stats = new double[5]; // count, mean, p50, p95, max (us)
+    private long m_start = 0;
+    private long m_loopNanos = 0; // time spent in this section during the current loop
+
+    private Section(String name, boolean aggregate) {
+      m_name = name;
+      m_aggregate = aggregate;
+      m_publisher = m_table.getDoubleArrayTopic(name).publish();
+    }
+
+    /**
+     * @brief start timing the section
+     */
+    public void start() {
+      m_start = System.nanoTime();
+    }
+
+    /**
+     * @brief stop timing the section
+     */
+    public void stop() {
+      record(System.nanoTime() - m_start);
+    }
+
+    /**
+     * @brief record a sample that was timed elsewhere
+     *
+     * @param nanos the sample, in nanoseconds
+     */
+    public void record(long nanos) {
+      m_histogram.record(nanos);
+      m_loopNanos += nanos;
+    }
+
+    /**
+     * @brief publish the histogram and start a new window
+     */
+    private void publish() {
+      m_stats[0] = m_histogram.getCount();
+      m_stats[1] = m_histogram.getMeanMicros();
+      m_stats[2] = m_histogram.getPercentileMicros(0.5);
+      m_stats[3] = m_histogram.getPercentileMicros(0.95);
+      m_stats[4] = m_histogram.getMaxMicros();
+      m_publisher.set(m_stats);
+      m_histogram.reset();
+    }
+  }
+
+  private final NetworkTable m_table = NetworkTableInstance.getDefault().getTable("LoopProfiler");
+  private final ArrayList<Section> m_sections = new ArrayList<>();
+  private final HashMap<String, Section> m_commandSections = new HashMap<>();
+  // fixed sections. Aggregates span several pieces of work, some also timed on their own
+  private final Section m_loop = aggregate("Loop");
+  private final Section m_subsystems = aggregate("Scheduler/Subsystems");
+  private final Section m_triggers = aggregate("Scheduler/Triggers");
+  private final Section m_schedulerTail = section("Scheduler/Tail");
+  private final Section m_otherCommands = section("Command/Other");
+  private final Section m_dashboard = aggregate("Dashboard");
+  // the slowest sections of an overrun loop, reused every time
+  private final Section[] m_offenders = new Section[Profiling.kOverrunOffenders];
+  // timestamps of the current loop
+  private long m_loopStart = 0;
+  private long m_schedulerStart = 0;
+  private long m_mark = 0;
+  private long m_robotPeriodicEnd = 0;
+  private long m_lastPublish = 0;
+  private boolean m_installed = false;
+
+  /**
+   * @brief get the profiler
+   *
+   * @return LoopProfiler
+   */
+  public static synchronized LoopProfiler getInstance() {
+    if (instance == null)
+      instance = new LoopProfiler();
+    return instance;
+  }
+
+  private LoopProfiler() {}
+
+  /**
+   * @brief register a timed section
+   *
+   * @param name name of the section
+   * @return Section
+   */
+  public Section section(String name) {
+    final Section section = new Section(name, false);
+    m_sections.add(section);
+    return section;
+  }
+
+  /**
+   * @brief register a section that contains other sections
+   *
+   * @param name name of the section
+   * @return Section
+   */
+  private Section aggregate(String name) {
+    final Section section = new Section(name, true);
+    m_sections.add(section);
+    return section;
+  }
+
+  /**
+   * @brief wrap a trigger condition so every evaluation is timed
+   *
+   * @param name name of the trigger
+   * @param condition the trigger condition
+   * @return BooleanSupplier the timed condition
+   */
+  public BooleanSupplier timed(String name, BooleanSupplier condition) {
+    final Section section = section("Trigger/" + name);
+    return () -> {
+      section.start();
+      final boolean value = condition.getAsBoolean();
+      section.stop();
+      return value;
+    };
+  }
+
+  /**
+   * @brief hook the profiler into the command scheduler
+   *
+   *        Bindings are polled from the default button loop, so it is wrapped in a loop of our own.
+   *        Must be called after all bindings are configured.
+   *
+   * @param scheduler the command scheduler
+   */
+  public void install(CommandScheduler scheduler) {
+    if (m_installed)
+      return;
+    m_installed = true;
+    final EventLoop bindings = scheduler.getDefaultButtonLoop();
+    final EventLoop profiledBindings = new EventLoop();
+    profiledBindings.bind(() -> {
+      final long start = System.nanoTime();
+      m_subsystems.record(start - m_schedulerStart);
+      bindings.poll();
+      m_mark = System.nanoTime();
+      m_triggers.record(m_mark - start);
+    });
+    scheduler.setActiveButtonLoop(profiledBindings);
+    scheduler.onCommandExecute(this::commandExecuted);
+  }
+
+  /**
+   * @brief called by the scheduler after a command's execute()
+   *
+   * @param command the command
+   */
+  private void commandExecuted(Command command) {
+    final long now = System.nanoTime();
+    final String name = command.getName();
+    Section section = m_commandSections.get(name);
+    if (section == null) {
+      if (m_commandSections.size() < Profiling.kMaxCommandSections) {
+        section = section("Command/" + name);
+        m_commandSections.put(name, section);
+      } else {
+        section = m_otherCommands;
+      }
+    }
+    section.record(now - m_mark);
+    m_mark = now;
+  }
+
+  /**
+   * @brief mark the start of a robot loop
+   */
+  public void loopStart() {
+    m_loopStart = System.nanoTime();
+    m_robotPeriodicEnd = 0;
+    for (int i = 0; i < m_sections.size(); i++) {
+      m_sections.get(i).m_loopNanos = 0;
+    }
+  }
+
+  /**
+   * @brief mark the start of CommandScheduler.run()
+   */
+  public void schedulerStart() {
+    m_schedulerStart = System.nanoTime();
+    m_mark = m_schedulerStart;
+  }
+
+  /**
+   * @brief mark the end of CommandScheduler.run()
+   */
+  public void schedulerEnd() {
+    final long now = System.nanoTime();
+    m_schedulerTail.record(now - m_mark);
+    m_robotPeriodicEnd = now;
+  }
+
+  /**
+   * @brief mark the end of a robot loop
+   *
+   * @param periodSeconds the loop period, used to detect overruns
+   */
+  public void loopEnd(double periodSeconds) {
+    final long now = System.nanoTime();
+    if (m_robotPeriodicEnd != 0)
+      m_dashboard.record(now - m_robotPeriodicEnd);
+    final long loopNanos = now - m_loopStart;
+    m_loop.record(loopNanos);
+    if (loopNanos > (long) (periodSeconds * 1e9))
+      reportOverrun(loopNanos);
+    if (now - m_lastPublish >= (long) (Profiling.kLoopPublishPeriod * 1e9)) {
+      m_lastPublish = now;
+      for (int i = 0; i < m_sections.size(); i++) {
+        m_sections.get(i).publish();
+      }
+    }
+  }
+
+  /**
+   * @brief print the slowest sections of an overrun loop
+   *
+   * @param loopNanos how long the loop took
+   */
+  private void reportOverrun(long loopNanos) {
+    // keep the slowest sections, sorted slowest first. Aggregates would always outrank the
+    // sections they contain, so they are skipped
+    for (int i = 0; i < m_offenders.length; i++) {
+      m_offenders[i] = null;
+    }
+    for (int i = 0; i < m_sections.size(); i++) {
+      Section section = m_sections.get(i);
+      if (section.m_aggregate || section.m_loopNanos == 0)
+        continue;
+      for (int j = 0; j < m_offenders.length && section != null; j++) {
+        if (m_offenders[j] == null || section.m_loopNanos > m_offenders[j].m_loopNanos) {
+          final Section displaced = m_offenders[j];
+          m_offenders[j] = section;
+          section = displaced;
+        }
+      }
+    }
+    // overruns are rare, so building the message is allowed to allocate
+    final StringBuilder message = new StringBuilder("Loop overrun: ")
+        .append(String.format("%.2f", loopNanos / 1e6)).append(" ms. Slowest sections:");
+    for (int i = 0; i < m_offenders.length && m_offenders[i] != null; i++) {
+      message.append(String.format("\n  %s: %.2f ms", m_offenders[i].m_name,
+          m_offenders[i].m_loopNanos / 1e6));
+    }
+    // the aggregates still show where the rest of the loop went
+    message.append(String.format("\n  (subsystems %.2f ms, triggers %.2f ms, dashboard %.2f ms)",
+        m_subsystems.m_loopNanos / 1e6, m_triggers.m_loopNanos / 1e6,
+        m_dashboard.m_loopNanos / 1e6));
+    DriverStation.reportWarning(message.toString(), false);
+  }
+}
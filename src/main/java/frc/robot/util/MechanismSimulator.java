@@ -0,0 +1,117 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.SimConstants;
+
+/**
+ * @brief Steps the physics of every simulated mechanism at a fixed rate
+ *
+ *        Mechanisms register themselves once and are stepped from a single notifier, in steps of
+ *        exactly kSimLoopPeriod. The time that actually passed since the last run is measured and
+ *        caught up on in whole steps, so the simulation follows the clock even when the notifier
+ *        runs late or time is stepped by a harness. At most kMaxCatchUp is caught up on at once,
+ *        so a breakpoint doesn't make the mechanisms jump.
+ *
+ *        Mechanisms used to be stepped by kSimLoopPeriod from periodic(), once every 20 ms loop,
+ *        so they ran at a quarter of real time.
+ */
+public final class MechanismSimulator {
+  /**
+   * @brief A simulated mechanism
+   */
+  public interface Mechanism {
+    /**
+     * @brief step the physics
+     *
+     * @param dt time step in seconds
+     */
+    void update(double dt);
+  }
+
+  private static MechanismSimulator s_instance;
+
+  private final ArrayList<Mechanism> m_mechanisms = new ArrayList<>();
+  private final Notifier m_notifier = new Notifier(this::run);
+  // last time the notifier ran, NaN before the first run
+  private double m_lastTime = Double.NaN;
+  // time not yet simulated
+  private double m_pending = 0;
+
+  private MechanismSimulator() {
+    m_notifier.setName("MechanismSimulator");
+  }
+
+  /**
+   * @brief get the simulator
+   *
+   * @return MechanismSimulator
+   */
+  public static synchronized MechanismSimulator getInstance() {
+    if (s_instance == null)
+      s_instance = new MechanismSimulator();
+    return s_instance;
+  }
+
+  /**
+   * @brief add a mechanism, starting the simulator with the first one
+   *
+   * @param mechanism the mechanism
+   */
+  public synchronized void register(Mechanism mechanism) {
+    m_mechanisms.add(mechanism);
+    if (m_mechanisms.size() == 1)
+      m_notifier.startPeriodic(SimConstants.kSimLoopPeriod);
+  }
+
+  /**
+   * @brief catch up on the time that passed since the last run
+   */
+  private synchronized void run() {
+    final double now = Timer.getFPGATimestamp();
+    if (!Double.isNaN(m_lastTime))
+      m_pending = Math.min(m_pending + now - m_lastTime, SimConstants.kMaxCatchUp);
+    m_lastTime = now;
+    // leave a little slack so float error doesn't drop a step
+    while (m_pending > SimConstants.kSimLoopPeriod * 0.5) {
+      for (final Mechanism mechanism : m_mechanisms) {
+        mechanism.update(SimConstants.kSimLoopPeriod);
+      }
+      m_pending -= SimConstants.kSimLoopPeriod;
+    }
+  }
+
+  /**
+   * @brief moment of inertia of a mechanism, from its sysid acceleration gain
+   *
+   *        The mechanism models are fitted to the measured gains rather than to CAD, so they
+   *        respond to voltage the way the real mechanisms do.
+   *
+   * @param motor the motors driving the mechanism
+   * @param ratio gear ratio (driven/driver)
+   * @param kA acceleration gain in volts per rotation per second squared
+   * @return double kg m^2
+   */
+  public static double momentOfInertia(DCMotor motor, double ratio, double kA) {
+    // torque per volt at the output over acceleration per volt
+    return ratio * motor.KtNMPerAmp / motor.rOhms * kA / (2 * Math.PI);
+  }
+
+  /**
+   * @brief length of a uniform arm that sags like a mechanism, from its sysid gains
+   *
+   *        The arm simulation models gravity as a uniform rod, so the length is picked to give the
+   *        angular acceleration kG volts holds up. It is not the length of the real arm.
+   *
+   * @param kG gravity gain in volts
+   * @param kA acceleration gain in volts per rotation per second squared
+   * @return double meters
+   */
+  public static double equivalentArmLength(double kG, double kA) {
+    final double gravityAccel = 2 * Math.PI * kG / kA; // rad/s^2
+    return 3 * 9.8 / (2 * gravityAccel);
+  }
+}
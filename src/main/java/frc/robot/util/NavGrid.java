@@ -0,0 +1,469 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * @brief PathPlanner's navigation grid, packed into a bitset
+ *
+ *        navgrid.json stores a square cell size and one boolean per cell, true where the robot
+ *        can't go. At load, the distance from every cell to the nearest obstacle is computed with
+ *        an exact Euclidean distance transform, and cells closer to an obstacle than the robot's
+ *        clearance are blocked too. What's left is one bit per cell, so checking a cell is a
+ *        shift and a mask and the whole field fits in a few cache lines.
+ *
+ *        Cells are indexed x + y * width, with x along the field's length and y along its width.
+ *        Everything outside the grid is blocked. Obstacles that move, other robots, are kept in a
+ *        bitset of the same layout and laid over the grid with withObstacles().
+ */
+public final class NavGrid {
+  public static final int kNeighbours = 8;
+  private static final double kSqrt2 = Math.sqrt(2);
+  // neighbours, the four sides then the four corners
+  private static final int[] kNeighbourX = {1, -1, 0, 0, 1, 1, -1, -1};
+  private static final int[] kNeighbourY = {0, 0, 1, -1, 1, -1, 1, -1};
+  private static final double[] kNeighbourCost = {1, 1, 1, 1, kSqrt2, kSqrt2, kSqrt2, kSqrt2};
+
+  private static final ObjectMapper kMapper = new ObjectMapper();
+  // stands in for infinity in the distance transform, which subtracts distances
+  private static final double kFar = 1e20;
+
+  private final int m_width;
+  private final int m_height;
+  private final double m_cellSize;
+  // one bit per cell, set where the robot can't go
+  private final long[] m_blocked;
+  // meters from the center of every cell to the edge of the nearest navgrid obstacle
+  private final float[] m_clearance;
+
+  /**
+   * @brief NavGrid constructor
+   *
+   * @param obstacles true where there is an obstacle, indexed [y][x]
+   * @param cellSize size of a cell (meters)
+   * @param clearance distance the robot needs from an obstacle (meters)
+   */
+  public NavGrid(boolean[][] obstacles, double cellSize, double clearance) {
+    m_height = obstacles.length;
+    m_width = m_height == 0 ? 0 : obstacles[0].length;
+    m_cellSize = cellSize;
+    m_blocked = new long[(m_width * m_height + 63) / 64];
+    m_clearance = new float[m_width * m_height];
+
+    // squared distance to the nearest obstacle in cells, rows then columns
+    final int size = Math.max(m_width, m_height);
+    final double[] squared = new double[m_width * m_height];
+    final double[] in = new double[size];
+    final double[] out = new double[size];
+    final int[] parabolas = new int[size];
+    final double[] bounds = new double[size + 1];
+    for (int y = 0; y < m_height; y++) {
+      for (int x = 0; x < m_width; x++) {
+        in[x] = obstacles[y][x] ? 0 : kFar;
+      }
+      distanceTransform(in, m_width, out, parabolas, bounds);
+      System.arraycopy(out, 0, squared, y * m_width, m_width);
+    }
+    for (int x = 0; x < m_width; x++) {
+      for (int y = 0; y < m_height; y++) {
+        in[y] = squared[x + y * m_width];
+      }
+      distanceTransform(in, m_height, out, parabolas, bounds);
+      for (int y = 0; y < m_height; y++) {
+        squared[x + y * m_width] = out[y];
+      }
+    }
+
+    for (int cell = 0; cell < m_clearance.length; cell++) {
+      // from the center of this cell to the edge of the obstacle cell
+      final double distance =
+          squared[cell] >= kFar ? Double.MAX_VALUE : (Math.sqrt(squared[cell]) - 0.5) * cellSize;
+      m_clearance[cell] = (float) Math.max(distance, 0);
+      if (obstacles[cell / m_width][cell % m_width] || distance < clearance)
+        m_blocked[cell >>> 6] |= 1L << cell;
+    }
+  }
+
+  /**
+   * @brief NavGrid constructor, a grid with more cells blocked
+   *
+   * @param grid the grid to copy
+   * @param obstacles one bit per cell, set where there is an obstacle
+   */
+  private NavGrid(NavGrid grid, long[] obstacles) {
+    m_width = grid.m_width;
+    m_height = grid.m_height;
+    m_cellSize = grid.m_cellSize;
+    m_blocked = grid.m_blocked.clone();
+    for (int i = 0; i < m_blocked.length; i++) {
+      m_blocked[i] |= obstacles[i];
+    }
+    // the clearance is to the navgrid's own obstacles, which haven't moved
+    m_clearance = grid.m_clearance;
+  }
+
+  /**
+   * @brief load a navgrid.json
+   *
+   * @param file the file
+   * @param clearance distance the robot needs from an obstacle (meters)
+   * @return NavGrid
+   * @throws IOException if the file can't be read or isn't a navgrid
+   */
+  public static NavGrid load(File file, double clearance) throws IOException {
+    final JsonNode json = kMapper.readTree(file);
+    final JsonNode rows = json.get("grid");
+    if (rows == null || !rows.isArray() || rows.size() == 0 || !json.has("nodeSizeMeters"))
+      throw new IOException(file + " is not a navgrid");
+    final boolean[][] obstacles = new boolean[rows.size()][rows.get(0).size()];
+    for (int y = 0; y < obstacles.length; y++) {
+      final JsonNode row = rows.get(y);
+      if (row.size() != obstacles[0].length)
+        throw new IOException(file + " has rows of different lengths");
+      for (int x = 0; x < row.size(); x++) {
+        obstacles[y][x] = row.get(x).asBoolean();
+      }
+    }
+    return new NavGrid(obstacles, json.get("nodeSizeMeters").asDouble(), clearance);
+  }
+
+  /**
+   * @brief get the number of cells along the field's length
+   *
+   * @return int
+   */
+  public int getWidth() {
+    return m_width;
+  }
+
+  /**
+   * @brief get the number of cells along the field's width
+   *
+   * @return int
+   */
+  public int getHeight() {
+    return m_height;
+  }
+
+  /**
+   * @brief get the size of a cell
+   *
+   * @return double meters
+   */
+  public double getCellSize() {
+    return m_cellSize;
+  }
+
+  /**
+   * @brief get the cell a point is in
+   *
+   * @param x meters along the field's length
+   * @param y meters along the field's width
+   * @return int cell index, clamped to the grid
+   */
+  public int cellAt(double x, double y) {
+    final int cellX = Math.min(Math.max((int) Math.floor(x / m_cellSize), 0), m_width - 1);
+    final int cellY = Math.min(Math.max((int) Math.floor(y / m_cellSize), 0), m_height - 1);
+    return cellX + cellY * m_width;
+  }
+
+  /**
+   * @brief get the x coordinate of a cell's center
+   *
+   * @param cell cell index
+   * @return double meters
+   */
+  public double centerX(int cell) {
+    return (cell % m_width + 0.5) * m_cellSize;
+  }
+
+  /**
+   * @brief get the y coordinate of a cell's center
+   *
+   * @param cell cell index
+   * @return double meters
+   */
+  public double centerY(int cell) {
+    return (cell / m_width + 0.5) * m_cellSize;
+  }
+
+  /**
+   * @brief turn a path of cells into waypoints, the start and goal cells replaced by the exact
+   *        points
+   *
+   * @param start where the path starts, in its first cell (meters)
+   * @param cells the path, from the start cell to the goal cell
+   * @param length number of cells in the path
+   * @param goal where the path ends, in its last cell (meters)
+   * @return List<Translation2d> from start to goal
+   */
+  public List<Translation2d> toWaypoints(Translation2d start, int[] cells, int length,
+      Translation2d goal) {
+    final ArrayList<Translation2d> waypoints = new ArrayList<>(length);
+    waypoints.add(start);
+    for (int i = 1; i + 1 < length; i++) {
+      waypoints.add(new Translation2d(centerX(cells[i]), centerY(cells[i])));
+    }
+    waypoints.add(goal);
+    return waypoints;
+  }
+
+  /**
+   * @brief whether the robot can't be in a cell
+   *
+   * @param x cell column
+   * @param y cell row
+   * @return boolean true outside the grid
+   */
+  public boolean isBlocked(int x, int y) {
+    if (x < 0 || y < 0 || x >= m_width || y >= m_height)
+      return true;
+    final int cell = x + y * m_width;
+    return (m_blocked[cell >>> 6] & 1L << cell) != 0;
+  }
+
+  /**
+   * @brief whether the robot can't be in a cell
+   *
+   * @param cell cell index
+   * @return boolean
+   */
+  public boolean isBlocked(int cell) {
+    return (m_blocked[cell >>> 6] & 1L << cell) != 0;
+  }
+
+  /**
+   * @brief make a copy of this grid with obstacles added
+   *
+   * @param obstacles one bit per cell, set where there is an obstacle, from newObstacles()
+   * @return NavGrid
+   */
+  public NavGrid withObstacles(long[] obstacles) {
+    return new NavGrid(this, obstacles);
+  }
+
+  /**
+   * @brief make an empty set of obstacles for withObstacles()
+   *
+   * @return long[] one bit per cell
+   */
+  public long[] newObstacles() {
+    return new long[m_blocked.length];
+  }
+
+  /**
+   * @brief add a round obstacle to a set of obstacles
+   *
+   *        Every cell whose center is inside the circle is marked.
+   *
+   * @param obstacles the set, from newObstacles()
+   * @param x center along the field's length (meters)
+   * @param y center along the field's width (meters)
+   * @param radius radius, with any room the robot needs added (meters)
+   */
+  public void addObstacle(long[] obstacles, double x, double y, double radius) {
+    final int minX = Math.max((int) Math.ceil((x - radius) / m_cellSize - 0.5), 0);
+    final int maxX = Math.min((int) Math.floor((x + radius) / m_cellSize - 0.5), m_width - 1);
+    final int minY = Math.max((int) Math.ceil((y - radius) / m_cellSize - 0.5), 0);
+    final int maxY = Math.min((int) Math.floor((y + radius) / m_cellSize - 0.5), m_height - 1);
+    for (int cellY = minY; cellY <= maxY; cellY++) {
+      final double dy = (cellY + 0.5) * m_cellSize - y;
+      for (int cellX = minX; cellX <= maxX; cellX++) {
+        final double dx = (cellX + 0.5) * m_cellSize - x;
+        if (dx * dx + dy * dy <= radius * radius) {
+          final int cell = cellX + cellY * m_width;
+          obstacles[cell >>> 6] |= 1L << cell;
+        }
+      }
+    }
+  }
+
+  /**
+   * @brief get a checksum of the blocked cells, to tell if paths found on another grid are valid
+   *
+   * @return int
+   */
+  public int getChecksum() {
+    return 31 * (31 * Arrays.hashCode(m_blocked) + m_width) + m_height;
+  }
+
+  /**
+   * @brief get the distance from a cell to the nearest navgrid obstacle
+   *
+   * @param cell cell index
+   * @return double meters
+   */
+  public double getClearance(int cell) {
+    return m_clearance[cell];
+  }
+
+  /**
+   * @brief get a neighbour of a cell
+   *
+   * @param x cell column
+   * @param y cell row
+   * @param i which neighbour, 0 to kNeighbours - 1
+   * @return int cell index, -1 if it is blocked or the move cuts a corner
+   */
+  public int neighbour(int x, int y, int i) {
+    final int neighbourX = x + kNeighbourX[i];
+    final int neighbourY = y + kNeighbourY[i];
+    if (isBlocked(neighbourX, neighbourY))
+      return -1;
+    if (i >= 4 && (isBlocked(neighbourX, y) || isBlocked(x, neighbourY)))
+      return -1;
+    return neighbourX + neighbourY * m_width;
+  }
+
+  /**
+   * @brief get the distance to a neighbour
+   *
+   * @param i which neighbour, 0 to kNeighbours - 1
+   * @return double cells
+   */
+  public static double neighbourCost(int i) {
+    return kNeighbourCost[i];
+  }
+
+  /**
+   * @brief drop every cell of a path the robot can drive past in a straight line
+   *
+   * @param cells the path, changed in place
+   * @param length number of cells in the path
+   * @return int number of cells left
+   */
+  public int stringPull(int[] cells, int length) {
+    int kept = Math.min(length, 1);
+    for (int i = 1; i < length; i++) {
+      if (i + 1 < length && lineOfSight(cells[kept - 1], cells[i + 1]))
+        continue;
+      cells[kept++] = cells[i];
+    }
+    return kept;
+  }
+
+  /**
+   * @brief whether the robot can drive straight between the centers of two cells
+   *
+   *        Walks every cell the segment touches. Where it crosses exactly through a corner, both
+   *        cells beside the corner have to be free, so the robot never cuts between two obstacles.
+   *
+   * @param from cell index
+   * @param to cell index
+   * @return boolean
+   */
+  public boolean lineOfSight(int from, int to) {
+    int x = from % m_width;
+    int y = from / m_width;
+    final int toX = to % m_width;
+    final int toY = to / m_width;
+    int dx = Math.abs(toX - x);
+    int dy = Math.abs(toY - y);
+    final int stepX = toX > x ? 1 : -1;
+    final int stepY = toY > y ? 1 : -1;
+    int error = dx - dy;
+    dx *= 2;
+    dy *= 2;
+    for (int steps = (dx + dy) / 2; steps > 0; steps--) {
+      if (error > 0) {
+        x += stepX;
+        error -= dy;
+      } else if (error < 0) {
+        y += stepY;
+        error += dx;
+      } else {
+        if (isBlocked(x + stepX, y) || isBlocked(x, y + stepY))
+          return false;
+        x += stepX;
+        y += stepY;
+        error += dx - dy;
+        steps--;
+      }
+      if (isBlocked(x, y))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * @brief find the free cell nearest to a cell
+   *
+   *        Searches rings of cells around it, so a free cell is found right away.
+   *
+   * @param cell cell index
+   * @return int the nearest free cell, -1 if every cell is blocked
+   */
+  public int nearestFree(int cell) {
+    if (!isBlocked(cell))
+      return cell;
+    final int cellX = cell % m_width;
+    final int cellY = cell / m_width;
+    for (int ring = 1; ring < Math.max(m_width, m_height); ring++) {
+      int best = -1;
+      int bestDistance = Integer.MAX_VALUE;
+      for (int dy = -ring; dy <= ring; dy++) {
+        // the whole top and bottom rows of the ring, only the ends of the rows in between
+        final int stride = dy == -ring || dy == ring ? 1 : 2 * ring;
+        for (int dx = -ring; dx <= ring; dx += stride) {
+          final int distance = dx * dx + dy * dy;
+          if (distance < bestDistance && !isBlocked(cellX + dx, cellY + dy)) {
+            best = cellX + dx + (cellY + dy) * m_width;
+            bestDistance = distance;
+          }
+        }
+      }
+      if (best >= 0)
+        return best;
+    }
+    return -1;
+  }
+
+  /**
+   * @brief one dimensional squared Euclidean distance transform
+   *
+   *        The lower envelope of the parabolas rooted at every sample, from Felzenszwalb and
+   *        Huttenlocher, "Distance Transforms of Sampled Functions".
+   *
+   * @param in 0 at obstacles, kFar elsewhere, or the previous pass
+   * @param count number of samples
+   * @param out squared distances
+   * @param parabolas scratch, at least count long
+   * @param bounds scratch, at least count + 1 long
+   */
+  private static void distanceTransform(double[] in, int count, double[] out, int[] parabolas,
+      double[] bounds) {
+    int k = 0;
+    parabolas[0] = 0;
+    bounds[0] = Double.NEGATIVE_INFINITY;
+    bounds[1] = Double.POSITIVE_INFINITY;
+    for (int q = 1; q < count; q++) {
+      double s;
+      while (true) {
+        final int v = parabolas[k];
+        s = ((in[q] + q * q) - (in[v] + v * v)) / (2.0 * (q - v));
+        if (s > bounds[k] || k == 0)
+          break;
+        k--;
+      }
+      k++;
+      parabolas[k] = q;
+      bounds[k] = s;
+      bounds[k + 1] = Double.POSITIVE_INFINITY;
+    }
+    k = 0;
+    for (int q = 0; q < count; q++) {
+      while (bounds[k + 1] < q)
+        k++;
+      final int v = parabolas[k];
+      out[q] = (q - v) * (q - v) + in[v];
+    }
+  }
+}
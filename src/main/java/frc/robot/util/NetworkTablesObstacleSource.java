@@ -0,0 +1,35 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants.Pathfinding;
+
+/**
+ * @brief Obstacles published to NetworkTables, by a coprocessor that detects robots for example
+ *
+ *        Reads the double array at Obstacles/Detections. Publishers send an empty array when
+ *        nothing is detected, the last array is kept until a new one comes.
+ */
+public class NetworkTablesObstacleSource implements ObstacleSource {
+  private final DoubleArraySubscriber m_subscriber;
+
+  /**
+   * @brief NetworkTablesObstacleSource constructor
+   *
+   * @param instance the NetworkTables instance to read from
+   */
+  public NetworkTablesObstacleSource(NetworkTableInstance instance) {
+    m_subscriber = instance.getTable(Pathfinding.kObstacleTable)
+        .getDoubleArrayTopic(Pathfinding.kObstacleTopic).subscribe(new double[0]);
+  }
+
+  @Override
+  public long getVersion() {
+    return m_subscriber.getLastChange();
+  }
+
+  @Override
+  public double[] getObstacles() {
+    return m_subscriber.get();
+  }
+}
@@ -0,0 +1,195 @@
+package frc.robot.util;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.AnalogInputSim;
+import frc.robot.Constants;
+import static frc.robot.Constants.NoteSim.*;
+
+/**
+ * @brief Simulates a note moving through the intake, the indexer and out of the flywheels
+ *
+ *        The note's path through the robot is a line from the intake mouth to the flywheels. The
+ *        note moves along it with whichever rollers hold its front edge: the intake up to
+ *        kHandoffPosition, the indexer up to kFlywheelPosition, then the flywheels. It leaves the
+ *        robot when it is all the way past the flywheels (a shot) or back out of the intake mouth.
+ *        The beam breaks are driven from where the note is, so the game piece logic in
+ *        RobotContainer runs in simulation the way it does on the robot.
+ *
+ *        The robot starts with a note in the indexer. While it is empty, running the intake
+ *        forward for kFeedDelay picks up a new note, as if the robot drove over one.
+ *
+ *        Every shot is published under NoteSim in NetworkTables, with the time from pickup to
+ *        shot, so cycle times can be compared between builds in headless simulation.
+ */
+public final class NoteSimulator {
+  private static NoteSimulator s_instance;
+
+  // roller speeds, in rotations per second
+  private DoubleSupplier m_intakeSpeed = () -> 0;
+  private DoubleSupplier m_indexerSpeed = () -> 0;
+  private DoubleSupplier m_upperFlywheelSpeed = () -> 0;
+  private DoubleSupplier m_lowerFlywheelSpeed = () -> 0;
+  // beam breaks
+  private final AnalogInputSim m_intakeBeamBreak =
+      new AnalogInputSim(Constants.Intake.kBeamBreakPort);
+  private final AnalogInputSim m_indexerBeamBreak =
+      new AnalogInputSim(Constants.Indexer.kBeamBreakPort);
+
+  // note state, the position is the note's front edge
+  private boolean m_hasNote = kPreload;
+  private double m_position = (kIndexerSensorPosition + kFlywheelPosition) / 2;
+  private double m_pickupTime = Timer.getFPGATimestamp();
+  // how long the intake has run forward while the robot was empty
+  private double m_feedTime = 0;
+  private int m_shots = 0;
+
+  // publishers
+  private final DoublePublisher m_positionPub;
+  private final IntegerPublisher m_shotsPub;
+  private final DoublePublisher m_cycleTimePub;
+  private final DoublePublisher m_exitSpeedPub;
+
+  private NoteSimulator() {
+    final NetworkTable table = NetworkTableInstance.getDefault().getTable("NoteSim");
+    m_positionPub = table.getDoubleTopic("Position").publish();
+    m_shotsPub = table.getIntegerTopic("Shots").publish();
+    m_cycleTimePub = table.getDoubleTopic("Cycle Time").publish();
+    m_exitSpeedPub = table.getDoubleTopic("Exit Speed").publish();
+    updateBeamBreaks();
+    MechanismSimulator.getInstance().register(this::update);
+  }
+
+  /**
+   * @brief get the note simulator
+   *
+   * @return NoteSimulator
+   */
+  public static synchronized NoteSimulator getInstance() {
+    if (s_instance == null)
+      s_instance = new NoteSimulator();
+    return s_instance;
+  }
+
+  /**
+   * @brief set where the intake roller speed comes from
+   *
+   * @param speed rotations per second, positive towards the flywheels
+   */
+  public synchronized void setIntakeRoller(DoubleSupplier speed) {
+    m_intakeSpeed = speed;
+  }
+
+  /**
+   * @brief set where the indexer roller speed comes from
+   *
+   * @param speed rotations per second, positive towards the flywheels
+   */
+  public synchronized void setIndexerRoller(DoubleSupplier speed) {
+    m_indexerSpeed = speed;
+  }
+
+  /**
+   * @brief set where the flywheel speeds come from
+   *
+   * @param upper upper flywheel rotations per second, positive shoots
+   * @param lower lower flywheel rotations per second, positive shoots
+   */
+  public synchronized void setFlywheels(DoubleSupplier upper, DoubleSupplier lower) {
+    m_upperFlywheelSpeed = upper;
+    m_lowerFlywheelSpeed = lower;
+  }
+
+  /**
+   * @brief whether there is a note in the robot
+   *
+   * @return boolean
+   */
+  public synchronized boolean hasNote() {
+    return m_hasNote;
+  }
+
+  /**
+   * @brief get how many notes were shot
+   *
+   * @return int
+   */
+  public synchronized int getShotCount() {
+    return m_shots;
+  }
+
+  /**
+   * @brief step the note
+   *
+   * @param dt time step in seconds
+   */
+  private synchronized void update(double dt) {
+    if (!m_hasNote) {
+      // the robot is driving over a note while the intake runs
+      m_feedTime = m_intakeSpeed.getAsDouble() > kFeedSpeed ? m_feedTime + dt : 0;
+      if (m_feedTime >= kFeedDelay) {
+        m_hasNote = true;
+        m_position = 0;
+        m_pickupTime = Timer.getFPGATimestamp();
+        m_feedTime = 0;
+      }
+    } else {
+      final double speed = getSurfaceSpeed() * kGrip;
+      m_position += speed * dt;
+      if (m_position - kNoteLength > kFlywheelPosition) {
+        // all the way through the flywheels
+        m_hasNote = false;
+        m_shots++;
+        m_shotsPub.set(m_shots);
+        m_cycleTimePub.set(Timer.getFPGATimestamp() - m_pickupTime);
+        m_exitSpeedPub.set(speed);
+      } else if (m_position < 0) {
+        // back out of the intake
+        m_hasNote = false;
+      }
+    }
+    m_positionPub.set(m_hasNote ? m_position : Double.NaN);
+    updateBeamBreaks();
+  }
+
+  /**
+   * @brief get the surface speed of the rollers holding the note's front edge
+   *
+   * @return double meters per second
+   */
+  private double getSurfaceSpeed() {
+    if (m_position >= kFlywheelPosition) {
+      final double flywheelSpeed =
+          (m_upperFlywheelSpeed.getAsDouble() + m_lowerFlywheelSpeed.getAsDouble()) / 2;
+      return flywheelSpeed * Math.PI * kFlywheelDiameter;
+    }
+    if (m_position >= kHandoffPosition)
+      return m_indexerSpeed.getAsDouble() * Math.PI * kIndexerRollerDiameter;
+    return m_intakeSpeed.getAsDouble() * Math.PI * kIntakeRollerDiameter;
+  }
+
+  /**
+   * @brief set the beam break voltages from where the note is
+   */
+  private void updateBeamBreaks() {
+    final boolean intakeBroken = isCovered(kIntakeSensorPosition);
+    final boolean indexerBroken = isCovered(kIndexerSensorPosition);
+    m_intakeBeamBreak.setVoltage(intakeBroken ? kBeamBreakHigh : kBeamBreakLow);
+    m_indexerBeamBreak.setVoltage(indexerBroken ? kBeamBreakLow : kBeamBreakHigh);
+  }
+
+  /**
+   * @brief whether the note covers a point on its path
+   *
+   * @param position the point, from the intake mouth in meters
+   * @return boolean
+   */
+  private boolean isCovered(double position) {
+    return m_hasNote && position <= m_position && position >= m_position - kNoteLength;
+  }
+}
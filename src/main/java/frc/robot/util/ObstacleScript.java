@@ -0,0 +1,72 @@
+package frc.robot.util;
+
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Notifier;
+import frc.robot.Constants.Pathfinding;
+
+/**
+ * @brief Publishes scripted obstacles to NetworkTables, for trying the dynamic pathing in
+ *        simulation
+ *
+ *        The script is a list of steps, each the obstacles to publish for one period, looping
+ *        once it ends. NetworkTablesObstacleSource reads them back from the same local instance,
+ *        the same way it reads a coprocessor's detections on the robot.
+ */
+public class ObstacleScript {
+  private final DoubleArrayPublisher m_publisher;
+  private final double[][] m_steps;
+  private final Notifier m_notifier;
+  private int m_step = 0;
+
+  /**
+   * @brief ObstacleScript constructor
+   *
+   * @param instance the NetworkTables instance to publish to
+   * @param steps the obstacles of every step, as x, y and radius of each (meters)
+   */
+  public ObstacleScript(NetworkTableInstance instance, double[]... steps) {
+    m_publisher = instance.getTable(Pathfinding.kObstacleTable)
+        .getDoubleArrayTopic(Pathfinding.kObstacleTopic).publish();
+    m_steps = steps;
+    m_notifier = new Notifier(this::publishStep);
+    m_notifier.setName("ObstacleScript");
+  }
+
+  /**
+   * @brief a robot driving back and forth across the blue wing, in the way to the amp
+   *
+   * @param instance the NetworkTables instance to publish to
+   * @return ObstacleScript
+   */
+  public static ObstacleScript defender(NetworkTableInstance instance) {
+    final int steps = 80;
+    final double[][] script = new double[steps][];
+    for (int i = 0; i < steps; i++) {
+      // there and back, with a pause at each end
+      final double t = Math.min(Math.max(Math.abs(2.0 * i / steps - 1) * 1.2 - 0.1, 0), 1);
+      script[i] = new double[] {2.0, 1.0 + 5.0 * t, 0.45};
+    }
+    return new ObstacleScript(instance, script);
+  }
+
+  /**
+   * @brief start publishing the steps
+   */
+  public void start() {
+    m_notifier.startPeriodic(Pathfinding.kObstacleScriptPeriod);
+  }
+
+  /**
+   * @brief stop publishing, and clear the obstacles
+   */
+  public void stop() {
+    m_notifier.stop();
+    m_publisher.set(new double[0]);
+  }
+
+  private void publishStep() {
+    m_publisher.set(m_steps[m_step]);
+    m_step = (m_step + 1) % m_steps.length;
+  }
+}
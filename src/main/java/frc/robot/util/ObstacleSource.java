@@ -0,0 +1,24 @@
+package frc.robot.util;
+
+/**
+ * @brief Obstacles that aren't on the navgrid, other robots for example
+ *
+ *        Every obstacle is a circle, packed as its x, y and radius in one array, in field
+ *        coordinates (meters). The radius is the obstacle's own, the room the robot needs is added
+ *        by whoever plans around it.
+ */
+public interface ObstacleSource {
+  /**
+   * @brief get a number that changes whenever the obstacles do
+   *
+   * @return long
+   */
+  long getVersion();
+
+  /**
+   * @brief get the obstacles
+   *
+   * @return double[] x, y and radius of every obstacle
+   */
+  double[] getObstacles();
+}
@@ -0,0 +1,402 @@
+package frc.robot.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.pathplanner.lib.path.PathConstraints;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.Pathfinding;
+
+/**
+ * @brief Keeps the paths GridPathfinder found, in memory and in a file
+ *
+ *        A path is keyed on the navgrid cell it started in, the goal pose and the constraints.
+ *        Starts in the same cell share a path, so it is searched from the center of the cell, see
+ *        start(). Only its corners after the start are kept: the robot's path is built from
+ *        where it really is to those corners every time, so it never starts off the robot.
+ *
+ *        There are two tiers:
+ *        - memory: the corners as Translation2ds, least recently used first out once their
+ *          estimated size passes kCacheMemoryBytes
+ *        - stored: the corners of up to kCacheStoredPaths paths as floats, saved to a small
+ *          binary file in the operating directory. A stored path is decoded again when it is
+ *          needed, which skips the search.
+ *
+ *        The file is read at startup on a background thread, and the most recent paths are decoded
+ *        ahead of time, so the paths the driver uses every match are warm after a reboot. Saving
+ *        happens on the same thread, never in the main loop. The file starts with the navgrid's
+ *        checksum and is ignored if the navgrid changed.
+ *
+ *        Published under PathCache: hits, stored hits, misses, evictions and the number of
+ *        stored paths. The lookup time is under Profiling/PathCache.get.
+ */
+public final class PathCache {
+  private static final int kMagic = 0x50434348; // "PCCH"
+  private static final int kVersion = 3;
+
+  /**
+   * @brief What a cached path is looked up by
+   */
+  public static final class Key {
+    private final int m_startCell;
+    private final int m_goalX;
+    private final int m_goalY;
+    private final int m_goalRotation;
+    private final int m_maxSpeed;
+    private final int m_maxAcceleration;
+    private final int m_maxAngularSpeed;
+    private final int m_maxAngularAcceleration;
+
+    private Key(int startCell, int goalX, int goalY, int goalRotation, int maxSpeed,
+        int maxAcceleration, int maxAngularSpeed, int maxAngularAcceleration) {
+      m_startCell = startCell;
+      m_goalX = goalX;
+      m_goalY = goalY;
+      m_goalRotation = goalRotation;
+      m_maxSpeed = maxSpeed;
+      m_maxAcceleration = maxAcceleration;
+      m_maxAngularSpeed = maxAngularSpeed;
+      m_maxAngularAcceleration = maxAngularAcceleration;
+    }
+
+    private Key(DataInputStream in) throws IOException {
+      this(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+          in.readInt(), in.readInt());
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+      out.writeInt(m_startCell);
+      out.writeInt(m_goalX);
+      out.writeInt(m_goalY);
+      out.writeInt(m_goalRotation);
+      out.writeInt(m_maxSpeed);
+      out.writeInt(m_maxAcceleration);
+      out.writeInt(m_maxAngularSpeed);
+      out.writeInt(m_maxAngularAcceleration);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key))
+        return false;
+      final Key key = (Key) other;
+      return m_startCell == key.m_startCell && m_goalX == key.m_goalX && m_goalY == key.m_goalY
+          && m_goalRotation == key.m_goalRotation && m_maxSpeed == key.m_maxSpeed
+          && m_maxAcceleration == key.m_maxAcceleration
+          && m_maxAngularSpeed == key.m_maxAngularSpeed
+          && m_maxAngularAcceleration == key.m_maxAngularAcceleration;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = m_startCell;
+      hash = 31 * hash + m_goalX;
+      hash = 31 * hash + m_goalY;
+      hash = 31 * hash + m_goalRotation;
+      hash = 31 * hash + m_maxSpeed;
+      hash = 31 * hash + m_maxAcceleration;
+      hash = 31 * hash + m_maxAngularSpeed;
+      return 31 * hash + m_maxAngularAcceleration;
+    }
+  }
+
+  private static PathCache s_instance = null;
+
+  private final File m_file;
+  private final int m_checksum;
+
+  // guarded by this, both in least recently used order
+  private final LinkedHashMap<Key, List<Translation2d>> m_memory =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private long m_memoryBytes = 0;
+  private final LinkedHashMap<Key, float[]> m_stored = new LinkedHashMap<>(16, 0.75f, true);
+
+  private final ExecutorService m_io = Executors.newSingleThreadExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "PathCache");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final AtomicBoolean m_savePending = new AtomicBoolean();
+
+  // statistics, guarded by this
+  private final SectionTimer m_getTimer = new SectionTimer("PathCache.get");
+  private long m_hits = 0;
+  private long m_storedHits = 0;
+  private long m_misses = 0;
+  private long m_evictions = 0;
+  private final IntegerPublisher m_hitsPublisher;
+  private final IntegerPublisher m_storedHitsPublisher;
+  private final IntegerPublisher m_missesPublisher;
+  private final IntegerPublisher m_evictionsPublisher;
+  private final IntegerPublisher m_storedPublisher;
+
+  /**
+   * @brief PathCache constructor, starts reading the file in the background
+   *
+   * @param file where the paths are saved
+   * @param grid the navgrid the paths were found on
+   */
+  public PathCache(File file, NavGrid grid) {
+    m_file = file;
+    m_checksum = grid.getChecksum();
+    final NetworkTable table = NetworkTableInstance.getDefault().getTable("PathCache");
+    m_hitsPublisher = table.getIntegerTopic("Hits").publish();
+    m_storedHitsPublisher = table.getIntegerTopic("Stored Hits").publish();
+    m_missesPublisher = table.getIntegerTopic("Misses").publish();
+    m_evictionsPublisher = table.getIntegerTopic("Evictions").publish();
+    m_storedPublisher = table.getIntegerTopic("Stored Paths").publish();
+    m_io.execute(this::load);
+  }
+
+  /**
+   * @brief get the cache of GridPathfinder's paths, reading the file on first use
+   *
+   * @return PathCache, null if the navgrid couldn't be loaded
+   */
+  public static synchronized PathCache getInstance() {
+    if (s_instance == null) {
+      final GridPathfinder pathfinder = GridPathfinder.getInstance();
+      if (pathfinder == null)
+        return null;
+      s_instance = new PathCache(
+          new File(Filesystem.getOperatingDirectory(), Pathfinding.kPathCacheFile),
+          pathfinder.getGrid());
+    }
+    return s_instance;
+  }
+
+  /**
+   * @brief make the key of a path
+   *
+   * @param grid the navgrid
+   * @param start where the robot is
+   * @param goal where the robot should go
+   * @param constraints the path's constraints
+   * @return Key
+   */
+  public static Key key(NavGrid grid, Pose2d start, Pose2d goal, PathConstraints constraints) {
+    return new Key(grid.cellAt(start.getX(), start.getY()), quantize(goal.getX()),
+        quantize(goal.getY()), quantize(goal.getRotation().getRadians()),
+        quantize(constraints.getMaxVelocityMps()),
+        quantize(constraints.getMaxAccelerationMpsSq()),
+        quantize(constraints.getMaxAngularVelocityRps()),
+        quantize(constraints.getMaxAngularAccelerationRpsSq()));
+  }
+
+  /**
+   * @brief get where a key's path is searched from
+   *
+   *        Every start in the key's cell shares the path, so it has to be found from the center
+   *        of the cell, not from where the first robot to ask happened to be. The robot's own path
+   *        still starts where the robot is, the center only picks the corners.
+   *
+   * @param grid the navgrid
+   * @param key the key of the path
+   * @return Translation2d the center of the start cell
+   */
+  public static Translation2d start(NavGrid grid, Key key) {
+    return new Translation2d(grid.centerX(key.m_startCell), grid.centerY(key.m_startCell));
+  }
+
+  /**
+   * @brief look up a path
+   *
+   * @param key the key of the path
+   * @return List<Translation2d> the path's corners after its start, ending at the goal, null if
+   *         it isn't cached
+   */
+  public List<Translation2d> get(Key key) {
+    m_getTimer.start();
+    List<Translation2d> path;
+    float[] corners = null;
+    synchronized (this) {
+      path = m_memory.get(key);
+      if (path != null)
+        m_hits++;
+      else if ((corners = m_stored.get(key)) != null)
+        m_storedHits++;
+      else
+        m_misses++;
+    }
+    // decoded outside the lock, so the loading thread never waits on it
+    if (corners != null) {
+      path = decode(corners);
+      synchronized (this) {
+        remember(key, path);
+      }
+    }
+    m_getTimer.stop();
+    publish();
+    return path;
+  }
+
+  /**
+   * @brief add a path, and save it in the background
+   *
+   * @param key the key of the path
+   * @param path the path's corners after its start, ending at the goal
+   */
+  public void put(Key key, List<Translation2d> path) {
+    final float[] corners = new float[path.size() * 2];
+    for (int i = 0; i < path.size(); i++) {
+      corners[2 * i] = (float) path.get(i).getX();
+      corners[2 * i + 1] = (float) path.get(i).getY();
+    }
+    synchronized (this) {
+      remember(key, List.copyOf(path));
+      m_stored.put(key, corners);
+      while (m_stored.size() > Pathfinding.kCacheStoredPaths) {
+        final Iterator<Key> eldest = m_stored.keySet().iterator();
+        eldest.next();
+        eldest.remove();
+      }
+    }
+    publish();
+    if (m_savePending.compareAndSet(false, true))
+      m_io.execute(this::save);
+  }
+
+  /**
+   * @brief add a decoded path to memory, evicting the least recently used ones over the budget
+   */
+  private void remember(Key key, List<Translation2d> path) {
+    final List<Translation2d> previous = m_memory.put(key, path);
+    if (previous != null)
+      m_memoryBytes -= estimateBytes(previous);
+    m_memoryBytes += estimateBytes(path);
+    final Iterator<Map.Entry<Key, List<Translation2d>>> eldest = m_memory.entrySet().iterator();
+    while (m_memoryBytes > Pathfinding.kCacheMemoryBytes && m_memory.size() > 1) {
+      final Map.Entry<Key, List<Translation2d>> entry = eldest.next();
+      m_memoryBytes -= estimateBytes(entry.getValue());
+      eldest.remove();
+      m_evictions++;
+    }
+  }
+
+  private static List<Translation2d> decode(float[] corners) {
+    final Translation2d[] path = new Translation2d[corners.length / 2];
+    for (int i = 0; i < path.length; i++) {
+      path[i] = new Translation2d(corners[2 * i], corners[2 * i + 1]);
+    }
+    return List.of(path);
+  }
+
+  /**
+   * @brief read the file, on the background thread
+   */
+  private void load() {
+    if (!m_file.exists())
+      return;
+    final LinkedHashMap<Key, float[]> stored = new LinkedHashMap<>();
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(m_file)))) {
+      if (in.readInt() != kMagic || in.readInt() != kVersion || in.readInt() != m_checksum)
+        return;
+      final int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        final Key key = new Key(in);
+        final float[] corners = new float[in.readUnsignedShort() * 2];
+        for (int j = 0; j < corners.length; j++) {
+          corners[j] = in.readFloat();
+        }
+        stored.put(key, corners);
+      }
+    } catch (IOException e) {
+      DriverStation.reportWarning("PathCache: couldn't read " + m_file + ": " + e, false);
+      return;
+    }
+    // decode the most recently used paths, as many as fit in memory
+    final ArrayList<Map.Entry<Key, float[]>> entries = new ArrayList<>(stored.entrySet());
+    long bytes = 0;
+    final ArrayList<Map.Entry<Key, List<Translation2d>>> built = new ArrayList<>();
+    for (int i = entries.size() - 1; i >= 0 && bytes < Pathfinding.kCacheMemoryBytes; i--) {
+      final Key key = entries.get(i).getKey();
+      final List<Translation2d> path = decode(entries.get(i).getValue());
+      bytes += estimateBytes(path);
+      built.add(Map.entry(key, path));
+    }
+    synchronized (this) {
+      // paths found while the file was read are newer
+      stored.putAll(m_stored);
+      m_stored.clear();
+      m_stored.putAll(stored);
+      for (int i = built.size() - 1; i >= 0; i--) {
+        if (!m_memory.containsKey(built.get(i).getKey()))
+          remember(built.get(i).getKey(), built.get(i).getValue());
+      }
+    }
+    publish();
+  }
+
+  /**
+   * @brief write the file, on the background thread
+   */
+  private void save() {
+    m_savePending.set(false);
+    final ArrayList<Map.Entry<Key, float[]>> entries;
+    synchronized (this) {
+      entries = new ArrayList<>(m_stored.entrySet());
+    }
+    final File temporary = new File(m_file.getPath() + ".tmp");
+    try {
+      try (DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+        out.writeInt(kMagic);
+        out.writeInt(kVersion);
+        out.writeInt(m_checksum);
+        out.writeInt(entries.size());
+        for (final Map.Entry<Key, float[]> entry : entries) {
+          entry.getKey().write(out);
+          out.writeShort(entry.getValue().length / 2);
+          for (final float value : entry.getValue()) {
+            out.writeFloat(value);
+          }
+        }
+      }
+      // replaced in one step, a reboot while saving leaves the old file
+      Files.move(temporary.toPath(), m_file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      DriverStation.reportError("PathCache: couldn't write " + m_file + ": " + e, false);
+    }
+  }
+
+  private synchronized void publish() {
+    m_hitsPublisher.set(m_hits);
+    m_storedHitsPublisher.set(m_storedHits);
+    m_missesPublisher.set(m_misses);
+    m_evictionsPublisher.set(m_evictions);
+    m_storedPublisher.set(m_stored.size());
+  }
+
+  private static long estimateBytes(List<Translation2d> path) {
+    return (long) path.size() * Pathfinding.kCacheBytesPerCorner;
+  }
+
+  private static int quantize(double value) {
+    return (int) Math.round(value / Pathfinding.kCacheResolution);
+  }
+}
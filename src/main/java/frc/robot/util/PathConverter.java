@@ -0,0 +1,133 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import me.nabdev.pathfinding.structures.Path;
+import me.nabdev.pathfinding.structures.Vertex;
+
+/**
+ * @brief Turns Oxplorer paths into PathPlannerPaths
+ *
+ *        The vertices are read once into reused coordinate buffers, then the bezier points are
+ *        written straight into the list the PathPlannerPath keeps. Nothing else is allocated, no
+ *        Pose2d list and no second list of points.
+ *
+ *        Every vertex gets a tangent along the line from the vertex before it to the one after
+ *        it, so the curve is smooth through the corners instead of heading along the field's x
+ *        axis, which is what PathPlannerPath.bezierFromPoses() does with Oxplorer's poses. The
+ *        control points reach kCornerSmoothing of the shorter segment on either side, so the
+ *        curve stays close to the corner Oxplorer planned around. PathPlanner then slows the
+ *        robot through the tighter curves itself, within the constraints.
+ *
+ *        Not thread safe, a converter belongs to the thread that uses it.
+ */
+public final class PathConverter {
+  // vertices closer than this are the same point (meters)
+  private static final double kEpsilon = 1e-6;
+
+  private final double m_smoothing;
+  // the path's anchors, grown as needed
+  private double[] m_x = new double[32];
+  private double[] m_y = new double[32];
+  private int m_count = 0;
+
+  /**
+   * @brief PathConverter constructor
+   *
+   * @param smoothing how far along the shorter segment next to a corner its curve starts, at most
+   *        1/3 so the curves of two corners never cross
+   */
+  public PathConverter(double smoothing) {
+    m_smoothing = Math.min(Math.max(smoothing, 0), 1.0 / 3);
+  }
+
+  /**
+   * @brief convert a path
+   *
+   * @param start where the path starts
+   * @param path the path, with or without its start and target
+   * @param target where the path ends, the robot faces its rotation at the end
+   * @param constraints the path's constraints
+   * @return PathPlannerPath, never flipped, null if the path has no length
+   */
+  public PathPlannerPath convert(Pose2d start, Path path, Pose2d target,
+      PathConstraints constraints) {
+    final List<Translation2d> bezierPoints = bezierPoints(start, path, target);
+    if (bezierPoints == null)
+      return null;
+    final PathPlannerPath converted =
+        new PathPlannerPath(bezierPoints, constraints, new GoalEndState(0.0, target.getRotation()));
+    converted.preventFlipping = true;
+    return converted;
+  }
+
+  /**
+   * @brief make the bezier points of a path
+   *
+   * @param start where the path starts
+   * @param path the path, with or without its start and target
+   * @param target where the path ends
+   * @return List<Translation2d> anchor, control, control, anchor... null if the path has no length
+   */
+  public List<Translation2d> bezierPoints(Pose2d start, Path path, Pose2d target) {
+    m_count = 0;
+    add(start.getX(), start.getY());
+    for (int i = 0; i < path.size(); i++) {
+      final Vertex vertex = path.get(i);
+      add(vertex.x, vertex.y);
+    }
+    add(target.getX(), target.getY());
+    if (m_count < 2)
+      return null;
+
+    final ArrayList<Translation2d> points = new ArrayList<>(3 * m_count - 2);
+    double inLength = 0;
+    for (int i = 0; i < m_count; i++) {
+      final double outLength = i + 1 < m_count
+          ? Math.hypot(m_x[i + 1] - m_x[i], m_y[i + 1] - m_y[i])
+          : 0;
+      // along the chord from the anchor before to the anchor after, the ends along their segment
+      final int before = Math.max(i - 1, 0);
+      final int after = Math.min(i + 1, m_count - 1);
+      final double chordX = m_x[after] - m_x[before];
+      final double chordY = m_y[after] - m_y[before];
+      final double chord = Math.hypot(chordX, chordY);
+      // a path doubling back on itself has no chord, any direction is as good
+      final double tangentX = chord > kEpsilon ? chordX / chord : 1;
+      final double tangentY = chord > kEpsilon ? chordY / chord : 0;
+      final double reach = m_smoothing * (i == 0 ? outLength
+          : i + 1 == m_count ? inLength : Math.min(inLength, outLength));
+      if (i > 0)
+        points.add(new Translation2d(m_x[i] - tangentX * reach, m_y[i] - tangentY * reach));
+      points.add(new Translation2d(m_x[i], m_y[i]));
+      if (i + 1 < m_count)
+        points.add(new Translation2d(m_x[i] + tangentX * reach, m_y[i] + tangentY * reach));
+      inLength = outLength;
+    }
+    return points;
+  }
+
+  /**
+   * @brief add an anchor, unless it is on top of the last one
+   */
+  private void add(double x, double y) {
+    if (m_count > 0 && Math.abs(m_x[m_count - 1] - x) <= kEpsilon
+        && Math.abs(m_y[m_count - 1] - y) <= kEpsilon)
+      return;
+    if (m_count == m_x.length) {
+      m_x = Arrays.copyOf(m_x, m_count * 2);
+      m_y = Arrays.copyOf(m_y, m_count * 2);
+    }
+    m_x[m_count] = x;
+    m_y[m_count] = y;
+    m_count++;
+  }
+}
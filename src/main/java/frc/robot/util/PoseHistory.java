@@ -0,0 +1,193 @@
+package frc.robot.util;
+
+import java.lang.invoke.VarHandle;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * @brief Ring buffer of timestamped odometry poses
+ *
+ *        Stores the last few seconds of poses in primitive arrays so a vision measurement can be
+ *        compared against where the robot was when the frame was captured instead of where it is
+ *        now. Each sample also stores the odometry variance accumulated since the buffer was
+ *        created, which grows with the distance driven and the angle turned.
+ *
+ *        Odometry updates at a nearly constant rate, so the sample closest to a timestamp is
+ *        guessed from the average period and then corrected by a step or two, which makes a lookup
+ *        O(1) instead of a search.
+ *
+ *        There must only ever be one writer. Readers never block it: a read is retried if the
+ *        writer overwrote the samples it was reading.
+ */
+public class PoseHistory {
+  /**
+   * @brief a pose from the history
+   */
+  public static class Sample {
+    public double timestamp; // seconds
+    public double x; // meters
+    public double y; // meters
+    public double heading; // radians
+    public double translationVariance; // accumulated odometry variance, meters^2
+    public double headingVariance; // accumulated odometry variance, radians^2
+
+    /**
+     * @brief get the pose of the sample
+     *
+     * @return Pose2d
+     */
+    public Pose2d toPose2d() {
+      return new Pose2d(x, y, new Rotation2d(heading));
+    }
+  }
+
+  private final int m_mask;
+  private final double[] m_timestamps;
+  private final double[] m_x;
+  private final double[] m_y;
+  private final double[] m_headings;
+  private final double[] m_translationVariances;
+  private final double[] m_headingVariances;
+  // standard deviation added per meter driven and per radian turned
+  private final double m_translationDrift;
+  private final double m_headingDrift;
+  // number of samples ever written, the newest sample is m_count - 1
+  private volatile long m_count = 0;
+  // index of the sample being written, set before its slot is overwritten
+  private volatile long m_writing = 0;
+  // accumulated variance, only touched by the writer
+  private double m_translationVariance = 0;
+  private double m_headingVariance = 0;
+
+  /**
+   * @brief PoseHistory constructor
+   *
+   * @param capacity number of samples kept, rounded up to a power of two
+   * @param translationDrift odometry standard deviation added per meter driven
+   * @param headingDrift odometry standard deviation added per radian turned
+   */
+  public PoseHistory(int capacity, double translationDrift, double headingDrift) {
+    final int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+    m_mask = size - 1;
+    m_timestamps = new double[size];
+    m_x = new double[size];
+    m_y = new double[size];
+    m_headings = new double[size];
+    m_translationVariances = new double[size];
+    m_headingVariances = new double[size];
+    m_translationDrift = translationDrift;
+    m_headingDrift = headingDrift;
+  }
+
+  /**
+   * @brief add a pose
+   *
+   *        Called from the odometry thread. Samples that are not newer than the last one are
+   *        ignored. Does not allocate.
+   *
+   * @param timestamp when the pose was measured, in seconds
+   * @param pose the pose
+   */
+  public void add(double timestamp, Pose2d pose) {
+    final long count = m_count;
+    final double x = pose.getX();
+    final double y = pose.getY();
+    final double heading = pose.getRotation().getRadians();
+    if (count > 0) {
+      final int last = (int) ((count - 1) & m_mask);
+      if (timestamp <= m_timestamps[last])
+        return;
+      final double distance = Math.hypot(x - m_x[last], y - m_y[last]);
+      final double turn = Math.abs(MathUtil.angleModulus(heading - m_headings[last]));
+      m_translationVariance += square(m_translationDrift * distance);
+      m_headingVariance += square(m_headingDrift * turn);
+    }
+    // overwrites the oldest sample, readers check m_writing to see if they were using it
+    m_writing = count;
+    VarHandle.storeStoreFence();
+    final int slot = (int) (count & m_mask);
+    m_timestamps[slot] = timestamp;
+    m_x[slot] = x;
+    m_y[slot] = y;
+    m_headings[slot] = heading;
+    m_translationVariances[slot] = m_translationVariance;
+    m_headingVariances[slot] = m_headingVariance;
+    // volatile write, publishes the sample
+    m_count = count + 1;
+  }
+
+  /**
+   * @brief get the interpolated pose at a time
+   *
+   *        Times newer than the newest sample get the newest sample. Does not allocate.
+   *
+   * @param timestamp the time, in seconds
+   * @param out where to write the pose
+   * @return boolean false if the history is empty or doesn't go back far enough
+   */
+  public boolean sample(double timestamp, Sample out) {
+    while (true) {
+      final long count = m_count;
+      if (count == 0)
+        return false;
+      // the oldest slot may be getting overwritten by the next sample, so it is never read
+      final long oldest = Math.max(count - m_mask, 0);
+      final long newest = count - 1;
+      final double newestTime = m_timestamps[(int) (newest & m_mask)];
+      final double oldestTime = m_timestamps[(int) (oldest & m_mask)];
+      final long index;
+      if (timestamp >= newestTime || oldest == newest) {
+        index = newest;
+        copy(index, index, 0, out);
+      } else if (timestamp < oldestTime) {
+        index = -1;
+      } else {
+        // guess from the average period, then step to the samples around the timestamp
+        final double period = (newestTime - oldestTime) / (newest - oldest);
+        long guess = newest - (long) Math.ceil((newestTime - timestamp) / period);
+        guess = Math.min(Math.max(guess, oldest), newest - 1);
+        while (guess > oldest && m_timestamps[(int) (guess & m_mask)] > timestamp)
+          guess--;
+        while (guess < newest - 1 && m_timestamps[(int) ((guess + 1) & m_mask)] <= timestamp)
+          guess++;
+        index = guess;
+        final double before = m_timestamps[(int) (index & m_mask)];
+        final double after = m_timestamps[(int) ((index + 1) & m_mask)];
+        copy(index, index + 1, (timestamp - before) / (after - before), out);
+      }
+      // the samples are only valid if the writer didn't reach them while we were reading
+      VarHandle.loadLoadFence();
+      if (oldest >= m_writing - m_mask)
+        return index >= 0;
+    }
+  }
+
+  /**
+   * @brief interpolate between two samples
+   *
+   * @param from index of the first sample
+   * @param to index of the second sample
+   * @param t how far between the samples, between 0 and 1
+   * @param out where to write the result
+   */
+  private void copy(long from, long to, double t, Sample out) {
+    final int a = (int) (from & m_mask);
+    final int b = (int) (to & m_mask);
+    out.timestamp = lerp(m_timestamps[a], m_timestamps[b], t);
+    out.x = lerp(m_x[a], m_x[b], t);
+    out.y = lerp(m_y[a], m_y[b], t);
+    out.heading = m_headings[a] + MathUtil.angleModulus(m_headings[b] - m_headings[a]) * t;
+    out.translationVariance = lerp(m_translationVariances[a], m_translationVariances[b], t);
+    out.headingVariance = lerp(m_headingVariances[a], m_headingVariances[b], t);
+  }
+
+  private static double lerp(double a, double b, double t) {
+    return a + (b - a) * t;
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+}
@@ -0,0 +1,126 @@
+package frc.robot.util;
+
+import java.lang.management.ManagementFactory;
+
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants.Profiling;
+
+/**
+ * @brief Measures the cost of a section of code on the robot
+ *
+ *        Wrap the section in start() and stop(). Every publish period the timer publishes the
+ *        average time (ns/op), the worst time and, if Profiling.kTrackAllocations is on, the
+ *        average heap allocation (bytes/op) of the section under Profiling/[name] in
+ *        NetworkTables.
+ *
+ *        This is for sections that run now and then, like planning a path, where the cost on
+ *        the robot is what matters. Code that runs every loop is measured off the robot by
+ *        HotPathBenchmark instead, so the robot doesn't pay for measuring it.
+ *
+ *        A timer belongs to the thread that runs the section. Publishing is done from stop() on
+ *        that same thread, so never time a section on a thread that must not touch
+ *        NetworkTables, like the odometry thread.
+ */
+public class SectionTimer {
+  // allocation counter for the current thread, null if the JVM doesn't provide one
+  private static final com.sun.management.ThreadMXBean kThreadBean = getThreadBean();
+
+  // publishers
+  private final DoublePublisher m_nanosPerOp;
+  private final DoublePublisher m_maxNanos;
+  private final DoublePublisher m_bytesPerOp;
+  private final IntegerPublisher m_ops;
+
+  // current sample
+  private long m_startNanos = 0;
+  private long m_startBytes = 0;
+  // current publish window
+  private long m_windowStart = System.nanoTime();
+  private long m_windowOps = 0;
+  private long m_windowNanos = 0;
+  private long m_windowMaxNanos = 0;
+  private long m_windowBytes = 0;
+  private long m_totalOps = 0;
+
+  /**
+   * @brief SectionTimer constructor
+   *
+   * @param name name of the section, used as the NetworkTables sub-table
+   */
+  public SectionTimer(String name) {
+    final NetworkTable table =
+        NetworkTableInstance.getDefault().getTable("Profiling").getSubTable(name);
+    m_nanosPerOp = table.getDoubleTopic("ns per op").publish();
+    m_maxNanos = table.getDoubleTopic("max ns").publish();
+    m_bytesPerOp = table.getDoubleTopic("bytes per op").publish();
+    m_ops = table.getIntegerTopic("ops").publish();
+  }
+
+  /**
+   * @brief start timing the section
+   */
+  public void start() {
+    if (kThreadBean != null)
+      m_startBytes = kThreadBean.getCurrentThreadAllocatedBytes();
+    m_startNanos = System.nanoTime();
+  }
+
+  /**
+   * @brief stop timing the section
+   *
+   * @return long how long the section took, in nanoseconds
+   */
+  public long stop() {
+    final long now = System.nanoTime();
+    final long elapsed = now - m_startNanos;
+    if (kThreadBean != null)
+      m_windowBytes += kThreadBean.getCurrentThreadAllocatedBytes() - m_startBytes;
+    m_windowOps++;
+    m_totalOps++;
+    m_windowNanos += elapsed;
+    if (elapsed > m_windowMaxNanos)
+      m_windowMaxNanos = elapsed;
+    // publish once per window
+    if (now - m_windowStart >= (long) (Profiling.kSectionPublishPeriod * 1e9))
+      publish(now);
+    return elapsed;
+  }
+
+  /**
+   * @brief publish the statistics of the current window and start a new one
+   *
+   * @param now the current time, in nanoseconds
+   */
+  private void publish(long now) {
+    m_nanosPerOp.set((double) m_windowNanos / m_windowOps);
+    m_maxNanos.set(m_windowMaxNanos);
+    m_bytesPerOp.set(kThreadBean != null ? (double) m_windowBytes / m_windowOps : -1);
+    m_ops.set(m_totalOps);
+    m_windowStart = now;
+    m_windowOps = 0;
+    m_windowNanos = 0;
+    m_windowMaxNanos = 0;
+    m_windowBytes = 0;
+  }
+
+  /**
+   * @brief get the allocation counter of the JVM
+   *
+   * @return com.sun.management.ThreadMXBean or null if allocation tracking is unavailable
+   */
+  private static com.sun.management.ThreadMXBean getThreadBean() {
+    if (!Profiling.kTrackAllocations)
+      return null;
+    if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+      return null;
+    final com.sun.management.ThreadMXBean bean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if (!bean.isThreadAllocatedMemorySupported())
+      return null;
+    bean.setThreadAllocatedMemoryEnabled(true);
+    return bean;
+  }
+}
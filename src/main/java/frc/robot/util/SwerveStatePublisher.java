@@ -0,0 +1,241 @@
+package frc.robot.util;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.ejml.simple.SimpleMatrix;
+
+import com.ctre.phoenix6.mechanisms.swerve.SwerveDrivetrain.SwerveDriveState;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * @brief Lock-free publisher for the swerve drive state
+ *
+ *        The odometry thread writes the pose, module states and chassis speeds into primitive
+ *        fields guarded by a sequence counter (a seqlock). Readers copy the fields and retry if the
+ *        counter changed while they were copying, so they always get a consistent state and the
+ *        writer never waits for a reader.
+ *
+ *        Writes must never overlap. The drivetrain holds its odometry lock around every write, the
+ *        odometry thread's and a pose reset's.
+ */
+public class SwerveStatePublisher {
+  /**
+   * @brief a consistent copy of the drive state
+   */
+  public static class Snapshot {
+    public double timestamp; // seconds, same timebase as Utils.getCurrentTimeSeconds()
+    public double x; // meters
+    public double y; // meters
+    public double heading; // radians
+    public double vx; // robot relative, meters per second
+    public double vy; // robot relative, meters per second
+    public double omega; // radians per second
+    public final double[] moduleSpeeds; // meters per second
+    public final double[] moduleAngles; // radians
+
+    /**
+     * @brief Snapshot constructor
+     *
+     * @param moduleCount number of swerve modules
+     */
+    public Snapshot(int moduleCount) {
+      moduleSpeeds = new double[moduleCount];
+      moduleAngles = new double[moduleCount];
+    }
+
+    /**
+     * @brief get the pose of the snapshot
+     *
+     * @return Pose2d
+     */
+    public Pose2d toPose2d() {
+      return new Pose2d(x, y, new Rotation2d(heading));
+    }
+  }
+
+  // sequence counter, odd while the writer is writing
+  private volatile long m_sequence = 0;
+  // state, only valid while the sequence is even and unchanged
+  private double m_timestamp = 0;
+  private double m_x = 0;
+  private double m_y = 0;
+  private double m_heading = 0;
+  private double m_vx = 0;
+  private double m_vy = 0;
+  private double m_omega = 0;
+  private final double[] m_moduleSpeeds;
+  private final double[] m_moduleAngles;
+  // forward kinematics, module velocities -> chassis speeds (least squares)
+  private final double[][] m_forwardKinematics;
+  // number of times a reader had to retry
+  private final LongAdder m_retries = new LongAdder();
+
+  /**
+   * @brief SwerveStatePublisher constructor
+   *
+   * @param moduleLocations location of each module relative to the robot center
+   */
+  public SwerveStatePublisher(Translation2d... moduleLocations) {
+    final int count = moduleLocations.length;
+    m_moduleSpeeds = new double[count];
+    m_moduleAngles = new double[count];
+    // same model as SwerveDriveKinematics, solved once here instead of on every update
+    final SimpleMatrix inverseKinematics = new SimpleMatrix(count * 2, 3);
+    for (int i = 0; i < count; i++) {
+      inverseKinematics.setRow(i * 2, 0, 1, 0, -moduleLocations[i].getY());
+      inverseKinematics.setRow(i * 2 + 1, 0, 0, 1, moduleLocations[i].getX());
+    }
+    final SimpleMatrix forwardKinematics = inverseKinematics.pseudoInverse();
+    m_forwardKinematics = new double[3][count * 2];
+    for (int row = 0; row < 3; row++) {
+      for (int col = 0; col < count * 2; col++) {
+        m_forwardKinematics[row][col] = forwardKinematics.get(row, col);
+      }
+    }
+  }
+
+  /**
+   * @brief publish a new drive state
+   *
+   *        Called from the odometry thread. Does not allocate.
+   *
+   * @param state the drive state
+   * @param timestamp when the state was measured, in seconds
+   */
+  public void write(SwerveDriveState state, double timestamp) {
+    if (state.Pose == null || state.ModuleStates == null)
+      return;
+    final long sequence = m_sequence;
+    m_sequence = sequence + 1;
+    VarHandle.storeStoreFence();
+    m_timestamp = timestamp;
+    m_x = state.Pose.getX();
+    m_y = state.Pose.getY();
+    m_heading = state.Pose.getRotation().getRadians();
+    double vx = 0;
+    double vy = 0;
+    double omega = 0;
+    for (int i = 0; i < m_moduleSpeeds.length; i++) {
+      final double speed = state.ModuleStates[i].speedMetersPerSecond;
+      final double angle = state.ModuleStates[i].angle.getRadians();
+      m_moduleSpeeds[i] = speed;
+      m_moduleAngles[i] = angle;
+      final double moduleVx = speed * Math.cos(angle);
+      final double moduleVy = speed * Math.sin(angle);
+      vx += m_forwardKinematics[0][i * 2] * moduleVx + m_forwardKinematics[0][i * 2 + 1] * moduleVy;
+      vy += m_forwardKinematics[1][i * 2] * moduleVx + m_forwardKinematics[1][i * 2 + 1] * moduleVy;
+      omega +=
+          m_forwardKinematics[2][i * 2] * moduleVx + m_forwardKinematics[2][i * 2 + 1] * moduleVy;
+    }
+    m_vx = vx;
+    m_vy = vy;
+    m_omega = omega;
+    m_sequence = sequence + 2;
+  }
+
+  /**
+   * @brief publish a pose reset, keeping the speeds and module states
+   *
+   *        Called with the pose a reset seeded, so readers see it before the next odometry
+   *        update. Does not allocate.
+   *
+   * @param pose the new pose
+   * @param timestamp when the pose was reset, in seconds
+   */
+  public void writePose(Pose2d pose, double timestamp) {
+    final long sequence = m_sequence;
+    m_sequence = sequence + 1;
+    VarHandle.storeStoreFence();
+    m_timestamp = timestamp;
+    m_x = pose.getX();
+    m_y = pose.getY();
+    m_heading = pose.getRotation().getRadians();
+    m_sequence = sequence + 2;
+  }
+
+  /**
+   * @brief copy the latest drive state
+   *
+   *        Never blocks the writer. Does not allocate.
+   *
+   * @param out where to copy the state to
+   */
+  public void read(Snapshot out) {
+    while (true) {
+      final long before = m_sequence;
+      if ((before & 1) == 0) {
+        out.timestamp = m_timestamp;
+        out.x = m_x;
+        out.y = m_y;
+        out.heading = m_heading;
+        out.vx = m_vx;
+        out.vy = m_vy;
+        out.omega = m_omega;
+        for (int i = 0; i < m_moduleSpeeds.length; i++) {
+          out.moduleSpeeds[i] = m_moduleSpeeds[i];
+          out.moduleAngles[i] = m_moduleAngles[i];
+        }
+        VarHandle.loadLoadFence();
+        if (m_sequence == before)
+          return;
+      }
+      m_retries.increment();
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * @brief get the latest pose
+   *
+   * @return Pose2d
+   */
+  public Pose2d getPose() {
+    while (true) {
+      final long before = m_sequence;
+      if ((before & 1) == 0) {
+        final double x = m_x;
+        final double y = m_y;
+        final double heading = m_heading;
+        VarHandle.loadLoadFence();
+        if (m_sequence == before)
+          return new Pose2d(x, y, new Rotation2d(heading));
+      }
+      m_retries.increment();
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * @brief get the latest robot relative chassis speeds
+   *
+   * @return ChassisSpeeds
+   */
+  public ChassisSpeeds getChassisSpeeds() {
+    while (true) {
+      final long before = m_sequence;
+      if ((before & 1) == 0) {
+        final double vx = m_vx;
+        final double vy = m_vy;
+        final double omega = m_omega;
+        VarHandle.loadLoadFence();
+        if (m_sequence == before)
+          return new ChassisSpeeds(vx, vy, omega);
+      }
+      m_retries.increment();
+      Thread.onSpinWait();
+    }
+  }
+
+  /**
+   * @brief get how many times readers had to retry because the writer was writing
+   *
+   * @return long
+   */
+  public long getRetries() {
+    return m_retries.sum();
+  }
+}
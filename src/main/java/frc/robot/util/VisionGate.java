@@ -0,0 +1,163 @@
+package frc.robot.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.IntegerPublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants.PoseEstimation;
+
+/**
+ * @brief Chi-squared outlier gate for vision measurements
+ *
+ *        A measurement is compared against the odometry pose at the time its frame was captured,
+ *        taken from a PoseHistory. The residual is weighted by the uncertainty of both the pose
+ *        estimate and the measurement (the squared Mahalanobis distance) and the measurement is
+ *        rejected if that is too unlikely for 3 degrees of freedom.
+ *
+ *        The pose estimate is trusted more right after a vision measurement is accepted, and less
+ *        the further the robot drives on odometry alone.
+ *
+ *        Publishes the acceptance rate, the distribution of the squared distances and the cost of
+ *        the gate under Vision/Gate once per second. Must only be used from one thread.
+ */
+public class VisionGate {
+  // upper edges of the squared distance histogram, the last bucket is everything rejected
+  private static final double[] kBucketEdges =
+      {0.5, 1, 2, 4, 8, PoseEstimation.kGateThreshold, Double.POSITIVE_INFINITY};
+
+  private final PoseHistory m_history;
+  private final PoseHistory.Sample m_sample = new PoseHistory.Sample();
+  // accumulated odometry variance when the last accepted measurement was captured
+  private double m_fusedTranslationVariance = 0;
+  private double m_fusedHeadingVariance = 0;
+  private int m_consecutiveRejections = 0;
+  // publishers
+  private final DoublePublisher m_acceptanceRate;
+  private final DoublePublisher m_meanDistance;
+  private final DoubleArrayPublisher m_distanceHistogram;
+  private final IntegerPublisher m_accepted;
+  private final IntegerPublisher m_rejected;
+  // totals
+  private long m_totalAccepted = 0;
+  private long m_totalRejected = 0;
+  // current statistics window
+  private final double[] m_buckets = new double[kBucketEdges.length];
+  private long m_windowStart = System.nanoTime();
+  private long m_windowAccepted = 0;
+  private long m_windowMeasurements = 0;
+  private double m_windowDistance = 0;
+  // hot path timer
+  private final SectionTimer m_gateTimer = new SectionTimer("VisionGate.accept");
+
+  /**
+   * @brief VisionGate constructor
+   *
+   * @param history odometry pose history
+   */
+  public VisionGate(PoseHistory history) {
+    m_history = history;
+    final NetworkTable table =
+        NetworkTableInstance.getDefault().getTable("Vision").getSubTable("Gate");
+    m_acceptanceRate = table.getDoubleTopic("Acceptance Rate").publish();
+    m_meanDistance = table.getDoubleTopic("Mean Squared Distance").publish();
+    m_distanceHistogram = table.getDoubleArrayTopic("Squared Distance Histogram").publish();
+    m_accepted = table.getIntegerTopic("Accepted").publish();
+    m_rejected = table.getIntegerTopic("Rejected").publish();
+    table.getDoubleArrayTopic("Histogram Edges").publish().set(kBucketEdges);
+  }
+
+  /**
+   * @brief decide whether a vision measurement is consistent with odometry
+   *
+   *        Measurements older than the history are rejected. If the gate rejects too many
+   *        measurements in a row the pose estimate is assumed to be wrong, and the next
+   *        measurement is let through so vision can correct it. Does not allocate.
+   *
+   * @param pose the measured pose
+   * @param timestamp when the frame was captured, in the history's timebase
+   * @param stdDevs standard deviations of the measurement (x, y, heading)
+   * @return boolean whether the measurement should be fused
+   */
+  public boolean accept(Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs) {
+    m_gateTimer.start();
+    try {
+      // too old to compare against odometry
+      if (!m_history.sample(timestamp, m_sample)) {
+        m_totalRejected++;
+        return false;
+      }
+      // uncertainty of the estimate: the estimator's own, plus odometry drift since vision last
+      // corrected it
+      final double translationVariance = square(PoseEstimation.kStateStdDevs[0])
+          + Math.max(m_sample.translationVariance - m_fusedTranslationVariance, 0);
+      final double headingVariance = square(PoseEstimation.kStateStdDevs[1])
+          + Math.max(m_sample.headingVariance - m_fusedHeadingVariance, 0);
+      // x, y and heading are treated as independent
+      final double distance =
+          square(pose.getX() - m_sample.x) / (translationVariance + square(stdDevs.get(0, 0)))
+              + square(pose.getY() - m_sample.y)
+                  / (translationVariance + square(stdDevs.get(1, 0)))
+              + square(MathUtil.angleModulus(pose.getRotation().getRadians() - m_sample.heading))
+                  / (headingVariance + square(stdDevs.get(2, 0)));
+      boolean accepted = distance <= PoseEstimation.kGateThreshold;
+      if (!accepted && ++m_consecutiveRejections > PoseEstimation.kMaxConsecutiveRejections)
+        accepted = true;
+      if (accepted) {
+        m_consecutiveRejections = 0;
+        m_fusedTranslationVariance = m_sample.translationVariance;
+        m_fusedHeadingVariance = m_sample.headingVariance;
+      }
+      return record(accepted, distance);
+    } finally {
+      m_gateTimer.stop();
+    }
+  }
+
+  /**
+   * @brief record the result of a measurement and publish once per window
+   *
+   * @param accepted whether the measurement was accepted
+   * @param distance squared Mahalanobis distance of the measurement
+   * @return boolean accepted
+   */
+  private boolean record(boolean accepted, double distance) {
+    int bucket = 0;
+    while (distance > kBucketEdges[bucket])
+      bucket++;
+    m_buckets[bucket]++;
+    m_windowMeasurements++;
+    m_windowDistance += distance;
+    if (accepted) {
+      m_windowAccepted++;
+      m_totalAccepted++;
+    } else {
+      m_totalRejected++;
+    }
+    final long now = System.nanoTime();
+    if (now - m_windowStart >= (long) (PoseEstimation.kGatePublishPeriod * 1e9)) {
+      m_acceptanceRate.set((double) m_windowAccepted / m_windowMeasurements);
+      m_meanDistance.set(m_windowDistance / m_windowMeasurements);
+      m_distanceHistogram.set(m_buckets);
+      m_accepted.set(m_totalAccepted);
+      m_rejected.set(m_totalRejected);
+      for (int i = 0; i < m_buckets.length; i++) {
+        m_buckets[i] = 0;
+      }
+      m_windowStart = now;
+      m_windowAccepted = 0;
+      m_windowMeasurements = 0;
+      m_windowDistance = 0;
+    }
+    return accepted;
+  }
+
+  private static double square(double value) {
+    return value * value;
+  }
+}
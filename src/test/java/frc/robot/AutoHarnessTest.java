@@ -0,0 +1,53 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * @brief Runs every auto in the deploy directory with AutoHarness
+ *
+ *        The robot code uses singletons, so the robot is booted once and the autos run one after
+ *        the other on it, disabled in between. Every auto sets its own starting pose.
+ */
+class AutoHarnessTest {
+  private static Robot s_robot;
+
+  @BeforeAll
+  static void bootRobot() {
+    s_robot = AutoHarness.boot(AllianceStationID.Blue1);
+    assertNotNull(s_robot, "the HAL didn't start");
+  }
+
+  /**
+   * @brief every auto finishes before AutoHarness's timeout
+   */
+  @TestFactory
+  Stream<DynamicTest> autosFinish() {
+    return AutoHarness.listAutos().stream()
+        .map(name -> DynamicTest.dynamicTest(name, () -> runAuto(name)));
+  }
+
+  private static void runAuto(String name) {
+    final Command auto = AutoHarness.buildAuto(s_robot, name);
+    try {
+      AutoHarness.runAuto(s_robot, auto, new long[AutoHarness.kMaxLoops]);
+      assertFalse(auto.isScheduled(), name + " did not finish");
+    } finally {
+      CommandScheduler.getInstance().cancelAll();
+      DriverStationSim.setEnabled(false);
+      DriverStationSim.notifyNewData();
+      AutoHarness.step(s_robot);
+    }
+  }
+}
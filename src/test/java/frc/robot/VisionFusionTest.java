@@ -0,0 +1,132 @@
+package frc.robot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.WPIUtilJNI;
+
+/**
+ * @brief Fuses simulated cameras publishing to a local networktables instance
+ */
+class VisionFusionTest {
+  private static final String[] kCameras = {"limelight-left", "limelight-right"};
+  private static final int kFramesPerCamera = 10;
+  // how long the listener thread gets to take a frame (seconds)
+  private static final double kTimeout = 1.0;
+  // latency the cameras report (milliseconds)
+  private static final double kLatency = 20.0;
+
+  private NetworkTableInstance m_inst;
+
+  @BeforeEach
+  void createInstance() {
+    m_inst = NetworkTableInstance.create();
+  }
+
+  @AfterEach
+  void closeInstance() {
+    m_inst.close();
+  }
+
+  /**
+   * @brief a frame as published, and its standard deviations as the camera's model gives them
+   */
+  private static class Published {
+    private final Pose2d m_pose;
+    private final Matrix<N3, N1> m_stdDevs;
+    private int m_fused = 0;
+
+    private Published(Pose2d pose, Matrix<N3, N1> stdDevs) {
+      m_pose = pose;
+      m_stdDevs = stdDevs;
+    }
+  }
+
+  /**
+   * @brief every frame of every camera is fused exactly once, oldest first, with the standard
+   *        deviations of its own camera's model
+   */
+  @Test
+  void fusesEveryFrameOnce() {
+    // capture time to frame, capture times are unique across the cameras
+    final Map<Double, Published> published = new HashMap<>();
+    final double[] lastTimestamp = {Double.NEGATIVE_INFINITY};
+    final VisionFusion fusion = new VisionFusion(timestamp -> new Pose2d(),
+        (pose, timestamp, stdDevs) -> {
+          final Published frame = published.get(timestamp);
+          assertNotNull(frame, "fused a frame that wasn't published at " + timestamp);
+          assertTrue(timestamp >= lastTimestamp[0], "fused out of order");
+          lastTimestamp[0] = timestamp;
+          assertEquals(frame.m_pose, pose);
+          assertEquals(frame.m_stdDevs, stdDevs);
+          frame.m_fused++;
+        }, m_inst);
+    final DoubleArrayPublisher[] botposes = new DoubleArrayPublisher[kCameras.length];
+    final DoubleArrayPublisher[] fiducials = new DoubleArrayPublisher[kCameras.length];
+    for (int camera = 0; camera < kCameras.length; camera++) {
+      // every camera trusts its frames differently, by distance and ambiguity
+      final double scale = camera + 1;
+      fusion.addCamera(new Vision(kCameras[camera], null, m_inst),
+          (frame, estimate) -> stdDevs(scale, frame.tagDistance, frame.ambiguity)).init();
+      botposes[camera] =
+          m_inst.getTable(kCameras[camera]).getDoubleArrayTopic("botpose_wpiblue").publish();
+      fiducials[camera] =
+          m_inst.getTable(kCameras[camera]).getDoubleArrayTopic("rawfiducials").publish();
+    }
+
+    // the cameras take turns, like two cameras running at the same rate
+    long time = WPIUtilJNI.now();
+    for (int i = 0; i < kFramesPerCamera; i++) {
+      for (int camera = 0; camera < kCameras.length; camera++) {
+        time += 1000;
+        final double x = 1.0 + i * 0.1;
+        final double y = 2.0 + camera;
+        final double distance = 1.5 + 0.1 * i;
+        final double ambiguity = 0.05 * (camera + 1);
+        // one tag: id, tx, ty, area, distance to camera, distance to robot, ambiguity
+        fiducials[camera].set(new double[] {4, 0, 0, 0.5, distance, distance, ambiguity}, time);
+        // 2024 firmware layout: pose, latency, tag count, span, distance, area
+        botposes[camera].set(
+            new double[] {x, y, 0, 0, 0, 0, kLatency, 1, 0, distance, 0.5}, time);
+        // the frame's rawfiducials are only current until the next frame is published
+        assertTrue(m_inst.waitForListenerQueue(kTimeout));
+        published.put(time / 1e6 - kLatency / 1e3,
+            new Published(new Pose2d(x, y, new Rotation2d()),
+                stdDevs(camera + 1, distance, ambiguity)));
+      }
+    }
+    // the same frame again, which must not be fused a second time
+    botposes[0].set(new double[] {9, 9, 0, 0, 0, 0, kLatency, 1, 0, 1, 0.5}, time - 1000);
+    assertTrue(m_inst.waitForListenerQueue(kTimeout));
+
+    assertEquals(kCameras.length * kFramesPerCamera, fusion.update());
+    // nothing left over
+    assertEquals(0, fusion.update());
+    for (final Map.Entry<Double, Published> entry : published.entrySet()) {
+      assertEquals(1, entry.getValue().m_fused, "frame at " + entry.getKey());
+    }
+  }
+
+  /**
+   * @brief standard deviations of a simulated camera's noise model
+   */
+  private static Matrix<N3, N1> stdDevs(double scale, double distance, double ambiguity) {
+    return VecBuilder.fill(0.1 * scale * distance, 0.1 * scale * distance, scale * ambiguity);
+  }
+}
@@ -0,0 +1,96 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.generated.TunerConstants;
+
+/**
+ * @brief Checks the drive entry points the path followers call every tick
+ */
+class CommandSwerveDrivetrainTest {
+  private static final int kWarmupTicks = 50_000;
+  private static final int kTicks = 10_000;
+  // windows measured, see driveDoesNotAllocate()
+  private static final int kWindows = 5;
+
+  @BeforeAll
+  static void initializeHal() {
+    assertTrue(HAL.initialize(500, 0));
+  }
+
+  /**
+   * @brief a warmed loop of driveRobotRelative() and driveFieldRelative() allocates nothing
+   *
+   *        setControl() takes the drivetrain's lock, which allocates a queue node when the
+   *        odometry thread holds it at that moment. That can't happen in every window, while an
+   *        allocation in either method would, so the quietest window has to be 0 bytes.
+   */
+  @Test
+  void driveDoesNotAllocate() {
+    final com.sun.management.ThreadMXBean bean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    assertTrue(bean.isThreadAllocatedMemorySupported());
+    bean.setThreadAllocatedMemoryEnabled(true);
+    final CommandSwerveDrivetrain drivetrain = TunerConstants.DriveTrain;
+    final ChassisSpeeds speeds = new ChassisSpeeds();
+    for (int i = 0; i < kWarmupTicks; i++) {
+      tick(drivetrain, speeds, i);
+    }
+    long fewestBytes = Long.MAX_VALUE;
+    for (int window = 0; window < kWindows; window++) {
+      final long before = bean.getCurrentThreadAllocatedBytes();
+      for (int i = 0; i < kTicks; i++) {
+        tick(drivetrain, speeds, i);
+      }
+      fewestBytes = Math.min(fewestBytes, bean.getCurrentThreadAllocatedBytes() - before);
+    }
+    drivetrain.driveFieldRelative(0, 0, 0);
+    assertEquals(0, fewestBytes, "bytes allocated by " + kTicks + " ticks");
+  }
+
+  /**
+   * @brief getPose() returns a seeded pose right away, without waiting for an odometry update
+   *
+   *        The odometry thread updates every few milliseconds, far slower than a seed and a read,
+   *        so a pose that is only published by odometry is still the old one here. Every seed is
+   *        meters from the last, and the robot is stopped, so an update that does land in between
+   *        stays well within the tolerance.
+   */
+  @Test
+  void seededPoseIsReadBack() {
+    final CommandSwerveDrivetrain drivetrain = TunerConstants.DriveTrain;
+    drivetrain.driveRobotRelative(new ChassisSpeeds());
+    for (int i = 0; i < 20; i++) {
+      final Pose2d seed =
+          new Pose2d(2.0 + (i % 5) * 3.0, 1.0 + i * 0.3, Rotation2d.fromDegrees(i * 17 - 150));
+      drivetrain.seedFieldRelative(seed);
+      final Pose2d pose = drivetrain.getPose();
+      assertEquals(seed.getX(), pose.getX(), 1e-3, "seed " + i);
+      assertEquals(seed.getY(), pose.getY(), 1e-3, "seed " + i);
+      assertEquals(0, seed.getRotation().minus(pose.getRotation()).getRadians(), 1e-3,
+          "seed " + i);
+    }
+  }
+
+  /**
+   * @brief one follower tick, with speeds that change like a follower's do
+   */
+  private static void tick(CommandSwerveDrivetrain drivetrain, ChassisSpeeds speeds, int i) {
+    speeds.vxMetersPerSecond = 0.001 * (i % 1000);
+    speeds.vyMetersPerSecond = -0.001 * (i % 500);
+    speeds.omegaRadiansPerSecond = 0.002 * (i % 250);
+    drivetrain.driveRobotRelative(speeds);
+    drivetrain.driveFieldRelative(speeds.vyMetersPerSecond, speeds.vxMetersPerSecond,
+        speeds.omegaRadiansPerSecond);
+  }
+}
@@ -0,0 +1,189 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * @brief Checks the paths Lazy Theta* finds on small synthetic grids
+ */
+class GridPathfinderTest {
+  private static final double kCellSize = 0.25;
+
+  /**
+   * @brief every path found only crosses free cells, and one is found exactly when the goal can
+   *        be reached
+   */
+  @Test
+  void pathsNeverCrossBlockedCells() {
+    final Random random = new Random(5);
+    for (long seed = 0; seed < 10; seed++) {
+      final boolean[][] obstacles = NavGridTest.randomObstacles(40, 20, 0.12, seed);
+      // with some clearance, so blocked cells aren't only the obstacles themselves
+      final NavGrid grid = new NavGrid(obstacles, kCellSize, 0.1);
+      final GridPathfinder pathfinder = new GridPathfinder(grid);
+      final int cells = grid.getWidth() * grid.getHeight();
+      int found = 0;
+      for (int i = 0; i < 200; i++) {
+        final int start = freeCell(grid, random);
+        final int goal = freeCell(grid, random);
+        final boolean reachable = reachable(grid, start, goal);
+        assertEquals(reachable, pathfinder.search(start, goal),
+            "seed " + seed + " from " + start + " to " + goal);
+        if (!reachable)
+          continue;
+        found++;
+        final int length = pathfinder.getPathLength();
+        assertTrue(length >= 2);
+        assertEquals(start, pathfinder.getPathCell(0));
+        assertEquals(goal, pathfinder.getPathCell(length - 1));
+        for (int j = 0; j + 1 < length; j++) {
+          final int from = pathfinder.getPathCell(j);
+          final int to = pathfinder.getPathCell(j + 1);
+          assertTrue(from >= 0 && from < cells && !grid.isBlocked(from));
+          assertTrue(grid.lineOfSight(from, to), "seed " + seed + " segment " + j);
+          assertTrue(NavGridTest.segmentIsFree(grid, from, to), "seed " + seed + " segment " + j);
+        }
+      }
+      assertTrue(found > 20, "seed " + seed + " found too few paths to mean anything");
+    }
+  }
+
+  /**
+   * @brief paths are no longer than the shortest path over the eight neighbours
+   */
+  @Test
+  void pathsAreNoLongerThanGridPaths() {
+    final Random random = new Random(9);
+    final boolean[][] obstacles = NavGridTest.randomObstacles(30, 30, 0.15, 2);
+    final NavGrid grid = new NavGrid(obstacles, kCellSize, 0);
+    final GridPathfinder pathfinder = new GridPathfinder(grid);
+    for (int i = 0; i < 200; i++) {
+      final int start = freeCell(grid, random);
+      final int goal = freeCell(grid, random);
+      if (!pathfinder.search(start, goal))
+        continue;
+      double length = 0;
+      for (int j = 0; j + 1 < pathfinder.getPathLength(); j++) {
+        final int from = pathfinder.getPathCell(j);
+        final int to = pathfinder.getPathCell(j + 1);
+        length += Math.hypot(grid.centerX(from) - grid.centerX(to),
+            grid.centerY(from) - grid.centerY(to)) / kCellSize;
+      }
+      assertTrue(length <= gridDistance(grid, start, goal) + 1e-9,
+          "from " + start + " to " + goal);
+    }
+  }
+
+  /**
+   * @brief the waypoints start and end at the exact points asked for, even inside obstacles
+   */
+  @Test
+  void waypointsStartAndEndAtTheExactPoints() {
+    final boolean[][] obstacles = new boolean[8][16];
+    // a wall across the middle with a gap at the top
+    for (int y = 0; y < 6; y++) {
+      obstacles[y][8] = true;
+    }
+    final NavGrid grid = new NavGrid(obstacles, kCellSize, 0);
+    final GridPathfinder pathfinder = new GridPathfinder(grid);
+    final Translation2d start = new Translation2d(0.33, 0.41);
+    // inside the wall
+    final Translation2d goal = new Translation2d(8.5 * kCellSize, 0.6);
+    final List<Translation2d> waypoints = pathfinder.findWaypoints(start, goal);
+    assertNotNull(waypoints);
+    assertEquals(start, waypoints.get(0));
+    assertEquals(goal, waypoints.get(waypoints.size() - 1));
+    // around the top of the wall
+    assertTrue(waypoints.size() > 2);
+    assertNull(pathfinder.findWaypoints(start, start));
+  }
+
+  /**
+   * @brief a goal walled off from the start has no path
+   */
+  @Test
+  void walledOffGoalHasNoPath() {
+    final boolean[][] obstacles = new boolean[8][16];
+    for (int y = 0; y < 8; y++) {
+      obstacles[y][8] = true;
+    }
+    final NavGrid grid = new NavGrid(obstacles, kCellSize, 0);
+    final GridPathfinder pathfinder = new GridPathfinder(grid);
+    assertFalse(pathfinder.search(grid.cellAt(0.1, 0.1), grid.cellAt(3.9, 1.9)));
+    assertEquals(0, pathfinder.getPathLength());
+  }
+
+  private static int freeCell(NavGrid grid, Random random) {
+    final int cells = grid.getWidth() * grid.getHeight();
+    while (true) {
+      final int cell = random.nextInt(cells);
+      if (!grid.isBlocked(cell))
+        return cell;
+    }
+  }
+
+  /**
+   * @brief whether a cell can be reached over the same moves the search makes
+   */
+  private static boolean reachable(NavGrid grid, int start, int goal) {
+    final boolean[] seen = new boolean[grid.getWidth() * grid.getHeight()];
+    final ArrayDeque<Integer> queue = new ArrayDeque<>();
+    queue.add(start);
+    seen[start] = true;
+    while (!queue.isEmpty()) {
+      final int cell = queue.poll();
+      if (cell == goal)
+        return true;
+      for (int i = 0; i < NavGrid.kNeighbours; i++) {
+        final int neighbour =
+            grid.neighbour(cell % grid.getWidth(), cell / grid.getWidth(), i);
+        if (neighbour >= 0 && !seen[neighbour]) {
+          seen[neighbour] = true;
+          queue.add(neighbour);
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @brief the shortest path over the eight neighbours, by Dijkstra
+   *
+   * @return double cells
+   */
+  private static double gridDistance(NavGrid grid, int start, int goal) {
+    final int cells = grid.getWidth() * grid.getHeight();
+    final double[] distance = new double[cells];
+    final boolean[] done = new boolean[cells];
+    java.util.Arrays.fill(distance, Double.POSITIVE_INFINITY);
+    distance[start] = 0;
+    while (true) {
+      int cell = -1;
+      for (int i = 0; i < cells; i++) {
+        if (!done[i] && (cell < 0 || distance[i] < distance[cell]))
+          cell = i;
+      }
+      if (cell < 0 || cell == goal || distance[cell] == Double.POSITIVE_INFINITY)
+        return distance[goal];
+      done[cell] = true;
+      for (int i = 0; i < NavGrid.kNeighbours; i++) {
+        final int neighbour =
+            grid.neighbour(cell % grid.getWidth(), cell / grid.getWidth(), i);
+        if (neighbour >= 0)
+          distance[neighbour] =
+              Math.min(distance[neighbour], distance[cell] + NavGrid.neighbourCost(i));
+      }
+    }
+  }
+}
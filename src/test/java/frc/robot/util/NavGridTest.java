@@ -0,0 +1,169 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * @brief Checks NavGrid's distance transform and line of sight on small synthetic grids
+ */
+class NavGridTest {
+  private static final double kCellSize = 0.25;
+
+  /**
+   * @brief a grid of the given size with random obstacles
+   */
+  static boolean[][] randomObstacles(int width, int height, double density, long seed) {
+    final Random random = new Random(seed);
+    final boolean[][] obstacles = new boolean[height][width];
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        obstacles[y][x] = random.nextDouble() < density;
+      }
+    }
+    return obstacles;
+  }
+
+  /**
+   * @brief meters from the center of a cell to the edge of the nearest obstacle, by brute force
+   */
+  private static double bruteForceClearance(boolean[][] obstacles, int x, int y) {
+    double nearest = Double.MAX_VALUE;
+    for (int obstacleY = 0; obstacleY < obstacles.length; obstacleY++) {
+      for (int obstacleX = 0; obstacleX < obstacles[0].length; obstacleX++) {
+        if (obstacles[obstacleY][obstacleX])
+          nearest = Math.min(nearest, Math.hypot(x - obstacleX, y - obstacleY));
+      }
+    }
+    return nearest == Double.MAX_VALUE ? Double.MAX_VALUE
+        : Math.max((nearest - 0.5) * kCellSize, 0);
+  }
+
+  /**
+   * @brief the clearance of every cell matches a brute force search for the nearest obstacle
+   */
+  @Test
+  void distanceTransformIsExact() {
+    for (long seed = 0; seed < 20; seed++) {
+      final boolean[][] obstacles = randomObstacles(17, 11, 0.08, seed);
+      final NavGrid grid = new NavGrid(obstacles, kCellSize, 0);
+      for (int y = 0; y < grid.getHeight(); y++) {
+        for (int x = 0; x < grid.getWidth(); x++) {
+          final double expected = bruteForceClearance(obstacles, x, y);
+          final double actual = grid.getClearance(x + y * grid.getWidth());
+          if (expected == Double.MAX_VALUE)
+            assertTrue(actual > 1e6, "seed " + seed + " cell " + x + ", " + y);
+          else
+            assertEquals(expected, actual, 1e-5, "seed " + seed + " cell " + x + ", " + y);
+        }
+      }
+    }
+  }
+
+  /**
+   * @brief exactly the obstacles and the cells closer to them than the clearance are blocked
+   */
+  @Test
+  void clearanceBlocksCellsNearObstacles() {
+    final double clearance = 0.6;
+    final boolean[][] obstacles = randomObstacles(20, 12, 0.03, 7);
+    final NavGrid grid = new NavGrid(obstacles, kCellSize, clearance);
+    for (int y = 0; y < grid.getHeight(); y++) {
+      for (int x = 0; x < grid.getWidth(); x++) {
+        final boolean expected =
+            obstacles[y][x] || bruteForceClearance(obstacles, x, y) < clearance;
+        assertEquals(expected, grid.isBlocked(x, y), "cell " + x + ", " + y);
+        assertEquals(expected, grid.isBlocked(x + y * grid.getWidth()), "cell " + x + ", " + y);
+      }
+    }
+    assertTrue(grid.isBlocked(-1, 0));
+    assertTrue(grid.isBlocked(0, grid.getHeight()));
+  }
+
+  /**
+   * @brief a grid without obstacles has nothing blocked and an unbounded clearance
+   */
+  @Test
+  void emptyGridIsFree() {
+    final NavGrid grid = new NavGrid(new boolean[6][9], kCellSize, 1.0);
+    for (int cell = 0; cell < grid.getWidth() * grid.getHeight(); cell++) {
+      assertFalse(grid.isBlocked(cell));
+      assertTrue(grid.getClearance(cell) > 1e6);
+    }
+  }
+
+  /**
+   * @brief line of sight stops at walls and never squeezes between diagonal obstacles
+   */
+  @Test
+  void lineOfSightStopsAtObstacles() {
+    final boolean[][] obstacles = new boolean[7][7];
+    // a wall down column 3, open at the top row
+    for (int y = 0; y < 6; y++) {
+      obstacles[y][3] = true;
+    }
+    final NavGrid grid = new NavGrid(obstacles, kCellSize, 0);
+    final int width = grid.getWidth();
+    assertFalse(grid.lineOfSight(1 + 2 * width, 5 + 2 * width));
+    assertTrue(grid.lineOfSight(0 + 6 * width, 6 + 6 * width));
+    assertTrue(grid.lineOfSight(0 + 0 * width, 2 + 5 * width));
+    assertTrue(grid.lineOfSight(2 + 2 * width, 2 + 2 * width));
+
+    // two obstacles touching at a corner, the diagonal between them passes through it
+    final boolean[][] corner = new boolean[4][4];
+    corner[1][2] = true;
+    corner[2][1] = true;
+    final NavGrid cornerGrid = new NavGrid(corner, kCellSize, 0);
+    assertFalse(cornerGrid.lineOfSight(1 + 1 * 4, 2 + 2 * 4));
+    assertFalse(cornerGrid.lineOfSight(0 + 0 * 4, 3 + 3 * 4));
+    assertTrue(cornerGrid.lineOfSight(0 + 3 * 4, 0 + 0 * 4));
+  }
+
+  /**
+   * @brief whenever there is line of sight, the segment between the cell centers only crosses
+   *        free cells
+   */
+  @Test
+  void lineOfSightOnlyCrossesFreeCells() {
+    final Random random = new Random(3);
+    final boolean[][] obstacles = randomObstacles(24, 16, 0.1, 11);
+    final NavGrid grid = new NavGrid(obstacles, kCellSize, 0);
+    final int cells = grid.getWidth() * grid.getHeight();
+    int visible = 0;
+    for (int i = 0; i < 5000; i++) {
+      final int from = random.nextInt(cells);
+      final int to = random.nextInt(cells);
+      if (grid.isBlocked(from) || grid.isBlocked(to) || !grid.lineOfSight(from, to))
+        continue;
+      visible++;
+      assertTrue(segmentIsFree(grid, from, to), "from " + from + " to " + to);
+      assertTrue(grid.lineOfSight(to, from), "from " + to + " to " + from);
+    }
+    assertTrue(visible > 100, "too few visible pairs to mean anything: " + visible);
+  }
+
+  /**
+   * @brief whether every point sampled along the segment between two cell centers is free
+   */
+  static boolean segmentIsFree(NavGrid grid, int from, int to) {
+    final double fromX = grid.centerX(from);
+    final double fromY = grid.centerY(from);
+    final double toX = grid.centerX(to);
+    final double toY = grid.centerY(to);
+    final int samples = 1000;
+    for (int i = 0; i < samples; i++) {
+      // off the cell edges, which belong to either side
+      final double t = (i + 0.5) / samples;
+      final double x = fromX + t * (toX - fromX);
+      final double y = fromY + t * (toY - fromY);
+      if (grid.isBlocked((int) Math.floor(x / grid.getCellSize()),
+          (int) Math.floor(y / grid.getCellSize())))
+        return false;
+    }
+    return true;
+  }
+}
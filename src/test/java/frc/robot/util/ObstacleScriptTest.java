@@ -0,0 +1,148 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.Constants.Pathfinding;
+
+/**
+ * @brief Checks that scripted obstacles reach NetworkTablesObstacleSource, and that D* Lite plans
+ *        around them, on a local NetworkTables instance
+ */
+class ObstacleScriptTest {
+  private static final double kCellSize = 0.25;
+  // how long to watch the script, long enough for the defender to move (seconds)
+  private static final double kWatchTime = 2.0;
+
+  private NetworkTableInstance m_inst;
+  private ObstacleScript m_script;
+
+  @BeforeAll
+  static void initializeHal() {
+    // the script runs on a Notifier
+    assertTrue(HAL.initialize(500, 0));
+  }
+
+  @BeforeEach
+  void createInstance() {
+    m_inst = NetworkTableInstance.create();
+  }
+
+  @AfterEach
+  void closeInstance() {
+    if (m_script != null)
+      m_script.stop();
+    m_inst.close();
+  }
+
+  /**
+   * @brief the source reads every step the script publishes, in order, and nothing once stopped
+   */
+  @Test
+  void sourceReadsEveryStepInOrder() throws InterruptedException {
+    final double[][] steps = {{1.0, 1.0, 0.5}, {2.0, 1.5, 0.5, 3.0, 2.0, 0.3}, {}};
+    final ObstacleSource source = new NetworkTablesObstacleSource(m_inst);
+    m_script = new ObstacleScript(m_inst, steps);
+    m_script.start();
+    final List<double[]> seen = watch(source);
+    assertTrue(seen.size() >= 6, "only " + seen.size() + " steps published");
+    final int first = indexOf(steps, seen.get(0));
+    for (int i = 0; i < seen.size(); i++) {
+      assertArrayEquals(steps[(first + i) % steps.length], seen.get(i), "step " + i);
+    }
+    m_script.stop();
+    m_script = null;
+    assertEquals(0, source.getObstacles().length);
+  }
+
+  /**
+   * @brief every path D* Lite repairs while the defender moves stays clear of it
+   */
+  @Test
+  void plannerAvoidsTheDefender() throws InterruptedException {
+    // an open 8 by 6 meter field, the defender crosses x = 2 between y = 1 and 6
+    final NavGrid grid = new NavGrid(new boolean[24][32], kCellSize, 0);
+    final DStarLite planner = new DStarLite(grid);
+    final Translation2d start = new Translation2d(0.6, 3.1);
+    final Translation2d goal = new Translation2d(4.4, 3.1);
+    final ObstacleSource source = new NetworkTablesObstacleSource(m_inst);
+    m_script = ObstacleScript.defender(m_inst);
+    m_script.start();
+    final List<double[]> seen = watch(source);
+    assertTrue(seen.size() > 5, "only " + seen.size() + " steps published");
+    assertTrue(planner.plan(start, goal, obstacleCells(grid, seen.get(0))));
+    assertClear(planner, start, goal);
+    for (int i = 1; i < seen.size(); i++) {
+      assertTrue(planner.replan(start, obstacleCells(grid, seen.get(i))), "step " + i);
+      assertClear(planner, start, goal);
+    }
+  }
+
+  /**
+   * @brief read the source until kWatchTime passes, keeping every new array
+   */
+  private static List<double[]> watch(ObstacleSource source) throws InterruptedException {
+    final ArrayList<double[]> seen = new ArrayList<>();
+    long version = source.getVersion();
+    final long end = System.nanoTime() + (long) (kWatchTime * 1e9);
+    while (System.nanoTime() < end) {
+      final long latest = source.getVersion();
+      if (latest != version) {
+        version = latest;
+        seen.add(source.getObstacles());
+      }
+      Thread.sleep(2);
+    }
+    return seen;
+  }
+
+  private static int indexOf(double[][] steps, double[] obstacles) {
+    for (int i = 0; i < steps.length; i++) {
+      if (Arrays.equals(steps[i], obstacles))
+        return i;
+    }
+    throw new AssertionError("not a step of the script");
+  }
+
+  /**
+   * @brief mark the obstacles the way FollowDynamicPath does
+   */
+  private static long[] obstacleCells(NavGrid grid, double[] obstacles) {
+    final long[] cells = grid.newObstacles();
+    for (int i = 0; i + 2 < obstacles.length; i += 3) {
+      grid.addObstacle(cells, obstacles[i], obstacles[i + 1],
+          obstacles[i + 2] + Pathfinding.kObstacleInflation);
+    }
+    return cells;
+  }
+
+  /**
+   * @brief the planned path reaches the goal and only crosses cells free of the obstacles
+   */
+  private static void assertClear(DStarLite planner, Translation2d start, Translation2d goal) {
+    final List<Translation2d> waypoints = planner.getWaypoints(start);
+    assertNotNull(waypoints);
+    assertEquals(goal, waypoints.get(waypoints.size() - 1));
+    final NavGrid current = planner.getGrid();
+    for (int i = 0; i + 1 < waypoints.size(); i++) {
+      final Translation2d from = waypoints.get(i);
+      final Translation2d to = waypoints.get(i + 1);
+      assertTrue(NavGridTest.segmentIsFree(current, current.cellAt(from.getX(), from.getY()),
+          current.cellAt(to.getX(), to.getY())), "segment " + i);
+    }
+  }
+}